@@ -23,7 +23,6 @@ import com.google.android.gms.location.LocationResult;
 import com.google.android.gms.location.LocationServices;
 import com.google.android.gms.location.LocationSettingsRequest;
 import com.google.android.gms.location.LocationSettingsStatusCodes;
-import com.google.android.gms.location.Priority;
 import com.google.android.gms.location.SettingsClient;
 
 import app.organicmaps.util.LocationUtils;
@@ -70,11 +69,12 @@ class GoogleFusedLocationProvider extends BaseLocationProvider
 
   @Override
   @RequiresPermission(anyOf = {ACCESS_COARSE_LOCATION, ACCESS_FINE_LOCATION})
-  public void start(long interval)
+  public void start(long interval, int quality)
   {
     Logger.d(TAG);
 
-    final LocationRequest locationRequest = new LocationRequest.Builder(Priority.PRIORITY_HIGH_ACCURACY, interval)
+    // Qualities of LocationRequestCompat have the same values as the priorities.
+    final LocationRequest locationRequest = new LocationRequest.Builder(quality, interval)
         // Wait a few seconds for accurate locations initially, when accurate locations could not be computed on the device immediately.
         // https://github.com/organicmaps/organicmaps/issues/2149
         .setWaitForAccurateLocation(true)
@@ -59,6 +59,7 @@
 
 #include <cstdint>
 #include <memory>
+#include <optional>
 #include <string>
 #include <utility>
 #include <vector>
@@ -90,6 +91,17 @@ static_assert(sizeof(int) >= 4, "Size of jint in less than 4 bytes.");
 namespace
 {
 jobject g_placePageActivationListener = nullptr;
+jobject g_viewportListener = nullptr;
+jmethodID g_viewportChangedId = nullptr;
+
+void NotifyViewportChanged(m2::RectD const & rect, int zoom)
+{
+  ms::LatLon const min = mercator::ToLatLon(rect.LeftBottom());
+  ms::LatLon const max = mercator::ToLatLon(rect.RightTop());
+  JNIEnv * env = jni::GetEnv();
+  env->CallVoidMethod(g_viewportListener, g_viewportChangedId, min.m_lat, min.m_lon, max.m_lat,
+                      max.m_lon, static_cast<jint>(zoom));
+}
 
 android::AndroidVulkanContextFactory * CastFactory(drape_ptr<dp::GraphicsContextFactory> const & f)
 {
@@ -128,6 +140,8 @@ void Framework::OnLocationError(int errorCode)
 void Framework::OnLocationUpdated(location::GpsInfo const & info)
 {
   m_work.OnLocationUpdate(info);
+  if (m_onRouteFollowingFn)
+    m_onRouteFollowingFn();
 }
 
 void Framework::OnCompassUpdated(location::CompassInfo const & info, bool forceRedraw)
@@ -652,6 +666,11 @@ void Framework::SetMyPositionModeListener(location::TMyPositionModeChanged const
   m_myPositionModeSignal = fn;
 }
 
+void Framework::SetRouteFollowingListener(std::function<void()> const & fn)
+{
+  m_onRouteFollowingFn = fn;
+}
+
 location::EMyPositionMode Framework::GetMyPositionMode() const
 {
   // No need in assertion here, return location::PendingPosition if no engine created.
@@ -785,6 +804,148 @@ void CallSetRoutingLoadPointsListener(shared_ptr<jobject> listener, bool success
   env->CallVoidMethod(*listener, methodId, static_cast<jboolean>(success));
 }
 
+jobject ToJavaRoutingInfo(JNIEnv * env, routing::FollowingInfo const & info, bool isSpeedCamLimitExceeded,
+                          bool shouldPlaySignal)
+{
+  static jclass const klass = jni::GetGlobalClassRef(env, "app/organicmaps/routing/RoutingInfo");
+  // Java signature : RoutingInfo(Distance distToTarget, Distance distToTurn,
+  //                              String currentStreet, String nextStreet,
+  //                              double completionPercent, int vehicleTurnOrdinal, int
+  //                              vehicleNextTurnOrdinal, int pedestrianTurnOrdinal, int exitNum,
+  //                              int totalTime, SingleLaneInfo[] lanes)
+  static jmethodID const ctorRouteInfoID =
+      jni::GetConstructorID(env, klass,
+                            "(Lapp/organicmaps/util/Distance;Lapp/organicmaps/util/Distance;"
+                            "Ljava/lang/String;Ljava/lang/String;DIIIII"
+                            "[Lapp/organicmaps/routing/SingleLaneInfo;ZZ)V");
+
+  vector<routing::FollowingInfo::SingleLaneInfoClient> const & lanes = info.m_lanes;
+  jobjectArray jLanes = nullptr;
+  if (!lanes.empty())
+  {
+    static jclass const laneClass = jni::GetGlobalClassRef(env, "app/organicmaps/routing/SingleLaneInfo");
+    auto const lanesSize = static_cast<jsize>(lanes.size());
+    jLanes = env->NewObjectArray(lanesSize, laneClass, nullptr);
+    ASSERT(jLanes, (jni::DescribeException()));
+    static jmethodID const ctorSingleLaneInfoID = jni::GetConstructorID(env, laneClass, "([BZ)V");
+
+    for (jsize j = 0; j < lanesSize; ++j)
+    {
+      auto const laneSize = static_cast<jsize>(lanes[j].m_lane.size());
+      jni::TScopedLocalByteArrayRef singleLane(env, env->NewByteArray(laneSize));
+      ASSERT(singleLane.get(), (jni::DescribeException()));
+      env->SetByteArrayRegion(singleLane.get(), 0, laneSize, lanes[j].m_lane.data());
+
+      jni::TScopedLocalRef singleLaneInfo(
+          env, env->NewObject(laneClass, ctorSingleLaneInfoID, singleLane.get(),
+                              lanes[j].m_isRecommended));
+      ASSERT(singleLaneInfo.get(), (jni::DescribeException()));
+      env->SetObjectArrayElement(jLanes, j, singleLaneInfo.get());
+    }
+  }
+
+  jobject const result = env->NewObject(
+      klass, ctorRouteInfoID, ToJavaDistance(env, info.m_distToTarget),
+      ToJavaDistance(env, info.m_distToTurn), jni::ToJavaString(env, info.m_sourceName),
+      jni::ToJavaString(env, info.m_displayedStreetName), info.m_completionPercent, info.m_turn,
+      info.m_nextTurn, info.m_pedestrianTurn, info.m_exitNum, info.m_time, jLanes,
+      static_cast<jboolean>(isSpeedCamLimitExceeded), static_cast<jboolean>(shouldPlaySignal));
+  ASSERT(result, (jni::DescribeException()));
+  return result;
+}
+
+// Visible state of the route following, it's pushed to Java only when it changes.
+struct RouteFollowingSnapshot
+{
+  RouteFollowingSnapshot(routing::FollowingInfo const & info, bool speedCamLimitExceeded, bool shouldPlaySignal)
+    : m_turn(info.m_turn)
+    , m_nextTurn(info.m_nextTurn)
+    , m_pedestrianTurn(info.m_pedestrianTurn)
+    , m_exitNum(info.m_exitNum)
+    , m_distToTurn(info.m_distToTurn.ToString())
+    , m_distToTarget(info.m_distToTarget.ToString())
+    , m_minutesLeft(info.m_time / 60)
+    , m_completionPercent(static_cast<int>(info.m_completionPercent))
+    , m_sourceName(info.m_sourceName)
+    , m_displayedStreetName(info.m_displayedStreetName)
+    , m_speedCamLimitExceeded(speedCamLimitExceeded)
+    , m_shouldPlaySignal(shouldPlaySignal)
+  {
+    m_lanes.reserve(info.m_lanes.size());
+    for (auto const & lane : info.m_lanes)
+      m_lanes.emplace_back(lane.m_lane, lane.m_isRecommended);
+  }
+
+  bool operator==(RouteFollowingSnapshot const & rhs) const
+  {
+    return m_turn == rhs.m_turn && m_nextTurn == rhs.m_nextTurn && m_pedestrianTurn == rhs.m_pedestrianTurn &&
+           m_exitNum == rhs.m_exitNum && m_distToTurn == rhs.m_distToTurn && m_distToTarget == rhs.m_distToTarget &&
+           m_minutesLeft == rhs.m_minutesLeft && m_completionPercent == rhs.m_completionPercent &&
+           m_sourceName == rhs.m_sourceName && m_displayedStreetName == rhs.m_displayedStreetName &&
+           m_speedCamLimitExceeded == rhs.m_speedCamLimitExceeded && m_shouldPlaySignal == rhs.m_shouldPlaySignal &&
+           m_lanes == rhs.m_lanes;
+  }
+
+  routing::turns::CarDirection m_turn = routing::turns::CarDirection::None;
+  routing::turns::CarDirection m_nextTurn = routing::turns::CarDirection::None;
+  routing::turns::PedestrianDirection m_pedestrianTurn = routing::turns::PedestrianDirection::None;
+  uint32_t m_exitNum = 0;
+  string m_distToTurn;
+  string m_distToTarget;
+  int m_minutesLeft = 0;
+  int m_completionPercent = 0;
+  string m_sourceName;
+  string m_displayedStreetName;
+  bool m_speedCamLimitExceeded = false;
+  bool m_shouldPlaySignal = false;
+  vector<pair<vector<int8_t>, bool>> m_lanes;
+};
+
+// Touched only on the UI thread, where locations are passed to the core.
+optional<RouteFollowingSnapshot> g_lastRouteFollowing;
+
+void CallRouteFollowingListener(shared_ptr<jobject> listener)
+{
+  auto & rm = frm()->GetRoutingManager();
+  if (!rm.IsRoutingActive())
+  {
+    g_lastRouteFollowing.reset();
+    return;
+  }
+
+  vector<string> notifications;
+  rm.GenerateNotifications(notifications);
+  bool const isFinished = rm.IsRouteFinished();
+
+  routing::FollowingInfo info;
+  rm.GetRouteFollowingInfo(info);
+  // The beep signal is reset once it's taken, so it's taken only here.
+  bool const isSpeedCamLimitExceeded = rm.IsSpeedCamLimitExceeded();
+  bool const shouldPlaySignal = rm.GetSpeedCamManager().ShouldPlayBeepSignal();
+  optional<RouteFollowingSnapshot> snapshot;
+  if (info.IsValid())
+  {
+    snapshot.emplace(info, isSpeedCamLimitExceeded, shouldPlaySignal);
+    if (notifications.empty() && !isFinished && g_lastRouteFollowing && *g_lastRouteFollowing == *snapshot)
+      return;
+  }
+  else if (notifications.empty() && !isFinished)
+  {
+    return;
+  }
+  g_lastRouteFollowing = move(snapshot);
+
+  JNIEnv * env = jni::GetEnv();
+  static jmethodID const methodId =
+      jni::GetMethodID(env, *listener, "onRouteFollowingUpdated",
+                       "(Lapp/organicmaps/routing/RoutingInfo;[Ljava/lang/String;Z)V");
+  jni::TScopedLocalRef jInfo(
+      env, info.IsValid() ? ToJavaRoutingInfo(env, info, isSpeedCamLimitExceeded, shouldPlaySignal) : nullptr);
+  jni::TScopedLocalObjectArrayRef jNotifications(
+      env, notifications.empty() ? nullptr : jni::ToJavaStringArray(env, notifications));
+  env->CallVoidMethod(*listener, methodId, jInfo.get(), jNotifications.get(), static_cast<jboolean>(isFinished));
+}
+
 RoutingManager::LoadRouteHandler g_loadRouteHandler;
 
 /// @name JNI EXPORTS
@@ -914,6 +1075,33 @@ Java_app_organicmaps_Framework_nativeRemovePlacePageActivationListener(JNIEnv *e
   g_placePageActivationListener = nullptr;
 }
 
+JNIEXPORT void JNICALL
+Java_app_organicmaps_Framework_nativeSetViewportListener(JNIEnv * env, jclass, jobject jListener)
+{
+  if (g_viewportListener != nullptr)
+    env->DeleteGlobalRef(g_viewportListener);
+  g_viewportListener = env->NewGlobalRef(jListener);
+  // void onViewportChanged(double minLat, double minLon, double maxLat, double maxLon, int zoom);
+  g_viewportChangedId = jni::GetMethodID(env, g_viewportListener, "onViewportChanged", "(DDDDI)V");
+  frm()->SetViewportListener([](ScreenBase const & screen)
+  {
+    NotifyViewportChanged(screen.ClipRect(), df::GetDrawTileScale(screen));
+  });
+  // The listener is only called on changes, report the current viewport right away.
+  NotifyViewportChanged(frm()->GetCurrentViewport(), frm()->GetDrawScale());
+}
+
+JNIEXPORT void JNICALL
+Java_app_organicmaps_Framework_nativeRemoveViewportListener(JNIEnv * env, jclass)
+{
+  if (g_viewportListener == nullptr)
+    return;
+
+  frm()->SetViewportListener({});
+  env->DeleteGlobalRef(g_viewportListener);
+  g_viewportListener = nullptr;
+}
+
 JNIEXPORT jstring JNICALL
 Java_app_organicmaps_Framework_nativeGetGe0Url(JNIEnv * env, jclass, jdouble lat, jdouble lon, jdouble zoomLevel, jstring name)
 {
@@ -1165,6 +1353,8 @@ Java_app_organicmaps_Framework_nativeRemoveRoute(JNIEnv * env, jclass)
 JNIEXPORT void JNICALL
 Java_app_organicmaps_Framework_nativeFollowRoute(JNIEnv * env, jclass)
 {
+  // The navigation UI is shown from scratch, so the first update is pushed whatever it is.
+  g_lastRouteFollowing.reset();
   frm()->GetRoutingManager().FollowRoute();
 }
 
@@ -1174,21 +1364,6 @@ Java_app_organicmaps_Framework_nativeDisableFollowing(JNIEnv * env, jclass)
   frm()->GetRoutingManager().DisableFollowMode();
 }
 
-JNIEXPORT jobjectArray JNICALL
-Java_app_organicmaps_Framework_nativeGenerateNotifications(JNIEnv * env, jclass)
-{
-  ::Framework * fr = frm();
-  if (!fr->GetRoutingManager().IsRoutingActive())
-    return nullptr;
-
-  vector<string> notifications;
-  fr->GetRoutingManager().GenerateNotifications(notifications);
-  if (notifications.empty())
-    return nullptr;
-
-  return jni::ToJavaStringArray(env, notifications);
-}
-
 JNIEXPORT void JNICALL
 Java_app_organicmaps_Framework_nativeSetSpeedCamManagerMode(JNIEnv * env, jclass, jint mode)
 {
@@ -1214,54 +1389,51 @@ Java_app_organicmaps_Framework_nativeGetRouteFollowingInfo(JNIEnv * env, jclass)
   if (!info.IsValid())
     return nullptr;
 
-  static jclass const klass = jni::GetGlobalClassRef(env, "app/organicmaps/routing/RoutingInfo");
-  // Java signature : RoutingInfo(Distance distToTarget, Distance distToTurn,
-  //                              String currentStreet, String nextStreet,
-  //                              double completionPercent, int vehicleTurnOrdinal, int
-  //                              vehicleNextTurnOrdinal, int pedestrianTurnOrdinal, int exitNum,
-  //                              int totalTime, SingleLaneInfo[] lanes)
-  static jmethodID const ctorRouteInfoID =
-      jni::GetConstructorID(env, klass,
-                            "(Lapp/organicmaps/util/Distance;Lapp/organicmaps/util/Distance;"
-                            "Ljava/lang/String;Ljava/lang/String;DIIIII"
-                            "[Lapp/organicmaps/routing/SingleLaneInfo;ZZ)V");
+  auto const & rm = frm()->GetRoutingManager();
+  auto const isSpeedCamLimitExceeded = rm.IsRoutingActive() ? rm.IsSpeedCamLimitExceeded() : false;
+  auto const shouldPlaySignal = frm()->GetRoutingManager().GetSpeedCamManager().ShouldPlayBeepSignal();
+  return ToJavaRoutingInfo(env, info, isSpeedCamLimitExceeded, shouldPlaySignal);
+}
 
-  vector<routing::FollowingInfo::SingleLaneInfoClient> const & lanes = info.m_lanes;
-  jobjectArray jLanes = nullptr;
-  if (!lanes.empty())
-  {
-    static jclass const laneClass = jni::GetGlobalClassRef(env, "app/organicmaps/routing/SingleLaneInfo");
-    auto const lanesSize = static_cast<jsize>(lanes.size());
-    jLanes = env->NewObjectArray(lanesSize, laneClass, nullptr);
-    ASSERT(jLanes, (jni::DescribeException()));
-    static jmethodID const ctorSingleLaneInfoID = jni::GetConstructorID(env, laneClass, "([BZ)V");
+JNIEXPORT jdoubleArray JNICALL
+Java_app_organicmaps_Framework_nativeGetRouteGeometry(JNIEnv * env, jclass)
+{
+  auto & rm = frm()->GetRoutingManager();
+  if (!rm.IsRouteValid())
+    return nullptr;
 
-    for (jsize j = 0; j < lanesSize; ++j)
+  vector<double> latLons;
+  rm.RoutingSession().RouteCall([&latLons](routing::Route const & route)
+  {
+    auto const & points = route.GetPoly().GetPoints();
+    latLons.reserve(2 * points.size());
+    for (auto const & point : points)
     {
-      auto const laneSize = static_cast<jsize>(lanes[j].m_lane.size());
-      jni::TScopedLocalByteArrayRef singleLane(env, env->NewByteArray(laneSize));
-      ASSERT(singleLane.get(), (jni::DescribeException()));
-      env->SetByteArrayRegion(singleLane.get(), 0, laneSize, lanes[j].m_lane.data());
-
-      jni::TScopedLocalRef singleLaneInfo(
-          env, env->NewObject(laneClass, ctorSingleLaneInfoID, singleLane.get(),
-                              lanes[j].m_isRecommended));
-      ASSERT(singleLaneInfo.get(), (jni::DescribeException()));
-      env->SetObjectArrayElement(jLanes, j, singleLaneInfo.get());
+      ms::LatLon const ll = mercator::ToLatLon(point);
+      latLons.push_back(ll.m_lat);
+      latLons.push_back(ll.m_lon);
     }
-  }
+  });
 
-  auto const & rm = frm()->GetRoutingManager();
-  auto const isSpeedCamLimitExceeded = rm.IsRoutingActive() ? rm.IsSpeedCamLimitExceeded() : false;
-  auto const shouldPlaySignal = frm()->GetRoutingManager().GetSpeedCamManager().ShouldPlayBeepSignal();
-  jobject const result = env->NewObject(
-      klass, ctorRouteInfoID, ToJavaDistance(env, info.m_distToTarget),
-      ToJavaDistance(env, info.m_distToTurn), jni::ToJavaString(env, info.m_sourceName),
-      jni::ToJavaString(env, info.m_displayedStreetName), info.m_completionPercent, info.m_turn,
-      info.m_nextTurn, info.m_pedestrianTurn, info.m_exitNum, info.m_time, jLanes,
-      static_cast<jboolean>(isSpeedCamLimitExceeded), static_cast<jboolean>(shouldPlaySignal));
-  ASSERT(result, (jni::DescribeException()));
-  return result;
+  auto const size = static_cast<jsize>(latLons.size());
+  jdoubleArray jLatLons = env->NewDoubleArray(size);
+  env->SetDoubleArrayRegion(jLatLons, 0, size, latLons.data());
+  return jLatLons;
+}
+
+JNIEXPORT jdouble JNICALL
+Java_app_organicmaps_Framework_nativeGetRouteDistanceFromStart(JNIEnv * env, jclass)
+{
+  auto & rm = frm()->GetRoutingManager();
+  if (!rm.IsRouteValid())
+    return -1.0;
+
+  double distance = -1.0;
+  rm.RoutingSession().RouteCall([&distance](routing::Route const & route)
+  {
+    distance = route.GetCurrentDistanceFromBeginMeters();
+  });
+  return distance;
 }
 
 JNIEXPORT jintArray JNICALL
@@ -1378,6 +1550,17 @@ Java_app_organicmaps_Framework_nativeSetRouteProgressListener(JNIEnv * env, jcla
       bind(&CallRouteProgressListener, jni::make_global_ref(listener), _1));
 }
 
+JNIEXPORT void JNICALL
+Java_app_organicmaps_Framework_nativeSetRouteFollowingListener(JNIEnv * env, jclass, jobject listener)
+{
+  CHECK(g_framework, ("Framework isn't created yet!"));
+  g_lastRouteFollowing.reset();
+  if (listener != nullptr)
+    g_framework->SetRouteFollowingListener(bind(&CallRouteFollowingListener, jni::make_global_ref(listener)));
+  else
+    g_framework->SetRouteFollowingListener(nullptr);
+}
+
 JNIEXPORT void JNICALL
 Java_app_organicmaps_Framework_nativeSetRoutingRecommendationListener(JNIEnv * env, jclass,
                                                                           jobject listener)
@@ -1744,12 +1927,6 @@ Java_app_organicmaps_Framework_nativeSetVisibleRect(JNIEnv * env, jclass, jint l
   frm()->SetVisibleViewport(m2::RectD(left, top, right, bottom));
 }
 
-JNIEXPORT jboolean JNICALL
-Java_app_organicmaps_Framework_nativeIsRouteFinished(JNIEnv * env, jclass)
-{
-  return frm()->GetRoutingManager().IsRouteFinished();
-}
-
 JNIEXPORT void JNICALL
 Java_app_organicmaps_Framework_nativeRunFirstLaunchAnimation(JNIEnv * env, jclass)
 {
@@ -70,6 +70,7 @@ namespace android
     void MyPositionModeChanged(location::EMyPositionMode mode, bool routingActive);
 
     location::TMyPositionModeChanged m_myPositionModeSignal;
+    std::function<void()> m_onRouteFollowingFn;
 
     TrafficManager::TrafficStateChangedFn m_onTrafficStateChangedFn;
     TransitReadManager::TransitStateChangedFn m_onTransitStateChangedFn;
@@ -163,6 +164,8 @@ namespace android
 //    std::string GetOutdatedCountriesString();
 
     void SetMyPositionModeListener(location::TMyPositionModeChanged const & fn);
+    /// Called after every location update is applied to the route being followed.
+    void SetRouteFollowingListener(std::function<void()> const & fn);
     location::EMyPositionMode GetMyPositionMode() const;
     void SwitchMyPositionNextMode();
 
@@ -9,12 +9,17 @@
 
 #include "coding/zip_creator.hpp"
 
+#include "geometry/distance_on_sphere.hpp"
+
 #include "platform/localization.hpp"
 #include "platform/preferred_languages.hpp"
 
 #include "base/macros.hpp"
 #include "base/string_utils.hpp"
 
+#include <atomic>
+#include <limits>
+#include <unordered_set>
 #include <utility>
 
 using namespace jni;
@@ -36,13 +41,17 @@ jmethodID g_bookmarkCategoryConstructor;
 
 jclass g_sortedBlockClass;
 jmethodID g_sortedBlockConstructor;
-jclass g_longClass;
-jmethodID g_longConstructor;
 jmethodID g_onBookmarksSortingCompleted;
 jmethodID g_onBookmarksSortingCancelled;
 jmethodID g_bookmarkInfoConstructor;
 jclass g_bookmarkInfoClass;
 
+// Timestamp of the latest sorting request, the previous ones are cancelled.
+std::atomic<jlong> g_lastSortTimestamp{0};
+
+// Categories created for internal layers, they are not listed with the user's ones.
+std::unordered_set<kml::MarkGroupId> g_hiddenCategories;
+
 
 void PrepareClassRefs(JNIEnv * env)
 {
@@ -69,13 +78,11 @@ void PrepareClassRefs(JNIEnv * env)
     jni::GetMethodID(env, bookmarkManagerInstance, "onPreparedFileForSharing",
                      "(Lapp/organicmaps/bookmarks/data/BookmarkSharingResult;)V");
 
-  g_longClass = jni::GetGlobalClassRef(env,"java/lang/Long");
-  g_longConstructor = jni::GetConstructorID(env, g_longClass, "(J)V");
   g_sortedBlockClass =
     jni::GetGlobalClassRef(env, "app/organicmaps/bookmarks/data/SortedBlock");
   g_sortedBlockConstructor =
     jni::GetConstructorID(env, g_sortedBlockClass,
-                          "(Ljava/lang/String;[Ljava/lang/Long;[Ljava/lang/Long;)V");
+                          "(Ljava/lang/String;[J[J)V");
 
 
   g_onBookmarksSortingCompleted = jni::GetMethodID(env, bookmarkManagerInstance,
@@ -205,6 +212,15 @@ void OnPreparedFileForSharing(JNIEnv * env, BookmarkManager::SharingResult const
   jni::HandleJavaException(env);
 }
 
+template <typename Ids>
+jlongArray ToJavaLongArray(JNIEnv * env, Ids const & ids)
+{
+  std::vector<jlong> const jIds(ids.begin(), ids.end());
+  jlongArray result = env->NewLongArray(static_cast<jsize>(jIds.size()));
+  env->SetLongArrayRegion(result, 0, static_cast<jsize>(jIds.size()), jIds.data());
+  return result;
+}
+
 void OnCategorySortingResults(JNIEnv * env, long long timestamp,
                               BookmarkManager::SortedBlocksCollection && sortedBlocks,
                               BookmarkManager::SortParams::Status status)
@@ -216,7 +232,7 @@ void OnCategorySortingResults(JNIEnv * env, long long timestamp,
   jobject bookmarkManagerInstance = env->GetStaticObjectField(g_bookmarkManagerClass,
                                                               g_bookmarkManagerInstanceField);
 
-  if (status == BookmarkManager::SortParams::Status::Cancelled)
+  if (status == BookmarkManager::SortParams::Status::Cancelled || timestamp != g_lastSortTimestamp)
   {
     env->CallVoidMethod(bookmarkManagerInstance, g_onBookmarksSortingCancelled,
                         static_cast<jlong>(timestamp));
@@ -230,21 +246,8 @@ void OnCategorySortingResults(JNIEnv * env, long long timestamp,
           {
             jni::TScopedLocalRef blockNameRef(env, jni::ToJavaString(env, block.m_blockName));
 
-            jni::TScopedLocalObjectArrayRef marksRef(env,
-                jni::ToJavaArray(env, g_longClass, block.m_markIds,
-                    [](JNIEnv * env, kml::MarkId const & markId)
-                    {
-                      return env->NewObject(g_longClass, g_longConstructor,
-                          static_cast<jlong>(markId));
-                    }));
-
-            jni::TScopedLocalObjectArrayRef tracksRef(env,
-                jni::ToJavaArray(env, g_longClass, block.m_trackIds,
-                    [](JNIEnv * env, kml::TrackId const & trackId)
-                    {
-                      return env->NewObject(g_longClass, g_longConstructor,
-                          static_cast<jlong>(trackId));
-                    }));
+            jni::ScopedLocalRef<jlongArray> marksRef(env, ToJavaLongArray(env, block.m_markIds));
+            jni::ScopedLocalRef<jlongArray> tracksRef(env, ToJavaLongArray(env, block.m_trackIds));
 
             return env->NewObject(g_sortedBlockClass, g_sortedBlockConstructor,
                                  blockNameRef.get(), marksRef.get(), tracksRef.get());
@@ -336,11 +339,23 @@ Java_app_organicmaps_bookmarks_data_BookmarkManager_nativeCreateCategory(
   return static_cast<jlong>(categoryId);
 }
 
+JNIEXPORT jlong JNICALL
+Java_app_organicmaps_bookmarks_data_BookmarkManager_nativeCreateHiddenCategory(
+     JNIEnv * env, jobject, jstring name)
+{
+  // Not saved to a file and not offered as the category for new bookmarks.
+  auto const categoryId = frm()->GetBookmarkManager().CreateBookmarkCategory(ToNativeString(env, name),
+                                                                             false /* autoSave */);
+  g_hiddenCategories.insert(categoryId);
+  return static_cast<jlong>(categoryId);
+}
+
 JNIEXPORT jboolean JNICALL
 Java_app_organicmaps_bookmarks_data_BookmarkManager_nativeDeleteCategory(
      JNIEnv *, jobject, jlong catId)
 {
   auto const categoryId = static_cast<kml::MarkGroupId>(catId);
+  g_hiddenCategories.erase(categoryId);
   return static_cast<jboolean>(frm()->GetBookmarkManager().GetEditSession().DeleteBmCategory(categoryId));
 }
 
@@ -350,6 +365,24 @@ Java_app_organicmaps_bookmarks_data_BookmarkManager_nativeDeleteBookmark(JNIEnv
   frm()->GetBookmarkManager().GetEditSession().DeleteBookmark(static_cast<kml::MarkId>(bmkId));
 }
 
+JNIEXPORT void JNICALL
+Java_app_organicmaps_bookmarks_data_BookmarkManager_nativeDeleteBookmarks(
+    JNIEnv * env, jclass, jlongArray bmkIds)
+{
+  jsize const count = env->GetArrayLength(bmkIds);
+  std::vector<jlong> ids(count);
+  env->GetLongArrayRegion(bmkIds, 0, count, ids.data());
+
+  auto & bmManager = frm()->GetBookmarkManager();
+  auto editSession = bmManager.GetEditSession();
+  for (auto const id : ids)
+  {
+    // Some of the bookmarks may have been deleted by the user already.
+    if (bmManager.GetBookmark(static_cast<kml::MarkId>(id)) != nullptr)
+      editSession.DeleteBookmark(static_cast<kml::MarkId>(id));
+  }
+}
+
 JNIEXPORT void JNICALL
 Java_app_organicmaps_bookmarks_data_BookmarkManager_nativeDeleteTrack(
     JNIEnv *, jobject, jlong trkId)
@@ -388,6 +421,42 @@ Java_app_organicmaps_bookmarks_data_BookmarkManager_nativeAddBookmarkToLastEdite
   return usermark_helper::CreateMapObject(env, g_framework->GetPlacePageInfo());
 }
 
+JNIEXPORT jlongArray JNICALL
+Java_app_organicmaps_bookmarks_data_BookmarkManager_nativeAddBookmarks(
+    JNIEnv * env, jclass, jlong catId, jdoubleArray latLons, jobjectArray names,
+    jobjectArray descriptions, jintArray colors)
+{
+  jsize const count = env->GetArrayLength(names);
+
+  std::vector<jdouble> coords(2 * count);
+  env->GetDoubleArrayRegion(latLons, 0, 2 * count, coords.data());
+  std::vector<jint> nColors(count);
+  env->GetIntArrayRegion(colors, 0, count, nColors.data());
+
+  std::vector<kml::BookmarkData> data(count);
+  for (jsize i = 0; i < count; ++i)
+  {
+    auto & bmData = data[i];
+    bmData.m_point = mercator::FromLatLon(coords[2 * i], coords[2 * i + 1]);
+    bmData.m_color.m_predefinedColor = static_cast<kml::PredefinedColor>(nColors[i]);
+
+    jni::ScopedLocalRef<jstring> const name(
+        env, static_cast<jstring>(env->GetObjectArrayElement(names, i)));
+    kml::SetDefaultStr(bmData.m_customName, jni::ToNativeString(env, name.get()));
+
+    jni::ScopedLocalRef<jstring> const descr(
+        env, static_cast<jstring>(env->GetObjectArrayElement(descriptions, i)));
+    if (descr.get())
+      kml::SetDefaultStr(bmData.m_description, jni::ToNativeString(env, descr.get()));
+  }
+
+  // A single edit session produces a single change notification for the whole batch.
+  auto const ids = frm()->GetBookmarkManager().GetEditSession().CreateBookmarks(
+      std::move(data), static_cast<kml::MarkGroupId>(catId));
+
+  return ToJavaLongArray(env, ids);
+}
+
 JNIEXPORT jlong JNICALL
 Java_app_organicmaps_bookmarks_data_BookmarkManager_nativeGetLastEditedCategory(
       JNIEnv *, jobject)
@@ -519,6 +588,108 @@ Java_app_organicmaps_bookmarks_data_BookmarkManager_nativeGetBookmarkIdByPositio
   return static_cast<jlong>(*it);
 }
 
+JNIEXPORT jlongArray JNICALL
+Java_app_organicmaps_bookmarks_data_BookmarkManager_nativeGetBookmarkIds(
+        JNIEnv * env, jclass, jlong catId)
+{
+  auto const & ids = frm()->GetBookmarkManager().GetUserMarkIds(static_cast<kml::MarkGroupId>(catId));
+  return ToJavaLongArray(env, ids);
+}
+
+JNIEXPORT jdoubleArray JNICALL
+Java_app_organicmaps_bookmarks_data_BookmarkManager_nativeGetBookmarksLatLon(
+        JNIEnv * env, jclass, jlongArray bmkIds)
+{
+  jsize const count = env->GetArrayLength(bmkIds);
+  std::vector<jlong> ids(count);
+  env->GetLongArrayRegion(bmkIds, 0, count, ids.data());
+
+  auto const & bm = frm()->GetBookmarkManager();
+  std::vector<jdouble> latLons;
+  latLons.reserve(2 * count);
+  for (auto const id : ids)
+  {
+    auto const * mark = bm.GetBookmark(static_cast<kml::MarkId>(id));
+    if (!mark)
+    {
+      latLons.push_back(std::numeric_limits<double>::quiet_NaN());
+      latLons.push_back(std::numeric_limits<double>::quiet_NaN());
+      continue;
+    }
+    auto const ll = mercator::ToLatLon(mark->GetPivot());
+    latLons.push_back(ll.m_lat);
+    latLons.push_back(ll.m_lon);
+  }
+
+  jdoubleArray result = env->NewDoubleArray(static_cast<jsize>(latLons.size()));
+  env->SetDoubleArrayRegion(result, 0, static_cast<jsize>(latLons.size()), latLons.data());
+  return result;
+}
+
+JNIEXPORT jdoubleArray JNICALL
+Java_app_organicmaps_bookmarks_data_BookmarkManager_nativeGetBookmarksDistances(
+        JNIEnv * env, jclass, jlongArray bmkIds, jdouble lat, jdouble lon)
+{
+  jsize const count = env->GetArrayLength(bmkIds);
+  std::vector<jlong> ids(count);
+  env->GetLongArrayRegion(bmkIds, 0, count, ids.data());
+
+  auto const & bm = frm()->GetBookmarkManager();
+  ms::LatLon const from(lat, lon);
+  std::vector<jdouble> distances;
+  distances.reserve(count);
+  for (auto const id : ids)
+  {
+    auto const * mark = bm.GetBookmark(static_cast<kml::MarkId>(id));
+    distances.push_back(mark ? ms::DistanceOnEarth(from, mercator::ToLatLon(mark->GetPivot()))
+                             : std::numeric_limits<double>::quiet_NaN());
+  }
+
+  jdoubleArray result = env->NewDoubleArray(count);
+  env->SetDoubleArrayRegion(result, 0, count, distances.data());
+  return result;
+}
+
+JNIEXPORT void JNICALL
+Java_app_organicmaps_bookmarks_data_BookmarkManager_nativeGetBookmarksInfo(
+        JNIEnv * env, jclass, jlongArray bmkIds, jobjectArray names, jobjectArray featureTypes,
+        jintArray colorsAndIcons, jdoubleArray coords)
+{
+  jsize const count = env->GetArrayLength(bmkIds);
+  std::vector<jlong> ids(count);
+  env->GetLongArrayRegion(bmkIds, 0, count, ids.data());
+
+  auto const & bm = frm()->GetBookmarkManager();
+  std::vector<jint> jColorsAndIcons(2 * count, 0);
+  std::vector<jdouble> jCoords(5 * count, 0.0);
+  for (jsize i = 0; i < count; ++i)
+  {
+    auto const * mark = bm.GetBookmark(static_cast<kml::MarkId>(ids[i]));
+    if (!mark)
+      continue;
+
+    jni::TScopedLocalRef const name(env, jni::ToJavaString(env, mark->GetPreferredName()));
+    env->SetObjectArrayElement(names, i, name.get());
+    jni::TScopedLocalRef const type(
+        env, jni::ToJavaString(env, kml::GetLocalizedFeatureType(mark->GetData().m_featureTypes)));
+    env->SetObjectArrayElement(featureTypes, i, type.get());
+
+    jColorsAndIcons[2 * i] = static_cast<jint>(mark->GetColor());
+    jColorsAndIcons[2 * i + 1] = static_cast<jint>(mark->GetData().m_icon);
+
+    auto const pivot = mark->GetPivot();
+    auto const ll = mercator::ToLatLon(pivot);
+    jCoords[5 * i] = pivot.x;
+    jCoords[5 * i + 1] = pivot.y;
+    jCoords[5 * i + 2] = mark->GetScale();
+    jCoords[5 * i + 3] = ll.m_lat;
+    jCoords[5 * i + 4] = ll.m_lon;
+  }
+
+  env->SetIntArrayRegion(colorsAndIcons, 0, 2 * count, jColorsAndIcons.data());
+  env->SetDoubleArrayRegion(coords, 0, 5 * count, jCoords.data());
+}
+
 static uint32_t shift(uint32_t v, uint8_t bitCount) { return v << bitCount; }
 
 JNIEXPORT jobject JNICALL
@@ -644,7 +815,12 @@ Java_app_organicmaps_bookmarks_data_BookmarkManager_nativeGetBookmarkCategories(
   jobject)
 {
   auto const & bm = frm()->GetBookmarkManager();
-  auto const & ids = bm.GetBmGroupsIdList();
+  kml::GroupIdCollection ids;
+  for (auto const id : bm.GetBmGroupsIdList())
+  {
+    if (g_hiddenCategories.count(id) == 0)
+      ids.push_back(id);
+  }
 
   return MakeCategories(env, ids);
 }
@@ -728,6 +904,8 @@ Java_app_organicmaps_bookmarks_data_BookmarkManager_nativeGetSortedCategory(JNIE
   sortParams.m_myPosition = mercator::FromLatLon(static_cast<double>(lat),
       static_cast<double>(lon));
   sortParams.m_onResults = bind(&OnCategorySortingResults, env, timestamp, _1, _2);
+  sortParams.m_isCancelled = [timestamp]() { return timestamp != g_lastSortTimestamp; };
+  g_lastSortTimestamp = timestamp;
 
   bm.GetSortedCategory(sortParams);
 }
@@ -22,8 +22,8 @@ public:
     static jclass const klass = jni::GetGlobalClassRef(env, "app/organicmaps/downloader/ChunkTask");
     m_klass = klass;
     // public ChunkTask(long httpCallbackID, String url, long beg, long end,
-    //                  long expectedFileSize, byte[] postBody, String userAgent)
-    static jmethodID const initMethodId = jni::GetConstructorID(env, klass, "(JLjava/lang/String;JJJ[B)V");
+    //                  long expectedFileSize, byte[] postBody, boolean writeFromAnyThread)
+    static jmethodID const initMethodId = jni::GetConstructorID(env, klass, "(JLjava/lang/String;JJJ[BZ)V");
     static jmethodID const startMethodId = env->GetMethodID(klass, "start", "()V");
 
     jni::TScopedLocalByteArrayRef postBody(env, nullptr);
@@ -42,18 +42,20 @@ public:
                                                        static_cast<jlong>(beg),
                                                        static_cast<jlong>(end),
                                                        static_cast<jlong>(expectedFileSize),
-                                                       postBody.get()));
+                                                       postBody.get(),
+                                                       static_cast<jboolean>(cb.CanWriteFromAnyThread())));
     m_self = env->NewGlobalRef(localSelf.get());
     ASSERT(m_self, ());
 
     env->CallVoidMethod(m_self, startMethodId);
   }
 
+  // Blocks until a write in progress on a download thread is finished, no writes are made after.
   ~HttpThread()
   {
     JNIEnv * env = jni::GetEnv();
-    static jmethodID const cancelMethodId = env->GetMethodID(m_klass, "cancel", "(Z)Z");
-    env->CallBooleanMethod(m_self, cancelMethodId, false);
+    static jmethodID const cancelMethodId = env->GetMethodID(m_klass, "cancel", "()Z");
+    env->CallBooleanMethod(m_self, cancelMethodId);
     env->DeleteGlobalRef(m_self);
   }
 };
@@ -100,6 +102,24 @@ Java_app_organicmaps_downloader_ChunkTask_nativeOnWrite(JNIEnv * env, jclass cla
   return ret;
 }
 
+JNIEXPORT jboolean JNICALL
+Java_app_organicmaps_downloader_ChunkTask_nativeOnWriteDirect(JNIEnv * env, jclass clazz, jlong httpCallbackID, jlong beg, jobject buffer, jlong size)
+{
+  downloader::IHttpThreadCallback * cb = reinterpret_cast<downloader::IHttpThreadCallback*>(httpCallbackID);
+  void const * buf = env->GetDirectBufferAddress(buffer);
+  ASSERT(buf, ());
+
+  try
+  {
+    return cb->OnWrite(beg, buf, static_cast<size_t>(size));
+  }
+  catch (std::exception const & ex)
+  {
+    LOG(LERROR, ("Failed to write chunk:", ex.what()));
+  }
+  return false;
+}
+
 JNIEXPORT void JNICALL
 Java_app_organicmaps_downloader_ChunkTask_nativeOnFinish(JNIEnv * env, jclass clazz, jlong httpCallbackID, jlong httpCode, jlong beg, jlong end)
 {
@@ -78,6 +78,13 @@ public class Framework
     void onPlacePageDeactivated(boolean switchFullScreenMode);
   }
 
+  @SuppressWarnings("unused")
+  public interface ViewportListener
+  {
+    @MainThread
+    void onViewportChanged(double minLat, double minLon, double maxLat, double maxLon, int zoom);
+  }
+
   @SuppressWarnings("unused")
   public interface RoutingListener
   {
@@ -92,6 +99,22 @@ public class Framework
     void onRouteBuildingProgress(float progress);
   }
 
+  @SuppressWarnings("unused")
+  public interface RouteFollowingListener
+  {
+    /**
+     * Called after a location is applied to the route being followed, but only if the route
+     * following info has visibly changed, there are turn notifications to pronounce or the route
+     * is finished.
+     *
+     * @param info null if the route following info is not available.
+     * @param turnNotifications strings to be pronounced by TTS, null if there is nothing to pronounce.
+     */
+    @MainThread
+    void onRouteFollowingUpdated(@Nullable RoutingInfo info, @Nullable String[] turnNotifications,
+                                 boolean routeFinished);
+  }
+
   @SuppressWarnings("unused")
   public interface RoutingRecommendationListener
   {
@@ -187,6 +210,13 @@ public class Framework
 
   public static native void nativeRemovePlacePageActivationListener();
 
+  /**
+   * Sets the only viewport listener, it's called with the current viewport right away.
+   */
+  public static native void nativeSetViewportListener(@NonNull ViewportListener listener);
+
+  public static native void nativeRemoveViewportListener();
+
 //  @UiThread
 //  public static native String nativeGetOutdatedCountriesString();
 //
@@ -264,17 +294,20 @@ public class Framework
   @Nullable
   public static native RoutingInfo nativeGetRouteFollowingInfo();
 
+  /**
+   * @return points of the built route as lat0, lon0, lat1, lon1, ... or null if there is no route.
+   */
   @Nullable
-  public static native final int[] nativeGenerateRouteAltitudeChartBits(int width, int height, RouteAltitudeLimits routeAltitudeLimits);
+  public static native double[] nativeGetRouteGeometry();
+
+  /**
+   * @return the distance in meters along the route to the current position, negative if there is
+   * no route.
+   */
+  public static native double nativeGetRouteDistanceFromStart();
 
-  // When an end user is going to a turn he gets sound turn instructions.
-  // If C++ part wants the client to pronounce an instruction nativeGenerateTurnNotifications returns
-  // an array of one of more strings. C++ part assumes that all these strings shall be pronounced by the client's TTS.
-  // For example if C++ part wants the client to pronounce "Make a right turn." this method returns
-  // an array with one string "Make a right turn.". The next call of the method returns nothing.
-  // nativeGenerateTurnNotifications shall be called by the client when a new position is available.
   @Nullable
-  public static native String[] nativeGenerateNotifications();
+  public static native final int[] nativeGenerateRouteAltitudeChartBits(int width, int height, RouteAltitudeLimits routeAltitudeLimits);
 
   private static native void nativeSetSpeedCamManagerMode(int mode);
 
@@ -282,6 +315,8 @@ public class Framework
 
   public static native void nativeSetRouteProgressListener(RoutingProgressListener listener);
 
+  public static native void nativeSetRouteFollowingListener(@Nullable RouteFollowingListener listener);
+
   public static native void nativeSetRoutingRecommendationListener(RoutingRecommendationListener listener);
 
   public static native void nativeSetRoutingLoadPointsListener(
@@ -377,9 +412,6 @@ public class Framework
 
   public static native void nativeSetVisibleRect(int left, int top, int right, int bottom);
 
-  // Navigation.
-  public static native boolean nativeIsRouteFinished();
-
   public static native void nativeRunFirstLaunchAnimation();
 
   public static native int nativeOpenRoutePointsTransaction();
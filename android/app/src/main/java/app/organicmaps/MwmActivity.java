@@ -74,12 +74,14 @@ import app.organicmaps.maplayer.ToggleMapLayerFragment;
 import app.organicmaps.maplayer.isolines.IsolinesManager;
 import app.organicmaps.maplayer.isolines.IsolinesState;
 import app.organicmaps.maplayer.subway.SubwayManager;
+import app.organicmaps.pothole.PotholeManager;
 import app.organicmaps.routing.NavigationController;
 import app.organicmaps.routing.NavigationService;
 import app.organicmaps.routing.RoutePointInfo;
 import app.organicmaps.routing.RoutingBottomMenuListener;
 import app.organicmaps.routing.RoutingController;
 import app.organicmaps.routing.RoutingErrorDialogFragment;
+import app.organicmaps.routing.RoutingInfo;
 import app.organicmaps.routing.RoutingOptions;
 import app.organicmaps.routing.RoutingPlanFragment;
 import app.organicmaps.routing.RoutingPlanInplaceController;
@@ -106,17 +108,10 @@ import app.organicmaps.widget.menu.MainMenu;
 import app.organicmaps.widget.placepage.PlacePageController;
 import app.organicmaps.widget.placepage.PlacePageData;
 import app.organicmaps.widget.placepage.PlacePageViewModel;
-import okhttp3.Call;
-import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
 
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.snackbar.Snackbar;
 
-import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
@@ -130,9 +125,6 @@ import static android.Manifest.permission.POST_NOTIFICATIONS;
 import static android.content.pm.PackageManager.PERMISSION_GRANTED;
 import static app.organicmaps.location.LocationState.LOCATION_TAG;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
 public class MwmActivity extends BaseMwmFragmentActivity
     implements PlacePageActivationListener,
                View.OnTouchListener,
@@ -561,43 +553,12 @@ public class MwmActivity extends BaseMwmFragmentActivity
               if (Framework.nativeIsDownloadedMapAtScreenCenter()) {
                 // Get the coordinates of the screen center
                 final double[] point = Framework.nativeGetScreenRectCenter();
-                OkHttpClient client = new OkHttpClient();
-                // Create a JSON object with Latitude and Longitude
-                JSONObject jsonObject = new JSONObject();
-                try {
-                  jsonObject.put("Latitude", point[0]);
-                  jsonObject.put("Longitude",point[1]);
-                }catch (JSONException e){
-                  e.printStackTrace();
-                }
-                // Convert the JSON object to a string
-                String json = jsonObject.toString();
-
-                // Create a request body with the JSON content
-                RequestBody body = RequestBody.create(
-                        MediaType.parse("application/json"),json);
-
-                // Build a POST request to add a pothole at the specified coordinates
-                Request request = new Request.Builder()
-                        .url("https://busy-pink-tadpole-toga.cyclic.cloud/api/pothole/addPothole")
-                        .post(body)
-                        .build();
-
-                // Start a new thread to execute the POST request
-                new Thread(new Runnable() {
-                  @Override
-                  public void run() {
-                    try (Response res = client.newCall(request).execute()){
-                      if(!res.isSuccessful()) throw new IOException("Unexpected code" + res);
-                      System.out.println(res.toString());
-                    } catch (IOException e) {
-                      // Handle exceptions that occurred during the network call
-                    }
-                  }
-                }).start();
+                // The report is saved locally and uploaded in the background
+                final boolean queued = PotholeManager.INSTANCE.reportPothole(this, point[0], point[1]);
 
                 // Display a success message and dismiss the current AlertDialog
-                final String message = "Successfully added pothole!\nPlease refresh pothole list.";
+                final String message = queued ? "Successfully added pothole!"
+                                              : "An error occurred, please try again!";
                 System.out.println("Pothole selection: " + message);
                 dismissAlertDialog();
                 // Show a new AlertDialog with the success message
@@ -1131,6 +1092,7 @@ public class MwmActivity extends BaseMwmFragmentActivity
     BookmarkManager.INSTANCE.addLoadingListener(this);
     RoutingController.get().attach(this);
     IsolinesManager.from(getApplicationContext()).attach(this::onIsolinesStateChanged);
+    PotholeManager.INSTANCE.attach(this);
     LocationState.nativeSetListener(this);
     LocationHelper.from(this).addListener(this);
     onMyPositionModeChanged(LocationState.nativeGetMode());
@@ -1149,6 +1111,7 @@ public class MwmActivity extends BaseMwmFragmentActivity
     LocationState.nativeRemoveListener();
     RoutingController.get().detach();
     IsolinesManager.from(getApplicationContext()).detach();
+    PotholeManager.INSTANCE.detach();
     mSearchController.detach();
     Utils.keepScreenOn(false, getWindow());
   }
@@ -1783,7 +1746,13 @@ public class MwmActivity extends BaseMwmFragmentActivity
     if (!routing.isNavigating())
       return;
 
-    mNavigationController.update(Framework.nativeGetRouteFollowingInfo());
+    mNavigationController.updateLocation();
+  }
+
+  @Override
+  public void updateRouteFollowing(@NonNull RoutingInfo info)
+  {
+    mNavigationController.update(info);
   }
 
   /**
@@ -2100,7 +2069,7 @@ public class MwmActivity extends BaseMwmFragmentActivity
   @Override
   public void onBookmarksLoadingFinished()
   {
-    // Do nothing
+    PotholeManager.INSTANCE.invalidate();
   }
 
   @Override
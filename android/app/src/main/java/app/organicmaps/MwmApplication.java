@@ -19,24 +19,29 @@ import androidx.lifecycle.LifecycleOwner;
 import androidx.lifecycle.ProcessLifecycleOwner;
 
 import app.organicmaps.background.OsmUploadWork;
+import app.organicmaps.background.PotholeUploadWork;
 import app.organicmaps.downloader.DownloaderNotifier;
 import app.organicmaps.base.MediaPlayerWrapper;
 import app.organicmaps.bookmarks.data.BookmarkManager;
 import app.organicmaps.downloader.CountryItem;
 import app.organicmaps.downloader.MapManager;
 import app.organicmaps.location.LocationHelper;
+import app.organicmaps.location.PotholeDetectionHelper;
 import app.organicmaps.location.SensorHelper;
 import app.organicmaps.maplayer.isolines.IsolinesManager;
 import app.organicmaps.maplayer.subway.SubwayManager;
 import app.organicmaps.maplayer.traffic.TrafficManager;
+import app.organicmaps.pothole.PotholeOutbox;
 import app.organicmaps.routing.NavigationService;
 import app.organicmaps.routing.RoutingController;
 import app.organicmaps.search.SearchEngine;
 import app.organicmaps.settings.StoragePathManager;
 import app.organicmaps.sound.TtsPlayer;
+import app.organicmaps.trace.TraceRecorder;
 import app.organicmaps.util.Config;
 import app.organicmaps.util.ConnectionState;
 import app.organicmaps.util.Counters;
+import app.organicmaps.util.HttpStack;
 import app.organicmaps.util.SharedPropertiesUtils;
 import app.organicmaps.util.StorageUtils;
 import app.organicmaps.util.ThemeSwitcher;
@@ -70,6 +75,17 @@ public class MwmApplication extends Application implements Application.ActivityL
   @NonNull
   private SensorHelper mSensorHelper;
 
+  @SuppressWarnings("NotNullFieldNotInitialized")
+  @NonNull
+  private PotholeDetectionHelper mPotholeDetectionHelper;
+  @SuppressWarnings("NotNullFieldNotInitialized")
+  @NonNull
+  private TraceRecorder mTraceRecorder;
+
+  @SuppressWarnings("NotNullFieldNotInitialized")
+  @NonNull
+  private PotholeOutbox mPotholeOutbox;
+
   private volatile boolean mFrameworkInitialized;
   private volatile boolean mPlatformInitialized;
 
@@ -113,6 +129,24 @@ public class MwmApplication extends Application implements Application.ActivityL
     return mSensorHelper;
   }
 
+  @NonNull
+  public PotholeDetectionHelper getPotholeDetectionHelper()
+  {
+    return mPotholeDetectionHelper;
+  }
+
+  @NonNull
+  public TraceRecorder getTraceRecorder()
+  {
+    return mTraceRecorder;
+  }
+
+  @NonNull
+  public PotholeOutbox getPotholeOutbox()
+  {
+    return mPotholeOutbox;
+  }
+
   public MwmApplication()
   {
     super();
@@ -147,6 +181,7 @@ public class MwmApplication extends Application implements Application.ActivityL
 
     mMainLoopHandler = new Handler(getMainLooper());
     ConnectionState.INSTANCE.initialize(this);
+    HttpStack.INSTANCE.initialize(this);
 
     DownloaderNotifier.createNotificationChannel(this);
     NavigationService.createNotificationChannel(this);
@@ -156,6 +191,12 @@ public class MwmApplication extends Application implements Application.ActivityL
     mIsolinesManager = new IsolinesManager(this);
     mLocationHelper = new LocationHelper(this);
     mSensorHelper = new SensorHelper(this);
+    mPotholeDetectionHelper = new PotholeDetectionHelper(this);
+    mTraceRecorder = new TraceRecorder(this);
+    mPotholeOutbox = new PotholeOutbox(getFilesDir());
+    // Pick up reports left over from the previous run, e.g. if the upload work was cancelled.
+    if (!mPotholeOutbox.isEmpty())
+      PotholeUploadWork.startActionUploadPotholes(this);
   }
 
   /**
@@ -233,6 +274,7 @@ public class MwmApplication extends Application implements Application.ActivityL
     TrafficManager.INSTANCE.initialize(null);
     SubwayManager.from(this).initialize(null);
     IsolinesManager.from(this).initialize(null);
+    mTraceRecorder.start();
     ProcessLifecycleOwner.get().getLifecycle().addObserver(mProcessLifecycleObserver);
 
     Logger.i(TAG, "Framework initialized");
@@ -360,6 +402,7 @@ public class MwmApplication extends Application implements Application.ActivityL
     nativeOnTransit(false);
 
     OsmUploadWork.startActionUploadOsmChanges(this);
+    HttpStack.INSTANCE.logStats();
 
     if (RoutingController.get().isNavigating())
     {
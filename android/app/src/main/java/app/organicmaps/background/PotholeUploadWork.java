@@ -0,0 +1,63 @@
+package app.organicmaps.background;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import app.organicmaps.MwmApplication;
+import app.organicmaps.pothole.PotholeOutbox;
+import app.organicmaps.pothole.PotholeUploader;
+import app.organicmaps.util.log.Logger;
+
+import java.util.concurrent.TimeUnit;
+
+public class PotholeUploadWork extends Worker
+{
+  private static final String TAG = PotholeUploadWork.class.getSimpleName();
+  private static final String WORK_NAME = "PotholeUpload";
+  private static final long BACKOFF_DELAY_SECONDS = 30;
+
+  private final Context mContext;
+
+  public PotholeUploadWork(@NonNull Context context, @NonNull WorkerParameters workerParams)
+  {
+    super(context, workerParams);
+    mContext = context;
+  }
+
+  /**
+   * Starts this worker to upload queued pothole reports as soon as the network is available.
+   * There is only one worker at a time, the new request is chained after the running one.
+   */
+  public static void startActionUploadPotholes(@NonNull Context context)
+  {
+    final Constraints c = new Constraints.Builder().setRequiredNetworkType(NetworkType.CONNECTED).build();
+    final OneTimeWorkRequest wr = new OneTimeWorkRequest.Builder(PotholeUploadWork.class)
+        .setConstraints(c)
+        .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_DELAY_SECONDS, TimeUnit.SECONDS)
+        .build();
+    WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, wr);
+  }
+
+  @NonNull
+  @Override
+  public Result doWork()
+  {
+    final PotholeOutbox outbox = MwmApplication.from(mContext).getPotholeOutbox();
+    if (outbox.isEmpty())
+      return Result.success();
+
+    if (PotholeUploader.drain(outbox))
+      return Result.success();
+
+    Logger.i(TAG, "Pothole upload is incomplete, attempt " + getRunAttemptCount());
+    return Result.retry();
+  }
+}
@@ -0,0 +1,125 @@
+package app.organicmaps.bookmarks;
+
+import android.location.Location;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.LongSparseArray;
+
+import app.organicmaps.bookmarks.data.BookmarkManager;
+import app.organicmaps.util.Distance;
+import app.organicmaps.util.StringUtils;
+
+import java.util.Arrays;
+
+/**
+ * Formatted distances to the bookmarks of the list, calculated in batches.
+ * <p>
+ * A bound row fetches the distances of the following {@link #PREFETCH_COUNT} rows of its section
+ * in a single native call, so the rows shown next are already known. All distances are dropped
+ * once the user moves further than {@link #LOCATION_THRESHOLD_METERS} away.
+ */
+class BookmarkDistances
+{
+  private static final int PREFETCH_COUNT = 32;
+  private static final float LOCATION_THRESHOLD_METERS = 10.0f;
+
+  /**
+   * Calculates and formats the distances in the core, replaced in tests.
+   */
+  interface Source
+  {
+    @NonNull
+    double[] getBookmarksDistances(@NonNull long[] bookmarkIds, double lat, double lon);
+
+    @NonNull
+    Distance formatDistance(double meters);
+  }
+
+  private static final Source NATIVE_SOURCE = new Source()
+  {
+    @NonNull
+    @Override
+    public double[] getBookmarksDistances(@NonNull long[] bookmarkIds, double lat, double lon)
+    {
+      return BookmarkManager.INSTANCE.getBookmarksDistances(bookmarkIds, lat, lon);
+    }
+
+    @NonNull
+    @Override
+    public Distance formatDistance(double meters)
+    {
+      return StringUtils.nativeFormatDistance(meters);
+    }
+  };
+
+  @NonNull
+  private final Source mSource;
+  @NonNull
+  private final LongSparseArray<Distance> mDistances = new LongSparseArray<>();
+  @Nullable
+  private Location mLocation;
+
+  BookmarkDistances()
+  {
+    this(NATIVE_SOURCE);
+  }
+
+  BookmarkDistances(@NonNull Source source)
+  {
+    mSource = source;
+  }
+
+  @Nullable
+  Distance get(@NonNull BookmarkListAdapter.SectionsDataSource sectionsDataSource,
+               @NonNull SectionPosition position, @Nullable Location location)
+  {
+    if (location == null)
+      return null;
+
+    if (mLocation == null || mLocation.distanceTo(location) > LOCATION_THRESHOLD_METERS)
+    {
+      mDistances.clear();
+      mLocation = location;
+    }
+
+    final long bookmarkId = sectionsDataSource.getBookmarkId(position);
+    final Distance distance = mDistances.get(bookmarkId);
+    if (distance != null)
+      return distance;
+
+    fetch(sectionsDataSource, position, location);
+    return mDistances.get(bookmarkId);
+  }
+
+  void clear()
+  {
+    mDistances.clear();
+    mLocation = null;
+  }
+
+  private void fetch(@NonNull BookmarkListAdapter.SectionsDataSource sectionsDataSource,
+                     @NonNull SectionPosition position, @NonNull Location location)
+  {
+    final int sectionIndex = position.getSectionIndex();
+    final int first = position.getItemIndex();
+    final int count = Math.min(PREFETCH_COUNT, sectionsDataSource.getItemsCount(sectionIndex) - first);
+    final long[] ids = new long[count];
+    int size = 0;
+    for (int i = 0; i < count; ++i)
+    {
+      final long id = sectionsDataSource.getBookmarkId(new SectionPosition(sectionIndex, first + i));
+      if (mDistances.get(id) == null)
+        ids[size++] = id;
+    }
+
+    final long[] missingIds = size == count ? ids : Arrays.copyOf(ids, size);
+    final double[] meters = mSource.getBookmarksDistances(missingIds, location.getLatitude(),
+                                                          location.getLongitude());
+    for (int i = 0; i < missingIds.length; ++i)
+    {
+      if (!Double.isNaN(meters[i]))
+        mDistances.put(missingIds[i], mSource.formatDistance(meters[i]));
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package app.organicmaps.bookmarks;
+
+import androidx.annotation.NonNull;
+
+import app.organicmaps.bookmarks.data.BookmarkInfo;
+import app.organicmaps.bookmarks.data.BookmarkManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bookmarks of the list, fetched from the core in pages and kept in a bounded LRU.
+ * <p>
+ * A missing row fetches a page of {@link #PAGE_SIZE} rows of its section in a single native call.
+ * The page starts at the row when the list is scrolled down and ends at it when scrolled up,
+ * so the rows shown next are already there. Only {@link #MAX_SIZE} bookmarks are kept at once,
+ * so huge categories use bounded memory.
+ */
+class BookmarkInfoCache
+{
+  static final int PAGE_SIZE = 64;
+  static final int MAX_SIZE = 8 * PAGE_SIZE;
+
+  /**
+   * Fetches the bookmarks from the core, replaced in tests.
+   */
+  interface Source
+  {
+    @NonNull
+    BookmarkInfo[] getBookmarksInfo(long categoryId, @NonNull long[] bookmarkIds);
+  }
+
+  @NonNull
+  private final Source mSource;
+  @NonNull
+  private final Map<Long, BookmarkInfo> mInfos = new LinkedHashMap<Long, BookmarkInfo>(2 * MAX_SIZE, 0.75f, true)
+  {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Long, BookmarkInfo> eldest)
+    {
+      return size() > MAX_SIZE;
+    }
+  };
+
+  private int mLastSectionIndex = SectionPosition.INVALID_POSITION;
+  private int mLastItemIndex = SectionPosition.INVALID_POSITION;
+
+  BookmarkInfoCache()
+  {
+    this(BookmarkManager.INSTANCE::getBookmarksInfo);
+  }
+
+  BookmarkInfoCache(@NonNull Source source)
+  {
+    mSource = source;
+  }
+
+  /**
+   * @throws RuntimeException if the bookmark doesn't exist anymore, i.e. the ids of
+   *                          the sectionsDataSource are out of date.
+   */
+  @NonNull
+  BookmarkInfo get(@NonNull BookmarkListAdapter.SectionsDataSource sectionsDataSource,
+                   @NonNull SectionPosition position)
+  {
+    final boolean forward = position.getSectionIndex() != mLastSectionIndex ||
+                            position.getItemIndex() >= mLastItemIndex;
+    mLastSectionIndex = position.getSectionIndex();
+    mLastItemIndex = position.getItemIndex();
+
+    final long bookmarkId = sectionsDataSource.getBookmarkId(position);
+    final BookmarkInfo info = mInfos.get(bookmarkId);
+    if (info != null)
+      return info;
+
+    fetch(sectionsDataSource, position, forward);
+    final BookmarkInfo fetched = mInfos.get(bookmarkId);
+    if (fetched == null)
+      throw new RuntimeException("Bookmark no longer exists " + bookmarkId);
+    return fetched;
+  }
+
+  void clear()
+  {
+    mInfos.clear();
+  }
+
+  private void fetch(@NonNull BookmarkListAdapter.SectionsDataSource sectionsDataSource,
+                     @NonNull SectionPosition position, boolean forward)
+  {
+    final int sectionIndex = position.getSectionIndex();
+    final int itemsCount = sectionsDataSource.getItemsCount(sectionIndex);
+    final int first = forward ? position.getItemIndex()
+                              : Math.max(0, position.getItemIndex() - PAGE_SIZE + 1);
+    final int count = Math.min(PAGE_SIZE, itemsCount - first);
+
+    final long[] ids = new long[count];
+    for (int i = 0; i < count; ++i)
+      ids[i] = sectionsDataSource.getBookmarkId(new SectionPosition(sectionIndex, first + i));
+
+    final BookmarkInfo[] infos = mSource.getBookmarksInfo(sectionsDataSource.getCategory().getId(), ids);
+    for (int i = 0; i < count; ++i)
+    {
+      if (infos[i] != null)
+        mInfos.put(ids[i], infos[i]);
+    }
+  }
+}
@@ -43,6 +43,11 @@ public class BookmarkListAdapter extends RecyclerView.Adapter<Holders.BaseBookma
   @NonNull
   private SectionsDataSource mSectionsDataSource;
 
+  @NonNull
+  private final BookmarkInfoCache mInfos = new BookmarkInfoCache();
+  @NonNull
+  private final BookmarkDistances mDistances = new BookmarkDistances();
+
   @Nullable
   private RecyclerClickListener mMoreListener;
   @Nullable
@@ -78,11 +83,18 @@ public class BookmarkListAdapter extends RecyclerView.Adapter<Holders.BaseBookma
     public abstract long getBookmarkId(@NonNull SectionPosition pos);
     public abstract long getTrackId(@NonNull SectionPosition pos);
     public abstract void onDelete(@NonNull SectionPosition pos);
+
+    /**
+     * Re-reads the items which may have been changed in the core meanwhile.
+     */
+    void reload() {}
   }
 
   private static class CategorySectionsDataSource extends SectionsDataSource
   {
     private int mSectionsCount;
+    @NonNull
+    private long[] mBookmarkIds = new long[0];
     private int mBookmarksSectionIndex;
     private int mTracksSectionIndex;
     private int mDescriptionSectionIndex;
@@ -94,6 +106,13 @@ public class BookmarkListAdapter extends RecyclerView.Adapter<Holders.BaseBookma
     }
 
     private void calculateSections()
+    {
+      // Resolving a position in the core walks the category from its start, take all ids at once instead.
+      mBookmarkIds = BookmarkManager.INSTANCE.getBookmarkIds(getCategory().getId());
+      calculateSectionIndices();
+    }
+
+    private void calculateSectionIndices()
     {
       mBookmarksSectionIndex = SectionPosition.INVALID_POSITION;
       mTracksSectionIndex = SectionPosition.INVALID_POSITION;
@@ -105,7 +124,7 @@ public class BookmarkListAdapter extends RecyclerView.Adapter<Holders.BaseBookma
        mDescriptionSectionIndex = mSectionsCount++;
       if (getCategory().getTracksCount() > 0)
         mTracksSectionIndex = mSectionsCount++;
-      if (getCategory().getBookmarksCount() > 0)
+      if (mBookmarkIds.length > 0)
         mBookmarksSectionIndex = mSectionsCount++;
     }
 
@@ -139,7 +158,7 @@ public class BookmarkListAdapter extends RecyclerView.Adapter<Holders.BaseBookma
       if (sectionIndex == mTracksSectionIndex)
         return getCategory().getTracksCount();
       if (sectionIndex == mBookmarksSectionIndex)
-        return getCategory().getBookmarksCount();
+        return mBookmarkIds.length;
       return 0;
     }
 
@@ -157,6 +176,21 @@ public class BookmarkListAdapter extends RecyclerView.Adapter<Holders.BaseBookma
 
     @Override
     public void onDelete(@NonNull SectionPosition pos)
+    {
+      // Called before the bookmark is deleted in the core, so it's dropped here.
+      if (pos.getSectionIndex() == mBookmarksSectionIndex)
+      {
+        final int index = pos.getItemIndex();
+        final long[] ids = new long[mBookmarkIds.length - 1];
+        System.arraycopy(mBookmarkIds, 0, ids, 0, index);
+        System.arraycopy(mBookmarkIds, index + 1, ids, index, ids.length - index);
+        mBookmarkIds = ids;
+      }
+      calculateSectionIndices();
+    }
+
+    @Override
+    void reload()
     {
       calculateSections();
     }
@@ -164,8 +198,7 @@ public class BookmarkListAdapter extends RecyclerView.Adapter<Holders.BaseBookma
     @Override
     public long getBookmarkId(@NonNull SectionPosition pos)
     {
-      return BookmarkManager.INSTANCE.getBookmarkIdByPosition(getCategory().getId(),
-                                                              pos.getItemIndex());
+      return mBookmarkIds[pos.getItemIndex()];
     }
 
     @Override
@@ -281,8 +314,8 @@ public class BookmarkListAdapter extends RecyclerView.Adapter<Holders.BaseBookma
         return 1;
       SortedBlock block = getSortedBlock(sectionIndex);
       if (block.isBookmarksBlock())
-        return block.getBookmarkIds().size();
-      return block.getTrackIds().size();
+        return block.getBookmarksCount();
+      return block.getTracksCount();
     }
 
     @Override
@@ -305,25 +338,25 @@ public class BookmarkListAdapter extends RecyclerView.Adapter<Holders.BaseBookma
       SortedBlock block = mSortedBlocks.get(blockIndex);
       if (block.isBookmarksBlock())
       {
-        block.getBookmarkIds().remove(pos.getItemIndex());
-        if (block.getBookmarkIds().isEmpty())
+        block.removeBookmark(pos.getItemIndex());
+        if (!block.isBookmarksBlock())
           mSortedBlocks.remove(blockIndex);
         return;
       }
 
-      block.getTrackIds().remove(pos.getItemIndex());
-      if (block.getTrackIds().isEmpty())
+      block.removeTrack(pos.getItemIndex());
+      if (!block.isTracksBlock())
         mSortedBlocks.remove(blockIndex);
     }
 
     public long getBookmarkId(@NonNull SectionPosition pos)
     {
-      return getSortedBlock(pos.getSectionIndex()).getBookmarkIds().get(pos.getItemIndex());
+      return getSortedBlock(pos.getSectionIndex()).getBookmarkId(pos.getItemIndex());
     }
 
     public long getTrackId(@NonNull SectionPosition pos)
     {
-      return getSortedBlock(pos.getSectionIndex()).getTrackIds().get(pos.getItemIndex());
+      return getSortedBlock(pos.getSectionIndex()).getTrackId(pos.getItemIndex());
     }
   }
 
@@ -343,6 +376,17 @@ public class BookmarkListAdapter extends RecyclerView.Adapter<Holders.BaseBookma
       mSectionsDataSource = new CategorySectionsDataSource(mDataSource);
   }
 
+  /**
+   * Re-reads the bookmarks of the list and drops the fetched ones, e.g. when they may have been
+   * edited while the list was hidden.
+   */
+  void resetCaches()
+  {
+    mSectionsDataSource.reload();
+    mInfos.clear();
+    mDistances.clear();
+  }
+
   private SectionPosition getSectionPosition(int position)
   {
     int startSectionRow = 0;
@@ -385,6 +429,27 @@ public class BookmarkListAdapter extends RecyclerView.Adapter<Holders.BaseBookma
     refreshSections();
   }
 
+  @Nullable
+  List<SortedBlock> getSortedResults()
+  {
+    return mSortedResults;
+  }
+
+  /**
+   * Replaces the bookmarks of the sorted blocks with the re-sorted ones, see {@link DistanceResorter}.
+   */
+  void setResortedBookmarkIds(@NonNull long[][] bookmarkIds)
+  {
+    if (mSortedResults == null || mSortedResults.size() != bookmarkIds.length)
+      return;
+    for (int i = 0; i < bookmarkIds.length; ++i)
+    {
+      if (bookmarkIds[i] != null)
+        mSortedResults.set(i, mSortedResults.get(i).withBookmarkIds(bookmarkIds[i]));
+    }
+    refreshSections();
+  }
+
   public void setOnClickListener(@Nullable RecyclerClickListener listener)
   {
     mClickListener = listener;
@@ -418,7 +483,7 @@ public class BookmarkListAdapter extends RecyclerView.Adapter<Holders.BaseBookma
       case TYPE_BOOKMARK:
         Holders.BookmarkViewHolder bookmarkHolder =
             new Holders.BookmarkViewHolder(inflater.inflate(R.layout.item_bookmark, parent,
-                                                            false));
+                                                            false), mInfos, mDistances);
         bookmarkHolder.setOnClickListener(mClickListener);
         bookmarkHolder.setOnLongClickListener(mLongClickListener);
         holder = bookmarkHolder;
@@ -512,11 +577,7 @@ public class BookmarkListAdapter extends RecyclerView.Adapter<Holders.BaseBookma
     }
     else
     {
-      final long bookmarkId = mSectionsDataSource.getBookmarkId(pos);
-      BookmarkInfo info = BookmarkManager.INSTANCE.getBookmarkInfo(bookmarkId);
-      if (info == null)
-        throw new RuntimeException("Bookmark no longer exists " + bookmarkId);
-      return info;
+      return mInfos.get(mSectionsDataSource, pos);
     }
   }
 
@@ -34,6 +34,7 @@ import app.organicmaps.bookmarks.data.SortedBlock;
 import app.organicmaps.bookmarks.data.Track;
 import app.organicmaps.intent.Factory;
 import app.organicmaps.location.LocationHelper;
+import app.organicmaps.location.LocationListener;
 import app.organicmaps.search.NativeBookmarkSearchListener;
 import app.organicmaps.search.SearchEngine;
 import app.organicmaps.widget.SearchToolbarController;
@@ -54,7 +55,8 @@ public class BookmarksListFragment extends BaseMwmRecyclerFragment<ConcatAdapter
                BookmarkManager.BookmarksLoadingListener,
                NativeBookmarkSearchListener,
                ChooseBookmarksSortingTypeFragment.ChooseSortingTypeListener,
-               MenuBottomSheetFragment.MenuBottomSheetInterface
+               MenuBottomSheetFragment.MenuBottomSheetInterface,
+               LocationListener
 {
   public static final String TAG = BookmarksListFragment.class.getSimpleName();
   public static final String EXTRA_CATEGORY = "bookmark_category";
@@ -64,12 +66,24 @@ public class BookmarksListFragment extends BaseMwmRecyclerFragment<ConcatAdapter
   private static final String BOOKMARKS_MENU_ID = "BOOKMARKS_MENU_BOTTOM_SHEET";
   private static final String TRACK_MENU_ID = "TRACK_MENU_BOTTOM_SHEET";
   private static final String OPTIONS_MENU_ID = "OPTIONS_MENU_BOTTOM_SHEET";
+  // Blocks of the list sorted by distance depend on the location, e.g. "Near me" is within 20 km.
+  private static final float FULL_RESORT_DISTANCE_METERS = 1000;
+  private static final float MIN_RESORT_DISTANCE_METERS = 50;
 
   @SuppressWarnings("NotNullFieldNotInitialized")
   @NonNull
   private SearchToolbarController mToolbarController;
   private long mLastQueryTimestamp = 0;
   private long mLastSortTimestamp = 0;
+  // Locations of the requested and the shown sorting by distance, null for other sorting types.
+  @Nullable
+  private Location mPendingSortLocation;
+  @Nullable
+  private Location mSortLocation;
+  @Nullable
+  private Location mResortLocation;
+  @NonNull
+  private final DistanceResorter mResorter = new DistanceResorter();
   @SuppressWarnings("NotNullFieldNotInitialized")
   @NonNull
   private CategoryDataSource mCategoryDataSource;
@@ -201,10 +215,12 @@ public class BookmarksListFragment extends BaseMwmRecyclerFragment<ConcatAdapter
   public void onResume()
   {
     super.onResume();
+    LocationHelper.from(requireContext()).addListener(this);
     if (BookmarkManager.INSTANCE.isAsyncBookmarksLoadingInProgress())
       return;
 
     BookmarkListAdapter adapter = getBookmarkListAdapter();
+    adapter.resetCaches();
     adapter.notifyDataSetChanged();
     updateSorting();
     updateSearchVisibility();
@@ -215,6 +231,9 @@ public class BookmarksListFragment extends BaseMwmRecyclerFragment<ConcatAdapter
   public void onPause()
   {
     super.onPause();
+    LocationHelper.from(requireContext()).removeListener(this);
+    mResorter.cancel();
+    mResortLocation = mSortLocation;
   }
 
   @Override
@@ -382,6 +401,8 @@ public class BookmarksListFragment extends BaseMwmRecyclerFragment<ConcatAdapter
     if (mLastSortTimestamp != timestamp)
       return;
     mLastSortTimestamp = 0;
+    mSortLocation = mPendingSortLocation;
+    mResortLocation = mPendingSortLocation;
 
     BookmarkListAdapter adapter = getBookmarkListAdapter();
     adapter.setSortedResults(sortedBlocks);
@@ -396,6 +417,7 @@ public class BookmarksListFragment extends BaseMwmRecyclerFragment<ConcatAdapter
     if (mLastSortTimestamp != timestamp)
       return;
     mLastSortTimestamp = 0;
+    resetDistanceSorting();
 
     BookmarkListAdapter adapter = getBookmarkListAdapter();
     adapter.setSortedResults(null);
@@ -408,6 +430,7 @@ public class BookmarksListFragment extends BaseMwmRecyclerFragment<ConcatAdapter
   public void onSort(@BookmarkManager.SortingType int sortingType)
   {
     mLastSortTimestamp = System.nanoTime();
+    mResorter.cancel();
 
     final Location loc = LocationHelper.from(requireContext()).getSavedLocation();
     final boolean hasMyPosition = loc != null;
@@ -417,6 +440,7 @@ public class BookmarksListFragment extends BaseMwmRecyclerFragment<ConcatAdapter
     final long catId = mCategoryDataSource.getData().getId();
     final double lat = hasMyPosition ? loc.getLatitude() : 0;
     final double lon = hasMyPosition ? loc.getLongitude() : 0;
+    mPendingSortLocation = sortingType == BookmarkManager.SORT_BY_DISTANCE ? loc : null;
 
     BookmarkManager.INSTANCE.setLastSortingType(catId, sortingType);
     BookmarkManager.INSTANCE.getSortedCategory(catId, sortingType, hasMyPosition, lat, lon,
@@ -425,6 +449,45 @@ public class BookmarksListFragment extends BaseMwmRecyclerFragment<ConcatAdapter
     updateSortingProgressBar();
   }
 
+  @Override
+  public void onLocationUpdated(@NonNull Location location)
+  {
+    // Only the list sorted by distance depends on the location.
+    if (mSortLocation == null || mResortLocation == null || mLastSortTimestamp != 0)
+      return;
+
+    final BookmarkListAdapter adapter = getBookmarkListAdapter();
+    final List<SortedBlock> sortedBlocks = adapter.getSortedResults();
+    if (adapter.isSearchResults() || sortedBlocks == null)
+      return;
+
+    // Bookmarks may move to other blocks after a long move, so the core has to sort them again.
+    if (mSortLocation.distanceTo(location) > FULL_RESORT_DISTANCE_METERS)
+    {
+      onSort(BookmarkManager.SORT_BY_DISTANCE);
+      return;
+    }
+
+    if (mResortLocation.distanceTo(location) < MIN_RESORT_DISTANCE_METERS)
+      return;
+    mResortLocation = location;
+    mResorter.resort(sortedBlocks, location, this::onBookmarksResorted);
+  }
+
+  private void onBookmarksResorted(@NonNull long[][] bookmarkIds)
+  {
+    final BookmarkListAdapter adapter = getBookmarkListAdapter();
+    adapter.setResortedBookmarkIds(bookmarkIds);
+    adapter.notifyDataSetChanged();
+  }
+
+  private void resetDistanceSorting()
+  {
+    mResorter.cancel();
+    mSortLocation = null;
+    mResortLocation = null;
+  }
+
   @NonNull
   private BookmarkListAdapter getBookmarkListAdapter()
   {
@@ -442,6 +505,7 @@ public class BookmarksListFragment extends BaseMwmRecyclerFragment<ConcatAdapter
   public void onResetSorting()
   {
     mLastSortTimestamp = 0;
+    resetDistanceSorting();
     long catId = mCategoryDataSource.getData().getId();
     BookmarkManager.INSTANCE.resetLastSortingType(catId);
 
@@ -478,6 +542,7 @@ public class BookmarksListFragment extends BaseMwmRecyclerFragment<ConcatAdapter
 
   private void resetSearchAndSort()
   {
+    resetDistanceSorting();
     BookmarkListAdapter adapter = getBookmarkListAdapter();
     adapter.setSortedResults(null);
     adapter.setSearchResults(null);
@@ -688,9 +753,15 @@ public class BookmarksListFragment extends BaseMwmRecyclerFragment<ConcatAdapter
         (bookmarkId, movedFromCategory) ->
         {
           if (movedFromCategory)
+          {
             resetSearchAndSort();
+          }
           else
+          {
+            // The cached name, icon or address of the bookmark is out of date.
+            adapter.resetCaches();
             adapter.notifyDataSetChanged();
+          }
         });
   }
 
@@ -698,6 +769,9 @@ public class BookmarksListFragment extends BaseMwmRecyclerFragment<ConcatAdapter
   {
     BookmarkListAdapter adapter = getBookmarkListAdapter();
     BookmarkInfo info = (BookmarkInfo) getBookmarkListAdapter().getItem(mSelectedPosition);
+    // The running re-sorting still has the deleted bookmark.
+    mResorter.cancel();
+    mResortLocation = mSortLocation;
     adapter.onDelete(mSelectedPosition);
     BookmarkManager.INSTANCE.deleteBookmark(info.getBookmarkId());
     adapter.notifyDataSetChanged();
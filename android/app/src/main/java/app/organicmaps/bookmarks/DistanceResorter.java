@@ -0,0 +1,122 @@
+package app.organicmaps.bookmarks;
+
+import android.location.Location;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import app.organicmaps.bookmarks.data.BookmarkManager;
+import app.organicmaps.bookmarks.data.SortedBlock;
+import app.organicmaps.util.concurrency.ThreadPool;
+import app.organicmaps.util.concurrency.UiThread;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Re-sorts the bookmarks of a list sorted by distance after a small move, without a full re-sort
+ * in the core.
+ * <p>
+ * Blocks are kept as they are, only the bookmarks inside each block are reordered, with a primitive
+ * O(n log n) sort which boxes nothing. The sorting runs on the worker thread, a newer request
+ * cancels the running one.
+ */
+class DistanceResorter
+{
+  interface Listener
+  {
+    /**
+     * @param bookmarkIds re-sorted bookmark ids for every block, null for the blocks of tracks.
+     */
+    void onResorted(@NonNull long[][] bookmarkIds);
+  }
+
+  @Nullable
+  private Future<?> mTask;
+  private int mGeneration;
+
+  @MainThread
+  void resort(@NonNull List<SortedBlock> blocks, @NonNull Location location, @NonNull Listener listener)
+  {
+    cancel();
+
+    // The core is accessible from the main thread only, so distances are taken here.
+    final long[][] ids = new long[blocks.size()][];
+    final double[][] distances = new double[blocks.size()][];
+    for (int i = 0; i < blocks.size(); ++i)
+    {
+      final SortedBlock block = blocks.get(i);
+      if (!block.isBookmarksBlock())
+        continue;
+      ids[i] = block.copyBookmarkIds();
+      distances[i] = BookmarkManager.INSTANCE.getBookmarksDistances(ids[i], location.getLatitude(),
+                                                                    location.getLongitude());
+    }
+
+    final int generation = mGeneration;
+    mTask = ThreadPool.getWorker().submit(() -> {
+      for (int i = 0; i < ids.length; ++i)
+      {
+        if (Thread.currentThread().isInterrupted())
+          return;
+        if (ids[i] != null)
+          sortByDistance(ids[i], distances[i]);
+      }
+      if (Thread.currentThread().isInterrupted())
+        return;
+
+      UiThread.run(() -> {
+        if (generation != mGeneration)
+          return;
+        mTask = null;
+        listener.onResorted(ids);
+      });
+    });
+  }
+
+  /**
+   * Drops the running re-sorting, must be called whenever the blocks are changed.
+   */
+  @MainThread
+  void cancel()
+  {
+    ++mGeneration;
+    if (mTask != null)
+    {
+      mTask.cancel(true);
+      mTask = null;
+    }
+  }
+
+  /**
+   * Stable sort of ids by their distances, missing bookmarks with NaN distances go last.
+   * <p>
+   * Every distance is packed with its index into a long and the longs are sorted as primitives,
+   * so nothing is boxed. Distances are compared as floats, which still tells apart 1 m
+   * at 10000 km, the index in the low bits keeps the equal ones in their order.
+   */
+  static void sortByDistance(@NonNull long[] ids, @NonNull double[] distances)
+  {
+    final long[] keys = new long[ids.length];
+    for (int i = 0; i < keys.length; ++i)
+    {
+      // Bits of non-negative floats are ordered as the floats, NaN ones are the greatest.
+      final float distance = Double.isNaN(distances[i]) ? Float.NaN : Math.max(0f, (float) distances[i]);
+      keys[i] = (long) Float.floatToIntBits(distance) << 32 | i;
+    }
+    Arrays.sort(keys);
+
+    final long[] sortedIds = new long[ids.length];
+    final double[] sortedDistances = new double[distances.length];
+    for (int i = 0; i < keys.length; ++i)
+    {
+      final int index = (int) keys[i];
+      sortedIds[i] = ids[index];
+      sortedDistances[i] = distances[index];
+    }
+    System.arraycopy(sortedIds, 0, ids, 0, ids.length);
+    System.arraycopy(sortedDistances, 0, distances, 0, distances.length);
+  }
+}
@@ -22,6 +22,7 @@ import app.organicmaps.bookmarks.data.BookmarkInfo;
 import app.organicmaps.bookmarks.data.BookmarkManager;
 import app.organicmaps.bookmarks.data.Track;
 import app.organicmaps.location.LocationHelper;
+import app.organicmaps.util.Distance;
 import app.organicmaps.util.Utils;
 import app.organicmaps.widget.recycler.RecyclerClickListener;
 import app.organicmaps.widget.recycler.RecyclerLongClickListener;
@@ -347,27 +348,31 @@ public class Holders
     private final TextView mName;
     @NonNull
     private final TextView mDistance;
+    @NonNull
+    private final BookmarkInfoCache mInfos;
+    @NonNull
+    private final BookmarkDistances mDistances;
 
-    BookmarkViewHolder(@NonNull View itemView)
+    BookmarkViewHolder(@NonNull View itemView, @NonNull BookmarkInfoCache infos, @NonNull BookmarkDistances distances)
     {
       super(itemView);
       mIcon = itemView.findViewById(R.id.iv__bookmark_color);
       mName = itemView.findViewById(R.id.tv__bookmark_name);
       mDistance = itemView.findViewById(R.id.tv__bookmark_distance);
+      mInfos = infos;
+      mDistances = distances;
     }
 
     @Override
     void bind(@NonNull SectionPosition position,
               @NonNull BookmarkListAdapter.SectionsDataSource sectionsDataSource)
     {
-      final long bookmarkId = sectionsDataSource.getBookmarkId(position);
-      BookmarkInfo bookmark = new BookmarkInfo(sectionsDataSource.getCategory().getId(),
-                                               bookmarkId);
+      final BookmarkInfo bookmark = mInfos.get(sectionsDataSource, position);
       mName.setText(bookmark.getName());
       final Location loc = LocationHelper.from(mIcon.getContext()).getSavedLocation();
+      final Distance distance = mDistances.get(sectionsDataSource, position, loc);
 
-      String distanceValue = loc == null ? "" : bookmark.getDistance(loc.getLatitude(),
-                                                                     loc.getLongitude(), 0.0).toString(mDistance.getContext());
+      String distanceValue = distance == null ? "" : distance.toString(mDistance.getContext());
       String separator = "";
       if (!distanceValue.isEmpty() && !bookmark.getFeatureType().isEmpty())
         separator = " • ";
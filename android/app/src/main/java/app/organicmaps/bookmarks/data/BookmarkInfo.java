@@ -2,6 +2,7 @@ package app.organicmaps.bookmarks.data;
 
 import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import app.organicmaps.Framework;
 import app.organicmaps.util.Distance;
@@ -20,8 +21,8 @@ public class BookmarkInfo
   private final double mMerX;
   private final double mMerY;
   private final double mScale;
-  @NonNull
-  private final String mAddress;
+  @Nullable
+  private String mAddress;
   @NonNull
   private final ParcelablePointD mLatLonPoint;
 
@@ -41,6 +42,24 @@ public class BookmarkInfo
     mLatLonPoint = GeoUtils.toLatLon(mMerX, mMerY);
   }
 
+  /**
+   * Used for the bookmarks fetched in bulk, see {@link BookmarkManager#getBookmarksInfo(long, long[])}.
+   * The address is looked up on demand as it's rarely needed in lists.
+   */
+  BookmarkInfo(long categoryId, long bookmarkId, @NonNull String title, @NonNull String featureType,
+               @NonNull Icon icon, double merX, double merY, double scale, double lat, double lon)
+  {
+    mCategoryId = categoryId;
+    mBookmarkId = bookmarkId;
+    mTitle = title;
+    mFeatureType = featureType;
+    mIcon = icon;
+    mMerX = merX;
+    mMerY = merY;
+    mScale = scale;
+    mLatLonPoint = new ParcelablePointD(lat, lon);
+  }
+
   public long getCategoryId()
   {
     return mCategoryId;
@@ -95,6 +114,8 @@ public class BookmarkInfo
   @NonNull
   public String getAddress()
   {
+    if (mAddress == null)
+      mAddress = BookmarkManager.INSTANCE.getBookmarkAddress(mBookmarkId);
     return mAddress;
   }
 }
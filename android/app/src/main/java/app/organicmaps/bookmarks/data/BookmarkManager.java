@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -143,14 +144,43 @@ public enum BookmarkManager
   }
 
   /**
-   * Updates the parameters of a pothole bookmark with the given ID.
+   * Creates bookmarks in the given category in one native call with a single change notification.
+   * Unlike {@link #addNewBookmark(double, double)} it neither depends on the current place page
+   * nor changes the last edited category and color, so it's suitable for bulk imports.
    *
-   * @param bookmarkID The ID of the pothole bookmark to be updated.
-   * @param desc       The description to be set for the pothole bookmark.
+   * @param latLons      packed coordinates: lat0, lon0, lat1, lon1, ...
+   * @param names        bookmark names.
+   * @param descriptions bookmark descriptions, null elements leave the description empty.
+   * @param colors       bookmark colors.
+   * @return ids of the created bookmarks in the same order.
    */
-  public void updatePotholeBookmark(long bookmarkID, String desc){
-    // Set the parameters for the pothole bookmark using BookmarkManager
-    BookmarkManager.INSTANCE.setBookmarkParams(bookmarkID,"Pothole", Icon.PREDEFINED_COLOR_BLUE,desc);
+  @NonNull
+  public long[] addBookmarks(long catId, @NonNull double[] latLons, @NonNull String[] names,
+                             @NonNull String[] descriptions, @NonNull int[] colors)
+  {
+    final int count = names.length;
+    if (latLons.length != 2 * count || descriptions.length != count || colors.length != count)
+      throw new IllegalArgumentException("Inconsistent bookmarks arrays: " + latLons.length + "/" +
+                                         count + "/" + descriptions.length + "/" + colors.length);
+    if (count == 0)
+      return new long[0];
+    return nativeAddBookmarks(catId, latLons, names, descriptions, colors);
+  }
+
+  /**
+   * Creates pothole bookmarks in the given category, see {@link #addBookmarks}.
+   *
+   * @param latLons      packed coordinates: lat0, lon0, lat1, lon1, ...
+   * @param descriptions server identifiers of the potholes, empty for clusters.
+   * @return ids of the created bookmarks in the same order.
+   */
+  @NonNull
+  public long[] addPotholeBookmarks(long catId, @NonNull double[] latLons, @NonNull String[] names,
+                                    @NonNull String[] descriptions)
+  {
+    final int[] colors = new int[names.length];
+    Arrays.fill(colors, Icon.PREDEFINED_COLOR_BLUE);
+    return addBookmarks(catId, latLons, names, descriptions, colors);
   }
 
   public void addLoadingListener(@NonNull BookmarksLoadingListener listener)
@@ -380,6 +410,65 @@ public enum BookmarkManager
     return nativeGetBookmarkIdByPosition(catId, positionInCategory);
   }
 
+  /**
+   * @return ids of all bookmarks of the category in the same order as
+   * {@link #getBookmarkIdByPosition(long, int)} enumerates them.
+   */
+  @NonNull
+  public long[] getBookmarkIds(long catId)
+  {
+    return nativeGetBookmarkIds(catId);
+  }
+
+  /**
+   * @return packed coordinates of the given bookmarks: lat0, lon0, lat1, lon1, ...
+   * NaNs are returned for bookmarks which don't exist anymore.
+   */
+  @NonNull
+  public double[] getBookmarksLatLon(@NonNull long[] bmkIds)
+  {
+    return nativeGetBookmarksLatLon(bmkIds);
+  }
+
+  /**
+   * @return distances in meters from the given point to the given bookmarks, in the same order.
+   * NaNs are returned for bookmarks which don't exist anymore.
+   */
+  @NonNull
+  public double[] getBookmarksDistances(@NonNull long[] bmkIds, double lat, double lon)
+  {
+    return nativeGetBookmarksDistances(bmkIds, lat, lon);
+  }
+
+  /**
+   * Fetches the bookmarks info needed for lists in a single native call.
+   * The address is not fetched, see {@link BookmarkInfo#getAddress()}.
+   *
+   * @return infos in the same order as ids, nulls for bookmarks which don't exist anymore.
+   */
+  @NonNull
+  public BookmarkInfo[] getBookmarksInfo(long catId, @NonNull long[] bmkIds)
+  {
+    final int count = bmkIds.length;
+    final String[] names = new String[count];
+    final String[] featureTypes = new String[count];
+    final int[] colorsAndIcons = new int[2 * count];
+    final double[] coords = new double[5 * count];
+    nativeGetBookmarksInfo(bmkIds, names, featureTypes, colorsAndIcons, coords);
+
+    final BookmarkInfo[] infos = new BookmarkInfo[count];
+    for (int i = 0; i < count; ++i)
+    {
+      if (names[i] == null)
+        continue;
+      final Icon icon = new Icon(colorsAndIcons[2 * i], colorsAndIcons[2 * i + 1]);
+      infos[i] = new BookmarkInfo(catId, bmkIds[i], names[i], featureTypes[i], icon,
+                                  coords[5 * i], coords[5 * i + 1], coords[5 * i + 2],
+                                  coords[5 * i + 3], coords[5 * i + 4]);
+    }
+    return infos;
+  }
+
   @NonNull
   public Track getTrack(long trackId)
   {
@@ -405,8 +494,24 @@ public enum BookmarkManager
     nativeDeleteBookmark(bmkId);
   }
 
+  /**
+   * Deletes all the given bookmarks with a single change notification.
+   * Ids of bookmarks which don't exist anymore are ignored.
+   */
+  public void deleteBookmarks(@NonNull long[] bmkIds)
+  {
+    if (bmkIds.length > 0)
+      nativeDeleteBookmarks(bmkIds);
+  }
+
   public long createCategory(@NonNull String name) { return nativeCreateCategory(name); }
 
+  /**
+   * Creates a category for an internal map layer. It isn't saved to a file and isn't listed
+   * in {@link #getCategories()}, so its bookmarks live only until the app is restarted.
+   */
+  public long createHiddenCategory(@NonNull String name) { return nativeCreateHiddenCategory(name); }
+
   public void showBookmarkOnMap(long bmkId) { nativeShowBookmarkOnMap(bmkId); }
 
   public void showBookmarkCategoryOnMap(long catId) { nativeShowBookmarkCategoryOnMap(catId); }
@@ -765,6 +870,23 @@ public enum BookmarkManager
 
   private native long nativeGetBookmarkIdByPosition(long catId, int position);
 
+  @NonNull
+  private static native long[] nativeGetBookmarkIds(long catId);
+
+  @NonNull
+  private static native double[] nativeGetBookmarksLatLon(@NonNull long[] bmkIds);
+
+  @NonNull
+  private static native double[] nativeGetBookmarksDistances(@NonNull long[] bmkIds, double lat, double lon);
+
+  /**
+   * Fills the arrays for the given bookmarks: names, feature types, color0, icon0, color1, icon1, ...
+   * and merX0, merY0, scale0, lat0, lon0, merX1, ... Names are left null for missing bookmarks.
+   */
+  private static native void nativeGetBookmarksInfo(@NonNull long[] bmkIds, @NonNull String[] names,
+                                                    @NonNull String[] featureTypes, @NonNull int[] colorsAndIcons,
+                                                    @NonNull double[] coords);
+
   @NonNull
   private native Track nativeGetTrack(long trackId, Class<Track> trackClazz);
 
@@ -792,11 +914,15 @@ public enum BookmarkManager
 
   private native void nativeDeleteBookmark(long bmkId);
 
+  private static native void nativeDeleteBookmarks(@NonNull long[] bmkIds);
+
   /**
    * @return category Id
    */
   private native long nativeCreateCategory(@NonNull String name);
 
+  private native long nativeCreateHiddenCategory(@NonNull String name);
+
   private native void nativeShowBookmarkOnMap(long bmkId);
 
   private native void nativeShowBookmarkCategoryOnMap(long catId);
@@ -804,6 +930,12 @@ public enum BookmarkManager
   @Nullable
   private native Bookmark nativeAddBookmarkToLastEditedCategory(double lat, double lon);
 
+  @NonNull
+  private static native long[] nativeAddBookmarks(long catId, @NonNull double[] latLons,
+                                                  @NonNull String[] names,
+                                                  @NonNull String[] descriptions,
+                                                  @NonNull int[] colors);
+
   private native long nativeGetLastEditedCategory();
 
   @Icon.PredefinedColor
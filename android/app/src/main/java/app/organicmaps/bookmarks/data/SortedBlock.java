@@ -2,37 +2,95 @@ package app.organicmaps.bookmarks.data;
 
 import androidx.annotation.NonNull;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-
+/**
+ * A named block of sorted bookmarks or tracks.
+ * <p>
+ * Ids are kept in primitive arrays. Removal shifts the tail of the array in place, so deleting
+ * an item from a huge block neither boxes nor reallocates anything. It's a single memmove rather
+ * than O(1): removing in O(1) would need tombstones and a rank index, which would make every read
+ * of the adapter O(log n) instead.
+ */
 public class SortedBlock
 {
   @NonNull
   private final String mName;
   @NonNull
-  private final List<Long> mBookmarkIds;
+  private final long[] mBookmarkIds;
+  private int mBookmarksCount;
   @NonNull
-  private final List<Long> mTrackIds;
+  private final long[] mTrackIds;
+  private int mTracksCount;
 
-  public SortedBlock(@NonNull String name, @NonNull Long[] bookmarkIds,
-                     @NonNull Long[] trackIds)
+  // Called from JNI.
+  @SuppressWarnings("unused")
+  public SortedBlock(@NonNull String name, @NonNull long[] bookmarkIds, @NonNull long[] trackIds)
   {
     mName = name;
-    mBookmarkIds = new ArrayList<>(Arrays.asList(bookmarkIds));
-    mTrackIds = new ArrayList<>(Arrays.asList(trackIds));
+    mBookmarkIds = bookmarkIds;
+    mBookmarksCount = bookmarkIds.length;
+    mTrackIds = trackIds;
+    mTracksCount = trackIds.length;
   }
 
-  public boolean isBookmarksBlock() { return !mBookmarkIds.isEmpty(); }
-  public boolean isTracksBlock() { return !mTrackIds.isEmpty(); }
+  public boolean isBookmarksBlock() { return mBookmarksCount > 0; }
+  public boolean isTracksBlock() { return mTracksCount > 0; }
   @NonNull
   public String getName() { return mName; }
 
-  @SuppressWarnings("AssignmentOrReturnOfFieldWithMutableType")
+  public int getBookmarksCount() { return mBookmarksCount; }
+  public int getTracksCount() { return mTracksCount; }
+
+  public long getBookmarkId(int index)
+  {
+    if (index >= mBookmarksCount)
+      throw new IndexOutOfBoundsException("Index: " + index + ", size: " + mBookmarksCount);
+    return mBookmarkIds[index];
+  }
+
+  public long getTrackId(int index)
+  {
+    if (index >= mTracksCount)
+      throw new IndexOutOfBoundsException("Index: " + index + ", size: " + mTracksCount);
+    return mTrackIds[index];
+  }
+
+  /**
+   * @return a copy of the bookmark ids in their current order.
+   */
   @NonNull
-  public List<Long> getBookmarkIds() { return mBookmarkIds; }
+  public long[] copyBookmarkIds()
+  {
+    final long[] ids = new long[mBookmarksCount];
+    System.arraycopy(mBookmarkIds, 0, ids, 0, mBookmarksCount);
+    return ids;
+  }
 
-  @SuppressWarnings("AssignmentOrReturnOfFieldWithMutableType")
+  public void removeBookmark(int index)
+  {
+    mBookmarksCount = remove(mBookmarkIds, mBookmarksCount, index);
+  }
+
+  public void removeTrack(int index)
+  {
+    mTracksCount = remove(mTrackIds, mTracksCount, index);
+  }
+
+  /**
+   * @return the same block with the bookmarks reordered, e.g. by the distance re-sorting.
+   */
   @NonNull
-  public List<Long> getTrackIds() { return mTrackIds; }
+  public SortedBlock withBookmarkIds(@NonNull long[] bookmarkIds)
+  {
+    final long[] trackIds = new long[mTracksCount];
+    System.arraycopy(mTrackIds, 0, trackIds, 0, mTracksCount);
+    return new SortedBlock(mName, bookmarkIds, trackIds);
+  }
+
+  private static int remove(@NonNull long[] ids, int count, int index)
+  {
+    if (index >= count)
+      throw new IndexOutOfBoundsException("Index: " + index + ", size: " + count);
+    System.arraycopy(ids, index + 1, ids, index, count - index - 1);
+    return count - 1;
+  }
 }
@@ -1,37 +1,58 @@
 package app.organicmaps.downloader;
 
-import android.os.AsyncTask;
-import android.util.Base64;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 
 import app.organicmaps.util.Constants;
+import app.organicmaps.util.HttpStack;
 import app.organicmaps.util.StringUtils;
-import app.organicmaps.util.Utils;
+import app.organicmaps.util.concurrency.UiThread;
 import app.organicmaps.util.log.Logger;
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Credentials;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
 
-import java.io.BufferedInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.util.Map;
+import java.nio.ByteBuffer;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
-
-@SuppressWarnings({"unused", "deprecation"}) // https://github.com/organicmaps/organicmaps/issues/3632
-class ChunkTask extends AsyncTask<Void, byte[], Integer>
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downloads a range of a file for the native HttpThread.
+ * <p>
+ * The response is read into a direct buffer of the pool thread. If the native callback supports
+ * it (e.g. for map files), the buffer is passed to native code right on the pool thread without
+ * copying, so downloads don't involve the main thread until the chunk is finished. Otherwise
+ * the data is handed over to the main thread as before.
+ */
+@SuppressWarnings("unused") // Called from native code.
+class ChunkTask implements Runnable
 {
   private static final String TAG = ChunkTask.class.getSimpleName();
 
   private static final int TIMEOUT_IN_SECONDS = 10;
+  // Data is passed to native code in blocks of this size, which is also the size of the buffer
+  // allocated per pool thread.
+  private static final int BUFFER_SIZE = 256 * Constants.KB;
 
   private final long mHttpCallbackID;
   private final String mUrl;
   private final long mBeg;
   private final long mEnd;
   private final long mExpectedFileSize;
+  @Nullable
   private byte[] mPostBody;
+  private final boolean mWriteFromAnyThread;
 
   private static final int IO_EXCEPTION = -1;
   private static final int WRITE_EXCEPTION = -2;
@@ -42,10 +63,29 @@ class ChunkTask extends AsyncTask<Void, byte[], Integer>
 
   private long mDownloadedBytes;
 
-  private static final Executor sExecutors = Executors.newFixedThreadPool(4);
+  // Guards native writes from the pool thread against cancellation, see cancel().
+  private final Object mWriteLock = new Object();
+  private volatile boolean mCancelled;
+  // Cancelled along with the task, so a blocked connect or read is aborted right away.
+  @Nullable
+  private volatile Call mCall;
+
+  // The number of parallel chunks is chosen by native code from the measured throughput,
+  // so the pool is not bounded here.
+  private static final Executor sExecutors = Executors.newCachedThreadPool();
+  private static final ThreadLocal<ByteBuffer> sBuffer = new ThreadLocal<ByteBuffer>()
+  {
+    @Override
+    protected ByteBuffer initialValue()
+    {
+      return ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+  };
+  @Nullable
+  private static OkHttpClient sClient;
 
   public ChunkTask(long httpCallbackID, String url, long beg, long end,
-                   long expectedFileSize, byte[] postBody)
+                   long expectedFileSize, byte[] postBody, boolean writeFromAnyThread)
   {
     mHttpCallbackID = httpCallbackID;
     mUrl = url;
@@ -53,50 +93,57 @@ class ChunkTask extends AsyncTask<Void, byte[], Integer>
     mEnd = end;
     mExpectedFileSize = expectedFileSize;
     mPostBody = postBody;
+    mWriteFromAnyThread = writeFromAnyThread;
   }
 
-  @Override
-  protected void onPreExecute() {}
-
   private long getChunkID()
   {
     return mBeg;
   }
 
-  @Override
-  protected void onPostExecute(Integer httpOrErrorCode)
+  void start()
   {
-    //Log.i(TAG, "Writing chunk " + getChunkID());
-
-    // It seems like onPostExecute can be called (from GUI thread queue)
-    // after the task was cancelled in destructor of HttpThread.
-    // Reproduced by Samsung testers: touch Try Again for many times from
-    // start activity when no connection is present.
-
-    if (!isCancelled())
-      nativeOnFinish(mHttpCallbackID, httpOrErrorCode, mBeg, mEnd);
+    sExecutors.execute(this);
   }
 
-  @Override
-  protected void onProgressUpdate(byte[]... data)
+  /**
+   * Called by native code on the main thread. Once it returns, the native callback is never
+   * called again, a write in progress on the pool thread is waited for.
+   */
+  boolean cancel()
   {
-    if (!isCancelled())
+    synchronized (mWriteLock)
     {
-      // Use progress event to save downloaded bytes.
-      if (nativeOnWrite(mHttpCallbackID, mBeg + mDownloadedBytes, data[0], data[0].length))
-        mDownloadedBytes += data[0].length;
-      else
-      {
-        // Cancel downloading and notify about error.
-        cancel(false);
-        nativeOnFinish(mHttpCallbackID, WRITE_EXCEPTION, mBeg, mEnd);
-      }
+      if (mCancelled)
+        return false;
+      mCancelled = true;
     }
+
+    // Either the call is seen here or download() sees the flag before executing it.
+    final Call call = mCall;
+    if (call != null)
+      call.cancel();
+    return true;
   }
 
-  void start()
+  private boolean isCancelled()
   {
-    executeOnExecutor(sExecutors, (Void[]) null);
+    return mCancelled;
+  }
+
+  @NonNull
+  private static synchronized OkHttpClient getClient()
+  {
+    if (sClient == null)
+    {
+      // Shares the connection pool of the app client, but not the call timeout: the whole file
+      // may be downloaded in one call.
+      sClient = HttpStack.INSTANCE.newTransferClientBuilder()
+                                  .connectTimeout(TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)
+                                  .readTimeout(TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)
+                                  .build();
+    }
+    return sClient;
   }
 
   private static long parseContentRange(String contentRangeValue)
@@ -119,63 +166,71 @@ class ChunkTask extends AsyncTask<Void, byte[], Integer>
   }
 
   @Override
-  protected Integer doInBackground(Void... p)
+  public void run()
   {
     //Log.i(TAG, "Start downloading chunk " + getChunkID());
+    final int httpOrErrorCode = download();
+
+    UiThread.run(() -> {
+      // It seems like the result can arrive after the task was cancelled in destructor of
+      // HttpThread. Reproduced by Samsung testers: touch Try Again for many times from
+      // start activity when no connection is present.
+      if (!isCancelled())
+        nativeOnFinish(mHttpCallbackID, httpOrErrorCode, mBeg, mEnd);
+    });
+  }
 
-    HttpURLConnection urlConnection = null;
-    /*
-     * TODO improve reliability of connections & handle EOF errors.
-     * <a href="http://stackoverflow.com/questions/19258518/android-httpurlconnection-eofexception">asd</a>
-     */
+  @WorkerThread
+  private int download()
+  {
+    if (isCancelled())
+      return CANCELLED;
 
-    try
+    final HttpUrl url = HttpUrl.parse(mUrl);
+    if (url == null)
     {
-      final URL url = new URL(mUrl);
-      urlConnection = (HttpURLConnection) url.openConnection();
-
-      if (isCancelled())
-        return CANCELLED;
+      Logger.e(TAG, "Invalid url: " + mUrl);
+      return INVALID_URL;
+    }
 
-      urlConnection.setUseCaches(false);
-      urlConnection.setConnectTimeout(TIMEOUT_IN_SECONDS * 1000);
-      urlConnection.setReadTimeout(TIMEOUT_IN_SECONDS * 1000);
+    final Request.Builder builder = new Request.Builder()
+        .url(url)
+        .cacheControl(new CacheControl.Builder().noCache().noStore().build())
+        // Otherwise OkHttp asks for gzip and the content length can't be checked.
+        .header("Accept-Encoding", "identity");
 
-      // Provide authorization credentials
-      String creds = url.getUserInfo();
-      if (creds != null)
-      {
-        String value = "Basic " + Base64.encodeToString(creds.getBytes(), Base64.DEFAULT);
-        urlConnection.setRequestProperty("Authorization", value);
-      }
+    // Provide authorization credentials
+    if (!url.username().isEmpty())
+      builder.header("Authorization", Credentials.basic(url.username(), url.password()));
 
-      // use Range header only if we don't download whole file from start
-      if (!(mBeg == 0 && mEnd < 0))
-      {
-        if (mEnd > 0)
-          urlConnection.setRequestProperty("Range", StringUtils.formatUsingUsLocale("bytes=%d-%d", mBeg, mEnd));
-        else
-          urlConnection.setRequestProperty("Range", StringUtils.formatUsingUsLocale("bytes=%d-", mBeg));
-      }
+    // use Range header only if we don't download whole file from start
+    final boolean isChunk = !(mBeg == 0 && mEnd < 0);
+    if (isChunk)
+    {
+      if (mEnd > 0)
+        builder.header("Range", StringUtils.formatUsingUsLocale("bytes=%d-%d", mBeg, mEnd));
+      else
+        builder.header("Range", StringUtils.formatUsingUsLocale("bytes=%d-", mBeg));
+    }
 
-      final Map<?, ?> requestParams = urlConnection.getRequestProperties();
+    if (mPostBody != null)
+    {
+      builder.post(RequestBody.create(mPostBody, null));
+      mPostBody = null;
+    }
 
-      if (mPostBody != null)
-      {
-        urlConnection.setDoOutput(true);
-        urlConnection.setFixedLengthStreamingMode(mPostBody.length);
-
-        final DataOutputStream os = new DataOutputStream(urlConnection.getOutputStream());
-        os.write(mPostBody);
-        os.flush();
-        mPostBody = null;
-        Utils.closeSafely(os);
-      }
+    final Request request = builder.build();
+    final Call call = getClient().newCall(request);
+    mCall = call;
+    if (isCancelled())
+      return CANCELLED;
 
+    try (Response response = call.execute())
+    {
       if (isCancelled())
         return CANCELLED;
 
-      final int err = urlConnection.getResponseCode();
+      final int err = response.code();
       if (err == HttpURLConnection.HTTP_NOT_FOUND)
         return err;
 
@@ -183,28 +238,28 @@ class ChunkTask extends AsyncTask<Void, byte[], Integer>
       // to avoid situation when downloading is always failed by "unknown" reason
       // When we didn't ask for chunks, code should be 200
       // When we asked for a chunk, code should be 206
-      final boolean isChunk = !(mBeg == 0 && mEnd < 0);
       if ((isChunk && err != HttpURLConnection.HTTP_PARTIAL) || (!isChunk && err != HttpURLConnection.HTTP_OK))
       {
         // we've set error code so client should be notified about the error
-        Logger.w(TAG, "Error for " + urlConnection.getURL() +
+        Logger.w(TAG, "Error for " + response.request().url() +
                  ": Server replied with code " + err +
-                 ", aborting download. " + Utils.mapPrettyPrint(requestParams));
+                 ", aborting download. " + request.headers());
         return INCONSISTENT_FILE_SIZE;
       }
 
+      final ResponseBody body = response.body();
       // Check for content size - are we downloading requested file or some router's garbage?
       if (mExpectedFileSize > 0)
       {
-        long contentLength = parseContentRange(urlConnection.getHeaderField("Content-Range"));
+        long contentLength = parseContentRange(response.header("Content-Range"));
         if (contentLength < 0)
-          contentLength = urlConnection.getContentLength();
+          contentLength = body.contentLength();
 
         // Check even if contentLength is invalid (-1), in this case it's not our server!
         if (contentLength != mExpectedFileSize)
         {
           // we've set error code so client should be notified about the error
-          Logger.w(TAG, "Error for " + urlConnection.getURL() +
+          Logger.w(TAG, "Error for " + response.request().url() +
                    ": Invalid file size received (" + contentLength + ") while expecting " + mExpectedFileSize +
                    ". Aborting download.");
           return INCONSISTENT_FILE_SIZE;
@@ -212,68 +267,86 @@ class ChunkTask extends AsyncTask<Void, byte[], Integer>
         // @TODO Else display received web page to user - router is redirecting us to some page
       }
 
-      return downloadFromStream(new BufferedInputStream(urlConnection.getInputStream(), 65536));
-    } catch (final MalformedURLException ex)
-    {
-      Logger.e(TAG, "Invalid url: " + mUrl, ex);
-      return INVALID_URL;
-    } catch (final IOException ex)
+      return downloadFromSource(body.source());
+    }
+    catch (final IOException ex)
     {
-      Logger.d(TAG, "IOException in doInBackground for URL: " + mUrl, ex);
+      if (isCancelled())
+        return CANCELLED;
+      Logger.d(TAG, "IOException in download for URL: " + mUrl, ex);
       return IO_EXCEPTION;
-    } finally
-    {
-      if (urlConnection != null)
-        urlConnection.disconnect();
     }
   }
 
-  private Integer downloadFromStream(InputStream stream)
+  @WorkerThread
+  private int downloadFromSource(@NonNull BufferedSource source) throws IOException
   {
-    // Because of timeouts in InputStream.read (for bad connection),
-    // try to introduce dynamic buffer size to read in one query.
-    final int[] arrSize = {64, 32, 1};
-    int ret = IO_EXCEPTION;
+    final ByteBuffer buffer = sBuffer.get();
+    buffer.clear();
+    while (source.read(buffer) != -1)
+    {
+      if (isCancelled())
+        return CANCELLED;
+      if (buffer.hasRemaining())
+        continue;
+
+      final int result = write(buffer);
+      if (result != HttpURLConnection.HTTP_OK)
+        return result;
+    }
+    return buffer.position() > 0 ? write(buffer) : HttpURLConnection.HTTP_OK;
+  }
 
-    for (int size : arrSize)
+  /**
+   * Passes the data of the buffer to native code and clears the buffer.
+   */
+  @WorkerThread
+  private int write(@NonNull ByteBuffer buffer)
+  {
+    final int size = buffer.position();
+    final long offset = mBeg + mDownloadedBytes;
+    buffer.flip();
+    try
     {
-      try
+      if (mWriteFromAnyThread)
       {
-        ret = downloadFromStreamImpl(stream, size * Constants.KB);
-        break;
-      } catch (final IOException ex)
+        synchronized (mWriteLock)
+        {
+          if (isCancelled())
+            return CANCELLED;
+          if (!nativeOnWriteDirect(mHttpCallbackID, offset, buffer, size))
+            return WRITE_EXCEPTION;
+        }
+      }
+      else
       {
-        Logger.e(TAG, "IOException in downloadFromStream for chunk size: " + size, ex);
+        final byte[] data = new byte[size];
+        buffer.get(data);
+        UiThread.run(() -> onWrite(offset, data));
       }
+      mDownloadedBytes += size;
+      return HttpURLConnection.HTTP_OK;
+    }
+    finally
+    {
+      buffer.clear();
     }
-
-    Utils.closeSafely(stream);
-    return ret;
   }
 
-  /**
-   * @throws IOException
-   */
-  private int downloadFromStreamImpl(InputStream stream, int bufferSize) throws IOException
+  private void onWrite(long offset, @NonNull byte[] data)
   {
-    final byte[] tempBuf = new byte[bufferSize];
+    if (isCancelled())
+      return;
 
-    int readBytes;
-    while ((readBytes = stream.read(tempBuf)) > 0)
+    if (!nativeOnWrite(mHttpCallbackID, offset, data, data.length))
     {
-      if (isCancelled())
-        return CANCELLED;
-
-      final byte[] chunk = new byte[readBytes];
-      System.arraycopy(tempBuf, 0, chunk, 0, readBytes);
-
-      publishProgress(chunk);
+      // Cancel downloading and notify about error.
+      cancel();
+      nativeOnFinish(mHttpCallbackID, WRITE_EXCEPTION, mBeg, mEnd);
     }
-
-    // -1 - means the end of the stream (success), else - some error occurred
-    return (readBytes == -1 ? HttpURLConnection.HTTP_OK : IO_EXCEPTION);
   }
 
   private static native boolean nativeOnWrite(long httpCallbackID, long beg, byte[] data, long size);
+  private static native boolean nativeOnWriteDirect(long httpCallbackID, long beg, ByteBuffer buffer, long size);
   private static native void nativeOnFinish(long httpCallbackID, long httpCode, long beg, long end);
 }
@@ -78,7 +78,7 @@ class AndroidNativeProvider extends BaseLocationProvider
   // A permission is checked externally
   @Override
   @RequiresPermission(anyOf = {ACCESS_COARSE_LOCATION, ACCESS_FINE_LOCATION})
-  public void start(long interval)
+  public void start(long interval, int quality)
   {
     Logger.d(TAG);
     if (!mProviders.isEmpty())
@@ -86,7 +86,7 @@ class AndroidNativeProvider extends BaseLocationProvider
 
     final LocationRequestCompat locationRequest = new LocationRequestCompat.Builder(interval)
         // The quality is a hint to providers on how they should weigh power vs accuracy tradeoffs.
-        .setQuality(LocationRequestCompat.QUALITY_HIGH_ACCURACY)
+        .setQuality(quality)
         .build();
 
     // API 31+ provides `fused` provider which aggregates `gps` and `network` and potentially other sensors as well.
@@ -111,7 +111,7 @@ class AndroidNativeProvider extends BaseLocationProvider
     for (String provider : mProviders)
     {
       Logger.d(TAG, "Request Android native provider '" + provider
-               + "' to get locations at this interval = " + interval + " ms");
+               + "' to get locations at this interval = " + interval + " ms, quality = " + quality);
       LocationManagerCompat.requestLocationUpdates(mLocationManager, provider, locationRequest,
           mNativeLocationListener, Looper.myLooper());
     }
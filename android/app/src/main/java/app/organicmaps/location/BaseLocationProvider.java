@@ -32,7 +32,10 @@ abstract class BaseLocationProvider
     mListener = listener;
   }
 
+  /**
+   * @param quality one of LocationPollingScheduler.QUALITY_* values.
+   */
   @RequiresPermission(anyOf = {ACCESS_COARSE_LOCATION, ACCESS_FINE_LOCATION})
-  protected abstract void start(long interval);
+  protected abstract void start(long interval, int quality);
   protected abstract void stop();
 }
@@ -0,0 +1,242 @@
+package app.organicmaps.location;
+
+/**
+ * Kalman filter of the position and the velocity on a local flat frame (east, north in meters).
+ * <p>
+ * The axes are filtered separately with a constant velocity model. The acceleration measured by
+ * the sensors is used as the control input if it's known, otherwise it's a part of the process
+ * noise. GNSS fixes update the position and, if the fix has a bearing, the velocity.
+ * Nothing is allocated after the construction, so it can be run for every sensor event.
+ *
+ * Times are {@link android.os.SystemClock#elapsedRealtimeNanos()}.
+ */
+final class LocationFilter
+{
+  private static final double EARTH_RADIUS_M = 6378137.0;
+  private static final double METERS_PER_DEGREE_LAT = Math.PI / 180 * EARTH_RADIUS_M;
+  // The frame is moved to the current position farther than this to keep the flat earth error small.
+  private static final double MAX_ORIGIN_DISTANCE_M = 10000;
+  // The filter is started anew after a longer gap between fixes.
+  private static final long MAX_FIX_GAP_NS = 20_000_000_000L;
+
+  // Standard deviation of the acceleration which isn't measured, m/s^2.
+  private static final double ACCELERATION_NOISE = 3.0;
+  // Standard deviation of the measured acceleration, sensors are noisy and the phone moves in the car.
+  private static final double MEASURED_ACCELERATION_NOISE = 1.0;
+  // Measured accelerations above this are bumps and taps.
+  private static final double MAX_ACCELERATION = 6.0;
+  // Used if the fix doesn't have the speed accuracy.
+  private static final double DEFAULT_SPEED_ACCURACY = 1.0;
+  // Speed accuracy of the first fix without a bearing.
+  private static final double UNKNOWN_SPEED_ACCURACY = 10.0;
+
+  private static final class Axis
+  {
+    double mPosition;
+    double mVelocity;
+    // Covariance matrix.
+    double mP00;
+    double mP01;
+    double mP11;
+
+    void reset(double position, double positionVar, double velocity, double velocityVar)
+    {
+      mPosition = position;
+      mVelocity = velocity;
+      mP00 = positionVar;
+      mP01 = 0;
+      mP11 = velocityVar;
+    }
+
+    void predict(double dt, double acceleration, double accelerationVar)
+    {
+      mPosition += (mVelocity + 0.5 * acceleration * dt) * dt;
+      mVelocity += acceleration * dt;
+
+      // P = F * P * F' + G * G' * accelerationVar, F = [1 dt; 0 1], G = [dt^2 / 2; dt].
+      final double dt2 = dt * dt;
+      mP00 += 2 * dt * mP01 + dt2 * mP11 + accelerationVar * dt2 * dt2 / 4;
+      mP01 += dt * mP11 + accelerationVar * dt2 * dt / 2;
+      mP11 += accelerationVar * dt2;
+    }
+
+    void updatePosition(double position, double variance)
+    {
+      final double s = mP00 + variance;
+      final double k0 = mP00 / s;
+      final double k1 = mP01 / s;
+      final double innovation = position - mPosition;
+      mPosition += k0 * innovation;
+      mVelocity += k1 * innovation;
+
+      mP11 -= k1 * mP01;
+      mP01 *= 1 - k0;
+      mP00 *= 1 - k0;
+    }
+
+    void updateVelocity(double velocity, double variance)
+    {
+      final double s = mP11 + variance;
+      final double k0 = mP01 / s;
+      final double k1 = mP11 / s;
+      final double innovation = velocity - mVelocity;
+      mPosition += k0 * innovation;
+      mVelocity += k1 * innovation;
+
+      mP00 -= k0 * mP01;
+      mP01 *= 1 - k1;
+      mP11 *= 1 - k1;
+    }
+  }
+
+  private final Axis mEast = new Axis();
+  private final Axis mNorth = new Axis();
+  private boolean mInitialized;
+  private long mTimeNs;
+  private double mOriginLat;
+  private double mOriginLon;
+  private double mMetersPerDegreeLon;
+  private boolean mHasAcceleration;
+  private double mAccelerationEast;
+  private double mAccelerationNorth;
+
+  void reset()
+  {
+    mInitialized = false;
+    mHasAcceleration = false;
+  }
+
+  boolean isInitialized()
+  {
+    return mInitialized;
+  }
+
+  long getTime()
+  {
+    return mTimeNs;
+  }
+
+  /**
+   * Sets the acceleration on the earth frame used as the control input until the next call.
+   */
+  void setAcceleration(double east, double north)
+  {
+    final double norm = Math.hypot(east, north);
+    final double scale = norm > MAX_ACCELERATION ? MAX_ACCELERATION / norm : 1;
+    mHasAcceleration = true;
+    mAccelerationEast = east * scale;
+    mAccelerationNorth = north * scale;
+  }
+
+  void clearAcceleration()
+  {
+    mHasAcceleration = false;
+  }
+
+  /**
+   * Moves the state forward to the time, does nothing for the past.
+   */
+  void predict(long timeNs)
+  {
+    if (!mInitialized || timeNs <= mTimeNs)
+      return;
+
+    final double dt = (timeNs - mTimeNs) / 1e9;
+    mTimeNs = timeNs;
+    final double noise = mHasAcceleration ? MEASURED_ACCELERATION_NOISE : ACCELERATION_NOISE;
+    final double variance = noise * noise;
+    mEast.predict(dt, mHasAcceleration ? mAccelerationEast : 0, variance);
+    mNorth.predict(dt, mHasAcceleration ? mAccelerationNorth : 0, variance);
+  }
+
+  /**
+   * @param bearing in degrees, NaN if the fix doesn't have a bearing.
+   * @param speedAccuracy NaN if unknown.
+   */
+  void update(long timeNs, double lat, double lon, double accuracy, double speed, double bearing,
+              double speedAccuracy)
+  {
+    final boolean hasVelocity = !Double.isNaN(bearing);
+    final double east = hasVelocity ? speed * Math.sin(Math.toRadians(bearing)) : 0;
+    final double north = hasVelocity ? speed * Math.cos(Math.toRadians(bearing)) : 0;
+    final double speedVar = square(Double.isNaN(speedAccuracy) ? DEFAULT_SPEED_ACCURACY : speedAccuracy);
+
+    if (!mInitialized || timeNs - mTimeNs > MAX_FIX_GAP_NS)
+    {
+      mInitialized = true;
+      mTimeNs = timeNs;
+      setOrigin(lat, lon);
+      final double velocityVar = hasVelocity ? speedVar : square(UNKNOWN_SPEED_ACCURACY);
+      mEast.reset(0, square(accuracy), east, velocityVar);
+      mNorth.reset(0, square(accuracy), north, velocityVar);
+      return;
+    }
+
+    // The fix may come a bit later than the sensor events which have already moved the state
+    // forward, it's applied to the current state then.
+    predict(timeNs);
+
+    final double positionVar = square(accuracy);
+    mEast.updatePosition((lon - mOriginLon) * mMetersPerDegreeLon, positionVar);
+    mNorth.updatePosition((lat - mOriginLat) * METERS_PER_DEGREE_LAT, positionVar);
+    if (hasVelocity)
+    {
+      mEast.updateVelocity(east, speedVar);
+      mNorth.updateVelocity(north, speedVar);
+    }
+
+    if (Math.hypot(mEast.mPosition, mNorth.mPosition) > MAX_ORIGIN_DISTANCE_M)
+    {
+      final double newLat = getLatitude();
+      final double newLon = getLongitude();
+      setOrigin(newLat, newLon);
+      mEast.mPosition = 0;
+      mNorth.mPosition = 0;
+    }
+  }
+
+  double getLatitude()
+  {
+    return mOriginLat + mNorth.mPosition / METERS_PER_DEGREE_LAT;
+  }
+
+  double getLongitude()
+  {
+    return mOriginLon + mEast.mPosition / mMetersPerDegreeLon;
+  }
+
+  /**
+   * @return the standard deviation of the position in meters.
+   */
+  double getAccuracy()
+  {
+    return Math.sqrt(Math.max(mEast.mP00, mNorth.mP00));
+  }
+
+  double getSpeed()
+  {
+    return Math.hypot(mEast.mVelocity, mNorth.mVelocity);
+  }
+
+  /**
+   * @return the bearing in degrees [0, 360).
+   */
+  double getBearing()
+  {
+    final double bearing = Math.toDegrees(Math.atan2(mEast.mVelocity, mNorth.mVelocity));
+    return bearing < 0 ? bearing + 360 : bearing;
+  }
+
+  private void setOrigin(double lat, double lon)
+  {
+    mOriginLat = lat;
+    mOriginLon = lon;
+    // Close to the poles the frame is moved often, but it still works.
+    mMetersPerDegreeLon = METERS_PER_DEGREE_LAT * Math.max(Math.cos(Math.toRadians(lat)), 0.01);
+  }
+
+  private static double square(double value)
+  {
+    return value * value;
+  }
+}
@@ -0,0 +1,212 @@
+package app.organicmaps.location;
+
+import android.content.Context;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.location.Location;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+
+import app.organicmaps.util.log.Logger;
+
+/**
+ * Smooths GNSS fixes during navigation with the acceleration measured by the sensors, see
+ * {@link LocationFilter}, and passes the result to the core.
+ * <p>
+ * Between the fixes the core extrapolates the position itself for a couple of seconds (see
+ * map/extrapolation), so the fixes can be requested less often. If the next fix is late
+ * (tunnels, urban canyons), the position is dead reckoned here until it comes.
+ */
+@UiThread
+class LocationFusion implements SensorEventListener
+{
+  private static final String TAG = LocationFusion.class.getSimpleName();
+
+  // The core extrapolates the last fixes during this time, see Extrapolator::kMaxExtrapolationTimeMs.
+  private static final long DEAD_RECKONING_DELAY_MS = 2000;
+  private static final long DEAD_RECKONING_PERIOD_MS = 1000;
+  // The position drifts fast without fixes, it's better to show nothing new after that.
+  private static final long MAX_DEAD_RECKONING_MS = 10000;
+  // The measured acceleration is not used if the sensor is silent for longer.
+  private static final long MAX_ACCELERATION_AGE_NS = 500_000_000L;
+  // Some devices don't use elapsedRealtimeNanos() for the sensor event timestamps.
+  private static final long MAX_SENSOR_CLOCK_SKEW_NS = 1_000_000_000L;
+  private static final float LOW_PASS_ALPHA = 0.3f;
+
+  @NonNull
+  private final SensorManager mSensorManager;
+  @Nullable
+  private final Sensor mAccelerationSensor;
+  @Nullable
+  private final Sensor mRotationSensor;
+  private final LocationFilter mFilter = new LocationFilter();
+  private final float[] mRotationMatrix = new float[9];
+  private boolean mHasRotation;
+  private float mAccelerationEast;
+  private float mAccelerationNorth;
+  private long mAccelerationTimeNs;
+  private boolean mStarted;
+  @Nullable
+  private Location mLastFix;
+
+  @NonNull
+  private final Handler mHandler = new Handler(Looper.getMainLooper());
+  @NonNull
+  private final Runnable mDeadReckoningTask = this::deadReckon;
+
+  LocationFusion(@NonNull Context context)
+  {
+    mSensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+    mAccelerationSensor = mSensorManager.getDefaultSensor(Sensor.TYPE_LINEAR_ACCELERATION);
+    mRotationSensor = mSensorManager.getDefaultSensor(Sensor.TYPE_ROTATION_VECTOR);
+  }
+
+  /**
+   * @return true if the acceleration on the earth frame can be measured.
+   */
+  boolean hasSensors()
+  {
+    return mAccelerationSensor != null && mRotationSensor != null;
+  }
+
+  boolean isStarted()
+  {
+    return mStarted;
+  }
+
+  void start()
+  {
+    if (mStarted)
+      return;
+    Logger.i(TAG, "hasSensors = " + hasSensors());
+    mStarted = true;
+    mFilter.reset();
+    mHasRotation = false;
+    mAccelerationEast = 0;
+    mAccelerationNorth = 0;
+    mAccelerationTimeNs = 0;
+    if (hasSensors())
+    {
+      mSensorManager.registerListener(this, mRotationSensor, SensorManager.SENSOR_DELAY_UI);
+      mSensorManager.registerListener(this, mAccelerationSensor, SensorManager.SENSOR_DELAY_UI);
+    }
+  }
+
+  void stop()
+  {
+    if (!mStarted)
+      return;
+    Logger.i(TAG);
+    mStarted = false;
+    mSensorManager.unregisterListener(this);
+    mHandler.removeCallbacks(mDeadReckoningTask);
+    mLastFix = null;
+  }
+
+  /**
+   * Filters the fix and passes the result to the core.
+   */
+  void onLocationUpdated(@NonNull Location location)
+  {
+    mHandler.removeCallbacks(mDeadReckoningTask);
+
+    final long timeNs = location.getElapsedRealtimeNanos();
+    // The same fix is passed again after the first run screens.
+    if (location != mLastFix)
+    {
+      updateAcceleration(timeNs);
+      final double speedAccuracy = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                                   && location.hasSpeedAccuracy()
+                                   ? location.getSpeedAccuracyMetersPerSecond() : Double.NaN;
+      mFilter.update(timeNs, location.getLatitude(), location.getLongitude(), location.getAccuracy(),
+                     location.getSpeed(), location.hasBearing() ? location.getBearing() : Double.NaN,
+                     speedAccuracy);
+      mLastFix = location;
+    }
+
+    updateCore(location, mFilter.getTime());
+    mHandler.postDelayed(mDeadReckoningTask, DEAD_RECKONING_DELAY_MS);
+  }
+
+  private void deadReckon()
+  {
+    final Location fix = mLastFix;
+    if (!mStarted || fix == null)
+      return;
+
+    final long nowNs = SystemClock.elapsedRealtimeNanos();
+    if (nowNs - fix.getElapsedRealtimeNanos() > MAX_DEAD_RECKONING_MS * 1_000_000L)
+    {
+      Logger.w(TAG, "No fixes for " + MAX_DEAD_RECKONING_MS + " ms, dead reckoning is stopped");
+      return;
+    }
+
+    updateAcceleration(nowNs);
+    mFilter.predict(nowNs);
+    updateCore(fix, nowNs);
+    mHandler.postDelayed(mDeadReckoningTask, DEAD_RECKONING_PERIOD_MS);
+  }
+
+  private void updateCore(@NonNull Location fix, long timeNs)
+  {
+    final long time = fix.getTime() + (timeNs - fix.getElapsedRealtimeNanos()) / 1_000_000L;
+    // Keep the raw speed and bearing when standing still, the filtered ones are noise.
+    final boolean isMoving = fix.hasBearing() && fix.getSpeed() > 1;
+    LocationState.nativeLocationUpdated(time, mFilter.getLatitude(), mFilter.getLongitude(),
+                                        (float) mFilter.getAccuracy(), fix.getAltitude(),
+                                        isMoving ? (float) mFilter.getSpeed() : fix.getSpeed(),
+                                        isMoving ? (float) mFilter.getBearing() : fix.getBearing());
+  }
+
+  private void updateAcceleration(long timeNs)
+  {
+    if (timeNs - mAccelerationTimeNs > MAX_ACCELERATION_AGE_NS)
+      mFilter.clearAcceleration();
+  }
+
+  @Override
+  public void onSensorChanged(SensorEvent event)
+  {
+    if (event.sensor.getType() == Sensor.TYPE_ROTATION_VECTOR)
+    {
+      SensorManager.getRotationMatrixFromVector(mRotationMatrix, event.values);
+      mHasRotation = true;
+      return;
+    }
+
+    if (!mHasRotation)
+      return;
+
+    // Device to earth frame: x points east, y points north.
+    final float[] r = mRotationMatrix;
+    final float[] a = event.values;
+    final float east = r[0] * a[0] + r[1] * a[1] + r[2] * a[2];
+    final float north = r[3] * a[0] + r[4] * a[1] + r[5] * a[2];
+    mAccelerationEast += LOW_PASS_ALPHA * (east - mAccelerationEast);
+    mAccelerationNorth += LOW_PASS_ALPHA * (north - mAccelerationNorth);
+
+    long timeNs = event.timestamp;
+    final long nowNs = SystemClock.elapsedRealtimeNanos();
+    if (Math.abs(nowNs - timeNs) > MAX_SENSOR_CLOCK_SKEW_NS)
+      timeNs = nowNs;
+    mAccelerationTimeNs = timeNs;
+
+    // The state is moved with the previous acceleration up to this event.
+    mFilter.predict(timeNs);
+    mFilter.setAcceleration(mAccelerationEast, mAccelerationNorth);
+  }
+
+  @Override
+  public void onAccuracyChanged(Sensor sensor, int accuracy)
+  {
+    // No op.
+  }
+}
@@ -8,6 +8,7 @@ import android.app.PendingIntent;
 import android.content.Context;
 import android.location.Location;
 import android.location.LocationManager;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -21,7 +22,9 @@ import app.organicmaps.base.Initializable;
 import app.organicmaps.bookmarks.data.FeatureId;
 import app.organicmaps.bookmarks.data.MapObject;
 import app.organicmaps.routing.RoutingController;
+import app.organicmaps.util.BatteryState;
 import app.organicmaps.util.Config;
+import app.organicmaps.util.Distance;
 import app.organicmaps.util.LocationUtils;
 import app.organicmaps.util.NetworkPolicy;
 import app.organicmaps.util.log.Logger;
@@ -35,6 +38,8 @@ public class LocationHelper implements BaseLocationProvider.Listener
   private static final long INTERVAL_FOLLOW_MS = 1000;
   private static final long INTERVAL_NOT_FOLLOW_MS = 3000;
   private static final long INTERVAL_NAVIGATION_VEHICLE_MS = 500;
+  // The position is smoothed with the sensors and extrapolated between the fixes, see LocationFusion.
+  private static final long INTERVAL_NAVIGATION_VEHICLE_FUSED_MS = 1000;
 
   // TODO (trashkalmar): Correct value
   private static final long INTERVAL_NAVIGATION_BICYCLE_MS = 1000;
@@ -42,6 +47,9 @@ public class LocationHelper implements BaseLocationProvider.Listener
 
   private static final long AGPS_EXPIRATION_TIME_MS = 16 * 60 * 60 * 1000; // 16 hours
 
+  private static final long BATTERY_CHECK_INTERVAL_MS = 60 * 1000;
+  private static final int LOW_BATTERY_LEVEL = 15;
+
   @NonNull
   private Context mContext;
 
@@ -53,9 +61,32 @@ public class LocationHelper implements BaseLocationProvider.Listener
   private MapObject mMyPosition;
   @NonNull
   private BaseLocationProvider mLocationProvider;
+  @NonNull
+  private final LocationFusion mFusion;
+  @NonNull
+  private final LocationPollingScheduler mScheduler = new LocationPollingScheduler();
+  private long mBatteryCheckTime = -BATTERY_CHECK_INTERVAL_MS;
+  @NonNull
+  private final SensorListener mMotionListener = new SensorListener()
+  {
+    @Override
+    public void onCompassUpdated(double north)
+    {
+      // No op.
+    }
+
+    @Override
+    public void onAccelerationUpdated(double acceleration)
+    {
+      // Fixes keep rescheduling meanwhile, e.g. to apply a pending slowdown.
+      if (mScheduler.onAcceleration(acceleration, SystemClock.elapsedRealtime()))
+        reschedule();
+    }
+  };
   private long mInterval;
   private boolean mInFirstRun;
   private boolean mActive;
+  private boolean mAccelerationOn;
 
   @NonNull
   public static LocationHelper from(@NonNull Context context)
@@ -67,6 +98,7 @@ public class LocationHelper implements BaseLocationProvider.Listener
   {
     mContext = context;
     mLocationProvider = LocationProviderFactory.getProvider(mContext, this);
+    mFusion = new LocationFusion(mContext);
   }
 
   /**
@@ -123,6 +155,12 @@ public class LocationHelper implements BaseLocationProvider.Listener
       return;
     }
 
+    if (mFusion.isStarted())
+    {
+      mFusion.onLocationUpdated(mSavedLocation);
+      return;
+    }
+
     LocationState.nativeLocationUpdated(mSavedLocation.getTime(),
         mSavedLocation.getLatitude(),
         mSavedLocation.getLongitude(),
@@ -161,6 +199,61 @@ public class LocationHelper implements BaseLocationProvider.Listener
     mSavedLocation = location;
     mMyPosition = null;
     notifyLocationUpdated();
+
+    mScheduler.onLocation(location.getSpeed());
+    updateAccelerationSensor();
+    reschedule();
+  }
+
+  /**
+   * Called during navigation with the distance to the next turn for the last location.
+   */
+  @UiThread
+  public void onDistanceToTurnUpdated(@NonNull Distance distance)
+  {
+    mScheduler.onDistanceToTurn(distance.isValid() ? distance.toMeters() : -1);
+  }
+
+  /**
+   * Keeps the accelerometer on only while the scheduler needs it, e.g. it's off while driving.
+   */
+  private void updateAccelerationSensor()
+  {
+    final boolean needed = isActive() && mScheduler.needsAcceleration();
+    if (needed == mAccelerationOn)
+      return;
+    mAccelerationOn = needed;
+    if (needed)
+      SensorHelper.from(mContext).startAccelerationUpdates();
+    else
+      SensorHelper.from(mContext).stopAccelerationUpdates();
+  }
+
+  /**
+   * Restarts the location requests if the scheduler has chosen another interval or quality.
+   */
+  @SuppressWarnings("MissingPermission") // The requests are already started, so the permission is granted.
+  private void reschedule()
+  {
+    if (!isActive())
+      return;
+
+    final long now = SystemClock.elapsedRealtime();
+    if (now - mBatteryCheckTime >= BATTERY_CHECK_INTERVAL_MS)
+    {
+      mBatteryCheckTime = now;
+      final BatteryState.State battery = BatteryState.getState(mContext);
+      mScheduler.setBatteryLow(battery.getLevel() <= LOW_BATTERY_LEVEL &&
+                               battery.getChargingStatus() == BatteryState.CHARGING_STATUS_UNPLUGGED);
+    }
+
+    if (!mScheduler.update(now))
+      return;
+
+    Logger.i(TAG, "interval = " + mScheduler.getInterval() + " quality = " + mScheduler.getQuality() +
+        " stationary = " + mScheduler.isStationary());
+    mLocationProvider.stop();
+    mLocationProvider.start(mScheduler.getInterval(), mScheduler.getQuality());
   }
 
   @Override
@@ -247,7 +340,7 @@ public class LocationHelper implements BaseLocationProvider.Listener
         break;
 
       case Framework.ROUTER_TYPE_VEHICLE:
-        mInterval = INTERVAL_NAVIGATION_VEHICLE_MS;
+        mInterval = mFusion.hasSensors() ? INTERVAL_NAVIGATION_VEHICLE_FUSED_MS : INTERVAL_NAVIGATION_VEHICLE_MS;
         break;
 
       case Framework.ROUTER_TYPE_BICYCLE:
@@ -325,7 +418,13 @@ public class LocationHelper implements BaseLocationProvider.Listener
     Logger.i(TAG, "provider = " + mLocationProvider.getClass().getSimpleName() +
         " mInFirstRun = " + mInFirstRun + " oldInterval = " + oldInterval + " interval = " + mInterval);
     mActive = true;
-    mLocationProvider.start(mInterval);
+    final boolean navigating = RoutingController.get().isNavigating();
+    mScheduler.reset(mInterval, navigating);
+    mLocationProvider.start(mScheduler.getInterval(), mScheduler.getQuality());
+    SensorHelper.from(mContext).addListener(mMotionListener);
+    updateAccelerationSensor();
+    if (navigating)
+      mFusion.start();
   }
 
   /**
@@ -341,8 +440,11 @@ public class LocationHelper implements BaseLocationProvider.Listener
 
     Logger.i(TAG);
     mLocationProvider.stop();
+    mFusion.stop();
+    SensorHelper.from(mContext).removeListener(mMotionListener);
     SensorHelper.from(mContext).stop();
     mActive = false;
+    updateAccelerationSensor();
   }
 
   /**
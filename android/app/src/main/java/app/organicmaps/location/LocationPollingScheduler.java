@@ -0,0 +1,205 @@
+package app.organicmaps.location;
+
+import androidx.annotation.UiThread;
+
+/**
+ * Chooses the interval and the quality of location requests from the current speed, the distance
+ * to the next turn, stationarity and the battery state.
+ * <p>
+ * The interval chosen by the map mode is the shortest one. It's made longer on highways far from
+ * turns, when the device doesn't move or when the battery is low. Thresholds have hysteresis and
+ * a longer interval is applied only after it has been chosen for a while, so the requests are not
+ * restarted back and forth. A shorter interval is applied immediately.
+ *
+ * Times are {@link android.os.SystemClock#elapsedRealtime()}.
+ */
+@UiThread
+final class LocationPollingScheduler
+{
+  // Same as LocationRequestCompat and Google Play Services priorities.
+  static final int QUALITY_HIGH_ACCURACY = 100;
+  static final int QUALITY_BALANCED_POWER_ACCURACY = 102;
+
+  // ~80 km/h to enter the highway state, ~60 km/h to leave it.
+  private static final float HIGHWAY_ENTER_SPEED = 22;
+  private static final float HIGHWAY_EXIT_SPEED = 17;
+  // The core extrapolates the position for that long, see Extrapolator::kMaxExtrapolationTimeMs.
+  private static final long HIGHWAY_INTERVAL_MS = 2000;
+  // The next turn is close if it's nearer than this or than this many seconds at the current speed.
+  private static final double MIN_TURN_DISTANCE_M = 300;
+  private static final double TURN_TIME_S = 30;
+  private static final double TURN_EXIT_FACTOR = 1.5;
+
+  private static final long STATIONARY_NAVIGATION_INTERVAL_MS = 5000;
+  private static final long STATIONARY_INTERVAL_MS = 10000;
+  // Smoothed linear acceleration in m/s^2.
+  private static final double STILL_ACCELERATION = 0.2;
+  private static final double MOVING_ACCELERATION = 0.5;
+  private static final double ACCELERATION_ALPHA = 0.2;
+  private static final float STILL_SPEED = 1;
+  private static final long STILL_TIME_MS = 10000;
+
+  private static final long LOW_BATTERY_FACTOR = 2;
+  private static final long MAX_INTERVAL_MS = 10000;
+  private static final long SLOWDOWN_DELAY_MS = 15000;
+
+  private long mBaseInterval;
+  private boolean mNavigating;
+  private long mInterval;
+  private int mQuality = QUALITY_HIGH_ACCURACY;
+
+  private float mSpeed;
+  private boolean mHighway;
+  // Unknown distance is taken as a close turn.
+  private boolean mNearTurn = true;
+  private double mAcceleration;
+  private long mStillSince = -1;
+  private boolean mStationary;
+  private boolean mLowBattery;
+
+  private long mPendingInterval;
+  private int mPendingQuality;
+  private long mPendingSince = -1;
+
+  /**
+   * Starts over with the interval of the map mode.
+   */
+  void reset(long baseInterval, boolean navigating)
+  {
+    mBaseInterval = baseInterval;
+    mNavigating = navigating;
+    mInterval = baseInterval;
+    mQuality = QUALITY_HIGH_ACCURACY;
+    mSpeed = 0;
+    mHighway = false;
+    mNearTurn = true;
+    mAcceleration = 0;
+    mStillSince = -1;
+    mStationary = false;
+    mPendingSince = -1;
+  }
+
+  long getInterval()
+  {
+    return mInterval;
+  }
+
+  int getQuality()
+  {
+    return mQuality;
+  }
+
+  boolean isStationary()
+  {
+    return mStationary;
+  }
+
+  void onLocation(float speed)
+  {
+    mSpeed = speed;
+    mHighway = speed > (mHighway ? HIGHWAY_EXIT_SPEED : HIGHWAY_ENTER_SPEED);
+    if (speed > STILL_SPEED)
+    {
+      mStationary = false;
+      mStillSince = -1;
+    }
+  }
+
+  /**
+   * @param distance in meters, negative if unknown.
+   */
+  void onDistanceToTurn(double distance)
+  {
+    if (distance < 0)
+    {
+      mNearTurn = true;
+      return;
+    }
+    final double turnDistance = Math.max(MIN_TURN_DISTANCE_M, mSpeed * TURN_TIME_S);
+    mNearTurn = distance < (mNearTurn ? turnDistance * TURN_EXIT_FACTOR : turnDistance);
+  }
+
+  /**
+   * @return true if the acceleration may tell that the device has stopped or started moving,
+   * it can't while the speed says that it moves.
+   */
+  boolean needsAcceleration()
+  {
+    return mSpeed <= STILL_SPEED;
+  }
+
+  /**
+   * @param acceleration magnitude of the linear acceleration in m/s^2.
+   * @return true if the device has stopped or started moving.
+   */
+  boolean onAcceleration(double acceleration, long now)
+  {
+    final boolean wasStationary = mStationary;
+    mAcceleration += ACCELERATION_ALPHA * (acceleration - mAcceleration);
+    if (mAcceleration > MOVING_ACCELERATION)
+    {
+      mStationary = false;
+      mStillSince = -1;
+    }
+    else if (mAcceleration < STILL_ACCELERATION && mSpeed < STILL_SPEED)
+    {
+      if (mStillSince < 0)
+        mStillSince = now;
+      else if (now - mStillSince >= STILL_TIME_MS)
+        mStationary = true;
+    }
+    return mStationary != wasStationary;
+  }
+
+  void setBatteryLow(boolean low)
+  {
+    mLowBattery = low;
+  }
+
+  /**
+   * @return true if the interval or the quality has changed and the requests should be restarted.
+   */
+  boolean update(long now)
+  {
+    long interval = mBaseInterval;
+    int quality = QUALITY_HIGH_ACCURACY;
+    if (mStationary)
+    {
+      interval = Math.max(interval, mNavigating ? STATIONARY_NAVIGATION_INTERVAL_MS : STATIONARY_INTERVAL_MS);
+      // GNSS can be off while the map is just open, navigation should resume quickly.
+      if (!mNavigating)
+        quality = QUALITY_BALANCED_POWER_ACCURACY;
+    }
+    else if (mNavigating && mHighway && !mNearTurn)
+    {
+      interval = Math.max(interval, HIGHWAY_INTERVAL_MS);
+    }
+    if (mLowBattery && !(mNavigating && mNearTurn))
+      interval = Math.min(interval * LOW_BATTERY_FACTOR, Math.max(MAX_INTERVAL_MS, mBaseInterval));
+
+    if (interval == mInterval && quality == mQuality)
+    {
+      mPendingSince = -1;
+      return false;
+    }
+
+    final boolean slower = interval > mInterval || quality != QUALITY_HIGH_ACCURACY;
+    if (slower)
+    {
+      if (mPendingSince < 0 || interval != mPendingInterval || quality != mPendingQuality)
+      {
+        mPendingInterval = interval;
+        mPendingQuality = quality;
+        mPendingSince = now;
+        return false;
+      }
+      if (now - mPendingSince < SLOWDOWN_DELAY_MS)
+        return false;
+    }
+
+    mInterval = interval;
+    mQuality = quality;
+    mPendingSince = -1;
+    return true;
+  }
+}
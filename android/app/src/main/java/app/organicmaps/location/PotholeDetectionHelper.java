@@ -0,0 +1,188 @@
+package app.organicmaps.location;
+
+import android.content.Context;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.location.Location;
+import android.os.Handler;
+import android.os.HandlerThread;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import app.organicmaps.MwmApplication;
+import app.organicmaps.pothole.PotholeManager;
+import app.organicmaps.util.Config;
+import app.organicmaps.util.concurrency.UiThread;
+import app.organicmaps.util.log.Logger;
+
+/**
+ * Feeds the linear accelerometer into {@link PotholeDetector} while navigating and reports
+ * detected potholes at the current location. Opt-in, see {@link Config#isPotholeDetectionEnabled()}.
+ * <p>
+ * Samples are delivered in batches to a dedicated thread, so the CPU mostly sleeps between
+ * the batches and the main thread is never involved unless a pothole is detected.
+ */
+public class PotholeDetectionHelper implements SensorEventListener
+{
+  private static final String TAG = PotholeDetectionHelper.class.getSimpleName();
+
+  // 50 Hz is enough to catch a wheel hitting a pothole edge at city speeds.
+  private static final int SAMPLING_PERIOD_US = 20_000;
+  // Let the sensor hub batch samples to avoid waking up the CPU on every one of them.
+  private static final int MAX_REPORT_LATENCY_US = 500_000;
+  // Shocks at walking speeds are most likely the phone being handled.
+  private static final float MIN_SPEED_MPS = 4f;
+  private static final long MAX_FIX_AGE_NS = 5_000_000_000L;
+  // Potholes closer than this to the previous report are considered the same one.
+  private static final float MIN_REPORT_DISTANCE_M = 25f;
+  private static final double EARTH_RADIUS_M = 6_378_137.0;
+
+  @NonNull
+  private final Context mContext;
+  @NonNull
+  private final SensorManager mSensorManager;
+  // Touched only on the sensor thread.
+  @NonNull
+  private final PotholeDetector mDetector = new PotholeDetector();
+  // The latest gravity vector in device coordinates, touched only on the sensor thread.
+  @NonNull
+  private final float[] mGravity = new float[3];
+  @Nullable
+  private HandlerThread mThread;
+  @Nullable
+  private Location mLastReport;
+
+  @NonNull
+  public static PotholeDetectionHelper from(@NonNull Context context)
+  {
+    return MwmApplication.from(context).getPotholeDetectionHelper();
+  }
+
+  public PotholeDetectionHelper(@NonNull Context context)
+  {
+    mContext = context;
+    mSensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+  }
+
+  @MainThread
+  public void start()
+  {
+    if (mThread != null)
+    {
+      Logger.d(TAG, "Already started");
+      return;
+    }
+    if (!Config.isPotholeDetectionEnabled())
+      return;
+
+    final Sensor sensor = mSensorManager.getDefaultSensor(Sensor.TYPE_LINEAR_ACCELERATION);
+    if (sensor == null)
+    {
+      Logger.w(TAG, "There is no LINEAR_ACCELERATION sensor, potholes can not be detected");
+      return;
+    }
+
+    Logger.i(TAG);
+    mThread = new HandlerThread(TAG);
+    mThread.start();
+    final Handler handler = new Handler(mThread.getLooper());
+    // The detector is reset on its own thread to avoid racing with the previous session.
+    handler.post(() -> {
+      mDetector.reset();
+      mGravity[0] = mGravity[1] = mGravity[2] = 0f;
+    });
+    // Gravity tells which direction is vertical, the phone may be mounted in any orientation.
+    final Sensor gravity = mSensorManager.getDefaultSensor(Sensor.TYPE_GRAVITY);
+    if (gravity != null)
+      mSensorManager.registerListener(this, gravity, SAMPLING_PERIOD_US, MAX_REPORT_LATENCY_US, handler);
+    else
+      Logger.w(TAG, "There is no GRAVITY sensor, the magnitude of acceleration is used");
+    mSensorManager.registerListener(this, sensor, SAMPLING_PERIOD_US, MAX_REPORT_LATENCY_US, handler);
+  }
+
+  @MainThread
+  public void stop()
+  {
+    if (mThread == null)
+      return;
+    Logger.i(TAG);
+
+    mSensorManager.unregisterListener(this);
+    mThread.quitSafely();
+    mThread = null;
+    mLastReport = null;
+  }
+
+  @Override
+  public void onSensorChanged(SensorEvent event)
+  {
+    if (event.sensor.getType() == Sensor.TYPE_GRAVITY)
+    {
+      System.arraycopy(event.values, 0, mGravity, 0, 3);
+      return;
+    }
+
+    final float vertical = PotholeDetector.toVertical(event.values[0], event.values[1], event.values[2],
+                                                      mGravity[0], mGravity[1], mGravity[2]);
+    if (!mDetector.onSample(event.timestamp, vertical))
+      return;
+
+    final long timestampNs = event.timestamp;
+    Logger.d(TAG, "Shock detected: peak = " + mDetector.getLastPeak() + " variance = " +
+                  mDetector.getLastVariance() + " jerk = " + mDetector.getLastJerk());
+    UiThread.run(() -> onPotholeDetected(timestampNs));
+  }
+
+  @Override
+  public void onAccuracyChanged(Sensor sensor, int accuracy)
+  {
+    // No op.
+  }
+
+  @MainThread
+  private void onPotholeDetected(long timestampNs)
+  {
+    if (mThread == null)
+      return;
+
+    final Location fix = LocationHelper.from(mContext).getSavedLocation();
+    if (fix == null || !fix.hasSpeed() || fix.getSpeed() < MIN_SPEED_MPS)
+      return;
+    final long ageNs = timestampNs - fix.getElapsedRealtimeNanos();
+    if (Math.abs(ageNs) > MAX_FIX_AGE_NS)
+      return;
+
+    final Location location = extrapolate(fix, ageNs);
+    if (mLastReport != null && mLastReport.distanceTo(location) < MIN_REPORT_DISTANCE_M)
+      return;
+
+    Logger.i(TAG, "Reporting a detected pothole");
+    if (PotholeManager.INSTANCE.reportPothole(mContext, location.getLatitude(), location.getLongitude()))
+      mLastReport = location;
+  }
+
+  /**
+   * Moves the fix along its bearing to the moment of the shock, samples are delivered with
+   * up to {@link #MAX_REPORT_LATENCY_US} delay and the fix may be older still.
+   */
+  @NonNull
+  private static Location extrapolate(@NonNull Location fix, long ageNs)
+  {
+    final Location location = new Location(fix);
+    if (!fix.hasBearing())
+      return location;
+
+    final double distance = fix.getSpeed() * ageNs / 1e9;
+    final double bearing = Math.toRadians(fix.getBearing());
+    final double dLat = distance * Math.cos(bearing) / EARTH_RADIUS_M;
+    final double dLon = distance * Math.sin(bearing) /
+                        (EARTH_RADIUS_M * Math.cos(Math.toRadians(fix.getLatitude())));
+    location.setLatitude(fix.getLatitude() + Math.toDegrees(dLat));
+    location.setLongitude(fix.getLongitude() + Math.toDegrees(dLon));
+    return location;
+  }
+}
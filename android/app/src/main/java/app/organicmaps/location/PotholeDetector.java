@@ -0,0 +1,172 @@
+package app.organicmaps.location;
+
+/**
+ * Detects potholes in a stream of linear acceleration samples along the vertical axis.
+ * <p>
+ * Samples are kept in a preallocated ring buffer. A sample whose magnitude exceeds the peak
+ * threshold triggers the evaluation of the window which ends with it: a pothole is a sharp
+ * (jerk) and strong (variance) vertical shock, unlike a smooth speed bump or road noise.
+ * Every other sample only costs a couple of array writes, nothing is allocated per sample.
+ * <p>
+ * Plain Java without Android dependencies, not thread-safe.
+ */
+public final class PotholeDetector
+{
+  // ~0.64 s at the 50 Hz sampling rate.
+  static final int WINDOW_SIZE = 32;
+
+  // Defaults are tuned for a phone in a car holder, see PotholeDetectorTest for the traces.
+  static final float DEFAULT_PEAK_THRESHOLD = 6f;       // m/s^2
+  static final float DEFAULT_VARIANCE_THRESHOLD = 2f;   // (m/s^2)^2
+  static final float DEFAULT_JERK_THRESHOLD = 150f;     // m/s^3
+  // One pothole shakes the car for a while, don't report it twice.
+  static final long DEFAULT_REFRACTORY_NS = 1_000_000_000L;
+
+  private static final double NS_PER_S = 1e9;
+  // Gravity readings are about 9.8 m/s^2, anything much weaker means there is no reading yet.
+  private static final double MIN_GRAVITY = 1.0;
+
+  private final float mPeakThreshold;
+  private final float mVarianceThreshold;
+  private final float mJerkThreshold;
+  private final long mRefractoryNs;
+
+  private final float[] mValues = new float[WINDOW_SIZE];
+  private final long[] mTimestamps = new long[WINDOW_SIZE];
+  // Index of the next sample to write.
+  private int mHead;
+  private int mCount;
+  private long mLastEventNs;
+  private boolean mHasEvent;
+
+  // Features of the last detected event, for logging.
+  private float mLastPeak;
+  private float mLastVariance;
+  private float mLastJerk;
+
+  public PotholeDetector()
+  {
+    this(DEFAULT_PEAK_THRESHOLD, DEFAULT_VARIANCE_THRESHOLD, DEFAULT_JERK_THRESHOLD,
+         DEFAULT_REFRACTORY_NS);
+  }
+
+  PotholeDetector(float peakThreshold, float varianceThreshold, float jerkThreshold,
+                  long refractoryNs)
+  {
+    mPeakThreshold = peakThreshold;
+    mVarianceThreshold = varianceThreshold;
+    mJerkThreshold = jerkThreshold;
+    mRefractoryNs = refractoryNs;
+  }
+
+  /**
+   * @param timestampNs monotonic timestamp of the sample in nanoseconds.
+   * @param value       linear acceleration along the vertical axis in m/s^2.
+   * @return true if the sample completes a pothole event.
+   */
+  public boolean onSample(long timestampNs, float value)
+  {
+    // Sensors may deliver a stale or duplicated sample after a batch flush.
+    if (mCount > 0 && timestampNs <= mTimestamps[prev(mHead)])
+      return false;
+
+    mValues[mHead] = value;
+    mTimestamps[mHead] = timestampNs;
+    mHead = next(mHead);
+    if (mCount < WINDOW_SIZE)
+      mCount++;
+
+    if (mCount < WINDOW_SIZE || Math.abs(value) < mPeakThreshold)
+      return false;
+    if (mHasEvent && timestampNs - mLastEventNs < mRefractoryNs)
+      return false;
+    if (!evaluate())
+      return false;
+
+    mLastEventNs = timestampNs;
+    mHasEvent = true;
+    return true;
+  }
+
+  /**
+   * Drops the collected samples, e.g. after a pause in the sensor stream.
+   */
+  public void reset()
+  {
+    mHead = 0;
+    mCount = 0;
+    mHasEvent = false;
+  }
+
+  public float getLastPeak()
+  {
+    return mLastPeak;
+  }
+
+  public float getLastVariance()
+  {
+    return mLastVariance;
+  }
+
+  public float getLastJerk()
+  {
+    return mLastJerk;
+  }
+
+  private boolean evaluate()
+  {
+    double sum = 0;
+    double sumSq = 0;
+    float peak = 0;
+    float jerk = 0;
+    // The window is full, the oldest sample is at mHead.
+    int i = mHead;
+    float prevValue = mValues[i];
+    long prevTs = mTimestamps[i];
+    for (int n = 0; n < WINDOW_SIZE; n++, i = next(i))
+    {
+      final float v = mValues[i];
+      sum += v;
+      sumSq += (double) v * v;
+      peak = Math.max(peak, Math.abs(v));
+      final long dt = mTimestamps[i] - prevTs;
+      if (dt > 0)
+        jerk = (float) Math.max(jerk, Math.abs(v - prevValue) * NS_PER_S / dt);
+      prevValue = v;
+      prevTs = mTimestamps[i];
+    }
+    final double mean = sum / WINDOW_SIZE;
+    final float variance = (float) (sumSq / WINDOW_SIZE - mean * mean);
+
+    if (variance < mVarianceThreshold || jerk < mJerkThreshold)
+      return false;
+
+    mLastPeak = peak;
+    mLastVariance = variance;
+    mLastJerk = jerk;
+    return true;
+  }
+
+  /**
+   * @return the vertical component of the linear acceleration, i.e. its projection onto the gravity
+   * vector, which is vertical however the phone is mounted. The magnitude of the acceleration is
+   * used until gravity is known.
+   */
+  public static float toVertical(float ax, float ay, float az, float gx, float gy, float gz)
+  {
+    final double gravity = Math.sqrt(gx * gx + gy * gy + gz * gz);
+    if (gravity < MIN_GRAVITY)
+      return (float) Math.sqrt(ax * ax + ay * ay + az * az);
+    return (float) ((ax * gx + ay * gy + az * gz) / gravity);
+  }
+
+  private static int next(int i)
+  {
+    return i + 1 == WINDOW_SIZE ? 0 : i + 1;
+  }
+
+  private static int prev(int i)
+  {
+    return i == 0 ? WINDOW_SIZE - 1 : i - 1;
+  }
+}
@@ -26,6 +26,9 @@ public class SensorHelper implements SensorEventListener
   private final SensorManager mSensorManager;
   @Nullable
   private Sensor mRotationVectorSensor;
+  // Used to detect that the device doesn't move, see LocationPollingScheduler.
+  @Nullable
+  private Sensor mAccelerationSensor;
 
   private final float[] mRotationMatrix = new float[9];
   private final float[] mRotationValues = new float[3];
@@ -46,6 +49,15 @@ public class SensorHelper implements SensorEventListener
   @Override
   public void onSensorChanged(SensorEvent event)
   {
+    if (event.sensor.getType() == Sensor.TYPE_LINEAR_ACCELERATION)
+    {
+      final float[] a = event.values;
+      final double acceleration = Math.sqrt(a[0] * a[0] + a[1] * a[1] + a[2] * a[2]);
+      for (SensorListener listener : mListeners)
+        listener.onAccelerationUpdated(acceleration);
+      return;
+    }
+
     // Here we can have events from one out of these two sensors:
     // TYPE_GEOMAGNETIC_ROTATION_VECTOR
     // TYPE_ROTATION_VECTOR
@@ -162,7 +174,35 @@ public class SensorHelper implements SensorEventListener
       return;
     Logger.d(TAG);
 
-    mSensorManager.unregisterListener(this);
+    mSensorManager.unregisterListener(this, mRotationVectorSensor);
     mRotationVectorSensor = null;
   }
+
+  /**
+   * Starts the updates of {@link SensorListener#onAccelerationUpdated}, independently of the compass.
+   */
+  public void startAccelerationUpdates()
+  {
+    if (mAccelerationSensor != null)
+      return;
+
+    mAccelerationSensor = mSensorManager.getDefaultSensor(Sensor.TYPE_LINEAR_ACCELERATION);
+    if (mAccelerationSensor == null)
+    {
+      Logger.d(TAG, "There is no LINEAR_ACCELERATION sensor");
+      return;
+    }
+    Logger.d(TAG);
+    mSensorManager.registerListener(this, mAccelerationSensor, SensorManager.SENSOR_DELAY_NORMAL);
+  }
+
+  public void stopAccelerationUpdates()
+  {
+    if (mAccelerationSensor == null)
+      return;
+    Logger.d(TAG);
+
+    mSensorManager.unregisterListener(this, mAccelerationSensor);
+    mAccelerationSensor = null;
+  }
 }
@@ -13,4 +13,12 @@ public interface SensorListener
   {
     // No op.
   }
+
+  /**
+   * @param acceleration magnitude of the acceleration without gravity in m/s^2.
+   */
+  default void onAccelerationUpdated(double acceleration)
+  {
+    // No op.
+  }
 }
@@ -0,0 +1,95 @@
+package app.organicmaps.pothole;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import okhttp3.CacheControl;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Endpoints of the potholes server.
+ */
+final class PotholeApi
+{
+  private static final String BASE_URL = "https://busy-pink-tadpole-toga.cyclic.cloud/api/pothole/";
+
+  private static final MediaType JSON = MediaType.get("application/json");
+  private static final CacheControl NO_STORE = new CacheControl.Builder().noStore().build();
+
+  private PotholeApi() {}
+
+  /**
+   * Returns the potholes inside the box as an array of
+   * <code>{"_id", "Latitude", "Longitude"}</code>, supports conditional requests.
+   */
+  @NonNull
+  static Request getInArea(double minLat, double minLon, double maxLat, double maxLon,
+                           @Nullable String etag)
+  {
+    final HttpUrl url = HttpUrl.get(BASE_URL + "getPotholesInArea").newBuilder()
+                               .addQueryParameter("minLat", Double.toString(minLat))
+                               .addQueryParameter("minLon", Double.toString(minLon))
+                               .addQueryParameter("maxLat", Double.toString(maxLat))
+                               .addQueryParameter("maxLon", Double.toString(maxLon))
+                               .build();
+    // Tiles are cached by PotholeManager, keep them out of the HTTP cache.
+    final Request.Builder builder = new Request.Builder().url(url).cacheControl(NO_STORE);
+    if (etag != null)
+      builder.header("If-None-Match", etag);
+    return builder.build();
+  }
+
+  /**
+   * Returns all the potholes in the same format as {@link #getInArea}, for the servers without
+   * the area endpoint.
+   */
+  @NonNull
+  static Request getAll()
+  {
+    return new Request.Builder().url(BASE_URL + "getAllPotholes").cacheControl(NO_STORE).build();
+  }
+
+  /**
+   * Returns the potholes changed after the given high-water mark as
+   * <code>{"added": [...], "removed": ["_id", ...], "mark"}</code>, where the added ones are
+   * in the same format as {@link #getInArea}.
+   */
+  @NonNull
+  static Request getChanges(@NonNull String since)
+  {
+    final HttpUrl url = HttpUrl.get(BASE_URL + "getPotholeChanges").newBuilder()
+                               .addQueryParameter("since", since)
+                               .build();
+    return new Request.Builder().url(url).cacheControl(NO_STORE).build();
+  }
+
+  @NonNull
+  static Request add(double lat, double lon)
+  {
+    final JSONObject json = new JSONObject();
+    try
+    {
+      json.put("Latitude", lat);
+      json.put("Longitude", lon);
+    }
+    catch (JSONException e)
+    {
+      // Only thrown for NaN and infinite values.
+      throw new IllegalArgumentException("Invalid pothole location " + lat + ", " + lon, e);
+    }
+    final RequestBody body = RequestBody.create(json.toString(), JSON);
+    return new Request.Builder().url(BASE_URL + "addPothole").post(body).build();
+  }
+
+  @NonNull
+  static Request delete(@NonNull String id)
+  {
+    return new Request.Builder().url(BASE_URL + "deletePothole/" + id).delete().build();
+  }
+}
@@ -0,0 +1,57 @@
+package app.organicmaps.pothole;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A fixed-size chunk of potholes stored in parallel primitive arrays.
+ */
+final class PotholeBatch
+{
+  static final int CAPACITY = 256;
+
+  @NonNull
+  private final String[] mIds = new String[CAPACITY];
+  // Packed lat0, lon0, lat1, lon1, ... as expected by BookmarkManager.addBookmarks().
+  @NonNull
+  private final double[] mLatLons = new double[2 * CAPACITY];
+  private int mSize;
+
+  void add(@NonNull String id, double lat, double lon)
+  {
+    mIds[mSize] = id;
+    mLatLons[2 * mSize] = lat;
+    mLatLons[2 * mSize + 1] = lon;
+    mSize++;
+  }
+
+  boolean isFull()
+  {
+    return mSize == CAPACITY;
+  }
+
+  boolean isEmpty()
+  {
+    return mSize == 0;
+  }
+
+  int size()
+  {
+    return mSize;
+  }
+
+  @NonNull
+  String getId(int i)
+  {
+    return mIds[i];
+  }
+
+  double getLat(int i)
+  {
+    return mLatLons[2 * i];
+  }
+
+  double getLon(int i)
+  {
+    return mLatLons[2 * i + 1];
+  }
+}
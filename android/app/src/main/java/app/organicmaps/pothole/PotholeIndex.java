@@ -0,0 +1,297 @@
+package app.organicmaps.pothole;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory spatial index of all known potholes: a uniform lat/lon grid plus a server id map,
+ * and a hierarchy of coarser grids which aggregate the potholes into clusters.
+ * <p>
+ * Lookups by coordinates only touch the few cells around the query point, so resolving a tapped
+ * bookmark doesn't depend on the number of potholes. Level k of the hierarchy has cells of
+ * 2^k x 2^k leaf cells, so a viewport query at a level matching the zoom touches a bounded
+ * number of cells whatever the dataset size is. Not thread-safe.
+ */
+public final class PotholeIndex
+{
+  // ~1.1 km along the meridian, a few dozen potholes per cell in a dense city.
+  static final double CELL_SIZE_DEG = 0.01;
+  // The coarsest level has cells of ~164 degrees.
+  static final int MAX_LEVEL = 14;
+
+  public static final class Entry
+  {
+    @NonNull
+    public final String serverId;
+    public final double lat;
+    public final double lon;
+
+    Entry(@NonNull String serverId, double lat, double lon)
+    {
+      this.serverId = serverId;
+      this.lat = lat;
+      this.lon = lon;
+    }
+  }
+
+  public static final class Cluster
+  {
+    public final int level;
+    public final int x;
+    public final int y;
+    private int mCount;
+    private double mSumLat;
+    private double mSumLon;
+
+    Cluster(int level, int x, int y)
+    {
+      this.level = level;
+      this.x = x;
+      this.y = y;
+    }
+
+    public int getCount()
+    {
+      return mCount;
+    }
+
+    public double getLat()
+    {
+      return mSumLat / mCount;
+    }
+
+    public double getLon()
+    {
+      return mSumLon / mCount;
+    }
+  }
+
+  interface Consumer<T>
+  {
+    void accept(@NonNull T t);
+  }
+
+  @NonNull
+  private final Map<String, Entry> mByServerId = new HashMap<>();
+  @NonNull
+  private final Map<Long, ArrayList<Entry>> mCells = new HashMap<>();
+  // Clusters by cell key for levels 1..MAX_LEVEL, level 0 is represented by mCells.
+  @NonNull
+  private final ArrayList<Map<Long, Cluster>> mLevels = new ArrayList<>(MAX_LEVEL + 1);
+
+  public PotholeIndex()
+  {
+    for (int level = 0; level <= MAX_LEVEL; level++)
+      mLevels.add(new HashMap<>());
+  }
+
+  public int size()
+  {
+    return mByServerId.size();
+  }
+
+  public boolean contains(@NonNull String serverId)
+  {
+    return mByServerId.containsKey(serverId);
+  }
+
+  @Nullable
+  public Entry get(@NonNull String serverId)
+  {
+    return mByServerId.get(serverId);
+  }
+
+  @NonNull
+  public Collection<String> getServerIds()
+  {
+    return mByServerId.keySet();
+  }
+
+  @NonNull
+  public Collection<Entry> getEntries()
+  {
+    return mByServerId.values();
+  }
+
+  public void put(@NonNull String serverId, double lat, double lon)
+  {
+    remove(serverId);
+    final Entry entry = new Entry(serverId, lat, lon);
+    mByServerId.put(serverId, entry);
+    final int x = cellOf(lat);
+    final int y = cellOf(lon);
+    final long key = cellKey(x, y);
+    ArrayList<Entry> cell = mCells.get(key);
+    if (cell == null)
+    {
+      cell = new ArrayList<>(4);
+      mCells.put(key, cell);
+    }
+    cell.add(entry);
+
+    for (int level = 0; level <= MAX_LEVEL; level++)
+    {
+      // Arithmetic shift floors negative cell numbers too, so the levels nest exactly.
+      final int cx = x >> level;
+      final int cy = y >> level;
+      final Map<Long, Cluster> clusters = mLevels.get(level);
+      final long clusterKey = cellKey(cx, cy);
+      Cluster cluster = clusters.get(clusterKey);
+      if (cluster == null)
+      {
+        cluster = new Cluster(level, cx, cy);
+        clusters.put(clusterKey, cluster);
+      }
+      cluster.mCount++;
+      cluster.mSumLat += lat;
+      cluster.mSumLon += lon;
+    }
+  }
+
+  @Nullable
+  public Entry remove(@NonNull String serverId)
+  {
+    final Entry entry = mByServerId.remove(serverId);
+    if (entry == null)
+      return null;
+
+    final int x = cellOf(entry.lat);
+    final int y = cellOf(entry.lon);
+    final long key = cellKey(x, y);
+    final ArrayList<Entry> cell = mCells.get(key);
+    if (cell != null)
+    {
+      cell.remove(entry);
+      if (cell.isEmpty())
+        mCells.remove(key);
+    }
+
+    for (int level = 0; level <= MAX_LEVEL; level++)
+    {
+      final Map<Long, Cluster> clusters = mLevels.get(level);
+      final long clusterKey = cellKey(x >> level, y >> level);
+      final Cluster cluster = clusters.get(clusterKey);
+      if (cluster == null)
+        continue;
+      if (--cluster.mCount == 0)
+      {
+        clusters.remove(clusterKey);
+        continue;
+      }
+      cluster.mSumLat -= entry.lat;
+      cluster.mSumLon -= entry.lon;
+    }
+    return entry;
+  }
+
+  public void clear()
+  {
+    mByServerId.clear();
+    mCells.clear();
+    for (Map<Long, Cluster> clusters : mLevels)
+      clusters.clear();
+  }
+
+  /**
+   * @param toleranceDeg the maximum difference in degrees along each axis.
+   * @return the entry closest to the given point within the tolerance or null.
+   */
+  @Nullable
+  public Entry findNearest(double lat, double lon, double toleranceDeg)
+  {
+    Entry best = null;
+    double bestDist = Double.MAX_VALUE;
+    final int minX = cellOf(lat - toleranceDeg);
+    final int maxX = cellOf(lat + toleranceDeg);
+    final int minY = cellOf(lon - toleranceDeg);
+    final int maxY = cellOf(lon + toleranceDeg);
+    for (int x = minX; x <= maxX; x++)
+    {
+      for (int y = minY; y <= maxY; y++)
+      {
+        final ArrayList<Entry> cell = mCells.get(cellKey(x, y));
+        if (cell == null)
+          continue;
+        for (int i = 0; i < cell.size(); i++)
+        {
+          final Entry entry = cell.get(i);
+          final double dLat = Math.abs(entry.lat - lat);
+          final double dLon = Math.abs(entry.lon - lon);
+          if (dLat > toleranceDeg || dLon > toleranceDeg)
+            continue;
+          final double dist = dLat * dLat + dLon * dLon;
+          if (dist < bestDist)
+          {
+            bestDist = dist;
+            best = entry;
+          }
+        }
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Passes the non-empty clusters of the given level which intersect the rect to the consumer.
+   */
+  void forEachCluster(int level, double minLat, double minLon, double maxLat, double maxLon,
+                      @NonNull Consumer<Cluster> consumer)
+  {
+    final int minX = cellOf(minLat) >> level;
+    final int maxX = cellOf(maxLat) >> level;
+    final int minY = cellOf(minLon) >> level;
+    final int maxY = cellOf(maxLon) >> level;
+    final Map<Long, Cluster> clusters = mLevels.get(level);
+    // Don't probe more cells than there are, e.g. for a sparse dataset and a large viewport.
+    if ((long) (maxX - minX + 1) * (maxY - minY + 1) > clusters.size())
+    {
+      for (Cluster cluster : clusters.values())
+      {
+        if (cluster.x >= minX && cluster.x <= maxX && cluster.y >= minY && cluster.y <= maxY)
+          consumer.accept(cluster);
+      }
+      return;
+    }
+    for (int x = minX; x <= maxX; x++)
+    {
+      for (int y = minY; y <= maxY; y++)
+      {
+        final Cluster cluster = clusters.get(cellKey(x, y));
+        if (cluster != null)
+          consumer.accept(cluster);
+      }
+    }
+  }
+
+  /**
+   * Passes the entries which are inside the rect to the consumer.
+   */
+  void forEachEntry(double minLat, double minLon, double maxLat, double maxLon,
+                    @NonNull Consumer<Entry> consumer)
+  {
+    forEachCluster(0, minLat, minLon, maxLat, maxLon, cluster -> {
+      final ArrayList<Entry> cell = mCells.get(cellKey(cluster.x, cluster.y));
+      for (int i = 0; i < cell.size(); i++)
+      {
+        final Entry entry = cell.get(i);
+        if (entry.lat >= minLat && entry.lat <= maxLat && entry.lon >= minLon && entry.lon <= maxLon)
+          consumer.accept(entry);
+      }
+    });
+  }
+
+  static int cellOf(double deg)
+  {
+    return (int) Math.floor(deg / CELL_SIZE_DEG);
+  }
+
+  static long cellKey(int x, int y)
+  {
+    return ((long) x << 32) | (y & 0xFFFFFFFFL);
+  }
+}
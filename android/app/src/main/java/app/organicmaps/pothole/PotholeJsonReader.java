@@ -0,0 +1,63 @@
+package app.organicmaps.pothole;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+
+/**
+ * Pull parser for the potholes server responses, which never materializes the whole document.
+ */
+final class PotholeJsonReader
+{
+  private static final String FIELD_ID = "_id";
+  private static final String FIELD_LAT = "Latitude";
+  private static final String FIELD_LON = "Longitude";
+
+  interface PotholeConsumer
+  {
+    void accept(@NonNull String id, double lat, double lon);
+  }
+
+  private PotholeJsonReader() {}
+
+  /**
+   * Reads an array of <code>{"_id", "Latitude", "Longitude"}</code> objects.
+   */
+  static void readPotholes(@NonNull JsonReader reader, @NonNull PotholeConsumer consumer)
+      throws IOException
+  {
+    reader.beginArray();
+    while (reader.hasNext())
+    {
+      String id = null;
+      double lat = Double.NaN;
+      double lon = Double.NaN;
+      reader.beginObject();
+      while (reader.hasNext())
+      {
+        switch (reader.nextName())
+        {
+          case FIELD_ID:
+            id = reader.nextString();
+            break;
+          case FIELD_LAT:
+            lat = reader.nextDouble();
+            break;
+          case FIELD_LON:
+            lon = reader.nextDouble();
+            break;
+          default:
+            reader.skipValue();
+        }
+      }
+      reader.endObject();
+
+      if (id == null || Double.isNaN(lat) || Double.isNaN(lon))
+        throw new IOException("Incomplete pothole at " + reader.getPath());
+      consumer.accept(id, lat, lon);
+    }
+    reader.endArray();
+  }
+}
@@ -0,0 +1,201 @@
+package app.organicmaps.pothole;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+import app.organicmaps.bookmarks.data.BookmarkManager;
+import app.organicmaps.util.log.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Shows the potholes of a {@link PotholeIndex} in the visible part of the map as bookmarks of
+ * a hidden category, which is neither saved nor listed with the user's ones.
+ * <p>
+ * At low zoom levels potholes are aggregated into cluster marks (count and centroid) of the
+ * matching index level, individual potholes are shown only when zoomed in far enough. The
+ * number of marks in the category is bounded by {@link #MAX_MARKS} whatever the dataset size
+ * is, and only the marks which have changed since the previous update cross JNI.
+ */
+@MainThread
+final class PotholeLayer
+{
+  private static final String TAG = PotholeLayer.class.getSimpleName();
+
+  static final int MAX_MARKS = 500;
+  // Individual potholes are always shown starting from this zoom level...
+  private static final int EXPAND_ZOOM = 15;
+  // ...or when there are only a few of them in the viewport anyway.
+  private static final int MAX_INDIVIDUAL_MARKS = 100;
+  // log2(90 / CELL_SIZE_DEG): the level which has ~64 px cells at zoom 0.
+  private static final int LEVEL_AT_ZOOM_0 = 14;
+  // Marks around the viewport are kept to avoid churn on small map movements.
+  private static final double VIEWPORT_MARGIN = 0.25;
+  // Cluster centroids of single potholes are exact up to the floating point error.
+  private static final double SINGLE_TOLERANCE_DEG = 1e-6;
+
+  private static final String CLUSTER_KEY_PREFIX = "#";
+
+  private static final class Mark
+  {
+    @NonNull
+    final String key;
+    @NonNull
+    final String name;
+    // Server id for potholes, empty for clusters.
+    @NonNull
+    final String description;
+    final double lat;
+    final double lon;
+
+    Mark(@NonNull String key, @NonNull String name, @NonNull String description, double lat, double lon)
+    {
+      this.key = key;
+      this.name = name;
+      this.description = description;
+      this.lat = lat;
+      this.lon = lon;
+    }
+  }
+
+  // Bookmark ids of the shown marks by their keys.
+  @NonNull
+  private final HashMap<String, Long> mShown = new HashMap<>();
+  private long mCategoryId = -1;
+
+  /**
+   * Makes the category show the potholes of the given viewport.
+   */
+  void update(long catId, @NonNull PotholeIndex index, double minLat, double minLon, double maxLat,
+              double maxLon, int zoom)
+  {
+    // The category is a new one or its bookmarks were deleted by someone else, start from scratch.
+    final int count = BookmarkManager.INSTANCE.getCategoryById(catId).getBookmarksCount();
+    if (catId != mCategoryId || count != mShown.size())
+    {
+      BookmarkManager.INSTANCE.deleteBookmarks(BookmarkManager.INSTANCE.getBookmarkIds(catId));
+      mShown.clear();
+      mCategoryId = catId;
+    }
+
+    final double dLat = (maxLat - minLat) * VIEWPORT_MARGIN;
+    final double dLon = (maxLon - minLon) * VIEWPORT_MARGIN;
+    final HashMap<String, Mark> marks = collect(index, minLat - dLat, minLon - dLon, maxLat + dLat,
+                                                maxLon + dLon, zoom);
+    apply(catId, marks);
+  }
+
+  /**
+   * Forgets the mark of the pothole whose bookmark has been deleted by someone else.
+   */
+  void forget(@NonNull String serverId)
+  {
+    mShown.remove(serverId);
+  }
+
+  void reset()
+  {
+    mShown.clear();
+    mCategoryId = -1;
+  }
+
+  @NonNull
+  private static HashMap<String, Mark> collect(@NonNull PotholeIndex index, double minLat,
+                                               double minLon, double maxLat, double maxLon, int zoom)
+  {
+    // Go up until the clusters fit, the viewport may be larger than expected for its zoom.
+    int level = Math.max(0, Math.min(PotholeIndex.MAX_LEVEL, LEVEL_AT_ZOOM_0 - zoom));
+    final ArrayList<PotholeIndex.Cluster> clusters = new ArrayList<>();
+    while (true)
+    {
+      clusters.clear();
+      index.forEachCluster(level, minLat, minLon, maxLat, maxLon, clusters::add);
+      if (clusters.size() <= MAX_MARKS || level == PotholeIndex.MAX_LEVEL)
+        break;
+      level++;
+    }
+
+    // Clusters on the edges may stick out of the viewport, so it's an upper bound.
+    int visible = 0;
+    for (PotholeIndex.Cluster cluster : clusters)
+      visible += cluster.getCount();
+
+    final HashMap<String, Mark> marks = new HashMap<>();
+    if ((zoom >= EXPAND_ZOOM && visible <= MAX_MARKS) || visible <= MAX_INDIVIDUAL_MARKS)
+    {
+      index.forEachEntry(minLat, minLon, maxLat, maxLon,
+                         entry -> marks.put(entry.serverId, makeMark(entry)));
+      return marks;
+    }
+
+    for (PotholeIndex.Cluster cluster : clusters)
+    {
+      if (cluster.getCount() == 1)
+      {
+        final PotholeIndex.Entry entry = index.findNearest(cluster.getLat(), cluster.getLon(),
+                                                           SINGLE_TOLERANCE_DEG);
+        if (entry != null)
+        {
+          marks.put(entry.serverId, makeMark(entry));
+          continue;
+        }
+      }
+      final String key = CLUSTER_KEY_PREFIX + cluster.level + ":" + cluster.x + ":" + cluster.y +
+                         ":" + cluster.getCount();
+      marks.put(key, new Mark(key, PotholeManager.CATEGORY_NAME + ": " + cluster.getCount(), "",
+                              cluster.getLat(), cluster.getLon()));
+    }
+    return marks;
+  }
+
+  @NonNull
+  private static Mark makeMark(@NonNull PotholeIndex.Entry entry)
+  {
+    return new Mark(entry.serverId, PotholeManager.BOOKMARK_NAME, entry.serverId, entry.lat, entry.lon);
+  }
+
+  private void apply(long catId, @NonNull HashMap<String, Mark> marks)
+  {
+    int removedCount = 0;
+    final long[] removed = new long[mShown.size()];
+    final Iterator<Map.Entry<String, Long>> it = mShown.entrySet().iterator();
+    while (it.hasNext())
+    {
+      final Map.Entry<String, Long> shown = it.next();
+      // Marks which are shown already are left untouched.
+      if (marks.remove(shown.getKey()) != null)
+        continue;
+      removed[removedCount++] = shown.getValue();
+      it.remove();
+    }
+    BookmarkManager.INSTANCE.deleteBookmarks(Arrays.copyOf(removed, removedCount));
+
+    final int addedCount = marks.size();
+    if (addedCount > 0)
+    {
+      final String[] keys = new String[addedCount];
+      final String[] names = new String[addedCount];
+      final String[] descriptions = new String[addedCount];
+      final double[] latLons = new double[2 * addedCount];
+      int i = 0;
+      for (Mark mark : marks.values())
+      {
+        keys[i] = mark.key;
+        names[i] = mark.name;
+        descriptions[i] = mark.description;
+        latLons[2 * i] = mark.lat;
+        latLons[2 * i + 1] = mark.lon;
+        i++;
+      }
+      final long[] bookmarkIds = BookmarkManager.INSTANCE.addPotholeBookmarks(catId, latLons, names,
+                                                                              descriptions);
+      for (i = 0; i < addedCount; i++)
+        mShown.put(keys[i], bookmarkIds[i]);
+    }
+    Logger.d(TAG, "Marks: -" + removedCount + " +" + addedCount + " = " + mShown.size());
+  }
+}
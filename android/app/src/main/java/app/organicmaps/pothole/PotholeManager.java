@@ -0,0 +1,893 @@
+package app.organicmaps.pothole;
+
+import android.content.Context;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import app.organicmaps.Framework;
+import app.organicmaps.MwmApplication;
+import app.organicmaps.background.PotholeUploadWork;
+import app.organicmaps.bookmarks.data.BookmarkCategory;
+import app.organicmaps.bookmarks.data.BookmarkManager;
+import app.organicmaps.bookmarks.data.MapObject;
+import app.organicmaps.util.concurrency.ThreadPool;
+import app.organicmaps.util.concurrency.UiThread;
+import app.organicmaps.util.log.Logger;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Downloads the potholes of the visible part of the map tile by tile and shows them
+ * in the "Potholes" bookmark category, see {@link PotholeLayer}.
+ * <p>
+ * Downloaded tiles are kept in {@link PotholeTileCache} and revalidated with their etags once
+ * they expire, tiles around the viewport are prefetched to have them ready for panning.
+ * <p>
+ * Servers without the area endpoint are asked again once a week. Meanwhile all the potholes
+ * are downloaded at once and kept whatever part of the map is viewed. They are updated with
+ * the changes made after the newest known one, or downloaded again once a day if the server
+ * doesn't have the changes endpoint either.
+ */
+@MainThread
+public enum PotholeManager implements Framework.ViewportListener
+{
+  INSTANCE;
+
+  private static final String TAG = PotholeManager.class.getSimpleName();
+
+  public static final String CATEGORY_NAME = "Potholes";
+  public static final String BOOKMARK_NAME = "Pothole";
+
+  // Bookmarks are placed exactly at the server coordinates, the tolerance only absorbs
+  // the lat/lon <-> mercator round trip.
+  private static final double LOOKUP_TOLERANCE_DEG = 1e-6;
+  // Identifiers of reported potholes which haven't been uploaded yet.
+  private static final String LOCAL_ID_PREFIX = "local-";
+  // The viewport changes on every frame of the map animations.
+  private static final long UPDATE_DELAY_MS = 200;
+  // Bursts of changes (e.g. a sync of many tiles) are saved at once.
+  private static final long SAVE_DELAY_MS = 2000;
+  // Potholes are downloaded only when the viewport is zoomed in enough to fit into these tiles.
+  private static final int MAX_VISIBLE_TILES = 16;
+  // Failed tiles are retried after 5 s, 10 s, 20 s... and left until the map is moved
+  // after the last attempt.
+  private static final long RETRY_DELAY_MS = 5000;
+  private static final int MAX_RETRIES = 5;
+  // Missing endpoints are asked for again after a week.
+  private static final long PROBE_INTERVAL_MS = 7 * 24 * 60 * 60 * 1000L;
+  // All the potholes are a big download, they aren't refreshed automatically more often.
+  private static final long ALL_TTL_MS = 24 * 60 * 60 * 1000L;
+  // The changes are small, they are asked for as often as the tiles expire.
+  private static final long CHANGES_TTL_MS = PotholeTileCache.TTL_MS;
+  // The route passes this close to the tiles whose potholes are downloaded for it, ~110 m.
+  private static final double ROUTE_MARGIN_DEG = 0.001;
+  // Route tiles are loaded one by one, the hazards are rebuilt once for a bunch of them.
+  private static final long ROUTE_UPDATE_DELAY_MS = 1000;
+
+  public interface SyncListener
+  {
+    void onSyncFinished(int added, int removed);
+    void onSyncFailed();
+  }
+
+  public interface RouteListener
+  {
+    /**
+     * More potholes along the route have been downloaded, see {@link #getRouteHazards}.
+     */
+    void onRoutePotholesLoaded();
+  }
+
+  // All known potholes by server id and by location.
+  @NonNull
+  private final PotholeIndex mIndex = new PotholeIndex();
+  @NonNull
+  private final PotholeTileCache mTiles = new PotholeTileCache();
+  @NonNull
+  private final PotholeLayer mLayer = new PotholeLayer();
+  // The category of the layer, created on the first update.
+  private long mCategoryId = -1;
+  @NonNull
+  private final Runnable mUpdateTask = this::update;
+  @NonNull
+  private final Runnable mSaveTask = this::save;
+  private boolean mSavePending;
+  // Null until the potholes are loaded.
+  @Nullable
+  private PotholeStore mStore;
+  @Nullable
+  private Context mContext;
+
+  // Keys of the tiles to download, the visible ones go first.
+  @NonNull
+  private final ArrayDeque<Long> mTileQueue = new ArrayDeque<>();
+  @NonNull
+  private final HashSet<Long> mVisibleTiles = new HashSet<>();
+  private boolean mLoading;
+  // When the server was found to have no area endpoint, 0 if it has one.
+  private long mAreaUnsupportedAt;
+  // When the server was found to have no changes endpoint, 0 if it has one.
+  private long mChangesUnsupportedAt;
+  // When all the potholes were downloaded or updated the last time, without the area endpoint.
+  private long mAllFetchedAt;
+  // The high-water mark of all the potholes, empty if they weren't downloaded.
+  @NonNull
+  private String mAllMark = "";
+  // All the potholes are requested by sync(), whatever their age is.
+  private boolean mAllRequested;
+  private int mFailures;
+  private boolean mRetryPending;
+  @NonNull
+  private final Runnable mRetryTask = () -> {
+    mRetryPending = false;
+    loadNextTile();
+  };
+
+  // Visible tiles which are being refreshed by sync().
+  @NonNull
+  private final HashSet<Long> mSyncTiles = new HashSet<>();
+  @Nullable
+  private SyncListener mSyncListener;
+  private int mSyncAdded;
+  private int mSyncRemoved;
+
+  // Tiles along the route being followed, from its start.
+  @NonNull
+  private final LinkedHashSet<Long> mRouteTiles = new LinkedHashSet<>();
+  @Nullable
+  private RouteListener mRouteListener;
+  @NonNull
+  private final Runnable mRouteTask = this::notifyRouteListener;
+
+  // The last known viewport: minLat, minLon, maxLat, maxLon.
+  @Nullable
+  private double[] mViewport;
+  private int mZoom;
+
+  /**
+   * Starts showing the potholes in the visible part of the map.
+   */
+  public void attach(@NonNull Context context)
+  {
+    mContext = context.getApplicationContext();
+    Framework.nativeSetViewportListener(this);
+  }
+
+  public void detach()
+  {
+    Framework.nativeRemoveViewportListener();
+    UiThread.cancelDelayedTasks(mUpdateTask);
+    cancelRetry();
+    // The app may be killed in background, don't lose the pending changes.
+    if (mSavePending)
+    {
+      UiThread.cancelDelayedTasks(mSaveTask);
+      save();
+    }
+  }
+
+  @Override
+  public void onViewportChanged(double minLat, double minLon, double maxLat, double maxLon, int zoom)
+  {
+    mViewport = new double[]{minLat, minLon, maxLat, maxLon};
+    mZoom = zoom;
+    invalidate();
+  }
+
+  /**
+   * Schedules an update of the "Potholes" category and of the downloaded tiles,
+   * e.g. when the bookmarks have been loaded.
+   */
+  public void invalidate()
+  {
+    UiThread.cancelDelayedTasks(mUpdateTask);
+    UiThread.runLater(mUpdateTask, UPDATE_DELAY_MS);
+  }
+
+  public boolean isSyncInProgress()
+  {
+    return mSyncListener != null;
+  }
+
+  /**
+   * Downloads the potholes of the visible part of the map again, whatever the age of the cached
+   * ones is.
+   */
+  public void sync(@NonNull Context context, @NonNull SyncListener listener)
+  {
+    if (mSyncListener != null)
+      return;
+
+    ensureLoaded(context);
+    if (!isAreaSupported(System.currentTimeMillis()))
+    {
+      mSyncListener = listener;
+      mSyncAdded = 0;
+      mSyncRemoved = 0;
+      mAllRequested = true;
+      cancelRetry();
+      loadNextTile();
+      return;
+    }
+    if (mVisibleTiles.isEmpty())
+    {
+      // Zoomed out too far, there is nothing to refresh.
+      listener.onSyncFinished(0, 0);
+      return;
+    }
+
+    mSyncListener = listener;
+    mSyncTiles.addAll(mVisibleTiles);
+    mSyncAdded = 0;
+    mSyncRemoved = 0;
+    // Asked by the user, don't wait for the scheduled retry.
+    cancelRetry();
+    for (Long key : mSyncTiles)
+    {
+      mTileQueue.remove(key);
+      mTileQueue.addFirst(key);
+    }
+    loadNextTile();
+  }
+
+  /**
+   * @return the server identifier of the pothole which is represented by the given bookmark,
+   * empty for the cluster bookmarks.
+   */
+  @NonNull
+  public String getServerId(long bookmarkId)
+  {
+    return BookmarkManager.INSTANCE.getBookmarkDescription(bookmarkId);
+  }
+
+  /**
+   * Resolves a map object (e.g. a tapped bookmark) to the pothole at its location.
+   *
+   * @return null if there is no known pothole at the object's location.
+   */
+  @Nullable
+  public PotholeIndex.Entry findPothole(@NonNull Context context, @NonNull MapObject mapObject)
+  {
+    ensureLoaded(context);
+    return mIndex.findNearest(mapObject.getLat(), mapObject.getLon(), LOOKUP_TOLERANCE_DEG);
+  }
+
+  /**
+   * Collects the known potholes along a route, see {@link PotholeRouteHazards}. Only the cached
+   * tiles are looked at, {@link #setRoute} downloads the rest.
+   *
+   * @param latLons route points as lat0, lon0, lat1, lon1, ...
+   */
+  @NonNull
+  public PotholeRouteHazards getRouteHazards(@NonNull Context context, @NonNull double[] latLons)
+  {
+    ensureLoaded(context);
+    return PotholeRouteHazards.build(mIndex, latLons);
+  }
+
+  /**
+   * Downloads the potholes along the route, wherever the map is, and keeps them in the cache
+   * until {@link #clearRoute()}.
+   *
+   * @param latLons route points as lat0, lon0, lat1, lon1, ...
+   */
+  public void setRoute(@NonNull Context context, @NonNull double[] latLons, @NonNull RouteListener listener)
+  {
+    ensureLoaded(context);
+    UiThread.cancelDelayedTasks(mRouteTask);
+    mRouteTiles.clear();
+    PotholeTileCache.getKeysAlong(latLons, ROUTE_MARGIN_DEG, mRouteTiles);
+    mRouteListener = listener;
+    Logger.d(TAG, "Route tiles: " + mRouteTiles.size());
+    requestTiles();
+  }
+
+  public void clearRoute()
+  {
+    UiThread.cancelDelayedTasks(mRouteTask);
+    mRouteTiles.clear();
+    mRouteListener = null;
+  }
+
+  private void notifyRouteListener()
+  {
+    if (mRouteListener != null)
+      mRouteListener.onRoutePotholesLoaded();
+  }
+
+  /**
+   * Reports a new pothole. It's shown on the map immediately and uploaded in the background
+   * as soon as the network is available.
+   *
+   * @return false if the report couldn't be saved.
+   */
+  public boolean reportPothole(@NonNull Context context, double lat, double lon)
+  {
+    ensureLoaded(context);
+    final String localId = LOCAL_ID_PREFIX + UUID.randomUUID();
+    try
+    {
+      MwmApplication.from(context).getPotholeOutbox().add(localId, lat, lon);
+    }
+    catch (IOException e)
+    {
+      Logger.e(TAG, "Failed to queue a pothole report", e);
+      return false;
+    }
+
+    mIndex.put(localId, lat, lon);
+    onChanged();
+    PotholeUploadWork.startActionUploadPotholes(context);
+    return true;
+  }
+
+  /**
+   * Queues the deletion of the pothole on the server. The caller is responsible for deleting
+   * the bookmark itself, but only if the deletion has been queued.
+   *
+   * @return false if the deletion couldn't be saved, the pothole is kept then.
+   */
+  public boolean deletePothole(@NonNull Context context, @NonNull PotholeIndex.Entry pothole)
+  {
+    ensureLoaded(context);
+    // The pothole is kept if the deletion can't be saved, otherwise it'd come back on the next sync.
+    try
+    {
+      MwmApplication.from(context).getPotholeOutbox().delete(pothole.serverId);
+    }
+    catch (IOException e)
+    {
+      Logger.e(TAG, "Failed to queue a pothole deletion", e);
+      return false;
+    }
+    mIndex.remove(pothole.serverId);
+    mLayer.forget(pothole.serverId);
+    onChanged();
+    PotholeUploadWork.startActionUploadPotholes(context);
+    return true;
+  }
+
+  /**
+   * Called when a reported pothole has reached the server.
+   */
+  void onPotholeUploaded(@NonNull String localId, @NonNull String serverId)
+  {
+    // Not loaded yet if the upload happened without UI, the stale local id is dropped
+    // on load then, see ensureLoaded().
+    if (mStore == null)
+      return;
+    final PotholeIndex.Entry entry = mIndex.remove(localId);
+    if (entry == null)
+      return;
+
+    // A tile download may have already brought the uploaded pothole from the server.
+    if (!mIndex.contains(serverId))
+      mIndex.put(serverId, entry.lat, entry.lon);
+    onChanged();
+  }
+
+  private static long findLegacyCategoryId()
+  {
+    for (BookmarkCategory category : BookmarkManager.INSTANCE.getCategories())
+    {
+      if (category.getName().equals(CATEGORY_NAME))
+        return category.getId();
+    }
+    return -1;
+  }
+
+  private long ensureCategory()
+  {
+    if (mCategoryId == -1)
+    {
+      // Marks change on every map movement, so they are kept in memory only and out of
+      // the user's lists. The saved category of the previous versions isn't needed anymore.
+      final long legacyId = findLegacyCategoryId();
+      if (legacyId != -1)
+        BookmarkManager.INSTANCE.deleteCategory(legacyId);
+      mCategoryId = BookmarkManager.INSTANCE.createHiddenCategory(CATEGORY_NAME);
+      mLayer.reset();
+    }
+    return mCategoryId;
+  }
+
+  /**
+   * Queues the tiles of the viewport and around it, and the ones along the route, which are
+   * missing or expired.
+   */
+  private void requestTiles()
+  {
+    mTileQueue.clear();
+    mVisibleTiles.clear();
+    final long now = System.currentTimeMillis();
+    if (!isAreaSupported(now))
+    {
+      loadNextTile();
+      return;
+    }
+    // Tiles being refreshed by sync() are kept even if they have gone out of sight.
+    mTileQueue.addAll(mSyncTiles);
+
+    final List<Long> prefetch = new ArrayList<>();
+    final double[] viewport = mViewport;
+    if (viewport != null)
+      queueVisibleTiles(viewport, now, prefetch);
+    // The route ones are needed for the warnings wherever the map is.
+    for (Long key : mRouteTiles)
+    {
+      if (!mVisibleTiles.contains(key) && needsLoading(key, now))
+        mTileQueue.add(key);
+    }
+    mTileQueue.addAll(prefetch);
+    loadNextTile();
+  }
+
+  /**
+   * Queues the visible tiles and collects the ones around them to prefetch.
+   */
+  private void queueVisibleTiles(@NonNull double[] viewport, long now, @NonNull List<Long> prefetch)
+  {
+    final List<Long> visible = new ArrayList<>();
+    if (!PotholeTileCache.getKeys(viewport[0], viewport[1], viewport[2], viewport[3],
+                                  MAX_VISIBLE_TILES, visible))
+    {
+      // Zoomed out too far, only the cached potholes are shown.
+      return;
+    }
+    mVisibleTiles.addAll(visible);
+
+    final double margin = PotholeTileCache.TILE_SIZE_DEG;
+    final List<Long> around = new ArrayList<>();
+    PotholeTileCache.getKeys(viewport[0] - margin, viewport[1] - margin, viewport[2] + margin,
+                             viewport[3] + margin, Integer.MAX_VALUE, around);
+
+    // The visible tiles are touched last to be evicted last.
+    for (Long key : around)
+    {
+      if (!mVisibleTiles.contains(key) && !mRouteTiles.contains(key) && needsLoading(key, now))
+        prefetch.add(key);
+    }
+    for (Long key : visible)
+    {
+      if (needsLoading(key, now) && !mSyncTiles.contains(key))
+        mTileQueue.add(key);
+    }
+  }
+
+  private boolean needsLoading(long key, long now)
+  {
+    final PotholeTileCache.Tile tile = mTiles.get(key);
+    return tile == null || !tile.isFresh(now) || mSyncTiles.contains(key);
+  }
+
+  private boolean isAreaSupported(long now)
+  {
+    return mAreaUnsupportedAt == 0 || now - mAreaUnsupportedAt >= PROBE_INTERVAL_MS;
+  }
+
+  private boolean canLoadChanges(long now)
+  {
+    return !mAllMark.isEmpty() &&
+           (mChangesUnsupportedAt == 0 || now - mChangesUnsupportedAt >= PROBE_INTERVAL_MS);
+  }
+
+  private void loadNextTile()
+  {
+    if (mLoading || mRetryPending)
+      return;
+
+    final long now = System.currentTimeMillis();
+    if (!isAreaSupported(now))
+    {
+      final boolean changes = canLoadChanges(now);
+      if (mAllRequested || now - mAllFetchedAt >= (changes ? CHANGES_TTL_MS : ALL_TTL_MS))
+        loadAll(changes ? mAllMark : "");
+      return;
+    }
+
+    Long key;
+    do
+    {
+      key = mTileQueue.poll();
+      if (key == null)
+        return;
+    } while (!needsLoading(key, now));
+
+    final PotholeTileCache.Tile cached = mTiles.get(key);
+    // Tiles cached before the area endpoint went missing are cleared if it's back, see onAreaSupported().
+    final String etag = cached != null && mAreaUnsupportedAt == 0 ? cached.etag : null;
+    final long loadingKey = key;
+    final int x = PotholeTileCache.xOf(key);
+    final int y = PotholeTileCache.yOf(key);
+    mLoading = true;
+    ThreadPool.getNetwork().execute(() -> {
+      try
+      {
+        final PotholeTileFetcher.Result result = PotholeTileFetcher.fetch(x, y, etag);
+        UiThread.run(() -> {
+          mLoading = false;
+          mFailures = 0;
+          if (mAreaUnsupportedAt != 0)
+            onAreaSupported();
+          onTileLoaded(x, y, result);
+          loadNextTile();
+        });
+      }
+      catch (PotholeTileFetcher.AreaUnsupportedException e)
+      {
+        Logger.w(TAG, "Potholes can't be loaded by area, falling back to all of them", e);
+        UiThread.run(() -> {
+          mLoading = false;
+          mAreaUnsupportedAt = System.currentTimeMillis();
+          mTileQueue.clear();
+          if (mSyncListener != null)
+          {
+            mSyncTiles.clear();
+            mAllRequested = true;
+          }
+          onChanged();
+          loadNextTile();
+        });
+      }
+      catch (IOException e)
+      {
+        Logger.w(TAG, "Failed to load potholes of tile " + x + ", " + y, e);
+        UiThread.run(() -> {
+          mLoading = false;
+          onTileFailed(Collections.singletonList(loadingKey));
+        });
+      }
+    });
+  }
+
+  /**
+   * Downloads all the potholes or their changes, for the servers without the area endpoint.
+   *
+   * @param mark the high-water mark of the known potholes, empty to download all of them.
+   */
+  private void loadAll(@NonNull String mark)
+  {
+    mLoading = true;
+    ThreadPool.getNetwork().execute(() -> {
+      try
+      {
+        PotholeTileFetcher.Changes changes = null;
+        boolean changesUnsupported = false;
+        if (!mark.isEmpty())
+        {
+          try
+          {
+            changes = PotholeTileFetcher.fetchChanges(mark);
+          }
+          catch (PotholeTileFetcher.ChangesUnsupportedException e)
+          {
+            Logger.w(TAG, "Potholes changes can't be loaded, falling back to all of them", e);
+            changesUnsupported = true;
+          }
+        }
+        final PotholeTileFetcher.Changes result = changes != null ? changes : PotholeTileFetcher.fetchAll();
+        final boolean unsupported = changesUnsupported;
+        UiThread.run(() -> {
+          mLoading = false;
+          mFailures = 0;
+          if (unsupported)
+            mChangesUnsupportedAt = System.currentTimeMillis();
+          else if (!mark.isEmpty())
+            mChangesUnsupportedAt = 0;
+          onAllLoaded(result);
+          loadNextTile();
+        });
+      }
+      catch (IOException e)
+      {
+        Logger.w(TAG, "Failed to load all potholes", e);
+        UiThread.run(() -> {
+          mLoading = false;
+          mAllRequested = false;
+          onTileFailed(Collections.emptyList());
+        });
+      }
+    });
+  }
+
+  private void onAllLoaded(@NonNull PotholeTileFetcher.Changes changes)
+  {
+    mAllRequested = false;
+    int added = 0;
+    int removed = 0;
+    if (mContext != null)
+    {
+      mAllFetchedAt = System.currentTimeMillis();
+      mAllMark = changes.mark;
+      final PotholeOutbox outbox = MwmApplication.from(mContext).getPotholeOutbox();
+      final HashSet<String> missing = new HashSet<>();
+      if (changes.removed != null)
+      {
+        missing.addAll(changes.removed);
+      }
+      else
+      {
+        // Known potholes which are missing in the full list are gone from the server.
+        for (String serverId : mIndex.getServerIds())
+        {
+          if (!isLocalId(serverId))
+            missing.add(serverId);
+        }
+      }
+      for (PotholeBatch batch : changes.batches)
+      {
+        for (int i = 0; i < batch.size(); i++)
+        {
+          final String serverId = batch.getId(i);
+          // Potholes deleted by the user stay on the server until the deletion is uploaded.
+          if (outbox.isPending(serverId))
+            continue;
+          if (!missing.remove(serverId) && !mIndex.contains(serverId))
+            added++;
+          mIndex.put(serverId, batch.getLat(i), batch.getLon(i));
+        }
+      }
+      for (String serverId : missing)
+      {
+        if (mIndex.remove(serverId) != null)
+          removed++;
+      }
+    }
+    Logger.i(TAG, "Loaded all potholes: +" + added + " -" + removed + ", total " + mIndex.size());
+
+    if (mRouteListener != null)
+    {
+      UiThread.cancelDelayedTasks(mRouteTask);
+      UiThread.runLater(mRouteTask, ROUTE_UPDATE_DELAY_MS);
+    }
+
+    if (mSyncListener != null)
+    {
+      final SyncListener listener = mSyncListener;
+      mSyncListener = null;
+      listener.onSyncFinished(mSyncAdded + added, mSyncRemoved + removed);
+    }
+    onChanged();
+  }
+
+  /**
+   * Called when the area endpoint is back. All the potholes downloaded without it don't belong
+   * to any tile, they are replaced tile by tile.
+   */
+  private void onAreaSupported()
+  {
+    Logger.i(TAG, "Potholes can be loaded by area again");
+    mAreaUnsupportedAt = 0;
+    mAllFetchedAt = 0;
+    mAllMark = "";
+    for (String serverId : new ArrayList<>(mIndex.getServerIds()))
+    {
+      if (!isLocalId(serverId))
+        mIndex.remove(serverId);
+    }
+    mTiles.clear();
+    onChanged();
+  }
+
+  private void onTileLoaded(int x, int y, @NonNull PotholeTileFetcher.Result result)
+  {
+    final long key = PotholeIndex.cellKey(x, y);
+    PotholeTileCache.Tile tile = mTiles.get(key);
+    if (tile == null)
+    {
+      tile = new PotholeTileCache.Tile(x, y, null, 0, 0);
+      mTiles.put(tile);
+    }
+    tile.etag = result.etag;
+    tile.fetchedAt = System.currentTimeMillis();
+
+    int added = 0;
+    int removed = 0;
+    if (result.batches != null && mContext != null)
+    {
+      final PotholeOutbox outbox = MwmApplication.from(mContext).getPotholeOutbox();
+      // Potholes of the tile which are missing in the response are gone from the server.
+      final HashSet<String> missing = new HashSet<>(getServerIds(tile));
+      int count = 0;
+      for (PotholeBatch batch : result.batches)
+      {
+        for (int i = 0; i < batch.size(); i++)
+        {
+          final String serverId = batch.getId(i);
+          // Potholes deleted by the user stay on the server until the deletion is uploaded.
+          if (outbox.isPending(serverId))
+            continue;
+          if (!missing.remove(serverId))
+            added++;
+          mIndex.put(serverId, batch.getLat(i), batch.getLon(i));
+          count++;
+        }
+      }
+      for (String serverId : missing)
+        mIndex.remove(serverId);
+      removed = missing.size();
+      mTiles.setCount(tile, count);
+
+      final HashSet<Long> pinned = new HashSet<>(mVisibleTiles);
+      pinned.addAll(mRouteTiles);
+      for (PotholeTileCache.Tile evicted : mTiles.trim(pinned))
+      {
+        Logger.d(TAG, "Evicting " + evicted);
+        for (String serverId : getServerIds(evicted))
+          mIndex.remove(serverId);
+      }
+    }
+    Logger.d(TAG, "Loaded " + tile + ": +" + added + " -" + removed + ", cached " +
+                  mTiles.getTotalCount());
+
+    if (result.batches != null && mRouteTiles.contains(key))
+    {
+      UiThread.cancelDelayedTasks(mRouteTask);
+      UiThread.runLater(mRouteTask, ROUTE_UPDATE_DELAY_MS);
+    }
+
+    if (mSyncListener != null && mSyncTiles.remove(key))
+    {
+      mSyncAdded += added;
+      mSyncRemoved += removed;
+      if (mSyncTiles.isEmpty())
+      {
+        final SyncListener listener = mSyncListener;
+        mSyncListener = null;
+        listener.onSyncFinished(mSyncAdded, mSyncRemoved);
+      }
+    }
+    onChanged();
+  }
+
+  private void cancelRetry()
+  {
+    UiThread.cancelDelayedTasks(mRetryTask);
+    mRetryPending = false;
+    mFailures = 0;
+  }
+
+  private void onTileFailed(@NonNull List<Long> keys)
+  {
+    if (++mFailures <= MAX_RETRIES)
+    {
+      // The failed tiles go first, the queue may have been rebuilt meanwhile.
+      for (int i = keys.size() - 1; i >= 0; i--)
+      {
+        mTileQueue.remove(keys.get(i));
+        mTileQueue.addFirst(keys.get(i));
+      }
+      mRetryPending = true;
+      UiThread.runLater(mRetryTask, RETRY_DELAY_MS << (mFailures - 1));
+    }
+    else
+    {
+      // Most likely there is no network, retry when the map is moved.
+      mFailures = 0;
+      mTileQueue.clear();
+    }
+
+    if (mSyncListener == null)
+      return;
+    final SyncListener listener = mSyncListener;
+    mSyncListener = null;
+    mSyncTiles.clear();
+    listener.onSyncFailed();
+  }
+
+  /**
+   * @return the downloaded potholes of the tile.
+   */
+  @NonNull
+  private List<String> getServerIds(@NonNull PotholeTileCache.Tile tile)
+  {
+    final List<String> ids = new ArrayList<>();
+    mIndex.forEachEntry(tile.getMinLat(), tile.getMinLon(), tile.getMaxLat(), tile.getMaxLon(), entry -> {
+      if (!isLocalId(entry.serverId) && tile.contains(entry.lat, entry.lon))
+        ids.add(entry.serverId);
+    });
+    return ids;
+  }
+
+  /**
+   * Saves the potholes and schedules an update of the visible ones.
+   */
+  private void onChanged()
+  {
+    if (mStore != null && !mSavePending)
+    {
+      mSavePending = true;
+      UiThread.runLater(mSaveTask, SAVE_DELAY_MS);
+    }
+    invalidate();
+  }
+
+  private void save()
+  {
+    mSavePending = false;
+    final PotholeStore store = mStore;
+    if (store == null)
+      return;
+
+    // Only references are taken here, the potholes are packed and written on the storage thread.
+    final PotholeTileCache.Tile[] tiles = PotholeStore.Snapshot.copyTiles(mTiles);
+    final PotholeIndex.Entry[] entries = mIndex.getEntries().toArray(new PotholeIndex.Entry[0]);
+    final long areaUnsupportedAt = mAreaUnsupportedAt;
+    final long changesUnsupportedAt = mChangesUnsupportedAt;
+    final long allFetchedAt = mAllFetchedAt;
+    final String allMark = mAllMark;
+    ThreadPool.getStorage().execute(
+        () -> store.save(PotholeStore.Snapshot.of(tiles, entries, areaUnsupportedAt, changesUnsupportedAt,
+                                                  allFetchedAt, allMark)));
+  }
+
+  private void update()
+  {
+    // The category can't be looked up reliably until all the bookmarks are loaded.
+    if (mContext == null || mViewport == null || BookmarkManager.INSTANCE.isAsyncBookmarksLoadingInProgress())
+      return;
+
+    ensureLoaded(mContext);
+    requestTiles();
+    mLayer.update(ensureCategory(), mIndex, mViewport[0], mViewport[1], mViewport[2], mViewport[3],
+                  mZoom);
+  }
+
+  private void ensureLoaded(@NonNull Context context)
+  {
+    if (mStore != null)
+      return;
+
+    final PotholeOutbox outbox = MwmApplication.from(context).getPotholeOutbox();
+    mStore = new PotholeStore(context.getFilesDir());
+    final PotholeStore.Snapshot snapshot = mStore.load();
+    if (snapshot != null)
+    {
+      mAreaUnsupportedAt = snapshot.areaUnsupportedAt;
+      mChangesUnsupportedAt = snapshot.changesUnsupportedAt;
+      mAllFetchedAt = snapshot.allFetchedAt;
+      mAllMark = snapshot.allMark;
+      for (PotholeTileCache.Tile tile : snapshot.tiles)
+        mTiles.put(tile);
+      for (int i = 0; i < snapshot.ids.length; i++)
+      {
+        // Reports uploaded while the potholes weren't loaded come back with the next sync.
+        if (isLocalId(snapshot.ids[i]) && !outbox.isPending(snapshot.ids[i]))
+          continue;
+        mIndex.put(snapshot.ids[i], snapshot.latLons[2 * i], snapshot.latLons[2 * i + 1]);
+      }
+      return;
+    }
+
+    // Potholes used to be kept as bookmarks of the category only, pick them up once.
+    // They are replaced by the downloaded ones tile by tile.
+    final long catId = findLegacyCategoryId();
+    if (catId == -1)
+      return;
+    final long[] bookmarkIds = BookmarkManager.INSTANCE.getBookmarkIds(catId);
+    final double[] latLons = BookmarkManager.INSTANCE.getBookmarksLatLon(bookmarkIds);
+    for (int i = 0; i < bookmarkIds.length; i++)
+    {
+      final String serverId = getServerId(bookmarkIds[i]);
+      if (serverId.isEmpty() || (isLocalId(serverId) && !outbox.isPending(serverId)))
+        continue;
+      mIndex.put(serverId, latLons[2 * i], latLons[2 * i + 1]);
+    }
+    Logger.i(TAG, "Imported " + mIndex.size() + " potholes from the category");
+    onChanged();
+  }
+
+  private static boolean isLocalId(@NonNull String id)
+  {
+    return id.startsWith(LOCAL_ID_PREFIX);
+  }
+}
@@ -0,0 +1,330 @@
+package app.organicmaps.pothole;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import app.organicmaps.util.log.Logger;
+import net.jcip.annotations.ThreadSafe;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Durable queue of pothole reports which haven't reached the server yet.
+ * <p>
+ * Every operation is appended to a write-ahead log and fsync'ed before {@link #add} or
+ * {@link #delete} return, so reports survive network failures and process death. Completed
+ * operations are marked with a tombstone record and the log is compacted once it's drained.
+ * <p>
+ * Log records, one per line:
+ * <pre>
+ * + seq key lat lon  - add a pothole, key is the local id of the new pothole
+ * - seq key          - delete a pothole, key is its server (or local) id
+ * = seq              - the operation is done or cancelled
+ * </pre>
+ */
+@ThreadSafe
+public final class PotholeOutbox
+{
+  private static final String TAG = PotholeOutbox.class.getSimpleName();
+
+  static final String FILENAME = "potholes_outbox.log";
+  // Rewrite the log when it has this many more records than pending operations.
+  private static final int COMPACTION_THRESHOLD = 256;
+
+  private static final char ADD = '+';
+  private static final char DELETE = '-';
+  private static final char DONE = '=';
+  private static final char SEPARATOR = ' ';
+
+  public static final class Op
+  {
+    final long seq;
+    final boolean isAdd;
+    // Local id for additions, server or local id for deletions.
+    @NonNull
+    public final String key;
+    public final double lat;
+    public final double lon;
+
+    Op(long seq, boolean isAdd, @NonNull String key, double lat, double lon)
+    {
+      this.seq = seq;
+      this.isAdd = isAdd;
+      this.key = key;
+      this.lat = lat;
+      this.lon = lon;
+    }
+
+    public boolean isAdd()
+    {
+      return isAdd;
+    }
+
+    @NonNull
+    @Override
+    public String toString()
+    {
+      return (isAdd ? "add " : "delete ") + key + " #" + seq;
+    }
+  }
+
+  @NonNull
+  private final File mFile;
+  // Pending operations in the order of submission.
+  @NonNull
+  private final LinkedHashMap<Long, Op> mPending = new LinkedHashMap<>();
+  @Nullable
+  private Writer mWriter;
+  @Nullable
+  private FileOutputStream mStream;
+  private long mNextSeq = 1;
+  private int mRecords;
+  // Server ids of the uploaded reports by their local ids, until PotholeManager replaces them.
+  @NonNull
+  private final HashMap<String, String> mUploaded = new HashMap<>();
+
+  public PotholeOutbox(@NonNull File dir)
+  {
+    mFile = new File(dir, FILENAME);
+    load();
+  }
+
+  /**
+   * Queues a new pothole report.
+   */
+  public synchronized void add(@NonNull String localId, double lat, double lon) throws IOException
+  {
+    final Op op = new Op(mNextSeq++, true, localId, lat, lon);
+    append(ADD + " " + op.seq + SEPARATOR + localId + SEPARATOR + lat + SEPARATOR + lon);
+    mPending.put(op.seq, op);
+  }
+
+  /**
+   * Queues a pothole deletion. If the pothole is still waiting for its upload, both operations
+   * cancel each other out and nothing is sent to the server.
+   */
+  public synchronized void delete(@NonNull String key) throws IOException
+  {
+    // The local id may still be shown for a pothole which has just been uploaded.
+    final String serverId = mUploaded.get(key);
+    if (serverId != null)
+      key = serverId;
+    for (Op op : mPending.values())
+    {
+      if (!op.key.equals(key))
+        continue;
+      if (op.isAdd)
+      {
+        Logger.d(TAG, "Coalescing " + op + " with its deletion");
+        complete(op);
+      }
+      // Otherwise the deletion is already queued.
+      return;
+    }
+    final Op op = new Op(mNextSeq++, false, key, 0, 0);
+    append(DELETE + " " + op.seq + SEPARATOR + key);
+    mPending.put(op.seq, op);
+  }
+
+  /**
+   * @return a snapshot of pending operations in the order of submission.
+   */
+  @NonNull
+  public synchronized List<Op> getPending()
+  {
+    return new ArrayList<>(mPending.values());
+  }
+
+  public synchronized boolean isEmpty()
+  {
+    return mPending.isEmpty();
+  }
+
+  public synchronized boolean isPending(@NonNull String key)
+  {
+    for (Op op : mPending.values())
+    {
+      if (op.key.equals(key))
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * Marks the operation as done.
+   *
+   * @return false if the operation was cancelled in the meantime.
+   */
+  public synchronized boolean complete(@NonNull Op op) throws IOException
+  {
+    return complete(op, null);
+  }
+
+  /**
+   * Marks the addition as done. Deletions of its local id are redirected to the server id
+   * until {@link #forgetUploaded} is called.
+   *
+   * @return false if the operation was cancelled in the meantime.
+   */
+  public synchronized boolean complete(@NonNull Op op, @Nullable String serverId) throws IOException
+  {
+    if (mPending.remove(op.seq) == null)
+      return false;
+    if (serverId != null)
+      mUploaded.put(op.key, serverId);
+    append(DONE + " " + op.seq);
+    if (mPending.isEmpty() || mRecords - mPending.size() > COMPACTION_THRESHOLD)
+      compact();
+    return true;
+  }
+
+  /**
+   * Should be called once the local id of the uploaded pothole has been replaced everywhere.
+   */
+  public synchronized void forgetUploaded(@NonNull String localId)
+  {
+    mUploaded.remove(localId);
+  }
+
+  private void append(@NonNull String record) throws IOException
+  {
+    if (mWriter == null)
+    {
+      mStream = new FileOutputStream(mFile, true);
+      mWriter = new OutputStreamWriter(mStream, StandardCharsets.UTF_8);
+    }
+    mWriter.write(record);
+    mWriter.write('\n');
+    mWriter.flush();
+    mStream.getFD().sync();
+    mRecords++;
+  }
+
+  private void closeWriter()
+  {
+    if (mWriter == null)
+      return;
+    try
+    {
+      mWriter.close();
+    }
+    catch (IOException e)
+    {
+      Logger.e(TAG, "Failed to close " + mFile, e);
+    }
+    mWriter = null;
+    mStream = null;
+  }
+
+  /**
+   * Rewrites the log with pending operations only.
+   */
+  private void compact() throws IOException
+  {
+    closeWriter();
+    final File tmp = new File(mFile.getPath() + ".tmp");
+    try (FileOutputStream stream = new FileOutputStream(tmp);
+         Writer writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8))
+    {
+      for (Op op : mPending.values())
+      {
+        if (op.isAdd)
+          writer.write(ADD + " " + op.seq + SEPARATOR + op.key + SEPARATOR + op.lat + SEPARATOR + op.lon);
+        else
+          writer.write(DELETE + " " + op.seq + SEPARATOR + op.key);
+        writer.write('\n');
+      }
+      // The new log must be on disk before it replaces the old one, otherwise a crash may leave it empty.
+      writer.flush();
+      stream.getFD().sync();
+    }
+    if (!tmp.renameTo(mFile))
+      throw new IOException("Failed to replace " + mFile);
+    mRecords = mPending.size();
+  }
+
+  private void load()
+  {
+    if (!mFile.exists())
+      return;
+
+    boolean damaged = false;
+    // Records are written in UTF-8, whatever the default charset is.
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(mFile),
+                                                                          StandardCharsets.UTF_8)))
+    {
+      String line;
+      while ((line = reader.readLine()) != null)
+      {
+        mRecords++;
+        damaged |= !parse(line);
+      }
+    }
+    catch (IOException e)
+    {
+      Logger.e(TAG, "Failed to read " + mFile, e);
+    }
+    Logger.i(TAG, "Loaded " + mPending.size() + " pending pothole operations");
+
+    // Don't append new records after a torn line.
+    if (damaged)
+    {
+      try
+      {
+        compact();
+      }
+      catch (IOException e)
+      {
+        Logger.e(TAG, "Failed to compact " + mFile, e);
+      }
+    }
+  }
+
+  /**
+   * @return false if the record is damaged.
+   */
+  private boolean parse(@NonNull String line)
+  {
+    // A torn write at the end of the log is the only kind of damage we expect, skip it.
+    final String[] parts = line.split(String.valueOf(SEPARATOR));
+    try
+    {
+      final long seq = Long.parseLong(parts[1]);
+      mNextSeq = Math.max(mNextSeq, seq + 1);
+      switch (line.charAt(0))
+      {
+        case ADD:
+          mPending.put(seq, new Op(seq, true, parts[2], Double.parseDouble(parts[3]),
+                                   Double.parseDouble(parts[4])));
+          break;
+        case DELETE:
+          mPending.put(seq, new Op(seq, false, parts[2], 0, 0));
+          break;
+        case DONE:
+          mPending.remove(seq);
+          break;
+        default:
+          Logger.w(TAG, "Unknown record: " + line);
+          return false;
+      }
+      return true;
+    }
+    catch (RuntimeException e)
+    {
+      Logger.w(TAG, "Skipping damaged record: " + line);
+      return false;
+    }
+  }
+}
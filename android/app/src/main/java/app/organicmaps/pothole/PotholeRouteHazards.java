@@ -0,0 +1,116 @@
+package app.organicmaps.pothole;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Known potholes along a route, ordered by their distance from the route start.
+ * <p>
+ * Built once per route: every route segment queries {@link PotholeIndex} for the potholes
+ * around it, so the cost depends on the route length and the local pothole density rather than
+ * on the total number of potholes. Lookups during the navigation are binary searches.
+ */
+public final class PotholeRouteHazards
+{
+  // Potholes farther than this from the route polyline are considered to be on other roads.
+  static final double CORRIDOR_M = 15;
+  private static final double EARTH_RADIUS_M = 6_378_137.0;
+
+  @NonNull
+  public static final PotholeRouteHazards EMPTY = new PotholeRouteHazards(new double[0]);
+
+  // Distances from the route start in meters, ascending.
+  @NonNull
+  private final double[] mDistances;
+
+  private PotholeRouteHazards(@NonNull double[] distances)
+  {
+    mDistances = distances;
+  }
+
+  /**
+   * @param latLons route points as lat0, lon0, lat1, lon1, ...
+   */
+  @NonNull
+  static PotholeRouteHazards build(@NonNull PotholeIndex index, @NonNull double[] latLons)
+  {
+    // Distance along the route of every pothole, the first (closest to the start) pass wins
+    // for the routes which go through the same place twice.
+    final HashMap<String, Double> hazards = new HashMap<>();
+    double start = 0;
+    for (int i = 0; i + 3 < latLons.length; i += 2)
+    {
+      final double lat1 = latLons[i];
+      final double lon1 = latLons[i + 1];
+      final double lat2 = latLons[i + 2];
+      final double lon2 = latLons[i + 3];
+      // Local equirectangular projection, segments are short enough for it.
+      final double mPerDegLat = Math.toRadians(EARTH_RADIUS_M);
+      final double mPerDegLon = mPerDegLat * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+      final double dx = (lon2 - lon1) * mPerDegLon;
+      final double dy = (lat2 - lat1) * mPerDegLat;
+      final double length2 = dx * dx + dy * dy;
+      final double length = Math.sqrt(length2);
+      final double marginLat = CORRIDOR_M / mPerDegLat;
+      final double marginLon = CORRIDOR_M / mPerDegLon;
+
+      final double segmentStart = start;
+      index.forEachEntry(Math.min(lat1, lat2) - marginLat, Math.min(lon1, lon2) - marginLon,
+                         Math.max(lat1, lat2) + marginLat, Math.max(lon1, lon2) + marginLon, entry -> {
+        final double px = (entry.lon - lon1) * mPerDegLon;
+        final double py = (entry.lat - lat1) * mPerDegLat;
+        final double t = length2 > 0 ? Math.max(0, Math.min(1, (px * dx + py * dy) / length2)) : 0;
+        final double ex = px - t * dx;
+        final double ey = py - t * dy;
+        if (ex * ex + ey * ey > CORRIDOR_M * CORRIDOR_M)
+          return;
+        final double distance = segmentStart + t * length;
+        final Double known = hazards.get(entry.serverId);
+        if (known == null || distance < known)
+          hazards.put(entry.serverId, distance);
+      });
+      start += length;
+    }
+
+    final double[] distances = new double[hazards.size()];
+    int i = 0;
+    for (Double distance : hazards.values())
+      distances[i++] = distance;
+    Arrays.sort(distances);
+    return new PotholeRouteHazards(distances);
+  }
+
+  public int size()
+  {
+    return mDistances.length;
+  }
+
+  /**
+   * @return the distance from the route start to the i-th pothole.
+   */
+  public double getDistance(int i)
+  {
+    return mDistances[i];
+  }
+
+  /**
+   * @return the index of the first pothole at or after the given distance from the route start,
+   * {@link #size()} if there are none.
+   */
+  public int findNext(double distanceFromStart)
+  {
+    int lo = 0;
+    int hi = mDistances.length;
+    while (lo < hi)
+    {
+      final int mid = (lo + hi) >>> 1;
+      if (mDistances[mid] < distanceFromStart)
+        lo = mid + 1;
+      else
+        hi = mid;
+    }
+    return lo;
+  }
+}
@@ -0,0 +1,215 @@
+package app.organicmaps.pothole;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import app.organicmaps.util.log.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Persists the downloaded potholes together with the tiles they came from.
+ * <p>
+ * Since the "Potholes" category only holds what is currently visible, this file is the source
+ * of truth between the app launches. Both are written in one file, so a tile never claims
+ * potholes which weren't saved.
+ */
+final class PotholeStore
+{
+  private static final String TAG = PotholeStore.class.getSimpleName();
+
+  static final String FILENAME = "potholes.dat";
+  private static final int VERSION = 3;
+  // Didn't keep what is known about the server.
+  private static final int VERSION_2 = 2;
+  // Kept the sync mark instead of the tiles.
+  private static final int VERSION_1 = 1;
+
+  static final class Snapshot
+  {
+    // From the least to the most recently used one.
+    @NonNull
+    final PotholeTileCache.Tile[] tiles;
+    @NonNull
+    final String[] ids;
+    // Packed coordinates: lat0, lon0, lat1, lon1, ...
+    @NonNull
+    final double[] latLons;
+    // When the server was found to have no area endpoint, 0 if it has one.
+    final long areaUnsupportedAt;
+    // When the server was found to have no changes endpoint, 0 if it has one.
+    final long changesUnsupportedAt;
+    // When all the potholes were downloaded or updated the last time, 0 if never.
+    final long allFetchedAt;
+    // The high-water mark of all the potholes, empty if they weren't downloaded.
+    @NonNull
+    final String allMark;
+
+    Snapshot(@NonNull PotholeTileCache.Tile[] tiles, @NonNull String[] ids, @NonNull double[] latLons,
+             long areaUnsupportedAt, long changesUnsupportedAt, long allFetchedAt, @NonNull String allMark)
+    {
+      this.tiles = tiles;
+      this.ids = ids;
+      this.latLons = latLons;
+      this.areaUnsupportedAt = areaUnsupportedAt;
+      this.changesUnsupportedAt = changesUnsupportedAt;
+      this.allFetchedAt = allFetchedAt;
+      this.allMark = allMark;
+    }
+
+    /**
+     * Copies the mutable tiles, must be called on the main thread.
+     */
+    @NonNull
+    static PotholeTileCache.Tile[] copyTiles(@NonNull PotholeTileCache cache)
+    {
+      final PotholeTileCache.Tile[] tiles = new PotholeTileCache.Tile[cache.getTiles().size()];
+      int t = 0;
+      for (PotholeTileCache.Tile tile : cache.getTiles())
+        tiles[t++] = new PotholeTileCache.Tile(tile);
+      return tiles;
+    }
+
+    /**
+     * Packs the potholes, entries are immutable so it may be done on the storage thread.
+     */
+    @NonNull
+    static Snapshot of(@NonNull PotholeTileCache.Tile[] tiles, @NonNull PotholeIndex.Entry[] entries,
+                       long areaUnsupportedAt, long changesUnsupportedAt, long allFetchedAt,
+                       @NonNull String allMark)
+    {
+      final String[] ids = new String[entries.length];
+      final double[] latLons = new double[2 * ids.length];
+      for (int i = 0; i < entries.length; i++)
+      {
+        ids[i] = entries[i].serverId;
+        latLons[2 * i] = entries[i].lat;
+        latLons[2 * i + 1] = entries[i].lon;
+      }
+      return new Snapshot(tiles, ids, latLons, areaUnsupportedAt, changesUnsupportedAt, allFetchedAt,
+                          allMark);
+    }
+  }
+
+  @NonNull
+  private final File mFile;
+
+  PotholeStore(@NonNull File dir)
+  {
+    mFile = new File(dir, FILENAME);
+  }
+
+  /**
+   * @return null if nothing was saved yet or the file is damaged.
+   */
+  @Nullable
+  Snapshot load()
+  {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile))))
+    {
+      final int version = in.readInt();
+      final PotholeTileCache.Tile[] tiles;
+      long areaUnsupportedAt = 0;
+      long changesUnsupportedAt = 0;
+      long allFetchedAt = 0;
+      String allMark = "";
+      if (version == VERSION_1)
+      {
+        // The potholes are replaced tile by tile as the map is viewed.
+        in.readUTF();
+        tiles = new PotholeTileCache.Tile[0];
+      }
+      else if (version == VERSION || version == VERSION_2)
+      {
+        if (version == VERSION)
+        {
+          areaUnsupportedAt = in.readLong();
+          changesUnsupportedAt = in.readLong();
+          allFetchedAt = in.readLong();
+          allMark = in.readUTF();
+        }
+        tiles = new PotholeTileCache.Tile[in.readInt()];
+        for (int i = 0; i < tiles.length; i++)
+        {
+          final int x = in.readInt();
+          final int y = in.readInt();
+          final String etag = in.readUTF();
+          tiles[i] = new PotholeTileCache.Tile(x, y, etag.isEmpty() ? null : etag, in.readLong(),
+                                               in.readInt());
+        }
+      }
+      else
+      {
+        Logger.w(TAG, "Unsupported version " + version);
+        return null;
+      }
+      final int count = in.readInt();
+      final String[] ids = new String[count];
+      final double[] latLons = new double[2 * count];
+      for (int i = 0; i < count; i++)
+      {
+        ids[i] = in.readUTF();
+        latLons[2 * i] = in.readDouble();
+        latLons[2 * i + 1] = in.readDouble();
+      }
+      Logger.i(TAG, "Loaded " + count + " potholes of " + tiles.length + " tiles");
+      return new Snapshot(tiles, ids, latLons, areaUnsupportedAt, changesUnsupportedAt, allFetchedAt,
+                          allMark);
+    }
+    catch (FileNotFoundException e)
+    {
+      return null;
+    }
+    catch (IOException | RuntimeException e)
+    {
+      Logger.e(TAG, "Failed to read " + mFile, e);
+      return null;
+    }
+  }
+
+  @WorkerThread
+  void save(@NonNull Snapshot snapshot)
+  {
+    final File tmp = new File(mFile.getPath() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp))))
+    {
+      out.writeInt(VERSION);
+      out.writeLong(snapshot.areaUnsupportedAt);
+      out.writeLong(snapshot.changesUnsupportedAt);
+      out.writeLong(snapshot.allFetchedAt);
+      out.writeUTF(snapshot.allMark);
+      out.writeInt(snapshot.tiles.length);
+      for (PotholeTileCache.Tile tile : snapshot.tiles)
+      {
+        out.writeInt(tile.x);
+        out.writeInt(tile.y);
+        out.writeUTF(tile.etag != null ? tile.etag : "");
+        out.writeLong(tile.fetchedAt);
+        out.writeInt(tile.count);
+      }
+      out.writeInt(snapshot.ids.length);
+      for (int i = 0; i < snapshot.ids.length; i++)
+      {
+        out.writeUTF(snapshot.ids[i]);
+        out.writeDouble(snapshot.latLons[2 * i]);
+        out.writeDouble(snapshot.latLons[2 * i + 1]);
+      }
+    }
+    catch (IOException e)
+    {
+      Logger.e(TAG, "Failed to write " + tmp, e);
+      return;
+    }
+    if (!tmp.renameTo(mFile))
+      Logger.e(TAG, "Failed to replace " + mFile);
+  }
+}
@@ -0,0 +1,234 @@
+package app.organicmaps.pothole;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bookkeeping of the map tiles whose potholes have been downloaded, in the least recently used
+ * order. The potholes themselves live in {@link PotholeIndex}.
+ * <p>
+ * Tiles are the cells of the {@link #TILE_LEVEL} of the index grid, so a tile is always made
+ * of whole index cells. Not thread-safe.
+ */
+final class PotholeTileCache
+{
+  // 32 x 32 index cells, ~35 km along the meridian.
+  static final int TILE_LEVEL = 5;
+  static final double TILE_SIZE_DEG = (1 << TILE_LEVEL) * PotholeIndex.CELL_SIZE_DEG;
+  // Tiles downloaded earlier than this are revalidated when they are visible.
+  static final long TTL_MS = 15 * 60 * 1000;
+  // Least recently used tiles are evicted when they hold more potholes than this in total.
+  static final int MAX_POTHOLES = 20_000;
+
+  static final class Tile
+  {
+    final int x;
+    final int y;
+    @Nullable
+    String etag;
+    // Wall clock time of the last successful download or revalidation, 0 to force one.
+    long fetchedAt;
+    int count;
+
+    Tile(int x, int y, @Nullable String etag, long fetchedAt, int count)
+    {
+      this.x = x;
+      this.y = y;
+      this.etag = etag;
+      this.fetchedAt = fetchedAt;
+      this.count = count;
+    }
+
+    Tile(@NonNull Tile other)
+    {
+      this(other.x, other.y, other.etag, other.fetchedAt, other.count);
+    }
+
+    long getKey()
+    {
+      return PotholeIndex.cellKey(x, y);
+    }
+
+    boolean contains(double lat, double lon)
+    {
+      return tileOf(lat) == x && tileOf(lon) == y;
+    }
+
+    double getMinLat()
+    {
+      return edgeOf(x);
+    }
+
+    double getMinLon()
+    {
+      return edgeOf(y);
+    }
+
+    double getMaxLat()
+    {
+      return edgeOf(x + 1);
+    }
+
+    double getMaxLon()
+    {
+      return edgeOf(y + 1);
+    }
+
+    boolean isFresh(long now)
+    {
+      return fetchedAt > 0 && now - fetchedAt < TTL_MS;
+    }
+
+    @Override
+    @NonNull
+    public String toString()
+    {
+      return "Tile{" + x + ", " + y + "}";
+    }
+  }
+
+  // Access ordered, the eldest tile comes first.
+  @NonNull
+  private final LinkedHashMap<Long, Tile> mTiles = new LinkedHashMap<>(16, 0.75f, true);
+  private int mTotalCount;
+
+  /**
+   * @return the tile with the given key and marks it as the most recently used one.
+   */
+  @Nullable
+  Tile get(long key)
+  {
+    return mTiles.get(key);
+  }
+
+  void put(@NonNull Tile tile)
+  {
+    final Tile old = mTiles.put(tile.getKey(), tile);
+    if (old != null)
+      mTotalCount -= old.count;
+    mTotalCount += tile.count;
+  }
+
+  void setCount(@NonNull Tile tile, int count)
+  {
+    if (mTiles.get(tile.getKey()) == tile)
+      mTotalCount += count - tile.count;
+    tile.count = count;
+  }
+
+  void clear()
+  {
+    mTiles.clear();
+    mTotalCount = 0;
+  }
+
+  /**
+   * Removes the least recently used tiles until the potholes fit into {@link #MAX_POTHOLES}.
+   *
+   * @param pinned keys of the tiles which must be kept, e.g. the visible ones.
+   * @return the removed tiles.
+   */
+  @NonNull
+  List<Tile> trim(@NonNull Set<Long> pinned)
+  {
+    final List<Tile> evicted = new ArrayList<>();
+    final Iterator<Tile> it = mTiles.values().iterator();
+    while (mTotalCount > MAX_POTHOLES && it.hasNext())
+    {
+      final Tile tile = it.next();
+      if (pinned.contains(tile.getKey()))
+        continue;
+      it.remove();
+      mTotalCount -= tile.count;
+      evicted.add(tile);
+    }
+    return evicted;
+  }
+
+  /**
+   * @return the tiles from the least to the most recently used one.
+   */
+  @NonNull
+  Collection<Tile> getTiles()
+  {
+    return mTiles.values();
+  }
+
+  int getTotalCount()
+  {
+    return mTotalCount;
+  }
+
+  /**
+   * Collects the keys of the tiles which intersect the rect, row by row.
+   *
+   * @param limit the maximum number of keys.
+   * @return false if there are more tiles than the limit, out is left empty then.
+   */
+  static boolean getKeys(double minLat, double minLon, double maxLat, double maxLon, int limit,
+                         @NonNull List<Long> out)
+  {
+    final int minX = tileOf(minLat);
+    final int maxX = tileOf(maxLat);
+    final int minY = tileOf(minLon);
+    final int maxY = tileOf(maxLon);
+    if ((long) (maxX - minX + 1) * (maxY - minY + 1) > limit)
+      return false;
+    for (int x = minX; x <= maxX; x++)
+    {
+      for (int y = minY; y <= maxY; y++)
+        out.add(PotholeIndex.cellKey(x, y));
+    }
+    return true;
+  }
+
+  /**
+   * Collects the keys of the tiles around the polyline, segment by segment from its start.
+   *
+   * @param latLons polyline points as lat0, lon0, lat1, lon1, ...
+   * @param margin  how far around the segments to look, in degrees.
+   * @param out     keeps the order of insertion, e.g. a {@link java.util.LinkedHashSet}.
+   */
+  static void getKeysAlong(@NonNull double[] latLons, double margin, @NonNull Set<Long> out)
+  {
+    final List<Long> keys = new ArrayList<>();
+    for (int i = 0; i + 3 < latLons.length; i += 2)
+    {
+      final double lat1 = latLons[i];
+      final double lon1 = latLons[i + 1];
+      final double lat2 = latLons[i + 2];
+      final double lon2 = latLons[i + 3];
+      keys.clear();
+      getKeys(Math.min(lat1, lat2) - margin, Math.min(lon1, lon2) - margin, Math.max(lat1, lat2) + margin,
+              Math.max(lon1, lon2) + margin, Integer.MAX_VALUE, keys);
+      out.addAll(keys);
+    }
+  }
+
+  static int tileOf(double deg)
+  {
+    return PotholeIndex.cellOf(deg) >> TILE_LEVEL;
+  }
+
+  static int xOf(long key)
+  {
+    return (int) (key >> 32);
+  }
+
+  static int yOf(long key)
+  {
+    return (int) key;
+  }
+
+  private static double edgeOf(int tile)
+  {
+    return (double) (tile << TILE_LEVEL) * PotholeIndex.CELL_SIZE_DEG;
+  }
+}
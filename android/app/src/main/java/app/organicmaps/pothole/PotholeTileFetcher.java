@@ -0,0 +1,239 @@
+package app.organicmaps.pothole;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import app.organicmaps.util.HttpStack;
+import com.google.gson.stream.JsonReader;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downloads the potholes of a single {@link PotholeTileCache.Tile}.
+ * <p>
+ * Responses are parsed as a stream into {@link PotholeBatch}es. Potholes which the server
+ * returns from outside of the tile (e.g. on its edges) are skipped, so every pothole belongs
+ * to exactly one tile.
+ * <p>
+ * Servers without the area endpoint are served by {@link #fetchAll}, which downloads all the
+ * potholes at once, and then by {@link #fetchChanges}, which downloads the changes made after
+ * that.
+ */
+final class PotholeTileFetcher
+{
+  private static final long ALL_CALL_TIMEOUT_MIN = 5;
+
+  private static final String FIELD_ADDED = "added";
+  private static final String FIELD_REMOVED = "removed";
+  private static final String FIELD_MARK = "mark";
+
+  static final class Result
+  {
+    // Null if the tile hasn't changed since the given etag.
+    @Nullable
+    final List<PotholeBatch> batches;
+    @Nullable
+    final String etag;
+
+    Result(@Nullable List<PotholeBatch> batches, @Nullable String etag)
+    {
+      this.batches = batches;
+      this.etag = etag;
+    }
+  }
+
+  static final class Changes
+  {
+    // All the potholes or the added ones.
+    @NonNull
+    final List<PotholeBatch> batches;
+    // Null if the batches hold all the potholes, the known ones missing in them are removed then.
+    @Nullable
+    final List<String> removed;
+    // The high-water mark to ask for the next changes.
+    @NonNull
+    final String mark;
+
+    Changes(@NonNull List<PotholeBatch> batches, @Nullable List<String> removed, @NonNull String mark)
+    {
+      this.batches = batches;
+      this.removed = removed;
+      this.mark = mark;
+    }
+  }
+
+  /**
+   * Thrown when the server doesn't have the area endpoint.
+   */
+  static final class AreaUnsupportedException extends IOException
+  {
+    AreaUnsupportedException(@NonNull String message)
+    {
+      super(message);
+    }
+  }
+
+  /**
+   * Thrown when the server doesn't have the changes endpoint.
+   */
+  static final class ChangesUnsupportedException extends IOException
+  {
+    ChangesUnsupportedException(@NonNull String message)
+    {
+      super(message);
+    }
+  }
+
+  private PotholeTileFetcher() {}
+
+  /**
+   * @param x    the tile coordinates, see {@link PotholeTileCache}.
+   * @param etag the etag of the cached tile, null if there is none.
+   */
+  @WorkerThread
+  @NonNull
+  static Result fetch(int x, int y, @Nullable String etag) throws IOException
+  {
+    final PotholeTileCache.Tile tile = new PotholeTileCache.Tile(x, y, etag, 0, 0);
+    final Request request = PotholeApi.getInArea(tile.getMinLat(), tile.getMinLon(), tile.getMaxLat(),
+                                                 tile.getMaxLon(), etag);
+    try (Response res = HttpStack.INSTANCE.getCachingClient().newCall(request).execute())
+    {
+      if (res.code() == HttpURLConnection.HTTP_NOT_MODIFIED)
+        return new Result(null, etag);
+      if (res.code() == HttpURLConnection.HTTP_NOT_FOUND ||
+          res.code() == HttpURLConnection.HTTP_NOT_IMPLEMENTED)
+        throw new AreaUnsupportedException("Unexpected code " + res);
+      if (!res.isSuccessful())
+        throw new IOException("Unexpected code " + res);
+
+      final List<PotholeBatch> batches = new ArrayList<>();
+      try (JsonReader reader = new JsonReader(res.body().charStream()))
+      {
+        PotholeJsonReader.readPotholes(reader, (id, lat, lon) -> {
+          if (tile.contains(lat, lon))
+            add(batches, id, lat, lon);
+        });
+      }
+      return new Result(batches, res.header("ETag"));
+    }
+    catch (IllegalStateException | NumberFormatException e)
+    {
+      throw new IOException("Malformed potholes of " + tile, e);
+    }
+  }
+
+  /**
+   * Downloads all the potholes, for the servers without the area endpoint.
+   */
+  @WorkerThread
+  @NonNull
+  static Changes fetchAll() throws IOException
+  {
+    // The whole planet may take longer than the usual call timeout, but not forever.
+    final OkHttpClient client = HttpStack.INSTANCE.getClient().newBuilder()
+                                                  .callTimeout(ALL_CALL_TIMEOUT_MIN, TimeUnit.MINUTES)
+                                                  .build();
+    try (Response res = client.newCall(PotholeApi.getAll()).execute())
+    {
+      if (!res.isSuccessful())
+        throw new IOException("Unexpected code " + res);
+
+      final List<PotholeBatch> batches = new ArrayList<>();
+      final String[] mark = {""};
+      try (JsonReader reader = new JsonReader(res.body().charStream()))
+      {
+        PotholeJsonReader.readPotholes(reader, (id, lat, lon) -> {
+          mark[0] = newer(mark[0], id);
+          add(batches, id, lat, lon);
+        });
+      }
+      return new Changes(batches, null, mark[0]);
+    }
+    catch (IllegalStateException | NumberFormatException e)
+    {
+      throw new IOException("Malformed potholes", e);
+    }
+  }
+
+  /**
+   * Downloads the potholes added and removed after the mark of {@link #fetchAll} or of the previous
+   * changes.
+   */
+  @WorkerThread
+  @NonNull
+  static Changes fetchChanges(@NonNull String mark) throws IOException
+  {
+    try (Response res = HttpStack.INSTANCE.getClient().newCall(PotholeApi.getChanges(mark)).execute())
+    {
+      if (res.code() == HttpURLConnection.HTTP_NOT_FOUND ||
+          res.code() == HttpURLConnection.HTTP_NOT_IMPLEMENTED)
+        throw new ChangesUnsupportedException("Unexpected code " + res);
+      if (!res.isSuccessful())
+        throw new IOException("Unexpected code " + res);
+
+      final List<PotholeBatch> batches = new ArrayList<>();
+      final List<String> removed = new ArrayList<>();
+      final String[] newMark = {mark};
+      String serverMark = null;
+      try (JsonReader reader = new JsonReader(res.body().charStream()))
+      {
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+          switch (reader.nextName())
+          {
+            case FIELD_ADDED:
+              PotholeJsonReader.readPotholes(reader, (id, lat, lon) -> {
+                newMark[0] = newer(newMark[0], id);
+                add(batches, id, lat, lon);
+              });
+              break;
+            case FIELD_REMOVED:
+              reader.beginArray();
+              while (reader.hasNext())
+                removed.add(reader.nextString());
+              reader.endArray();
+              break;
+            case FIELD_MARK:
+              serverMark = reader.nextString();
+              break;
+            default:
+              reader.skipValue();
+          }
+        }
+        reader.endObject();
+      }
+      return new Changes(batches, removed, serverMark != null ? serverMark : newMark[0]);
+    }
+    catch (IllegalStateException | NumberFormatException e)
+    {
+      throw new IOException("Malformed potholes changes", e);
+    }
+  }
+
+  /**
+   * Server identifiers are MongoDB ObjectIds, which start with a big-endian creation timestamp,
+   * so the lexicographically greatest one is the newest.
+   */
+  @NonNull
+  private static String newer(@NonNull String mark, @NonNull String id)
+  {
+    return id.compareTo(mark) > 0 ? id : mark;
+  }
+
+  private static void add(@NonNull List<PotholeBatch> batches, @NonNull String id, double lat, double lon)
+  {
+    if (batches.isEmpty() || batches.get(batches.size() - 1).isFull())
+      batches.add(new PotholeBatch());
+    batches.get(batches.size() - 1).add(id, lat, lon);
+  }
+}
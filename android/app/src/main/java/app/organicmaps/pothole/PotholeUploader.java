@@ -0,0 +1,124 @@
+package app.organicmaps.pothole;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import app.organicmaps.util.HttpStack;
+import app.organicmaps.util.concurrency.UiThread;
+import app.organicmaps.util.log.Logger;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.List;
+
+/**
+ * Sends queued pothole operations from a {@link PotholeOutbox} to the server.
+ */
+public final class PotholeUploader
+{
+  private static final String TAG = PotholeUploader.class.getSimpleName();
+
+  // Upper bound of operations sent in one run, the rest is left for the next run.
+  private static final int MAX_OPS_PER_RUN = 500;
+
+  private PotholeUploader() {}
+
+  /**
+   * Uploads all pending operations in the order of submission over the shared connection pool.
+   *
+   * @return true if the outbox was drained, false if the upload should be retried later.
+   */
+  @WorkerThread
+  public static boolean drain(@NonNull PotholeOutbox outbox)
+  {
+    int sent = 0;
+    // New operations may be queued while we upload, pick them up in the same run.
+    List<PotholeOutbox.Op> ops = outbox.getPending();
+    while (!ops.isEmpty())
+    {
+      for (PotholeOutbox.Op op : ops)
+      {
+        if (sent++ >= MAX_OPS_PER_RUN)
+          return false;
+        try
+        {
+          if (!upload(outbox, op))
+            return false;
+        }
+        catch (IOException e)
+        {
+          Logger.w(TAG, "Failed to upload " + op, e);
+          return false;
+        }
+      }
+      ops = outbox.getPending();
+    }
+    return true;
+  }
+
+  /**
+   * @return false if the operation failed and must be retried.
+   */
+  @WorkerThread
+  private static boolean upload(@NonNull PotholeOutbox outbox, @NonNull PotholeOutbox.Op op)
+      throws IOException
+  {
+    final Request request = op.isAdd() ? PotholeApi.add(op.lat, op.lon) : PotholeApi.delete(op.key);
+    try (Response res = HttpStack.INSTANCE.getClient().newCall(request).execute())
+    {
+      final int code = res.code();
+      if (code >= HttpURLConnection.HTTP_INTERNAL_ERROR)
+      {
+        Logger.w(TAG, "Server error " + code + " for " + op);
+        return false;
+      }
+      if (!res.isSuccessful())
+      {
+        // Retrying a rejected request won't help, e.g. the pothole is already deleted.
+        Logger.e(TAG, "Dropping " + op + ", server responded with " + code);
+        outbox.complete(op);
+        return true;
+      }
+
+      final String serverId = op.isAdd() ? parseId(res.body()) : null;
+      final boolean cancelled = !outbox.complete(op, serverId);
+      Logger.d(TAG, "Uploaded " + op + (serverId != null ? " as " + serverId : ""));
+      if (serverId == null)
+        return true;
+
+      // The pothole was deleted while its report was in flight, delete it on the server too.
+      if (cancelled)
+        outbox.delete(serverId);
+      else
+        UiThread.run(() -> {
+          PotholeManager.INSTANCE.onPotholeUploaded(op.key, serverId);
+          // Deletions come from the main thread as well, the local id is gone by now.
+          outbox.forgetUploaded(op.key);
+        });
+      return true;
+    }
+  }
+
+  @Nullable
+  private static String parseId(@Nullable ResponseBody body)
+  {
+    if (body == null)
+      return null;
+    try
+    {
+      return new JSONObject(body.string()).optString("_id", null);
+    }
+    catch (IOException | JSONException e)
+    {
+      Logger.w(TAG, "Unexpected add response", e);
+      return null;
+    }
+  }
+}
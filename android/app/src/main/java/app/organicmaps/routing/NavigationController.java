@@ -141,7 +141,21 @@ public class NavigationController implements TrafficManager.TrafficCallback,
     if (!RoutingController.get().isNavigating())
       return;
 
-    update(Framework.nativeGetRouteFollowingInfo());
+    update(RoutingController.get().getCachedRoutingInfo());
+  }
+
+  /**
+   * Updates the current speed and the pothole warning, which may change with every location.
+   * The rest is updated by {@link #update(RoutingInfo)} when the route following info changes.
+   */
+  public void updateLocation()
+  {
+    final RoutingInfo info = RoutingController.get().getCachedRoutingInfo();
+    if (info == null)
+      return;
+
+    updateStreetView(info);
+    mNavMenu.updateSpeedView(info);
   }
 
   public void update(@Nullable RoutingInfo info)
@@ -160,12 +174,15 @@ public class NavigationController implements TrafficManager.TrafficCallback,
 
   private void updateStreetView(@NonNull RoutingInfo info)
   {
-    boolean hasStreet = !TextUtils.isEmpty(info.nextStreet);
+    // Potholes ahead take precedence over the street name.
+    final String potholeWarning = RoutingController.get().getPotholeWarner().getWarning();
+    final String text = potholeWarning != null ? potholeWarning : info.nextStreet;
+    boolean hasStreet = !TextUtils.isEmpty(text);
     // Sic: don't use UiUtils.showIf() here because View.GONE breaks layout
     // https://github.com/organicmaps/organicmaps/issues/3732
     UiUtils.visibleIf(hasStreet, mStreetFrame);
-    if (!TextUtils.isEmpty(info.nextStreet))
-      mNextStreet.setText(info.nextStreet);
+    if (hasStreet)
+      mNextStreet.setText(text);
   }
 
   public void show(boolean show)
@@ -173,6 +190,9 @@ public class NavigationController implements TrafficManager.TrafficCallback,
     if (show && !UiUtils.isVisible(mFrame))
       collapseNavMenu();
     UiUtils.showIf(show, mFrame);
+    // Updates are pushed only on changes, so the last known info is shown until the next one.
+    if (show)
+      update(RoutingController.get().getCachedRoutingInfo());
   }
 
   public boolean isNavMenuCollapsed()
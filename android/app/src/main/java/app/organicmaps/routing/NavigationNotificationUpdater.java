@@ -0,0 +1,66 @@
+package app.organicmaps.routing;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Objects;
+
+/**
+ * Decides whether the navigation notification should be re-posted for new route following info.
+ * <p>
+ * Nothing is posted when the visible content is the same. A new turn or street is posted
+ * immediately, while distances in the title and the sub text are refreshed at most once per
+ * {@link #MIN_TEXT_UPDATE_INTERVAL_MS}.
+ */
+class NavigationNotificationUpdater
+{
+  static final long MIN_TEXT_UPDATE_INTERVAL_MS = 2000;
+
+  private int mTurnRes;
+  @Nullable
+  private String mTitle;
+  @Nullable
+  private String mText;
+  @Nullable
+  private String mSubText;
+  private long mPostTime;
+  private boolean mPosted;
+
+  private int mPostedCount;
+  private int mSkippedCount;
+
+  /**
+   * @param nowMs monotonic time in milliseconds.
+   * @return true if the notification should be posted with the given content, it's considered
+   * posted after that.
+   */
+  boolean update(int turnRes, @NonNull String title, @Nullable String text, @Nullable String subText, long nowMs)
+  {
+    final boolean turnChanged = !mPosted || turnRes != mTurnRes || !Objects.equals(text, mText);
+    final boolean distanceChanged = !title.equals(mTitle) || !Objects.equals(subText, mSubText);
+    if (!turnChanged && (!distanceChanged || nowMs - mPostTime < MIN_TEXT_UPDATE_INTERVAL_MS))
+    {
+      ++mSkippedCount;
+      return false;
+    }
+
+    mTurnRes = turnRes;
+    mTitle = title;
+    mText = text;
+    mSubText = subText;
+    mPostTime = nowMs;
+    mPosted = true;
+    ++mPostedCount;
+    return true;
+  }
+
+  int getPostedCount()
+  {
+    return mPostedCount;
+  }
+
+  int getSkippedCount()
+  {
+    return mSkippedCount;
+  }
+}
@@ -10,16 +10,16 @@ import android.app.PendingIntent;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
+import android.content.res.Configuration;
 import android.graphics.Bitmap;
-import android.graphics.drawable.Drawable;
 import android.location.Location;
 import android.os.Build;
 import android.os.IBinder;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RequiresPermission;
-import androidx.appcompat.content.res.AppCompatResources;
 import androidx.core.app.ActivityCompat;
 import androidx.core.app.NotificationChannelCompat;
 import androidx.core.app.NotificationCompat;
@@ -32,13 +32,11 @@ import app.organicmaps.R;
 import app.organicmaps.base.MediaPlayerWrapper;
 import app.organicmaps.location.LocationHelper;
 import app.organicmaps.location.LocationListener;
+import app.organicmaps.location.PotholeDetectionHelper;
 import app.organicmaps.sound.TtsPlayer;
-import app.organicmaps.util.Graphics;
 import app.organicmaps.util.log.Logger;
 
-import java.util.Objects;
-
-public class NavigationService extends Service implements LocationListener
+public class NavigationService extends Service implements LocationListener, Framework.RouteFollowingListener
 {
   private static final String TAG = NavigationService.class.getSimpleName();
 
@@ -49,6 +47,13 @@ public class NavigationService extends Service implements LocationListener
   @NonNull
   private NotificationCompat.Builder mNotificationBuilder;
 
+  @SuppressWarnings("NotNullFieldNotInitialized")
+  @NonNull
+  private TurnBitmapCache mTurnBitmaps;
+
+  @NonNull
+  private final NavigationNotificationUpdater mNotificationUpdater = new NavigationNotificationUpdater();
+
   @SuppressWarnings("NotNullFieldNotInitialized")
   @NonNull
   MediaPlayerWrapper mPlayer;
@@ -131,22 +136,29 @@ public class NavigationService extends Service implements LocationListener
         .setColorized(isColorizedSupported())
         .setColor(ContextCompat.getColor(this, R.color.notification));
 
+    mTurnBitmaps = new TurnBitmapCache(this, !isColorizedSupported(), ContextCompat.getColor(this, R.color.base_accent));
+
     mPlayer = new MediaPlayerWrapper(getApplicationContext());
 
     /*
      * Subscribe to location updates.
      */
     LocationHelper.from(this).addListener(this);
+    RoutingController.get().addRouteFollowingListener(this);
+    PotholeDetectionHelper.from(this).start();
   }
 
   @RequiresPermission(value = ACCESS_FINE_LOCATION)
   @Override
   public void onDestroy()
   {
-    Logger.i(TAG);
+    Logger.i(TAG, "Notification updates posted: " + mNotificationUpdater.getPostedCount() +
+                  " skipped: " + mNotificationUpdater.getSkippedCount());
 
     super.onDestroy();
     LocationHelper.from(this).removeListener(this);
+    RoutingController.get().removeRouteFollowingListener(this);
+    PotholeDetectionHelper.from(this).stop();
     TtsPlayer.INSTANCE.stop();
 
     final NotificationManagerCompat notificationManager = NotificationManagerCompat.from(this);
@@ -163,6 +175,15 @@ public class NavigationService extends Service implements LocationListener
   {
     super.onLowMemory();
     Logger.d(TAG, "onLowMemory()");
+    mTurnBitmaps.clear();
+  }
+
+  @Override
+  public void onConfigurationChanged(@NonNull Configuration newConfig)
+  {
+    super.onConfigurationChanged(newConfig);
+    // Icons may depend on the night mode and the density.
+    mTurnBitmaps.clear();
   }
 
   @RequiresPermission(value = ACCESS_FINE_LOCATION)
@@ -210,44 +231,70 @@ public class NavigationService extends Service implements LocationListener
     if (!routingController.isNavigating())
       return;
 
-    final String[] turnNotifications = Framework.nativeGenerateNotifications();
+    final PotholeWarner potholeWarner = routingController.getPotholeWarner();
+    if (potholeWarner.update(location.getSpeed()))
+    {
+      if (TtsPlayer.isEnabled())
+        TtsPlayer.INSTANCE.speak(potholeWarner.getWarning());
+      else
+        mPlayer.playback(R.raw.speed_cams_beep);
+    }
+
+    // The rest of the notification is updated by onRouteFollowingUpdated().
+    final RoutingInfo routingInfo = routingController.getCachedRoutingInfo();
+    if (routingInfo != null)
+      updateNotification(routingInfo);
+  }
+
+  @Override
+  public void onRouteFollowingUpdated(@Nullable RoutingInfo routingInfo, @Nullable String[] turnNotifications,
+                                      boolean routeFinished)
+  {
     if (turnNotifications != null)
       TtsPlayer.INSTANCE.playTurnNotifications(getApplicationContext(), turnNotifications);
 
-    // TODO: consider to create callback mechanism to transfer 'ROUTE_IS_FINISHED' event from
-    // the core to the platform code (https://github.com/organicmaps/organicmaps/issues/3589),
-    // because calling the native method 'nativeIsRouteFinished'
-    // too often can result in poor UI performance.
     // This check should be done after playTurnNotifications() to play the last turn notification.
-    if (Framework.nativeIsRouteFinished())
+    if (routeFinished)
     {
-      routingController.cancel();
+      RoutingController.get().cancel();
       stopSelf();
       return;
     }
 
-    final RoutingInfo routingInfo = Framework.nativeGetRouteFollowingInfo();
     if (routingInfo == null)
       return;
 
+    LocationHelper.from(this).onDistanceToTurnUpdated(routingInfo.distToTurn);
+
     if (routingInfo.shouldPlayWarningSignal())
       mPlayer.playback(R.raw.speed_cams_beep);
 
+    updateNotification(routingInfo);
+  }
+
+  private void updateNotification(@NonNull RoutingInfo routingInfo)
+  {
     // Don't spend time on updating RemoteView if notifications are not allowed.
     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU &&
         ActivityCompat.checkSelfPermission(this, POST_NOTIFICATIONS) != PERMISSION_GRANTED)
       return;
 
-    final Drawable drawable = Objects.requireNonNull(AppCompatResources.getDrawable(this,
-        routingInfo.carDirection.getTurnRes()));
-    final Bitmap bitmap = isColorizedSupported() ?
-        Graphics.drawableToBitmap(drawable) :
-        Graphics.drawableToBitmapWithTint(drawable, ContextCompat.getColor(this, R.color.base_accent));
+    final boolean pedestrian = Framework.nativeGetRouter() == Framework.ROUTER_TYPE_PEDESTRIAN;
+    final int turnRes = pedestrian ? routingInfo.pedestrianTurnDirection.getTurnRes()
+                                   : routingInfo.carDirection.getTurnRes();
+    final String title = routingInfo.distToTurn.toString(this);
+    final String subText = RoutingController.get().getPotholeWarner().getWarning();
+    // Fixes come every second or faster, while the visible content mostly stays the same.
+    if (!mNotificationUpdater.update(turnRes, title, routingInfo.nextStreet, subText, SystemClock.elapsedRealtime()))
+      return;
 
+    final Bitmap bitmap = pedestrian ? mTurnBitmaps.get(routingInfo.pedestrianTurnDirection)
+                                     : mTurnBitmaps.get(routingInfo.carDirection);
     final Notification notification = mNotificationBuilder
         .setLargeIcon(bitmap)
-        .setContentTitle(routingInfo.distToTurn.toString(this))
+        .setContentTitle(title)
         .setContentText(routingInfo.nextStreet)
+        .setSubText(subText)
         .build();
 
     // The notification object must be re-created for every update.
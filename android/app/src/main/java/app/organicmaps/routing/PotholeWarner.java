@@ -0,0 +1,129 @@
+package app.organicmaps.routing;
+
+import android.content.Context;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import app.organicmaps.Framework;
+import app.organicmaps.R;
+import app.organicmaps.pothole.PotholeManager;
+import app.organicmaps.pothole.PotholeRouteHazards;
+import app.organicmaps.util.StringUtils;
+import app.organicmaps.util.log.Logger;
+
+/**
+ * Tracks the known potholes ahead on the current route.
+ * <p>
+ * The potholes along the route are collected once per built route and again whenever more of
+ * them are downloaded, every position update is then a binary search over them. Only vehicle
+ * routes are warned about.
+ */
+@MainThread
+public class PotholeWarner
+{
+  private static final String TAG = PotholeWarner.class.getSimpleName();
+
+  // Warn about this many seconds ahead at the current speed...
+  private static final double WARNING_TIME_S = 8;
+  // ...but not closer or farther than this.
+  private static final double MIN_WARNING_DISTANCE_M = 100;
+  private static final double MAX_WARNING_DISTANCE_M = 400;
+  // Potholes closer than this to the announced one are announced together with it.
+  private static final double GROUP_DISTANCE_M = 50;
+
+  @NonNull
+  private final Context mContext;
+  @Nullable
+  private double[] mGeometry;
+  @NonNull
+  private PotholeRouteHazards mHazards = PotholeRouteHazards.EMPTY;
+  // Distance from the route start to the last announced pothole, potholes are announced in order.
+  private double mAnnouncedUntil = -1;
+  // Distance to the pothole within the warning distance, negative if there is none.
+  private double mDistanceToHazard = -1;
+
+  PotholeWarner(@NonNull Context context)
+  {
+    mContext = context;
+  }
+
+  void onRouteBuilt()
+  {
+    reset();
+    if (Framework.nativeGetRouter() != Framework.ROUTER_TYPE_VEHICLE)
+      return;
+
+    mGeometry = Framework.nativeGetRouteGeometry();
+    if (mGeometry == null)
+      return;
+    // The potholes along the route may be far from the map viewport, they are downloaded now.
+    PotholeManager.INSTANCE.setRoute(mContext, mGeometry, this::onRoutePotholesLoaded);
+    onRoutePotholesLoaded();
+  }
+
+  void reset()
+  {
+    if (mGeometry != null)
+      PotholeManager.INSTANCE.clearRoute();
+    mGeometry = null;
+    mHazards = PotholeRouteHazards.EMPTY;
+    mAnnouncedUntil = -1;
+    mDistanceToHazard = -1;
+  }
+
+  private void onRoutePotholesLoaded()
+  {
+    if (mGeometry == null)
+      return;
+    mHazards = PotholeManager.INSTANCE.getRouteHazards(mContext, mGeometry);
+    Logger.i(TAG, mHazards.size() + " known potholes along the route");
+  }
+
+  /**
+   * Updates the distance to the next pothole for the current position on the route.
+   *
+   * @return true if a pothole which hasn't been announced yet has come within the warning distance.
+   */
+  boolean update(float speedMps)
+  {
+    mDistanceToHazard = -1;
+    if (mHazards.size() == 0)
+      return false;
+    final double position = Framework.nativeGetRouteDistanceFromStart();
+    if (position < 0)
+      return false;
+    final int next = mHazards.findNext(position);
+    if (next == mHazards.size())
+      return false;
+
+    final double distance = mHazards.getDistance(next) - position;
+    final double warningDistance = Math.max(MIN_WARNING_DISTANCE_M,
+                                            Math.min(MAX_WARNING_DISTANCE_M, speedMps * WARNING_TIME_S));
+    if (distance > warningDistance)
+      return false;
+    mDistanceToHazard = distance;
+    if (mHazards.getDistance(next) <= mAnnouncedUntil)
+      return false;
+
+    int last = next;
+    while (last + 1 < mHazards.size() &&
+           mHazards.getDistance(last + 1) - mHazards.getDistance(next) < GROUP_DISTANCE_M)
+      last++;
+    mAnnouncedUntil = mHazards.getDistance(last);
+    return true;
+  }
+
+  /**
+   * @return e.g. "Pothole ahead in 120 m" or null if there is no pothole within the warning distance.
+   */
+  @Nullable
+  public String getWarning()
+  {
+    if (mDistanceToHazard < 0)
+      return null;
+    return mContext.getString(R.string.pothole_ahead,
+                              StringUtils.nativeFormatDistance(mDistanceToHazard).toString(mContext));
+  }
+}
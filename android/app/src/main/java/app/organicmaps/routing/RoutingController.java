@@ -18,6 +18,7 @@ import app.organicmaps.bookmarks.data.FeatureId;
 import app.organicmaps.bookmarks.data.MapObject;
 import app.organicmaps.location.LocationHelper;
 import app.organicmaps.widget.placepage.CoordinatesFormat;
+import app.organicmaps.util.Listeners;
 import app.organicmaps.util.StringUtils;
 import app.organicmaps.util.Utils;
 import app.organicmaps.util.concurrency.UiThread;
@@ -70,6 +71,11 @@ public class RoutingController implements Initializable<Context>
      * */
     default void updateBuildProgress(@IntRange(from = 0, to = 100) int progress, @Framework.RouterType int router) {}
     default void onStartRouteBuilding() {}
+
+    /**
+     * Called while navigating when the route following info changes.
+     */
+    default void updateRouteFollowing(@NonNull RoutingInfo info) {}
   }
 
   private static final int NO_WAITING_POI_PICK = -1;
@@ -92,9 +98,14 @@ public class RoutingController implements Initializable<Context>
   private String[] mLastMissingMaps;
   @Nullable
   private RoutingInfo mCachedRoutingInfo;
+  @SuppressWarnings("NotNullFieldNotInitialized")
+  @NonNull
+  private PotholeWarner mPotholeWarner;
   @Nullable
   private TransitRouteInfo mCachedTransitRouteInfo;
 
+  private final Listeners<Framework.RouteFollowingListener> mRouteFollowingListeners = new Listeners<>();
+
   private int mInvalidRoutePointsTransactionId;
   private int mRemovingIntermediatePointsTransactionId;
 
@@ -131,6 +142,7 @@ public class RoutingController implements Initializable<Context>
     if (mLastRouterType == Framework.ROUTER_TYPE_TRANSIT)
       mCachedTransitRouteInfo = Framework.nativeGetTransitRouteInfo();
     setBuildState(BuildState.BUILT);
+    mPotholeWarner.onRouteBuilt();
     mLastBuildProgress = 100;
     if (mContainer != null)
       mContainer.onBuiltRoute();
@@ -147,6 +159,23 @@ public class RoutingController implements Initializable<Context>
     }
   };
 
+  @SuppressWarnings("FieldCanBeLocal")
+  private final Framework.RouteFollowingListener mRouteFollowingListener =
+    (info, turnNotifications, routeFinished) -> {
+      if (info != null)
+        mCachedRoutingInfo = info;
+      if (!isNavigating())
+        return;
+
+      for (Framework.RouteFollowingListener listener : mRouteFollowingListeners)
+        listener.onRouteFollowingUpdated(info, turnNotifications, routeFinished);
+      mRouteFollowingListeners.finishIterate();
+
+      // The route may be cancelled by a listener when it's finished.
+      if (info != null && isNavigating() && mContainer != null)
+        mContainer.updateRouteFollowing(info);
+    };
+
   @SuppressWarnings("FieldCanBeLocal")
   private final Framework.RoutingLoadPointsListener mRoutingLoadPointsListener =
     success -> {
@@ -256,12 +285,14 @@ public class RoutingController implements Initializable<Context>
   @Override
   public void initialize(@NonNull Context context)
   {
+    mPotholeWarner = new PotholeWarner(context);
     mLastRouterType = Framework.nativeGetLastUsedRouter();
     mInvalidRoutePointsTransactionId = Framework.nativeInvalidRoutePointsTransactionId();
     mRemovingIntermediatePointsTransactionId = mInvalidRoutePointsTransactionId;
 
     Framework.nativeSetRoutingListener(mRoutingListener);
     Framework.nativeSetRouteProgressListener(mRoutingProgressListener);
+    Framework.nativeSetRouteFollowingListener(mRouteFollowingListener);
     Framework.nativeSetRoutingRecommendationListener(recommendation -> UiThread.run(() -> {
       if (recommendation == Framework.ROUTE_REBUILD_AFTER_POINTS_LOADING)
         setStartPoint(LocationHelper.from(context).getMyPosition());
@@ -481,6 +512,7 @@ public class RoutingController implements Initializable<Context>
 
     setBuildState(BuildState.NONE);
     setState(State.NONE);
+    mPotholeWarner.reset();
 
     applyRemovingIntermediatePointsTransaction();
     Framework.nativeDeleteSavedRoutePoints();
@@ -661,6 +693,25 @@ public class RoutingController implements Initializable<Context>
     return mCachedRoutingInfo;
   }
 
+  /**
+   * Subscribes to the route following updates pushed by the core while navigating.
+   */
+  public void addRouteFollowingListener(@NonNull Framework.RouteFollowingListener listener)
+  {
+    mRouteFollowingListeners.register(listener);
+  }
+
+  public void removeRouteFollowingListener(@NonNull Framework.RouteFollowingListener listener)
+  {
+    mRouteFollowingListeners.unregister(listener);
+  }
+
+  @NonNull
+  public PotholeWarner getPotholeWarner()
+  {
+    return mPotholeWarner;
+  }
+
   @Nullable
   public TransitRouteInfo getCachedTransitInfo()
   {
@@ -115,6 +115,11 @@ public class RoutingInfo
       mNextTurnRes = nextResId;
     }
 
+    public int getTurnRes()
+    {
+      return mTurnRes;
+    }
+
     public void setTurnDrawable(@NonNull ImageView imageView)
     {
       imageView.setImageResource(mTurnRes);
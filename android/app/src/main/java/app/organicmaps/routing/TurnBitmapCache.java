@@ -0,0 +1,76 @@
+package app.organicmaps.routing;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import android.util.SparseArray;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.appcompat.content.res.AppCompatResources;
+
+import app.organicmaps.util.Graphics;
+
+import java.util.Objects;
+
+/**
+ * Turn icons of the navigation notification, rendered once per drawable.
+ * Directions with the same icon, e.g. all roundabout ones, share a bitmap.
+ */
+class TurnBitmapCache
+{
+  @NonNull
+  private final Context mContext;
+  private final boolean mTinted;
+  @ColorInt
+  private final int mTint;
+  private final SparseArray<Bitmap> mBitmaps = new SparseArray<>();
+
+  /**
+   * @param tinted whether the icons are drawn with the tint instead of their own colors.
+   */
+  TurnBitmapCache(@NonNull Context context, boolean tinted, @ColorInt int tint)
+  {
+    mContext = context;
+    mTinted = tinted;
+    mTint = tint;
+  }
+
+  @Nullable
+  Bitmap get(@NonNull RoutingInfo.CarDirection direction)
+  {
+    return get(direction.getTurnRes());
+  }
+
+  @Nullable
+  Bitmap get(@NonNull RoutingInfo.PedestrianTurnDirection direction)
+  {
+    return get(direction.getTurnRes());
+  }
+
+  void clear()
+  {
+    mBitmaps.clear();
+  }
+
+  /**
+   * @return null for directions without an icon.
+   */
+  @Nullable
+  private Bitmap get(@DrawableRes int turnRes)
+  {
+    if (turnRes == 0)
+      return null;
+
+    Bitmap bitmap = mBitmaps.get(turnRes);
+    if (bitmap != null)
+      return bitmap;
+
+    final Drawable drawable = Objects.requireNonNull(AppCompatResources.getDrawable(mContext, turnRes));
+    bitmap = mTinted ? Graphics.drawableToBitmapWithTint(drawable, mTint) : Graphics.drawableToBitmap(drawable);
+    mBitmaps.put(turnRes, bitmap);
+    return bitmap;
+  }
+}
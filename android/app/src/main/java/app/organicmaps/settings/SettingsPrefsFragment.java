@@ -28,8 +28,11 @@ import app.organicmaps.editor.ProfileActivity;
 import app.organicmaps.help.HelpActivity;
 import app.organicmaps.location.LocationHelper;
 import app.organicmaps.location.LocationProviderFactory;
+import app.organicmaps.location.PotholeDetectionHelper;
+import app.organicmaps.routing.RoutingController;
 import app.organicmaps.sound.LanguageData;
 import app.organicmaps.sound.TtsPlayer;
+import app.organicmaps.trace.TraceRecorder;
 import app.organicmaps.util.Config;
 import app.organicmaps.util.NetworkPolicy;
 import app.organicmaps.util.PowerManagment;
@@ -250,6 +253,8 @@ public class SettingsPrefsFragment extends BaseXmlSettingsFragment
       initZoomPrefsCallbacks();
       initMapStylePrefsCallbacks();
       initSpeedCamerasPrefs();
+      initPotholeDetectionPrefsCallbacks();
+      initTraceRecordingPrefsCallbacks();
       initAutoDownloadPrefsCallbacks();
       initLargeFontSizePrefsCallbacks();
       initTransliterationPrefsCallbacks();
@@ -489,6 +494,12 @@ public class SettingsPrefsFragment extends BaseXmlSettingsFragment
       }
       return true;
     });
+
+    final Preference compactPref = getPreference(getString(R.string.pref_compact_logging));
+    compactPref.setOnPreferenceChangeListener((preference, newValue) -> {
+      LogsManager.INSTANCE.setCompactLoggingEnabled((Boolean) newValue);
+      return true;
+    });
   }
 
   private void initEmulationBadStorage()
@@ -646,6 +657,41 @@ public class SettingsPrefsFragment extends BaseXmlSettingsFragment
     });
   }
 
+  private void initPotholeDetectionPrefsCallbacks()
+  {
+    final TwoStatePreference pref = getPreference(getString(R.string.pref_pothole_detection));
+
+    pref.setChecked(Config.isPotholeDetectionEnabled());
+    pref.setOnPreferenceChangeListener((preference, newValue) -> {
+      final boolean enabled = (Boolean) newValue;
+      Config.setPotholeDetectionEnabled(enabled);
+      // Takes effect immediately if the navigation is in progress.
+      final PotholeDetectionHelper helper = PotholeDetectionHelper.from(requireContext());
+      if (!enabled)
+        helper.stop();
+      else if (RoutingController.get().isNavigating())
+        helper.start();
+      return true;
+    });
+  }
+
+  private void initTraceRecordingPrefsCallbacks()
+  {
+    final TwoStatePreference pref = getPreference(getString(R.string.pref_trace_recording));
+
+    pref.setChecked(Config.isTraceRecordingEnabled());
+    pref.setOnPreferenceChangeListener((preference, newValue) -> {
+      final boolean enabled = (Boolean) newValue;
+      Config.setTraceRecordingEnabled(enabled);
+      final TraceRecorder recorder = TraceRecorder.from(requireContext());
+      if (enabled)
+        recorder.start();
+      else
+        recorder.stop();
+      return true;
+    });
+  }
+
   private void initMapStylePrefsCallbacks()
   {
     final ListPreference pref = getPreference(getString(R.string.pref_map_style));
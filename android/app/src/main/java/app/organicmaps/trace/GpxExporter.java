@@ -0,0 +1,72 @@
+package app.organicmaps.trace;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Writes traces as GPX 1.0, which has the speed and the course of track points.
+ */
+public final class GpxExporter
+{
+  private GpxExporter() {}
+
+  public static void export(@NonNull File trace, @NonNull File gpx) throws IOException
+  {
+    try (TraceReader reader = TraceReader.open(trace);
+         Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(gpx), StandardCharsets.UTF_8)))
+    {
+      export(reader, trace.getName(), out);
+    }
+  }
+
+  /**
+   * Streams the points of the reader to the output as a single track segment.
+   */
+  public static void export(@NonNull TraceReader reader, @NonNull String name, @NonNull Appendable out)
+      throws IOException
+  {
+    final DateFormat time = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+    time.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+    out.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+       .append("<gpx version=\"1.0\" creator=\"Organic Maps\" xmlns=\"http://www.topografix.com/GPX/1/0\">\n")
+       .append("<trk><name>").append(escape(name)).append("</name><trkseg>\n");
+
+    final StringBuilder sb = new StringBuilder(256);
+    final TracePoint point = new TracePoint();
+    while (reader.next(point))
+    {
+      sb.setLength(0);
+      sb.append("<trkpt lat=\"").append(point.getLat()).append("\" lon=\"").append(point.getLon()).append("\">");
+      if (!Double.isNaN(point.getAltitude()))
+        sb.append("<ele>").append(point.getAltitude()).append("</ele>");
+      sb.append("<time>").append(time.format(new Date(point.getTime()))).append("</time>");
+      if (!Float.isNaN(point.getBearing()))
+        sb.append("<course>").append(point.getBearing()).append("</course>");
+      if (!Float.isNaN(point.getSpeed()))
+        sb.append("<speed>").append(point.getSpeed()).append("</speed>");
+      sb.append("</trkpt>\n");
+      out.append(sb);
+    }
+
+    out.append("</trkseg></trk>\n</gpx>\n");
+  }
+
+  @NonNull
+  private static String escape(@NonNull String text)
+  {
+    return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+  }
+}
@@ -0,0 +1,156 @@
+package app.organicmaps.trace;
+
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encoding of trace files.
+ * <p>
+ * A file starts with a header: magic, version and the length of the written data, which is
+ * updated after every record, so a file is readable even if the process died while writing it.
+ * Every record is a flags byte followed by varints: the time, the latitude and the longitude
+ * (and the altitude if present) as zigzag deltas from the previous record of the file, then
+ * the accuracy, the speed and the bearing if present. A fix takes ~13 bytes this way.
+ */
+final class TraceFormat
+{
+  static final int MAGIC = 0x4F4D5452; // "OMTR"
+  static final int VERSION = 1;
+  static final int OFFSET_LENGTH = 8;
+  static final int HEADER_SIZE = 16;
+  // Large enough for any record.
+  static final int MAX_RECORD_SIZE = 64;
+
+  private static final int HAS_ALTITUDE = 1;
+  private static final int HAS_ACCURACY = 1 << 1;
+  private static final int HAS_SPEED = 1 << 2;
+  private static final int HAS_BEARING = 1 << 3;
+
+  private static final double COORD_FACTOR = 1e7;
+  // Decimeters.
+  private static final double ALTITUDE_FACTOR = 10;
+  private static final double ACCURACY_FACTOR = 10;
+  // Centimeters per second.
+  private static final double SPEED_FACTOR = 100;
+  // Tenths of a degree.
+  private static final double BEARING_FACTOR = 10;
+
+  /**
+   * Values of the previous record, the deltas are counted from them.
+   */
+  static final class State
+  {
+    long mTime;
+    long mLat;
+    long mLon;
+    long mAltitude;
+
+    void set(@NonNull State other)
+    {
+      mTime = other.mTime;
+      mLat = other.mLat;
+      mLon = other.mLon;
+      mAltitude = other.mAltitude;
+    }
+  }
+
+  private TraceFormat() {}
+
+  static void encode(@NonNull TracePoint point, @NonNull State state, @NonNull ByteBuffer out)
+  {
+    int flags = 0;
+    if (!Double.isNaN(point.mAltitude))
+      flags |= HAS_ALTITUDE;
+    if (!Float.isNaN(point.mAccuracy))
+      flags |= HAS_ACCURACY;
+    if (!Float.isNaN(point.mSpeed))
+      flags |= HAS_SPEED;
+    if (!Float.isNaN(point.mBearing))
+      flags |= HAS_BEARING;
+    out.put((byte) flags);
+
+    final long lat = Math.round(point.mLat * COORD_FACTOR);
+    final long lon = Math.round(point.mLon * COORD_FACTOR);
+    putSignedVarLong(out, point.mTime - state.mTime);
+    putSignedVarLong(out, lat - state.mLat);
+    putSignedVarLong(out, lon - state.mLon);
+    state.mTime = point.mTime;
+    state.mLat = lat;
+    state.mLon = lon;
+    if ((flags & HAS_ALTITUDE) != 0)
+    {
+      final long altitude = Math.round(point.mAltitude * ALTITUDE_FACTOR);
+      putSignedVarLong(out, altitude - state.mAltitude);
+      state.mAltitude = altitude;
+    }
+    if ((flags & HAS_ACCURACY) != 0)
+      putVarLong(out, Math.round(Math.max(0, point.mAccuracy) * ACCURACY_FACTOR));
+    if ((flags & HAS_SPEED) != 0)
+      putVarLong(out, Math.round(Math.max(0, point.mSpeed) * SPEED_FACTOR));
+    if ((flags & HAS_BEARING) != 0)
+      putVarLong(out, Math.round(normalizeBearing(point.mBearing) * BEARING_FACTOR));
+  }
+
+  static void decode(@NonNull ByteBuffer in, @NonNull State state, @NonNull TracePoint point)
+  {
+    final int flags = in.get();
+    state.mTime += getSignedVarLong(in);
+    state.mLat += getSignedVarLong(in);
+    state.mLon += getSignedVarLong(in);
+    point.mTime = state.mTime;
+    point.mLat = state.mLat / COORD_FACTOR;
+    point.mLon = state.mLon / COORD_FACTOR;
+    if ((flags & HAS_ALTITUDE) != 0)
+    {
+      state.mAltitude += getSignedVarLong(in);
+      point.mAltitude = state.mAltitude / ALTITUDE_FACTOR;
+    }
+    else
+    {
+      point.mAltitude = Double.NaN;
+    }
+    point.mAccuracy = (flags & HAS_ACCURACY) != 0 ? (float) (getVarLong(in) / ACCURACY_FACTOR) : Float.NaN;
+    point.mSpeed = (flags & HAS_SPEED) != 0 ? (float) (getVarLong(in) / SPEED_FACTOR) : Float.NaN;
+    point.mBearing = (flags & HAS_BEARING) != 0 ? (float) (getVarLong(in) / BEARING_FACTOR) : Float.NaN;
+  }
+
+  private static double normalizeBearing(float bearing)
+  {
+    final double normalized = bearing % 360.0;
+    return normalized < 0 ? normalized + 360 : normalized;
+  }
+
+  private static void putSignedVarLong(@NonNull ByteBuffer out, long value)
+  {
+    putVarLong(out, (value << 1) ^ (value >> 63));
+  }
+
+  private static long getSignedVarLong(@NonNull ByteBuffer in)
+  {
+    final long value = getVarLong(in);
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static void putVarLong(@NonNull ByteBuffer out, long value)
+  {
+    while ((value & ~0x7FL) != 0)
+    {
+      out.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.put((byte) value);
+  }
+
+  private static long getVarLong(@NonNull ByteBuffer in)
+  {
+    long value = 0;
+    for (int shift = 0; ; shift += 7)
+    {
+      final byte next = in.get();
+      value |= (long) (next & 0x7F) << shift;
+      if ((next & 0x80) == 0)
+        return value;
+    }
+  }
+}
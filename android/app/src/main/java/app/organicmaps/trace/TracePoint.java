@@ -0,0 +1,93 @@
+package app.organicmaps.trace;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A location fix of a trace, reused by {@link TraceReader} for every point.
+ * Values are stored with a limited precision, see {@link TraceFormat}.
+ */
+public final class TracePoint
+{
+  long mTime;
+  double mLat;
+  double mLon;
+  double mAltitude = Double.NaN;
+  float mAccuracy = Float.NaN;
+  float mSpeed = Float.NaN;
+  float mBearing = Float.NaN;
+
+  public TracePoint() {}
+
+  /**
+   * Pass NaN for the unknown altitude, accuracy, speed or bearing.
+   */
+  public TracePoint(long time, double lat, double lon, double altitude, float accuracy, float speed,
+                    float bearing)
+  {
+    mTime = time;
+    mLat = lat;
+    mLon = lon;
+    mAltitude = altitude;
+    mAccuracy = accuracy;
+    mSpeed = speed;
+    mBearing = bearing;
+  }
+
+  /**
+   * @return UTC time in milliseconds.
+   */
+  public long getTime()
+  {
+    return mTime;
+  }
+
+  public double getLat()
+  {
+    return mLat;
+  }
+
+  public double getLon()
+  {
+    return mLon;
+  }
+
+  /**
+   * @return meters, NaN if unknown.
+   */
+  public double getAltitude()
+  {
+    return mAltitude;
+  }
+
+  /**
+   * @return meters, NaN if unknown.
+   */
+  public float getAccuracy()
+  {
+    return mAccuracy;
+  }
+
+  /**
+   * @return meters per second, NaN if unknown.
+   */
+  public float getSpeed()
+  {
+    return mSpeed;
+  }
+
+  /**
+   * @return degrees, NaN if unknown.
+   */
+  public float getBearing()
+  {
+    return mBearing;
+  }
+
+  @NonNull
+  @Override
+  public String toString()
+  {
+    return "TracePoint{time=" + mTime + ", lat=" + mLat + ", lon=" + mLon + ", altitude=" + mAltitude +
+           ", accuracy=" + mAccuracy + ", speed=" + mSpeed + ", bearing=" + mBearing + '}';
+  }
+}
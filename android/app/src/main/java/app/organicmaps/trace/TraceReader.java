@@ -0,0 +1,86 @@
+package app.organicmaps.trace;
+
+import androidx.annotation.NonNull;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads the points of a trace file one by one without loading the whole file,
+ * see {@link TraceFormat}.
+ */
+public final class TraceReader implements Closeable
+{
+  @NonNull
+  private final ByteBuffer mBuffer;
+  final TraceFormat.State mState = new TraceFormat.State();
+  private final TraceFormat.State mSavedState = new TraceFormat.State();
+  // The end of the last complete record.
+  private int mLength;
+
+  TraceReader(@NonNull ByteBuffer buffer) throws IOException
+  {
+    if (buffer.capacity() < TraceFormat.HEADER_SIZE || buffer.getInt(0) != TraceFormat.MAGIC)
+      throw new IOException("Not a trace file");
+    if (buffer.getInt(4) != TraceFormat.VERSION)
+      throw new IOException("Unsupported trace version " + buffer.getInt(4));
+    final int length = buffer.getInt(TraceFormat.OFFSET_LENGTH);
+    if (length < TraceFormat.HEADER_SIZE || length > buffer.capacity())
+      throw new IOException("Corrupted trace header, length = " + length);
+
+    mBuffer = buffer.duplicate();
+    mBuffer.limit(length).position(TraceFormat.HEADER_SIZE);
+    mLength = TraceFormat.HEADER_SIZE;
+  }
+
+  @NonNull
+  public static TraceReader open(@NonNull File file) throws IOException
+  {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r"))
+    {
+      // The mapping stays valid after the file is closed.
+      return new TraceReader(raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length()));
+    }
+  }
+
+  /**
+   * Reads the next point into the given one.
+   *
+   * @return false if there are no more points.
+   */
+  public boolean next(@NonNull TracePoint point)
+  {
+    if (!mBuffer.hasRemaining())
+      return false;
+    mSavedState.set(mState);
+    try
+    {
+      TraceFormat.decode(mBuffer, mState, point);
+    }
+    catch (BufferUnderflowException e)
+    {
+      // A truncated record, it may happen only if the file was damaged.
+      mState.set(mSavedState);
+      mBuffer.position(mBuffer.limit());
+      return false;
+    }
+    mLength = mBuffer.position();
+    return true;
+  }
+
+  int getLength()
+  {
+    return mLength;
+  }
+
+  @Override
+  public void close()
+  {
+    // Nothing to release, the mapping is released by GC.
+  }
+}
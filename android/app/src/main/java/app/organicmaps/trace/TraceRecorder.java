@@ -0,0 +1,203 @@
+package app.organicmaps.trace;
+
+import android.content.Context;
+import android.location.Location;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import app.organicmaps.MwmApplication;
+import app.organicmaps.location.LocationHelper;
+import app.organicmaps.location.LocationListener;
+import app.organicmaps.util.Config;
+import app.organicmaps.util.concurrency.ThreadPool;
+import app.organicmaps.util.concurrency.UiThread;
+import app.organicmaps.util.log.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Records location fixes into trace files, one per day, while the location is on.
+ * Opt-in, see {@link Config#isTraceRecordingEnabled()}.
+ * <p>
+ * Fixes are handed over to the storage thread in batches, so it isn't woken up every second
+ * while navigating. Recorded traces can be replayed with {@link TraceReader} or exported with
+ * {@link GpxExporter}.
+ */
+public class TraceRecorder implements LocationListener
+{
+  private static final String TAG = TraceRecorder.class.getSimpleName();
+
+  private static final String TRACES_FOLDER = "traces";
+  private static final String EXTENSION = ".trace";
+  // Older traces are deleted when a new day starts.
+  private static final int MAX_DAYS = 30;
+  // Up to this many fixes or this much time is lost if the process is killed.
+  private static final int BATCH_SIZE = 30;
+  private static final long FLUSH_DELAY_MS = 30_000;
+
+  @NonNull
+  private final Context mContext;
+  private boolean mStarted;
+  // Fixes which haven't been handed over to the storage thread yet.
+  @NonNull
+  private ArrayList<TracePoint> mBatch = new ArrayList<>(BATCH_SIZE);
+  @NonNull
+  private final Runnable mFlushTask = this::flush;
+
+  // Touched only on the storage thread.
+  @NonNull
+  private final SimpleDateFormat mDayFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+  @Nullable
+  private TraceWriter mWriter;
+  @Nullable
+  private String mDay;
+  private long mLastTime;
+
+  @NonNull
+  public static TraceRecorder from(@NonNull Context context)
+  {
+    return MwmApplication.from(context).getTraceRecorder();
+  }
+
+  public TraceRecorder(@NonNull Context context)
+  {
+    mContext = context;
+  }
+
+  @MainThread
+  public void start()
+  {
+    if (mStarted || !Config.isTraceRecordingEnabled())
+      return;
+    Logger.i(TAG);
+    mStarted = true;
+    LocationHelper.from(mContext).addListener(this);
+  }
+
+  @MainThread
+  public void stop()
+  {
+    if (!mStarted)
+      return;
+    Logger.i(TAG);
+    mStarted = false;
+    LocationHelper.from(mContext).removeListener(this);
+    flush();
+    ThreadPool.getStorage().execute(this::closeWriter);
+  }
+
+  /**
+   * @return trace files from the oldest to the newest one, the last one may be still being written.
+   */
+  @NonNull
+  public File[] getTraces()
+  {
+    final File[] files = getTracesFolder().listFiles((dir, name) -> name.endsWith(EXTENSION));
+    if (files == null)
+      return new File[0];
+    // Names are dates, so they are sorted chronologically.
+    Arrays.sort(files);
+    return files;
+  }
+
+  @Override
+  public void onLocationUpdated(@NonNull Location location)
+  {
+    final TracePoint point = new TracePoint(location.getTime(), location.getLatitude(), location.getLongitude(),
+                                            location.hasAltitude() ? location.getAltitude() : Double.NaN,
+                                            location.hasAccuracy() ? location.getAccuracy() : Float.NaN,
+                                            location.hasSpeed() ? location.getSpeed() : Float.NaN,
+                                            location.hasBearing() ? location.getBearing() : Float.NaN);
+    mBatch.add(point);
+    if (mBatch.size() >= BATCH_SIZE)
+      flush();
+    else if (mBatch.size() == 1)
+      UiThread.runLater(mFlushTask, FLUSH_DELAY_MS);
+  }
+
+  @MainThread
+  private void flush()
+  {
+    UiThread.cancelDelayedTasks(mFlushTask);
+    if (mBatch.isEmpty())
+      return;
+    final List<TracePoint> points = mBatch;
+    mBatch = new ArrayList<>(BATCH_SIZE);
+    ThreadPool.getStorage().execute(() -> {
+      for (TracePoint point : points)
+        write(point);
+    });
+  }
+
+  private void write(@NonNull TracePoint point)
+  {
+    // The same fix is delivered again to every new location listener.
+    if (point.getTime() <= mLastTime)
+      return;
+    mLastTime = point.getTime();
+
+    try
+    {
+      final String day = mDayFormat.format(new Date(point.getTime()));
+      if (mWriter == null || !day.equals(mDay))
+      {
+        closeWriter();
+        final File folder = getTracesFolder();
+        if (!folder.exists() && !folder.mkdirs())
+          throw new IOException("Can't create " + folder);
+        mWriter = TraceWriter.open(new File(folder, day + EXTENSION));
+        mDay = day;
+        deleteOldTraces();
+      }
+      mWriter.append(point);
+    }
+    catch (IOException e)
+    {
+      Logger.e(TAG, "Failed to record a point", e);
+      closeWriter();
+    }
+  }
+
+  private void closeWriter()
+  {
+    if (mWriter == null)
+      return;
+    try
+    {
+      mWriter.close();
+    }
+    catch (IOException e)
+    {
+      Logger.e(TAG, "Failed to close the trace " + mDay, e);
+    }
+    mWriter = null;
+    mDay = null;
+  }
+
+  private void deleteOldTraces()
+  {
+    final File[] traces = getTraces();
+    for (int i = 0; i < traces.length - MAX_DAYS; ++i)
+    {
+      if (!traces[i].delete())
+        Logger.w(TAG, "Can't delete " + traces[i]);
+    }
+  }
+
+  @NonNull
+  private File getTracesFolder()
+  {
+    // External files are accessible over USB, which is handy to pull traces for replaying.
+    final File external = mContext.getExternalFilesDir(null);
+    return new File(external != null ? external : mContext.getFilesDir(), TRACES_FOLDER);
+  }
+}
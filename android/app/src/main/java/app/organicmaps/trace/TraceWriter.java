@@ -0,0 +1,125 @@
+package app.organicmaps.trace;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Appends points to a trace file through a memory-mapped buffer, see {@link TraceFormat}.
+ * <p>
+ * The file is mapped in steps of {@link #GROW_SIZE}, the unused tail is cut off on close.
+ * A point is in the page cache as soon as it's appended, so nothing is lost if the process dies.
+ *
+ * Not thread-safe.
+ */
+public final class TraceWriter implements Closeable
+{
+  // A day of driving with a fix per second takes ~1 MB.
+  private static final int GROW_SIZE = 256 * 1024;
+
+  @NonNull
+  private final RandomAccessFile mFile;
+  @Nullable
+  private MappedByteBuffer mBuffer;
+  private final TraceFormat.State mState = new TraceFormat.State();
+  private int mLength;
+
+  private TraceWriter(@NonNull RandomAccessFile file)
+  {
+    mFile = file;
+  }
+
+  /**
+   * Opens the file to append points after the ones it already has, creates it if needed.
+   */
+  @NonNull
+  public static TraceWriter open(@NonNull File file) throws IOException
+  {
+    final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    final TraceWriter writer = new TraceWriter(raf);
+    try
+    {
+      writer.init();
+    }
+    catch (IOException | RuntimeException e)
+    {
+      raf.close();
+      throw e;
+    }
+    return writer;
+  }
+
+  private void init() throws IOException
+  {
+    if (mFile.length() < TraceFormat.HEADER_SIZE)
+    {
+      map(TraceFormat.HEADER_SIZE);
+      mBuffer.putInt(4, TraceFormat.VERSION);
+      mLength = TraceFormat.HEADER_SIZE;
+      mBuffer.putInt(TraceFormat.OFFSET_LENGTH, mLength);
+      // The magic is written last, so a half-initialized file is never taken as a valid one.
+      mBuffer.putInt(0, TraceFormat.MAGIC);
+      return;
+    }
+
+    map((int) mFile.length());
+    // Restores the delta state from the points written before.
+    try (TraceReader reader = new TraceReader(mBuffer))
+    {
+      final TracePoint point = new TracePoint();
+      while (reader.next(point)) {}
+      mLength = reader.getLength();
+      mState.set(reader.mState);
+    }
+    // The tail of an incomplete record is overwritten.
+    mBuffer.putInt(TraceFormat.OFFSET_LENGTH, mLength);
+  }
+
+  public void append(@NonNull TracePoint point) throws IOException
+  {
+    if (mBuffer.capacity() - mLength < TraceFormat.MAX_RECORD_SIZE)
+      map(mBuffer.capacity() + GROW_SIZE);
+
+    mBuffer.position(mLength);
+    TraceFormat.encode(point, mState, mBuffer);
+    mLength = mBuffer.position();
+    // The point is published after it's written.
+    mBuffer.putInt(TraceFormat.OFFSET_LENGTH, mLength);
+  }
+
+  /**
+   * @return the size of the file with the points appended so far.
+   */
+  public int getLength()
+  {
+    return mLength;
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    // The buffer is unmapped by GC, nothing is written to it after the cut.
+    mBuffer = null;
+    try
+    {
+      mFile.setLength(mLength);
+    }
+    finally
+    {
+      mFile.close();
+    }
+  }
+
+  private void map(int size) throws IOException
+  {
+    if (mFile.length() < size)
+      mFile.setLength(size);
+    mBuffer = mFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+  }
+}
@@ -43,6 +43,8 @@ public final class Config
   private static final String KEY_MISC_SHOW_ON_LOCK_SCREEN = "ShowOnLockScreen";
   private static final String KEY_MISC_AGPS_TIMESTAMP = "AGPSTimestamp";
   private static final String KEY_DONATE_URL = "DonateUrl";
+  private static final String KEY_POTHOLE_DETECTION = "PotholeDetection";
+  private static final String KEY_TRACE_RECORDING = "TraceRecording";
 
   private Config() {}
 
@@ -350,6 +352,26 @@ public final class Config
     return getString(KEY_DONATE_URL);
   }
 
+  public static boolean isPotholeDetectionEnabled()
+  {
+    return getBool(KEY_POTHOLE_DETECTION, false);
+  }
+
+  public static void setPotholeDetectionEnabled(boolean enabled)
+  {
+    setBool(KEY_POTHOLE_DETECTION, enabled);
+  }
+
+  public static boolean isTraceRecordingEnabled()
+  {
+    return getBool(KEY_TRACE_RECORDING, false);
+  }
+
+  public static void setTraceRecordingEnabled(boolean enabled)
+  {
+    setBool(KEY_TRACE_RECORDING, enabled);
+  }
+
   private static native boolean nativeGetBoolean(String name, boolean defaultValue);
   private static native void nativeSetBoolean(String name, boolean value);
   private static native int nativeGetInt(String name, int defaultValue);
@@ -48,6 +48,20 @@ public final class Distance
     return mDistance >= 0.0;
   }
 
+  /**
+   * @return the distance in meters, rounded as the displayed one.
+   */
+  public double toMeters()
+  {
+    switch (mUnits)
+    {
+    case Kilometers: return mDistance * 1000;
+    case Feet: return mDistance * 0.3048;
+    case Miles: return mDistance * 1609.344;
+    default: return mDistance;
+    }
+  }
+
   @NonNull
   public String getUnitsStr(@NonNull final Context context)
   {
@@ -28,23 +28,25 @@ import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
 import app.organicmaps.util.log.Logger;
+import okhttp3.CacheControl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.InflaterInputStream;
 
@@ -61,114 +63,92 @@ public final class HttpClient
     if (TextUtils.isEmpty(p.httpMethod))
       throw new IllegalArgumentException("Please set valid HTTP method for request at Params.httpMethod field.");
 
-    HttpURLConnection connection = null;
-
     Logger.d(TAG, "Connecting to " + Utils.makeUrlSafe(p.url));
 
-    try
-    {
-      connection = (HttpURLConnection) new URL(p.url).openConnection();
+    // Derived clients share the connection pool and TLS sessions with the app client. The core
+    // downloads map files through here, so the call timeout is dropped and nothing is cached.
+    final OkHttpClient client = HttpStack.INSTANCE.newTransferClientBuilder()
+        .followRedirects(p.followRedirects)
+        .followSslRedirects(p.followRedirects)
+        .connectTimeout(p.timeoutMillisec, TimeUnit.MILLISECONDS)
+        .readTimeout(p.timeoutMillisec, TimeUnit.MILLISECONDS)
+        .writeTimeout(p.timeoutMillisec, TimeUnit.MILLISECONDS)
+        .build();
 
-      // NullPointerException, MalformedUrlException, IOException
-      // Redirects from http to https or vice versa are not supported by Android implementation.
-      // There is also a nasty bug on Androids before 4.4:
-      // if you send any request with Content-Length set, and it is redirected, and your instance is set to automatically follow redirects,
-      // then next (internal) GET request to redirected location will incorrectly have have all headers set from the previous request,
-      // including Content-Length, Content-Type etc. This leads to unexpected hangs and timeout errors, because some servers are
-      // correctly trying to wait for the body if Content-Length is set.
-      // It shows in logs like this:
-      //
-      // java.net.SocketTimeoutException: Read timed out
-      //   at org.apache.harmony.xnet.provider.jsse.NativeCrypto.SSL_read(Native Method)
-      //   at org.apache.harmony.xnet.provider.jsse.OpenSSLSocketImpl$SSLInputStream.read(OpenSSLSocketImpl.java:687)
-      //   ...
-      //
-      // Looks like this bug was fixed by switching to OkHttp implementation in this commit:
-      // https://android.googlesource.com/platform/libcore/+/2503556d17b28c7b4e6e514540a77df1627857d0
-      connection.setInstanceFollowRedirects(p.followRedirects);
-      connection.setConnectTimeout(p.timeoutMillisec);
-      connection.setReadTimeout(p.timeoutMillisec);
-      connection.setUseCaches(false);
-      connection.setRequestMethod(p.httpMethod);
+    final Request.Builder builder = new Request.Builder().url(p.url); // IllegalArgumentException
 
-      if (!TextUtils.isEmpty(p.cookies))
-        connection.setRequestProperty("Cookie", p.cookies);
+    if (!TextUtils.isEmpty(p.cookies))
+      builder.header("Cookie", p.cookies);
 
-      for (KeyValue header : p.headers)
-        connection.setRequestProperty(header.getKey(), header.getValue());
+    String contentType = null;
+    for (KeyValue header : p.headers)
+    {
+      if ("Content-Type".equalsIgnoreCase(header.getKey()))
+        contentType = header.getValue();
+      builder.header(header.getKey(), header.getValue());
+    }
 
-      if (!TextUtils.isEmpty(p.inputFilePath) || p.data != null)
-      {
-        // Send (POST, PUT...) data to the server.
-        if (TextUtils.isEmpty(connection.getRequestProperty("Content-Type")))
-          throw new NullPointerException("Please set Content-Type for request.");
+    RequestBody body = null;
+    if (!TextUtils.isEmpty(p.inputFilePath) || p.data != null)
+    {
+      // Send (POST, PUT...) data to the server.
+      if (TextUtils.isEmpty(contentType))
+        throw new NullPointerException("Please set Content-Type for request.");
 
-        // Work-around for situation when more than one consequent POST requests can lead to stable
-        // "java.net.ProtocolException: Unexpected status line:" on a client and Nginx HTTP 499 errors.
-        // The only found reference to this bug is http://stackoverflow.com/a/24303115/1209392
-        connection.setRequestProperty("Connection", "close");
-        connection.setDoOutput(true);
-        if (p.data != null)
-        {
-          connection.setFixedLengthStreamingMode(p.data.length);
-          final OutputStream os = connection.getOutputStream();
-          try
-          {
-            os.write(p.data);
-          }
-          finally
-          {
-            os.close();
-          }
-          Logger.d(TAG, "Sent " + p.httpMethod + " with content of size " + p.data.length);
-        }
-        else
-        {
-          final File file = new File(p.inputFilePath);
-          connection.setFixedLengthStreamingMode((int) file.length());
-          final BufferedInputStream istream = new BufferedInputStream(new FileInputStream(file), STREAM_BUFFER_SIZE);
-          final BufferedOutputStream ostream = new BufferedOutputStream(connection.getOutputStream(), STREAM_BUFFER_SIZE);
-          final byte[] buffer = new byte[STREAM_BUFFER_SIZE];
-          int bytesRead;
-          while ((bytesRead = istream.read(buffer, 0, STREAM_BUFFER_SIZE)) > 0)
-          {
-            ostream.write(buffer, 0, bytesRead);
-          }
-          istream.close(); // IOException
-          ostream.close(); // IOException
-          Logger.d(TAG, "Sent " + p.httpMethod + " with file of size " + file.length());
-        }
+      final MediaType mediaType = MediaType.parse(contentType);
+      if (p.data != null)
+      {
+        body = RequestBody.create(p.data, mediaType);
+        Logger.d(TAG, "Sending " + p.httpMethod + " with content of size " + p.data.length);
       }
-      // GET data from the server or receive response body
-      p.httpResponseCode = connection.getResponseCode();
+      else
+      {
+        final File file = new File(p.inputFilePath);
+        body = RequestBody.create(file, mediaType);
+        Logger.d(TAG, "Sending " + p.httpMethod + " with file of size " + file.length());
+      }
+    }
+    else if (requiresBody(p.httpMethod))
+    {
+      // OkHttp rejects these methods without a body, HttpURLConnection used to send an empty one.
+      body = RequestBody.create(new byte[0], null);
+    }
+    builder.method(p.httpMethod, body);
+
+    // Files are written to disk by the caller anyway, don't duplicate them in the HTTP cache.
+    if (!TextUtils.isEmpty(p.outputFilePath))
+      builder.cacheControl(new CacheControl.Builder().noStore().build());
+
+    try (Response response = client.newCall(builder.build()).execute())
+    {
+      p.httpResponseCode = response.code();
       Logger.d(TAG, "Received HTTP " + p.httpResponseCode + " from server, content encoding = " +
-               connection.getContentEncoding() + ", for request = " + Utils.makeUrlSafe(p.url));
+               response.header("Content-Encoding") + ", for request = " + Utils.makeUrlSafe(p.url));
 
       if (p.httpResponseCode >= 300 && p.httpResponseCode < 400)
-        p.receivedUrl = connection.getHeaderField("Location");
+        p.receivedUrl = response.header("Location");
       else
-        p.receivedUrl = connection.getURL().toString();
+        p.receivedUrl = response.request().url().toString();
 
       p.headers.clear();
       if (p.loadHeaders)
       {
-        for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet())
+        for (String name : response.headers().names())
         {
-          // Some implementations include a mapping for the null key.
-          if (header.getKey() == null || header.getValue() == null)
-            continue;
-
-          p.headers.add(new KeyValue(StringUtils.toLowerCase(header.getKey()), TextUtils.join(", ",
-              header.getValue())));
+          p.headers.add(new KeyValue(StringUtils.toLowerCase(name), TextUtils.join(", ",
+              response.headers(name))));
         }
       }
       else
       {
-        List<String> cookies = connection.getHeaderFields().get("Set-Cookie");
-        if (cookies != null)
+        List<String> cookies = response.headers("Set-Cookie");
+        if (!cookies.isEmpty())
           p.headers.add(new KeyValue("Set-Cookie", TextUtils.join(", ", cookies)));
       }
 
+      final ResponseBody responseBody = response.body();
+      if (responseBody == null)
+        return p;
       try
       {
         OutputStream ostream;
@@ -177,7 +157,7 @@ public final class HttpClient
         else
           ostream = new ByteArrayOutputStream(STREAM_BUFFER_SIZE);
         // TODO(AlexZ): Add HTTP resume support in the future for partially downloaded files
-        final BufferedInputStream istream = new BufferedInputStream(getInputStream(connection), STREAM_BUFFER_SIZE);
+        final InputStream istream = getInputStream(response, responseBody);
         final byte[] buffer = new byte[STREAM_BUFFER_SIZE];
         // gzip encoding is transparently enabled and we can't use Content-Length for
         // body reading if server has gzipped it.
@@ -196,34 +176,28 @@ public final class HttpClient
         // Exception here means that there is no body in the response.
       }
     }
-    finally
-    {
-      if (connection != null)
-        connection.disconnect();
-    }
     return p;
   }
 
+  private static boolean requiresBody(@NonNull String method)
+  {
+    return method.equals("POST") || method.equals("PUT") || method.equals("PATCH");
+  }
+
+  /**
+   * OkHttp decodes gzip transparently and drops Content-Encoding only when it has requested
+   * the compression itself, so the header is still there if the caller has set Accept-Encoding.
+   */
   @NonNull
-  private static InputStream getInputStream(@NonNull HttpURLConnection connection) throws IOException
+  private static InputStream getInputStream(@NonNull Response response, @NonNull ResponseBody body)
+      throws IOException
   {
-    InputStream in;
-    try
-    {
-      if ("gzip".equals(connection.getContentEncoding()))
-        in = new GZIPInputStream(connection.getInputStream());
-      else if ("deflate".equals(connection.getContentEncoding()))
-        in = new InflaterInputStream(connection.getInputStream());
-      else
-        in = connection.getInputStream();
-    }
-    catch (IOException e)
-    {
-      in = connection.getErrorStream();
-      if (in == null)
-        throw e;
-    }
-    return in;
+    final String encoding = response.header("Content-Encoding");
+    if ("gzip".equals(encoding))
+      return new GZIPInputStream(body.byteStream());
+    else if ("deflate".equals(encoding))
+      return new InflaterInputStream(body.byteStream());
+    return body.byteStream();
   }
 
   private static class Params
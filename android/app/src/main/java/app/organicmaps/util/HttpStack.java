@@ -0,0 +1,150 @@
+package app.organicmaps.util;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import app.organicmaps.base.Initializable;
+import app.organicmaps.util.log.Logger;
+import okhttp3.Cache;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Application-wide HTTP client.
+ * <p>
+ * All app networking should go through {@link #getClient()}, so requests share one connection
+ * pool (with HTTP/2 multiplexing where the server supports it), one TLS session cache and one
+ * dispatcher. Use {@link OkHttpClient#newBuilder()} on the shared client to tweak timeouts or
+ * redirects of particular calls, it keeps all of the above shared.
+ * <p>
+ * The disk response cache is opt-in, see {@link #getCachingClient()}. Calls which may transfer
+ * large bodies, e.g. map files, should drop the call timeout with {@link #newTransferClientBuilder()}.
+ */
+public enum HttpStack implements Initializable<Context>
+{
+  INSTANCE;
+
+  private static final String TAG = HttpStack.class.getSimpleName();
+
+  private static final String CACHE_DIR = "http";
+  private static final long CACHE_SIZE = 10 * Constants.MB;
+  private static final int MAX_IDLE_CONNECTIONS = 5;
+  private static final long KEEP_ALIVE_MINUTES = 5;
+  // Upper bound of a whole call including redirects and the body, overridable per call.
+  private static final long CALL_TIMEOUT_MS = 60_000;
+
+  @SuppressWarnings("NotNullFieldNotInitialized")
+  @NonNull
+  private OkHttpClient mClient;
+  @SuppressWarnings("NotNullFieldNotInitialized")
+  @NonNull
+  private OkHttpClient mCachingClient;
+
+  @NonNull
+  private final Stats mStats = new Stats();
+
+  @Override
+  public void initialize(@Nullable Context context)
+  {
+    mClient = new OkHttpClient.Builder()
+        .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+        .connectTimeout(Constants.CONNECTION_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+        .readTimeout(Constants.READ_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+        .writeTimeout(Constants.READ_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+        .callTimeout(CALL_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+        .eventListener(mStats)
+        .build();
+    final Cache cache = new Cache(new File(context.getCacheDir(), CACHE_DIR), CACHE_SIZE);
+    mCachingClient = mClient.newBuilder().cache(cache).build();
+  }
+
+  @Override
+  public void destroy()
+  {
+    // No op.
+  }
+
+  @NonNull
+  public OkHttpClient getClient()
+  {
+    return mClient;
+  }
+
+  /**
+   * @return the shared client which also stores responses in the disk cache.
+   */
+  @NonNull
+  public OkHttpClient getCachingClient()
+  {
+    return mCachingClient;
+  }
+
+  /**
+   * @return a builder of a client without the call timeout, for calls whose bodies may take
+   * minutes to transfer. Everything else is shared with {@link #getClient()}.
+   */
+  @NonNull
+  public OkHttpClient.Builder newTransferClientBuilder()
+  {
+    return mClient.newBuilder().callTimeout(0, TimeUnit.MILLISECONDS);
+  }
+
+  public void logStats()
+  {
+    final long acquired = mStats.mConnectionsAcquired.get();
+    final long opened = mStats.mConnectionsOpened.get();
+    Logger.i(TAG, "Calls: " + mStats.mCalls.get() + ", cache hits: " + mStats.mCacheHits.get() +
+                  ", connections acquired: " + acquired + ", opened: " + opened +
+                  ", reused: " + Math.max(0, acquired - opened) +
+                  ", idle in pool: " + mClient.connectionPool().idleConnectionCount());
+  }
+
+  /**
+   * Counts calls and connections to see how well the connection pool is used.
+   * Connections which were acquired but not opened by a call were reused.
+   */
+  private static final class Stats extends EventListener
+  {
+    private final AtomicLong mCalls = new AtomicLong();
+    private final AtomicLong mCacheHits = new AtomicLong();
+    private final AtomicLong mConnectionsOpened = new AtomicLong();
+    private final AtomicLong mConnectionsAcquired = new AtomicLong();
+
+    @Override
+    public void callStart(@NonNull Call call)
+    {
+      mCalls.incrementAndGet();
+    }
+
+    @Override
+    public void cacheHit(@NonNull Call call, @NonNull Response response)
+    {
+      mCacheHits.incrementAndGet();
+    }
+
+    @Override
+    public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                             @NonNull Proxy proxy)
+    {
+      mConnectionsOpened.incrementAndGet();
+    }
+
+    @Override
+    public void connectionAcquired(@NonNull Call call, @NonNull Connection connection)
+    {
+      mConnectionsAcquired.incrementAndGet();
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package app.organicmaps.util.concurrency;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producer threads and a single consumer thread.
+ * <p>
+ * Every slot has a sequence number which tells whether the slot is free for the producer
+ * of a given position or holds an element for the consumer, so producers only compete for
+ * the position with a CAS and never wait for each other or for the consumer.
+ */
+public final class MpscRingBuffer<E>
+{
+  private final int mMask;
+  private final AtomicReferenceArray<E> mElements;
+  private final AtomicLongArray mSequences;
+  private final AtomicLong mTail = new AtomicLong();
+  // Written only by the consumer.
+  private volatile long mHead;
+
+  /**
+   * @param capacity is rounded up to a power of two.
+   */
+  public MpscRingBuffer(int capacity)
+  {
+    final int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+    mMask = size - 1;
+    mElements = new AtomicReferenceArray<>(size);
+    mSequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++)
+      mSequences.set(i, i);
+  }
+
+  public int capacity()
+  {
+    return mMask + 1;
+  }
+
+  /**
+   * Can be called from any thread.
+   *
+   * @return false if the buffer is full.
+   */
+  public boolean offer(@NonNull E element)
+  {
+    long pos = mTail.get();
+    while (true)
+    {
+      final int index = (int) (pos & mMask);
+      final long diff = mSequences.get(index) - pos;
+      if (diff == 0)
+      {
+        if (mTail.compareAndSet(pos, pos + 1))
+        {
+          mElements.lazySet(index, element);
+          // Publishes the element to the consumer.
+          mSequences.lazySet(index, pos + 1);
+          return true;
+        }
+        pos = mTail.get();
+      }
+      else if (diff < 0)
+      {
+        // The slot still holds the element of the previous lap.
+        return false;
+      }
+      else
+      {
+        pos = mTail.get();
+      }
+    }
+  }
+
+  /**
+   * Must be called from the consumer thread only.
+   *
+   * @return null if the buffer is empty.
+   */
+  @Nullable
+  public E poll()
+  {
+    final long head = mHead;
+    final int index = (int) (head & mMask);
+    if (mSequences.get(index) != head + 1)
+      return null;
+
+    final E element = mElements.get(index);
+    mElements.lazySet(index, null);
+    // Frees the slot for the producer of the next lap.
+    mSequences.lazySet(index, head + mMask + 1);
+    mHead = head + 1;
+    return element;
+  }
+
+  /**
+   * @return the approximate number of elements, can be called from any thread.
+   */
+  public int size()
+  {
+    return (int) Math.max(0, Math.min(mTail.get() - mHead, mMask + 1));
+  }
+}
@@ -11,6 +11,7 @@ public class ThreadPool
 
   private final ThreadPoolExecutor mStorage;
   private final ThreadPoolExecutor mWorker;
+  private final ThreadPoolExecutor mNetwork;
 
 
   private static ThreadPoolExecutor create(int poolSize, int allowedTime)
@@ -25,6 +26,7 @@ public class ThreadPool
   {
     mStorage = create(1, 500);
     mWorker = create(1, 250);
+    mNetwork = create(1, 250);
   }
 
   /**
@@ -42,4 +44,12 @@ public class ThreadPool
   {
     return sInstance.mWorker;
   }
+
+  /**
+   * Returns single thread for blocking network calls, so they don't hold the worker thread.
+   */
+  public static ExecutorService getNetwork()
+  {
+    return sInstance.mNetwork;
+  }
 }
@@ -0,0 +1,228 @@
+package app.organicmaps.util.log;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Turns a log written by {@link BinaryLogFile} into the text format of app.log.
+ * <p>
+ * Depends on nothing but the JDK, so it can be run on a desktop without building the app:
+ * <pre>
+ * java android/app/src/main/java/app/organicmaps/util/log/BinaryLogDecoder.java app.binlog [app.txt]
+ * </pre>
+ * Times are printed in the time zone of the machine it's run on. Lines logged before the oldest
+ * session start left in the ring use that session for their time, which is wrong if the device
+ * was rebooted in between.
+ */
+public final class BinaryLogDecoder
+{
+  // Keep in sync with BinaryLogFile.
+  private static final int MAGIC = 0x4F4D424C;
+  private static final int VERSION = 1;
+  private static final int OFFSET_STRINGS_SIZE = 12;
+  private static final int OFFSET_RING_SIZE = 16;
+  private static final int OFFSET_STRING_COUNT = 20;
+  private static final int OFFSET_HEAD = 28;
+  private static final int OFFSET_COUNT = 36;
+  private static final int OFFSET_SESSION_WALL = 40;
+  private static final int OFFSET_SESSION_ELAPSED = 48;
+  private static final int HEADER_SIZE = 64;
+  private static final byte RECORD_LINE = 1;
+  private static final byte RECORD_SESSION = 2;
+  // Indexed by android.util.Log levels.
+  private static final String LEVELS = "??VDIWEA";
+
+  private final ByteBuffer mBuffer;
+  private final List<String> mStrings = new ArrayList<>();
+  private final int mRingStart;
+  private final int mRingSize;
+  private final DateFormat mLineFormat = new SimpleDateFormat("MM-dd HH:mm:ss.SSS", Locale.US);
+  private final DateFormat mSessionFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS Z", Locale.US);
+  private long mSessionWall;
+  private long mSessionElapsed;
+
+  private BinaryLogDecoder(ByteBuffer buffer) throws IOException
+  {
+    mBuffer = buffer;
+    if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+      throw new IOException("Not a binary log");
+    if (buffer.getInt(4) != VERSION)
+      throw new IOException("Unsupported binary log version " + buffer.getInt(4));
+
+    final int stringsSize = buffer.getInt(OFFSET_STRINGS_SIZE);
+    mRingStart = HEADER_SIZE + stringsSize;
+    mRingSize = buffer.getInt(OFFSET_RING_SIZE);
+    if (stringsSize < 0 || mRingSize < 0 || mRingStart + mRingSize > buffer.capacity())
+      throw new IOException("Corrupted binary log header");
+
+    final int count = buffer.getInt(OFFSET_STRING_COUNT);
+    final ByteBuffer strings = slice(HEADER_SIZE, stringsSize);
+    for (int i = 0; i < count; i++)
+    {
+      final int length = strings.getShort() & 0xFFFF;
+      mStrings.add(getString(strings, length));
+    }
+    mSessionWall = buffer.getLong(OFFSET_SESSION_WALL);
+    mSessionElapsed = buffer.getLong(OFFSET_SESSION_ELAPSED);
+  }
+
+  /**
+   * Writes the lines of the log to the output, from the oldest to the newest.
+   */
+  public static void decode(ByteBuffer log, Appendable out) throws IOException
+  {
+    new BinaryLogDecoder(log).decode(out);
+  }
+
+  private void decode(Appendable out) throws IOException
+  {
+    final int head = mBuffer.getInt(OFFSET_HEAD);
+    final int count = mBuffer.getInt(OFFSET_COUNT);
+
+    // The session start of the oldest lines may have been overwritten already,
+    // take the oldest one left instead of the newest one from the header.
+    boolean hasSession = false;
+    int pos = head;
+    for (int i = 0; i < count && !hasSession; i++)
+    {
+      final ByteBuffer record = nextRecord(pos);
+      pos = record.limit() - mRingStart;
+      if (record.get() == RECORD_SESSION)
+      {
+        mSessionWall = getVarLong(record);
+        mSessionElapsed = getVarLong(record);
+        hasSession = true;
+      }
+    }
+
+    final StringBuilder sb = new StringBuilder(256);
+    pos = head;
+    for (int i = 0; i < count; i++)
+    {
+      final ByteBuffer record = nextRecord(pos);
+      pos = record.limit() - mRingStart;
+      sb.setLength(0);
+      final byte type = record.get();
+      if (type == RECORD_LINE)
+        appendLine(record, sb);
+      else if (type == RECORD_SESSION)
+        appendSession(record, sb);
+      else
+        sb.append("Unknown record type ").append(type).append('\n');
+      out.append(sb);
+    }
+  }
+
+  /**
+   * @return the record at the ring position, its limit is the end of the record in the buffer.
+   */
+  private ByteBuffer nextRecord(int pos) throws IOException
+  {
+    if (pos < mRingSize)
+    {
+      final ByteBuffer length = slice(mRingStart + pos, Math.min(5, mRingSize - pos));
+      final int size = (int) getVarLong(length);
+      if (size > 0)
+      {
+        final int start = length.position() - mRingStart;
+        if (start + size > mRingSize)
+          throw new IOException("Corrupted record at " + pos);
+        return slice(mRingStart + start, size);
+      }
+    }
+    // The rest of the ring is unused, the next record is at its beginning.
+    if (pos == 0)
+      throw new IOException("Empty record at the beginning of the ring");
+    return nextRecord(0);
+  }
+
+  private void appendLine(ByteBuffer record, StringBuilder sb)
+  {
+    final int level = record.get();
+    final String tag = getRef(record);
+    final String thread = getRef(record);
+    final long elapsed = getVarLong(record);
+    final String message = getString(record, (int) getVarLong(record));
+
+    sb.append(mLineFormat.format(new Date(mSessionWall + elapsed - mSessionElapsed)))
+      .append(" (").append(thread).append(") ")
+      .append(level >= 0 && level < LEVELS.length() ? LEVELS.charAt(level) : '?')
+      .append('/').append(tag).append(": ").append(message).append('\n');
+  }
+
+  private void appendSession(ByteBuffer record, StringBuilder sb)
+  {
+    mSessionWall = getVarLong(record);
+    mSessionElapsed = getVarLong(record);
+    sb.append("--- Logging started at ").append(mSessionFormat.format(new Date(mSessionWall)))
+      .append(" ---\n");
+  }
+
+  private String getRef(ByteBuffer record)
+  {
+    final int id = (int) getVarLong(record);
+    if (id == 0)
+      return getString(record, (int) getVarLong(record));
+    return id <= mStrings.size() ? mStrings.get(id - 1) : "#" + id;
+  }
+
+  private static String getString(ByteBuffer buffer, int length)
+  {
+    final byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static long getVarLong(ByteBuffer buffer)
+  {
+    long value = 0;
+    for (int shift = 0; ; shift += 7)
+    {
+      final byte next = buffer.get();
+      value |= (long) (next & 0x7F) << shift;
+      if ((next & 0x80) == 0)
+        return value;
+    }
+  }
+
+  private ByteBuffer slice(int offset, int length)
+  {
+    final ByteBuffer b = mBuffer.duplicate();
+    b.limit(offset + length).position(offset);
+    return b;
+  }
+
+  public static void main(String[] args) throws IOException
+  {
+    if (args.length < 1 || args.length > 2)
+    {
+      System.err.println("Usage: BinaryLogDecoder <app.binlog> [<output.txt>]");
+      System.exit(1);
+    }
+
+    final ByteBuffer log;
+    try (RandomAccessFile file = new RandomAccessFile(args[0], "r"))
+    {
+      log = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+    }
+
+    try (Writer out = new OutputStreamWriter(args.length == 2 ? new FileOutputStream(args[1])
+                                                              : System.out,
+                                             StandardCharsets.UTF_8))
+    {
+      decode(log, out);
+    }
+  }
+}
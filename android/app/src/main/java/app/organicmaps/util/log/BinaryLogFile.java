@@ -0,0 +1,360 @@
+package app.organicmaps.util.log;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact log file of a fixed size, written through a memory-mapped ring buffer.
+ * <p>
+ * Tags and thread names are interned into a table at the beginning of the file, so a line costs
+ * a few bytes plus the message. When the ring is full, the oldest lines are overwritten.
+ * The data is in the page cache as soon as it's put into the buffer, so nothing is lost if
+ * the process dies. Use {@link BinaryLogDecoder} to turn the file into text.
+ * <p>
+ * File layout (big-endian):
+ * <pre>
+ * header:  magic, version, file size, string table size, ring size,
+ *          string count, string table used bytes,
+ *          ring head (oldest record), ring tail (write position), record count,
+ *          wall clock and elapsed time of the last session start (both in ms)
+ * strings: (u16 length, UTF-8 bytes)*, ids start from 1
+ * ring:    (varint length, record)*, a zero length means the rest of the ring is unused
+ * </pre>
+ * Records are a line: type, level, tag ref, thread ref, varint elapsed ms, varint length, message;
+ * or a session start: type, varint wall clock ms, varint elapsed ms.
+ * A ref is a varint string id or 0 followed by an inline string if the string table is full.
+ *
+ * Not thread-safe, used on the logger thread only.
+ */
+final class BinaryLogFile
+{
+  static final String FILENAME = "app.binlog";
+
+  static final int MAGIC = 0x4F4D424C; // "OMBL"
+  static final int VERSION = 1;
+
+  static final int OFFSET_FILE_SIZE = 8;
+  static final int OFFSET_STRINGS_SIZE = 12;
+  static final int OFFSET_RING_SIZE = 16;
+  static final int OFFSET_STRING_COUNT = 20;
+  static final int OFFSET_STRINGS_USED = 24;
+  static final int OFFSET_HEAD = 28;
+  static final int OFFSET_TAIL = 32;
+  static final int OFFSET_COUNT = 36;
+  static final int OFFSET_SESSION_WALL = 40;
+  static final int OFFSET_SESSION_ELAPSED = 48;
+  static final int HEADER_SIZE = 64;
+
+  static final byte RECORD_LINE = 1;
+  static final byte RECORD_SESSION = 2;
+
+  static final int DEFAULT_FILE_SIZE = 4 * 1024 * 1024;
+  static final int DEFAULT_STRINGS_SIZE = 64 * 1024;
+  private static final int MAX_STRING_BYTES = 256;
+  private static final int MAX_MESSAGE_BYTES = 16 * 1024;
+
+  @NonNull
+  private final RandomAccessFile mFile;
+  @NonNull
+  private final MappedByteBuffer mBuffer;
+  private final int mStringsSize;
+  private final int mRingSize;
+  private final Map<String, Integer> mIds = new HashMap<>();
+  private int mStringsUsed;
+  private int mHead;
+  private int mTail;
+  private int mCount;
+  private final ByteBuffer mRecord = ByteBuffer.allocate(MAX_MESSAGE_BYTES + 2 * MAX_STRING_BYTES + 32);
+
+  private BinaryLogFile(@NonNull RandomAccessFile file, @NonNull MappedByteBuffer buffer, int stringsSize)
+  {
+    mFile = file;
+    mBuffer = buffer;
+    mStringsSize = stringsSize;
+    mRingSize = buffer.capacity() - HEADER_SIZE - stringsSize;
+  }
+
+  /**
+   * Opens the file and continues writing after its last record. A missing file or a file
+   * of another format or size is created anew.
+   */
+  @NonNull
+  static BinaryLogFile open(@NonNull File file, int fileSize, int stringsSize) throws IOException
+  {
+    if (fileSize <= HEADER_SIZE + stringsSize + MAX_MESSAGE_BYTES * 4)
+      throw new IllegalArgumentException("The file size " + fileSize + " is too small");
+
+    final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try
+    {
+      final boolean fresh = raf.length() != fileSize;
+      raf.setLength(fileSize);
+      final MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+      final BinaryLogFile log = new BinaryLogFile(raf, buffer, stringsSize);
+      if (fresh || !log.load())
+        log.reset();
+      return log;
+    }
+    catch (IOException | RuntimeException e)
+    {
+      raf.close();
+      throw e;
+    }
+  }
+
+  void close() throws IOException
+  {
+    // The mapping itself is released by GC, the data is already in the page cache.
+    mFile.close();
+  }
+
+  /**
+   * Marks the start of a logging session, the decoder converts the elapsed time of the following
+   * lines into wall clock time using it.
+   */
+  void startSession(long wallTime, long elapsedTime)
+  {
+    mBuffer.putLong(OFFSET_SESSION_WALL, wallTime);
+    mBuffer.putLong(OFFSET_SESSION_ELAPSED, elapsedTime);
+
+    final ByteBuffer r = mRecord;
+    r.clear();
+    r.put(RECORD_SESSION);
+    putVarLong(r, wallTime);
+    putVarLong(r, elapsedTime);
+    appendRecord();
+  }
+
+  void appendLine(int level, @NonNull String tag, @NonNull String thread, long elapsedTime,
+                  @NonNull CharSequence message)
+  {
+    final ByteBuffer r = mRecord;
+    r.clear();
+    r.put(RECORD_LINE);
+    r.put((byte) level);
+    putRef(r, tag);
+    putRef(r, thread);
+    putVarLong(r, elapsedTime);
+    final byte[] bytes = message.toString().getBytes(StandardCharsets.UTF_8);
+    putString(r, bytes, MAX_MESSAGE_BYTES);
+    appendRecord();
+  }
+
+  private boolean load()
+  {
+    final ByteBuffer b = mBuffer;
+    if (b.getInt(0) != MAGIC || b.getInt(4) != VERSION || b.getInt(OFFSET_FILE_SIZE) != b.capacity()
+        || b.getInt(OFFSET_STRINGS_SIZE) != mStringsSize || b.getInt(OFFSET_RING_SIZE) != mRingSize)
+      return false;
+
+    mStringsUsed = b.getInt(OFFSET_STRINGS_USED);
+    mHead = b.getInt(OFFSET_HEAD);
+    mTail = b.getInt(OFFSET_TAIL);
+    mCount = b.getInt(OFFSET_COUNT);
+    if (mStringsUsed < 0 || mStringsUsed > mStringsSize || mHead < 0 || mHead > mRingSize
+        || mTail < 0 || mTail > mRingSize || mCount < 0)
+      return false;
+
+    final int count = b.getInt(OFFSET_STRING_COUNT);
+    int pos = HEADER_SIZE;
+    final int end = HEADER_SIZE + mStringsUsed;
+    for (int id = 1; id <= count; id++)
+    {
+      if (pos + 2 > end)
+        return false;
+      final int length = b.getShort(pos) & 0xFFFF;
+      pos += 2;
+      if (pos + length > end)
+        return false;
+      final byte[] bytes = new byte[length];
+      for (int i = 0; i < length; i++)
+        bytes[i] = b.get(pos + i);
+      pos += length;
+      mIds.put(new String(bytes, StandardCharsets.UTF_8), id);
+    }
+    return true;
+  }
+
+  private void reset()
+  {
+    final ByteBuffer b = mBuffer;
+    mIds.clear();
+    mStringsUsed = 0;
+    mHead = 0;
+    mTail = 0;
+    mCount = 0;
+    // The magic is written last, so a half-initialized file is never taken as a valid one.
+    b.putInt(0, 0);
+    b.putInt(4, VERSION);
+    b.putInt(OFFSET_FILE_SIZE, b.capacity());
+    b.putInt(OFFSET_STRINGS_SIZE, mStringsSize);
+    b.putInt(OFFSET_RING_SIZE, mRingSize);
+    b.putInt(OFFSET_STRING_COUNT, 0);
+    b.putInt(OFFSET_STRINGS_USED, 0);
+    b.putLong(OFFSET_SESSION_WALL, 0);
+    b.putLong(OFFSET_SESSION_ELAPSED, 0);
+    saveRing();
+    b.putInt(0, MAGIC);
+  }
+
+  private void saveRing()
+  {
+    mBuffer.putInt(OFFSET_HEAD, mHead);
+    mBuffer.putInt(OFFSET_TAIL, mTail);
+    mBuffer.putInt(OFFSET_COUNT, mCount);
+  }
+
+  /**
+   * @return the id of the string, 0 if the string table is full.
+   */
+  private int intern(@NonNull String s)
+  {
+    final Integer id = mIds.get(s);
+    if (id != null)
+      return id;
+
+    final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > MAX_STRING_BYTES || mStringsUsed + 2 + bytes.length > mStringsSize)
+      return 0;
+
+    int pos = HEADER_SIZE + mStringsUsed;
+    mBuffer.putShort(pos, (short) bytes.length);
+    pos += 2;
+    for (byte value : bytes)
+      mBuffer.put(pos++, value);
+    mStringsUsed += 2 + bytes.length;
+
+    final int newId = mIds.size() + 1;
+    mIds.put(s, newId);
+    // The string is published after its bytes are written.
+    mBuffer.putInt(OFFSET_STRINGS_USED, mStringsUsed);
+    mBuffer.putInt(OFFSET_STRING_COUNT, newId);
+    return newId;
+  }
+
+  private void putRef(@NonNull ByteBuffer r, @NonNull String s)
+  {
+    final int id = intern(s);
+    putVarLong(r, id);
+    if (id == 0)
+      putString(r, s.getBytes(StandardCharsets.UTF_8), MAX_STRING_BYTES);
+  }
+
+  private static void putString(@NonNull ByteBuffer r, @NonNull byte[] bytes, int maxLength)
+  {
+    // Truncation may cut a UTF-8 sequence, the decoder replaces it.
+    final int length = Math.min(bytes.length, maxLength);
+    putVarLong(r, length);
+    r.put(bytes, 0, length);
+  }
+
+  private static void putVarLong(@NonNull ByteBuffer b, long value)
+  {
+    while ((value & ~0x7FL) != 0)
+    {
+      b.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    b.put((byte) value);
+  }
+
+  private static int varIntSize(int value)
+  {
+    int size = 1;
+    while ((value & ~0x7F) != 0)
+    {
+      value >>>= 7;
+      size++;
+    }
+    return size;
+  }
+
+  private void appendRecord()
+  {
+    final ByteBuffer r = mRecord;
+    r.flip();
+    final int length = r.remaining();
+    final int size = varIntSize(length) + length;
+    reserve(size);
+
+    final ByteBuffer b = mBuffer;
+    int pos = HEADER_SIZE + mStringsSize + mTail;
+    int value = length;
+    while ((value & ~0x7F) != 0)
+    {
+      b.put(pos++, (byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    b.put(pos++, (byte) value);
+    for (int i = 0; i < length; i++)
+      b.put(pos++, r.get(i));
+
+    // The record is published after its bytes are written.
+    mTail += size;
+    mCount++;
+    saveRing();
+  }
+
+  /**
+   * Makes room for a record of the size at the tail, evicting the oldest records if needed.
+   */
+  private void reserve(int size)
+  {
+    while (true)
+    {
+      if (mCount == 0)
+        mHead = mTail = 0;
+
+      // Not wrapped: the records are in [head, tail), otherwise in [head, end of the ring) and [0, tail).
+      if (mCount == 0 || mHead < mTail)
+      {
+        if (mTail + size <= mRingSize)
+          return;
+        // Records never cross the end of the ring.
+        if (mTail < mRingSize)
+          mBuffer.put(HEADER_SIZE + mStringsSize + mTail, (byte) 0);
+        mTail = 0;
+        continue;
+      }
+
+      if (mHead >= mTail + size)
+        return;
+      mHead = nextRecord(mHead);
+      // Evicted first, so the decoder never reads a record being overwritten.
+      saveRing();
+    }
+  }
+
+  private int nextRecord(int pos)
+  {
+    final int length = pos < mRingSize ? readVarInt(pos) : 0;
+    if (length == 0)
+      return 0;
+    mCount--;
+    return pos + varIntSize(length) + length;
+  }
+
+  private int readVarInt(int pos)
+  {
+    final ByteBuffer b = mBuffer;
+    final int base = HEADER_SIZE + mStringsSize;
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7)
+    {
+      final byte next = b.get(base + pos++);
+      value |= (next & 0x7F) << shift;
+      if ((next & 0x80) == 0)
+        break;
+    }
+    return value;
+  }
+}
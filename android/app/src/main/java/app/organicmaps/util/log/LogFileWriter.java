@@ -0,0 +1,388 @@
+package app.organicmaps.util.log;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import app.organicmaps.util.concurrency.MpscRingBuffer;
+import net.jcip.annotations.ThreadSafe;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes log lines to the logs folder on a dedicated thread.
+ * <p>
+ * The calling thread only puts a line into a lock-free ring buffer. The logger thread keeps
+ * the log file open, writes the lines in batches, flushes the file once per
+ * {@link #FLUSH_INTERVAL_MS} (right away for errors) and rotates it by size. Lines are dropped
+ * if the buffer is full, the number of the dropped lines is written to the file.
+ * <p>
+ * In the compact mode the lines are written to a {@link BinaryLogFile} instead, which is cheap
+ * enough to keep logging on for hours.
+ *
+ * Only Android's system logger is used here to avoid an infinite loop.
+ */
+@ThreadSafe
+final class LogFileWriter
+{
+  private static final String TAG = LogFileWriter.class.getSimpleName();
+
+  static final LogFileWriter INSTANCE = new LogFileWriter();
+
+  static final String FILENAME = "app.log";
+  private static final int MAX_FILE_SIZE = 3000000;
+  // app.log, app.log.1, ..., app.log.<MAX_FILES - 1>
+  private static final int MAX_FILES = 3;
+  private static final int CAPACITY = 4096;
+  private static final long FLUSH_INTERVAL_MS = 1000;
+  private static final int BUFFER_SIZE = 16 * 1024;
+
+  private static final class Line
+  {
+    final int mLevel;
+    final long mTime;
+    final long mElapsedTime;
+    @NonNull
+    final String mThread;
+    @NonNull
+    final String mFolder;
+    @NonNull
+    final String mTag;
+    @Nullable
+    final String mSourcePoint;
+    // Resolved into the source point on the logger thread, see SourcePoint.
+    @Nullable
+    final Throwable mCallSite;
+    @NonNull
+    final String mText;
+
+    Line(int level, long time, long elapsedTime, @NonNull String thread, @NonNull String folder,
+         @NonNull String tag, @Nullable String sourcePoint, @Nullable Throwable callSite, @NonNull String text)
+    {
+      mLevel = level;
+      mTime = time;
+      mElapsedTime = elapsedTime;
+      mThread = thread;
+      mFolder = folder;
+      mTag = tag;
+      mSourcePoint = sourcePoint;
+      mCallSite = callSite;
+      mText = text;
+    }
+  }
+
+  private final MpscRingBuffer<Line> mLines = new MpscRingBuffer<>(CAPACITY);
+  private final ConcurrentLinkedQueue<Runnable> mTasks = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger mDroppedLines = new AtomicInteger();
+  @NonNull
+  private final Thread mThread;
+
+  // Used on the logger thread only.
+  @Nullable
+  private Writer mWriter;
+  @Nullable
+  private BinaryLogFile mBinaryLog;
+  private boolean mCompact;
+  @Nullable
+  private String mFolder;
+  private long mFileSize;
+  private boolean mDirty;
+  private long mLastFlushTime;
+  private final StringBuilder mBuilder = new StringBuilder(256);
+  private final StringBuilder mText = new StringBuilder(256);
+  private final DateFormat mDateFormat = new SimpleDateFormat("MM-dd HH:mm:ss", Locale.US);
+  private long mFormattedSecond = -1;
+  @NonNull
+  private String mFormattedDate = "";
+
+  private LogFileWriter()
+  {
+    mThread = new Thread(this::run, "Logger");
+    mThread.setDaemon(true);
+    mThread.setPriority(Thread.MIN_PRIORITY);
+    mThread.start();
+  }
+
+  /**
+   * Can be called from any thread, doesn't block.
+   *
+   * @param callSite stack of the log call if its source point is not known yet.
+   */
+  void write(int level, @NonNull String folder, @NonNull String tag, @Nullable String sourcePoint,
+             @Nullable Throwable callSite, @NonNull String text)
+  {
+    final Line line = new Line(level, System.currentTimeMillis(), SystemClock.elapsedRealtime(),
+                               Thread.currentThread().getName(), folder, tag, sourcePoint, callSite, text);
+    if (!mLines.offer(line))
+    {
+      mDroppedLines.incrementAndGet();
+      LockSupport.unpark(mThread);
+    }
+    else if (level >= Log.ERROR || mLines.size() > CAPACITY / 2)
+    {
+      LockSupport.unpark(mThread);
+    }
+  }
+
+  /**
+   * Runs the task on the logger thread after the lines logged before are written and flushed.
+   */
+  void execute(@NonNull Runnable task)
+  {
+    mTasks.add(task);
+    LockSupport.unpark(mThread);
+  }
+
+  /**
+   * Switches between app.log and the compact binary log for the lines logged after this call.
+   */
+  void setCompact(boolean compact)
+  {
+    execute(() -> {
+      if (mCompact == compact)
+        return;
+      mCompact = compact;
+      closeFile();
+    });
+  }
+
+  /**
+   * Closes the log file after the lines logged before are written.
+   */
+  void close()
+  {
+    execute(this::closeFile);
+  }
+
+  private void run()
+  {
+    while (true)
+    {
+      boolean flush = false;
+      Line line;
+      while ((line = mLines.poll()) != null)
+      {
+        append(line);
+        flush |= line.mLevel >= Log.ERROR;
+      }
+
+      final int dropped = mDroppedLines.getAndSet(0);
+      if (dropped > 0)
+        appendDropped(dropped);
+
+      final boolean hasTasks = !mTasks.isEmpty();
+      final long now = System.currentTimeMillis();
+      if (mDirty && (flush || hasTasks || now - mLastFlushTime >= FLUSH_INTERVAL_MS))
+        flushFile(now);
+
+      if (hasTasks)
+      {
+        Runnable task;
+        while ((task = mTasks.poll()) != null)
+          task.run();
+        continue;
+      }
+
+      if (mLines.size() == 0)
+        LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MS));
+    }
+  }
+
+  private void append(@NonNull Line line)
+  {
+    if (!line.mFolder.equals(mFolder))
+      openFile(line.mFolder);
+    else if (mWriter != null && mFileSize > MAX_FILE_SIZE)
+      rotateFile();
+
+    if (mWriter == null && mBinaryLog == null)
+      return;
+
+    final StringBuilder sb = mText;
+    sb.setLength(0);
+    // The binary log keeps the level and the tag separately.
+    if (mBinaryLog == null)
+      sb.append(Logger.getLevelChar(line.mLevel)).append('/').append(line.mTag).append(": ");
+    if (line.mSourcePoint != null)
+      sb.append(line.mSourcePoint).append(": ");
+    else if (line.mCallSite != null)
+      sb.append(SourcePoint.format(line.mCallSite, Logger.CALL_STACK_INDEX)).append(": ");
+    sb.append(line.mText);
+    if (mBinaryLog != null)
+      mBinaryLog.appendLine(line.mLevel, line.mTag, line.mThread, line.mElapsedTime, sb);
+    else
+      appendText(line.mTime, line.mThread, sb);
+  }
+
+  private void appendDropped(int dropped)
+  {
+    final String text = dropped + " log lines were dropped";
+    if (mBinaryLog != null)
+      mBinaryLog.appendLine(Log.WARN, TAG, mThread.getName(), SystemClock.elapsedRealtime(), text);
+    else if (mWriter != null)
+      appendText(System.currentTimeMillis(), mThread.getName(), text);
+  }
+
+  private void appendText(long time, @NonNull String thread, @NonNull CharSequence text)
+  {
+    final long second = time / 1000;
+    if (second != mFormattedSecond)
+    {
+      mFormattedSecond = second;
+      mFormattedDate = mDateFormat.format(new Date(time));
+    }
+
+    final StringBuilder sb = mBuilder;
+    sb.setLength(0);
+    sb.append(mFormattedDate).append('.');
+    final long millis = time % 1000;
+    if (millis < 100)
+      sb.append('0');
+    if (millis < 10)
+      sb.append('0');
+    sb.append(millis).append(" (").append(thread).append(") ").append(text).append('\n');
+
+    try
+    {
+      mWriter.append(sb);
+      // Counted in chars, it's close enough for the rotation.
+      mFileSize += sb.length();
+      mDirty = true;
+    }
+    catch (IOException e)
+    {
+      Log.e(TAG, "Failed to write to " + mFolder, e);
+      closeFile();
+    }
+  }
+
+  private void openFile(@NonNull String folder)
+  {
+    closeFile();
+    mFolder = folder;
+    if (mCompact)
+    {
+      openBinaryFile(folder);
+      return;
+    }
+
+    final File file = new File(folder, FILENAME);
+    try
+    {
+      final boolean exists = file.exists();
+      mWriter = new BufferedWriter(new FileWriter(file, exists), BUFFER_SIZE);
+      mFileSize = exists ? file.length() : 0;
+      if (!exists)
+        writeHeader();
+    }
+    catch (IOException e)
+    {
+      Log.e(TAG, "Failed to open " + file, e);
+      mWriter = null;
+    }
+  }
+
+  private void openBinaryFile(@NonNull String folder)
+  {
+    final File file = new File(folder, BinaryLogFile.FILENAME);
+    try
+    {
+      mBinaryLog = BinaryLogFile.open(file, BinaryLogFile.DEFAULT_FILE_SIZE, BinaryLogFile.DEFAULT_STRINGS_SIZE);
+      final long elapsedTime = SystemClock.elapsedRealtime();
+      mBinaryLog.startSession(System.currentTimeMillis(), elapsedTime);
+      mBinaryLog.appendLine(Log.INFO, TAG, mThread.getName(), elapsedTime,
+                            LogsManager.INSTANCE.getSystemInformation());
+    }
+    catch (IOException e)
+    {
+      Log.e(TAG, "Failed to open " + file, e);
+      mBinaryLog = null;
+    }
+  }
+
+  private void rotateFile()
+  {
+    final String folder = mFolder;
+    closeFile();
+
+    final File last = new File(folder, FILENAME + '.' + (MAX_FILES - 1));
+    if (last.exists() && !last.delete())
+      Log.e(TAG, "Failed to delete " + last);
+    for (int i = MAX_FILES - 2; i >= 0; i--)
+    {
+      final File from = new File(folder, i == 0 ? FILENAME : FILENAME + '.' + i);
+      if (from.exists() && !from.renameTo(new File(folder, FILENAME + '.' + (i + 1))))
+        Log.e(TAG, "Failed to rename " + from);
+    }
+
+    openFile(folder);
+  }
+
+  private void writeHeader() throws IOException
+  {
+    final String header = LogsManager.INSTANCE.getSystemInformation();
+    mWriter.write(header);
+    mFileSize += header.length();
+    mDirty = true;
+  }
+
+  private void flushFile(long now)
+  {
+    mLastFlushTime = now;
+    mDirty = false;
+    if (mWriter == null)
+      return;
+    try
+    {
+      mWriter.flush();
+    }
+    catch (IOException e)
+    {
+      Log.e(TAG, "Failed to flush " + mFolder, e);
+      closeFile();
+    }
+  }
+
+  private void closeFile()
+  {
+    mDirty = false;
+    mFolder = null;
+    if (mBinaryLog != null)
+    {
+      try
+      {
+        mBinaryLog.close();
+      }
+      catch (IOException e)
+      {
+        Log.e(TAG, "Failed to close " + BinaryLogFile.FILENAME, e);
+      }
+      mBinaryLog = null;
+    }
+    if (mWriter == null)
+      return;
+    try
+    {
+      mWriter.close();
+    }
+    catch (IOException e)
+    {
+      Log.e(TAG, "Failed to close " + FILENAME, e);
+    }
+    mWriter = null;
+  }
+}
@@ -26,8 +26,6 @@ import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * By default uses Android's system logger.
@@ -41,14 +39,13 @@ public final class LogsManager
 {
   public interface OnZipCompletedListener
   {
-    // Called from the logger thread.
+    // Called from the logger thread, see LogFileWriter.
     public void onCompleted(final boolean success, @Nullable final String zipPath);
   }
 
   private final static String TAG = LogsManager.class.getSimpleName();
 
   public final static LogsManager INSTANCE = new LogsManager();
-  final static ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
 
   @Nullable
   private Application mApplication;
@@ -70,6 +67,7 @@ public final class LogsManager
     mIsFileLoggingEnabled = prefs.getBoolean(mApplication.getString(R.string.pref_enable_logging), false);
     Log.i(TAG, "isFileLoggingEnabled preference: " + mIsFileLoggingEnabled);
     mIsFileLoggingEnabled = mIsFileLoggingEnabled && ensureLogsFolder() != null;
+    LogFileWriter.INSTANCE.setCompact(prefs.getBoolean(mApplication.getString(R.string.pref_compact_logging), false));
 
     // Set native logging level, save into shared preferences.
     switchFileLoggingEnabled(mIsFileLoggingEnabled);
@@ -162,6 +160,8 @@ public final class LogsManager
   private void switchFileLoggingEnabled(boolean enabled)
   {
     mIsFileLoggingEnabled = enabled;
+    if (!enabled)
+      LogFileWriter.INSTANCE.close();
     // Only Debug builds log DEBUG level to Android system log.
     nativeToggleCoreDebugLogs(enabled || BuildConfig.DEBUG);
     MwmApplication.prefs(mApplication)
@@ -200,6 +200,16 @@ public final class LogsManager
     return true;
   }
 
+  /**
+   * Switches file logging to the binary format, see BinaryLogDecoder to read it.
+   * The preference itself is saved by the settings screen.
+   */
+  public void setCompactLoggingEnabled(boolean enabled)
+  {
+    Log.i(TAG, "Switching compact logging to " + enabled);
+    LogFileWriter.INSTANCE.setCompact(enabled);
+  }
+
   /**
    * NOTE: initFileLogging() must be called before.
    */
@@ -216,7 +226,7 @@ public final class LogsManager
 
     Log.i(TAG, "Zipping log files in " + mLogsFolder);
     final Runnable task = new ZipLogsTask(mLogsFolder, mLogsFolder + ".zip", listener);
-    EXECUTOR.execute(task);
+    LogFileWriter.INSTANCE.execute(task);
   }
 
   /**
@@ -0,0 +1,41 @@
+package app.organicmaps.util.log;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Source point ("File.java:42 method()") of a log call.
+ * <p>
+ * Capturing the call stack with {@code new Throwable()} is cheap, while {@link Throwable#getStackTrace()}
+ * creates an element for every frame of the stack and is the most expensive part of logging.
+ * So the logging thread only captures the stack, and the frame is resolved later on the logger
+ * thread when the source point is needed for the log file only.
+ */
+final class SourcePoint
+{
+  private SourcePoint() {}
+
+  /**
+   * @param depth index of the frame of the log call in the stack of the callSite,
+   *              i.e. the number of the logging methods between the call and the capture.
+   */
+  @NonNull
+  static String format(@NonNull Throwable callSite, int depth)
+  {
+    final StackTraceElement[] stackTrace = callSite.getStackTrace();
+    assert stackTrace.length > depth : "Synthetic stacktrace doesn't have enough elements";
+
+    final StackTraceElement st = stackTrace[depth];
+    final StringBuilder sb = new StringBuilder(80);
+    final String fileName = st.getFileName();
+    if (fileName != null)
+    {
+      sb.append(fileName);
+      final int lineNumber = st.getLineNumber();
+      if (lineNumber >= 0)
+        sb.append(':').append(lineNumber);
+      sb.append(' ');
+    }
+    sb.append(st.getMethodName()).append("()");
+    return sb.toString();
+  }
+}
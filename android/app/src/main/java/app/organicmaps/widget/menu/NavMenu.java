@@ -210,7 +210,7 @@ public class NavMenu
   }
 
 
-  private void updateSpeedView(@NonNull RoutingInfo info)
+  public void updateSpeedView(@NonNull RoutingInfo info)
   {
     final Location last = LocationHelper.from(mActivity).getSavedLocation();
     if (last == null)
@@ -0,0 +1,152 @@
+package app.organicmaps.bookmarks;
+
+import android.location.Location;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import app.organicmaps.util.Distance;
+
+import static app.organicmaps.bookmarks.TestSectionsDataSource.position;
+import static app.organicmaps.bookmarks.TestSectionsDataSource.range;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BookmarkDistancesTest
+{
+  private static final double METERS_PER_DEGREE = 111_320;
+
+  /**
+   * Bookmark n is n kilometers north of the equator, the unknown ones are too far to be calculated.
+   */
+  private static class TestSource implements BookmarkDistances.Source
+  {
+    final Set<Long> mUnknownIds = new HashSet<>();
+    final List<long[]> mRequests = new ArrayList<>();
+
+    @Override
+    public double[] getBookmarksDistances(long[] bookmarkIds, double lat, double lon)
+    {
+      mRequests.add(bookmarkIds);
+      final double[] meters = new double[bookmarkIds.length];
+      for (int i = 0; i < bookmarkIds.length; ++i)
+      {
+        meters[i] = mUnknownIds.contains(bookmarkIds[i]) ? Double.NaN
+                                                         : Math.abs(bookmarkIds[i] * 1000 - lat * METERS_PER_DEGREE);
+      }
+      return meters;
+    }
+
+    @Override
+    public Distance formatDistance(double meters)
+    {
+      return new Distance(meters, String.valueOf(Math.round(meters)), (byte) 0);
+    }
+  }
+
+  @Test
+  public void get_nullWithoutLocation()
+  {
+    final TestSectionsDataSource dataSource = new TestSectionsDataSource(range(0, 10));
+    final TestSource source = new TestSource();
+
+    assertNull(new BookmarkDistances(source).get(dataSource, position(0), null));
+    assertEquals(0, source.mRequests.size());
+  }
+
+  @Test
+  public void get_fetchesFollowingRows()
+  {
+    final TestSectionsDataSource dataSource = new TestSectionsDataSource(range(0, 40));
+    final TestSource source = new TestSource();
+    final BookmarkDistances distances = new BookmarkDistances(source);
+    final Location location = north(0);
+
+    assertEquals(5000, distances.get(dataSource, position(5), location).mDistance, 0);
+    assertEquals(36_000, distances.get(dataSource, position(36), location).mDistance, 0);
+    assertEquals(1, source.mRequests.size());
+    assertArrayEquals(range(5, 37), source.mRequests.get(0));
+
+    // The rows known already aren't requested again.
+    distances.get(dataSource, position(0), location);
+    assertArrayEquals(range(0, 5), source.mRequests.get(1));
+    distances.get(dataSource, position(37), location);
+    assertArrayEquals(range(37, 40), source.mRequests.get(2));
+  }
+
+  @Test
+  public void get_recalculatesAfterMoving()
+  {
+    final TestSectionsDataSource dataSource = new TestSectionsDataSource(range(0, 10));
+    final TestSource source = new TestSource();
+    final BookmarkDistances distances = new BookmarkDistances(source);
+
+    assertEquals(1000, distances.get(dataSource, position(1), north(0)).mDistance, 0);
+    // A few meters are within the accuracy of the location.
+    assertEquals(1000, distances.get(dataSource, position(1), north(5)).mDistance, 0);
+    assertEquals(1, source.mRequests.size());
+
+    assertEquals(500, distances.get(dataSource, position(1), north(500)).mDistance, 1e-6);
+    assertEquals(2, source.mRequests.size());
+  }
+
+  @Test
+  public void get_skipsUnknownDistances()
+  {
+    final TestSectionsDataSource dataSource = new TestSectionsDataSource(range(0, 10));
+    final TestSource source = new TestSource();
+    source.mUnknownIds.add(3L);
+    final BookmarkDistances distances = new BookmarkDistances(source);
+    final Location location = north(0);
+
+    assertNull(distances.get(dataSource, position(3), location));
+    assertEquals(4000, distances.get(dataSource, position(4), location).mDistance, 0);
+    assertEquals(1, source.mRequests.size());
+
+    // Asked again, it may be known now.
+    source.mUnknownIds.clear();
+    assertEquals(3000, distances.get(dataSource, position(3), location).mDistance, 0);
+    assertArrayEquals(new long[] {3}, source.mRequests.get(1));
+  }
+
+  @Test
+  public void clear_recalculatesEditedBookmarks()
+  {
+    final TestSectionsDataSource dataSource = new TestSectionsDataSource(range(0, 10));
+    final TestSource source = new TestSource();
+    final BookmarkDistances distances = new BookmarkDistances(source);
+    final Location location = north(0);
+    distances.get(dataSource, position(0), location);
+
+    // The bookmarks are sorted differently after an edit.
+    dataSource.mBookmarkIds = new long[] {9, 8, 7, 6, 5, 4, 3, 2, 1, 0};
+    distances.clear();
+
+    assertEquals(9000, distances.get(dataSource, position(0), location).mDistance, 0);
+    assertEquals(2, source.mRequests.size());
+    assertArrayEquals(dataSource.mBookmarkIds, source.mRequests.get(1));
+  }
+
+  /**
+   * @return the location the given meters north of the equator on the prime meridian.
+   */
+  private static Location north(double meters)
+  {
+    final Location location = mock(Location.class);
+    when(location.getLatitude()).thenReturn(meters / METERS_PER_DEGREE);
+    when(location.getLongitude()).thenReturn(0.0);
+    when(location.distanceTo(any(Location.class))).thenAnswer(invocation -> {
+      final Location other = invocation.getArgument(0);
+      return (float) Math.abs(meters - other.getLatitude() * METERS_PER_DEGREE);
+    });
+    return location;
+  }
+}
@@ -0,0 +1,139 @@
+package app.organicmaps.bookmarks;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import app.organicmaps.bookmarks.data.BookmarkInfo;
+
+import static app.organicmaps.bookmarks.TestSectionsDataSource.position;
+import static app.organicmaps.bookmarks.TestSectionsDataSource.range;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+public class BookmarkInfoCacheTest
+{
+  /**
+   * Bookmarks of the core, the missing ones are deleted.
+   */
+  private static class TestSource implements BookmarkInfoCache.Source
+  {
+    final Map<Long, BookmarkInfo> mInfos = new HashMap<>();
+    final List<long[]> mRequests = new ArrayList<>();
+
+    TestSource(long[] bookmarkIds)
+    {
+      for (long id : bookmarkIds)
+        mInfos.put(id, mock(BookmarkInfo.class));
+    }
+
+    @Override
+    public BookmarkInfo[] getBookmarksInfo(long categoryId, long[] bookmarkIds)
+    {
+      assertEquals(TestSectionsDataSource.CATEGORY_ID, categoryId);
+      mRequests.add(bookmarkIds);
+      final BookmarkInfo[] infos = new BookmarkInfo[bookmarkIds.length];
+      for (int i = 0; i < bookmarkIds.length; ++i)
+        infos[i] = mInfos.get(bookmarkIds[i]);
+      return infos;
+    }
+  }
+
+  @Test
+  public void get_fetchesPageForward()
+  {
+    final TestSectionsDataSource dataSource = new TestSectionsDataSource(range(0, 100));
+    final TestSource source = new TestSource(dataSource.mBookmarkIds);
+    final BookmarkInfoCache cache = new BookmarkInfoCache(source);
+
+    assertSame(source.mInfos.get(0L), cache.get(dataSource, position(0)));
+    assertSame(source.mInfos.get(63L), cache.get(dataSource, position(63)));
+    assertEquals(1, source.mRequests.size());
+    assertArrayEquals(range(0, BookmarkInfoCache.PAGE_SIZE), source.mRequests.get(0));
+
+    // The last page is shorter.
+    assertSame(source.mInfos.get(64L), cache.get(dataSource, position(64)));
+    assertEquals(2, source.mRequests.size());
+    assertArrayEquals(range(64, 100), source.mRequests.get(1));
+  }
+
+  @Test
+  public void get_fetchesPageBackwardWhenScrollingUp()
+  {
+    final TestSectionsDataSource dataSource = new TestSectionsDataSource(range(0, 200));
+    final TestSource source = new TestSource(dataSource.mBookmarkIds);
+    final BookmarkInfoCache cache = new BookmarkInfoCache(source);
+
+    cache.get(dataSource, position(150));
+    assertSame(source.mInfos.get(149L), cache.get(dataSource, position(149)));
+    assertEquals(2, source.mRequests.size());
+    assertArrayEquals(range(149 - BookmarkInfoCache.PAGE_SIZE + 1, 150), source.mRequests.get(1));
+
+    // Doesn't go before the first row.
+    cache.get(dataSource, position(10));
+    assertArrayEquals(range(0, BookmarkInfoCache.PAGE_SIZE), source.mRequests.get(2));
+  }
+
+  @Test
+  public void get_evictsLeastRecentlyUsed()
+  {
+    final TestSectionsDataSource dataSource = new TestSectionsDataSource(range(0, 1000));
+    final TestSource source = new TestSource(dataSource.mBookmarkIds);
+    final BookmarkInfoCache cache = new BookmarkInfoCache(source);
+
+    for (int i = 0; i <= BookmarkInfoCache.MAX_SIZE; i += BookmarkInfoCache.PAGE_SIZE)
+      cache.get(dataSource, position(i));
+    final int requests = source.mRequests.size();
+
+    cache.get(dataSource, position(0));
+    assertEquals(requests + 1, source.mRequests.size());
+  }
+
+  @Test
+  public void clear_refetchesEditedBookmark()
+  {
+    final TestSectionsDataSource dataSource = new TestSectionsDataSource(range(0, 10));
+    final TestSource source = new TestSource(dataSource.mBookmarkIds);
+    final BookmarkInfoCache cache = new BookmarkInfoCache(source);
+    final BookmarkInfo original = cache.get(dataSource, position(5));
+
+    final BookmarkInfo edited = mock(BookmarkInfo.class);
+    source.mInfos.put(5L, edited);
+    assertSame(original, cache.get(dataSource, position(5)));
+
+    cache.clear();
+    assertSame(edited, cache.get(dataSource, position(5)));
+  }
+
+  @Test
+  public void clear_followsReloadedIds()
+  {
+    final TestSectionsDataSource dataSource = new TestSectionsDataSource(range(0, 10));
+    final TestSource source = new TestSource(dataSource.mBookmarkIds);
+    final BookmarkInfoCache cache = new BookmarkInfoCache(source);
+    cache.get(dataSource, position(0));
+
+    // The first bookmark is deleted, the rest move up.
+    source.mInfos.remove(0L);
+    dataSource.mBookmarkIds = range(1, 10);
+    cache.clear();
+
+    assertSame(source.mInfos.get(1L), cache.get(dataSource, position(0)));
+    assertSame(source.mInfos.get(9L), cache.get(dataSource, position(8)));
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void get_throwsForDeletedBookmark()
+  {
+    final TestSectionsDataSource dataSource = new TestSectionsDataSource(range(0, 10));
+    final TestSource source = new TestSource(dataSource.mBookmarkIds);
+    source.mInfos.remove(3L);
+
+    new BookmarkInfoCache(source).get(dataSource, position(3));
+  }
+}
@@ -0,0 +1,70 @@
+package app.organicmaps.bookmarks;
+
+import org.junit.Test;
+
+import app.organicmaps.bookmarks.data.SortedBlock;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class DistanceResorterTest
+{
+  @Test
+  public void sortByDistance_almostSorted()
+  {
+    final long[] ids = {1, 2, 3, 4, 5};
+    final double[] distances = {10, 30, 20, 40, 35};
+    DistanceResorter.sortByDistance(ids, distances);
+    assertArrayEquals(new long[] {1, 3, 2, 5, 4}, ids);
+    assertArrayEquals(new double[] {10, 20, 30, 35, 40}, distances, 0);
+  }
+
+  @Test
+  public void sortByDistance_stableAndMissingLast()
+  {
+    final long[] ids = {1, 2, 3, 4};
+    final double[] distances = {Double.NaN, 5, 5, 1};
+    DistanceResorter.sortByDistance(ids, distances);
+    assertArrayEquals(new long[] {4, 2, 3, 1}, ids);
+  }
+
+  @Test
+  public void sortByDistance_farAndClose()
+  {
+    final long[] ids = {1, 2, 3, 4};
+    final double[] distances = {10_000_001, 0, 10_000_000, 0.5};
+    DistanceResorter.sortByDistance(ids, distances);
+    assertArrayEquals(new long[] {2, 4, 3, 1}, ids);
+    assertArrayEquals(new double[] {0, 0.5, 10_000_000, 10_000_001}, distances, 0);
+  }
+
+  @Test
+  public void sortByDistance_reversed()
+  {
+    // The worst case of an incremental re-sort, all the bookmarks change their places.
+    final int count = 100_000;
+    final long[] ids = new long[count];
+    final double[] distances = new double[count];
+    for (int i = 0; i < count; ++i)
+    {
+      ids[i] = i;
+      distances[i] = count - i;
+    }
+    DistanceResorter.sortByDistance(ids, distances);
+    for (int i = 0; i < count; ++i)
+      assertEquals(count - 1 - i, ids[i]);
+  }
+
+  @Test
+  public void sortedBlock_removeKeepsOrder()
+  {
+    final SortedBlock block = new SortedBlock("Near me", new long[] {1, 2, 3}, new long[0]);
+    block.removeBookmark(1);
+    assertEquals(2, block.getBookmarksCount());
+    assertArrayEquals(new long[] {1, 3}, block.copyBookmarkIds());
+    block.removeBookmark(1);
+    block.removeBookmark(0);
+    assertFalse(block.isBookmarksBlock());
+  }
+}
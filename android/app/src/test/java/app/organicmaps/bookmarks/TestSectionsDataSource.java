@@ -0,0 +1,71 @@
+package app.organicmaps.bookmarks;
+
+import android.content.res.Resources;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import app.organicmaps.bookmarks.data.BookmarkCategory;
+
+/**
+ * A category with a single section of bookmarks, the ids of which are changed by the tests.
+ */
+class TestSectionsDataSource extends BookmarkListAdapter.SectionsDataSource
+{
+  static final long CATEGORY_ID = 7;
+
+  @NonNull
+  long[] mBookmarkIds;
+
+  TestSectionsDataSource(@NonNull long[] bookmarkIds)
+  {
+    super(() -> new BookmarkCategory(CATEGORY_ID, "", "", "", 0, bookmarkIds.length, true));
+    mBookmarkIds = bookmarkIds;
+  }
+
+  /**
+   * @return the ids from first to last, exclusive.
+   */
+  @NonNull
+  static long[] range(long first, long last)
+  {
+    final long[] ids = new long[(int) (last - first)];
+    for (int i = 0; i < ids.length; ++i)
+      ids[i] = first + i;
+    return ids;
+  }
+
+  @NonNull
+  static SectionPosition position(int itemIndex)
+  {
+    return new SectionPosition(0, itemIndex);
+  }
+
+  @Override
+  public int getSectionsCount() { return 1; }
+
+  @Override
+  public boolean isEditable(int sectionIndex) { return true; }
+
+  @Override
+  public boolean hasTitle(int sectionIndex) { return false; }
+
+  @Nullable
+  @Override
+  public String getTitle(int sectionIndex, @NonNull Resources rs) { return null; }
+
+  @Override
+  public int getItemsCount(int sectionIndex) { return mBookmarkIds.length; }
+
+  @Override
+  public int getItemsType(int sectionIndex) { return BookmarkListAdapter.TYPE_BOOKMARK; }
+
+  @Override
+  public long getBookmarkId(@NonNull SectionPosition pos) { return mBookmarkIds[pos.getItemIndex()]; }
+
+  @Override
+  public long getTrackId(@NonNull SectionPosition pos) { throw new UnsupportedOperationException(); }
+
+  @Override
+  public void onDelete(@NonNull SectionPosition pos) { throw new UnsupportedOperationException(); }
+}
@@ -0,0 +1,85 @@
+package app.organicmaps.location;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LocationFilterTest
+{
+  private static final double METERS_PER_DEGREE = Math.PI / 180 * 6378137.0;
+  private static final long SECOND_NS = 1_000_000_000L;
+  private static final double LAT = 52.0;
+  private static final double LON = 13.0;
+
+  // Latitude of the point the meters to the north of the start.
+  private static double northLat(double meters)
+  {
+    return LAT + meters / METERS_PER_DEGREE;
+  }
+
+  @Test
+  public void update_smoothsNoisyFixes()
+  {
+    final Random random = new Random(42);
+    final LocationFilter filter = new LocationFilter();
+    double rawError = 0;
+    double filteredError = 0;
+    for (int i = 0; i < 60; i++)
+    {
+      final double lat = northLat(20.0 * i);
+      final double noisyLat = lat + 8 * random.nextGaussian() / METERS_PER_DEGREE;
+      filter.update(i * SECOND_NS, noisyLat, LON, 10, 20, 0, Double.NaN);
+      if (i >= 10)
+      {
+        rawError += Math.abs(noisyLat - lat) * METERS_PER_DEGREE;
+        filteredError += Math.abs(filter.getLatitude() - lat) * METERS_PER_DEGREE;
+      }
+    }
+    assertTrue(filteredError + " < " + rawError, filteredError < rawError / 2);
+    assertEquals(20, filter.getSpeed(), 0.5);
+    assertEquals(0, Math.min(filter.getBearing(), 360 - filter.getBearing()), 1);
+  }
+
+  @Test
+  public void predict_movesAlongVelocity()
+  {
+    final LocationFilter filter = new LocationFilter();
+    for (int i = 0; i < 5; i++)
+      filter.update(i * SECOND_NS, northLat(20.0 * i), LON, 5, 20, 0, 0.5);
+
+    final double accuracy = filter.getAccuracy();
+    filter.predict(4 * SECOND_NS + SECOND_NS / 2);
+    assertEquals(90, (filter.getLatitude() - LAT) * METERS_PER_DEGREE, 1);
+    assertEquals(LON, filter.getLongitude(), 1e-7);
+    assertTrue(filter.getAccuracy() > accuracy);
+  }
+
+  @Test
+  public void predict_usesAcceleration()
+  {
+    final LocationFilter filter = new LocationFilter();
+    filter.update(0, LAT, LON, 5, 10, 90, 0.5);
+    filter.setAcceleration(2, 0);
+    for (int i = 1; i <= 20; i++)
+      filter.predict(i * SECOND_NS / 10);
+
+    // Two seconds with 2 m/s^2 to the east: 10 * 2 + 2 * 2 * 2 / 2 meters.
+    assertEquals(14, filter.getSpeed(), 0.01);
+    assertEquals(24, (filter.getLongitude() - LON) * METERS_PER_DEGREE * Math.cos(Math.toRadians(LAT)), 0.1);
+    assertEquals(90, filter.getBearing(), 0.01);
+  }
+
+  @Test
+  public void update_restartsAfterLongGap()
+  {
+    final LocationFilter filter = new LocationFilter();
+    filter.update(0, LAT, LON, 5, 0, Double.NaN, Double.NaN);
+    filter.update(60 * SECOND_NS, LAT + 1, LON + 1, 5, 0, Double.NaN, Double.NaN);
+    assertEquals(LAT + 1, filter.getLatitude(), 1e-9);
+    assertEquals(LON + 1, filter.getLongitude(), 1e-9);
+    assertEquals(5, filter.getAccuracy(), 1e-9);
+  }
+}
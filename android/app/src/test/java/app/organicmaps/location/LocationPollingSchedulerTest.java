@@ -0,0 +1,117 @@
+package app.organicmaps.location;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LocationPollingSchedulerTest
+{
+  private static final long BASE_INTERVAL_MS = 1000;
+
+  @Test
+  public void update_highwayFarFromTurn()
+  {
+    final LocationPollingScheduler scheduler = new LocationPollingScheduler();
+    scheduler.reset(BASE_INTERVAL_MS, true);
+
+    scheduler.onLocation(30);
+    scheduler.onDistanceToTurn(5000);
+    // A longer interval is applied only after a while.
+    assertFalse(scheduler.update(0));
+    assertFalse(scheduler.update(10000));
+    assertTrue(scheduler.update(15000));
+    assertEquals(2000, scheduler.getInterval());
+
+    // Small speed drops are ignored.
+    scheduler.onLocation(20);
+    assertFalse(scheduler.update(16000));
+
+    // A shorter one is applied at once.
+    scheduler.onDistanceToTurn(500);
+    assertTrue(scheduler.update(17000));
+    assertEquals(BASE_INTERVAL_MS, scheduler.getInterval());
+  }
+
+  @Test
+  public void update_turnHysteresis()
+  {
+    final LocationPollingScheduler scheduler = new LocationPollingScheduler();
+    scheduler.reset(BASE_INTERVAL_MS, true);
+    scheduler.onLocation(25);
+
+    // 30 s at 25 m/s is 750 m, then 1125 m to leave.
+    scheduler.onDistanceToTurn(700);
+    scheduler.onDistanceToTurn(1000);
+    scheduler.update(0);
+    assertFalse(scheduler.update(20000));
+    scheduler.onDistanceToTurn(1200);
+    scheduler.update(20000);
+    assertTrue(scheduler.update(40000));
+  }
+
+  @Test
+  public void update_stationary()
+  {
+    final LocationPollingScheduler scheduler = new LocationPollingScheduler();
+    scheduler.reset(BASE_INTERVAL_MS, false);
+    scheduler.onLocation(0);
+
+    long now = 0;
+    for (; now < 12000; now += 200)
+      scheduler.onAcceleration(0.05, now);
+    assertTrue(scheduler.isStationary());
+    assertFalse(scheduler.update(now));
+    assertTrue(scheduler.update(now + 15000));
+    assertEquals(10000, scheduler.getInterval());
+    assertEquals(LocationPollingScheduler.QUALITY_BALANCED_POWER_ACCURACY, scheduler.getQuality());
+
+    // Picking the device up resumes the requests immediately.
+    for (int i = 0; i < 5; i++)
+      scheduler.onAcceleration(3, now + 15000 + i * 200);
+    assertFalse(scheduler.isStationary());
+    assertTrue(scheduler.update(now + 16000));
+    assertEquals(BASE_INTERVAL_MS, scheduler.getInterval());
+    assertEquals(LocationPollingScheduler.QUALITY_HIGH_ACCURACY, scheduler.getQuality());
+  }
+
+  @Test
+  public void onAcceleration_reportsMotionChangesOnly()
+  {
+    final LocationPollingScheduler scheduler = new LocationPollingScheduler();
+    scheduler.reset(BASE_INTERVAL_MS, false);
+    scheduler.onLocation(0);
+    assertTrue(scheduler.needsAcceleration());
+
+    int changes = 0;
+    long now = 0;
+    for (; now < 12000; now += 200)
+      changes += scheduler.onAcceleration(0.05, now) ? 1 : 0;
+    assertEquals(1, changes);
+    assertFalse(scheduler.onAcceleration(0.05, now));
+    for (int i = 0; i < 5; i++)
+      changes += scheduler.onAcceleration(3, now + i * 200) ? 1 : 0;
+    assertEquals(2, changes);
+
+    // The speed tells that the device moves, the accelerometer isn't needed.
+    scheduler.onLocation(10);
+    assertFalse(scheduler.needsAcceleration());
+  }
+
+  @Test
+  public void update_lowBatteryKeepsTurnsPrecise()
+  {
+    final LocationPollingScheduler scheduler = new LocationPollingScheduler();
+    scheduler.reset(BASE_INTERVAL_MS, true);
+    scheduler.setBatteryLow(true);
+    scheduler.onLocation(10);
+    scheduler.onDistanceToTurn(100);
+    assertFalse(scheduler.update(0));
+
+    scheduler.onDistanceToTurn(2000);
+    scheduler.update(0);
+    assertTrue(scheduler.update(15000));
+    assertEquals(2 * BASE_INTERVAL_MS, scheduler.getInterval());
+  }
+}
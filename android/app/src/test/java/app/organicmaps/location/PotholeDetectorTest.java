@@ -0,0 +1,136 @@
+package app.organicmaps.location;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PotholeDetectorTest
+{
+  // 50 Hz.
+  private static final long PERIOD_NS = 20_000_000L;
+  private static final int SAMPLES_PER_SECOND = 50;
+
+  private PotholeDetector mDetector;
+  private Random mRandom;
+  private long mTimestamp;
+
+  @Before
+  public void setUp()
+  {
+    mDetector = new PotholeDetector();
+    mRandom = new Random(42);
+    mTimestamp = 0;
+  }
+
+  private int feed(float value)
+  {
+    mTimestamp += PERIOD_NS;
+    return mDetector.onSample(mTimestamp, value) ? 1 : 0;
+  }
+
+  // Vertical vibration of a car on a regular asphalt road.
+  private int feedRoad(int samples)
+  {
+    int events = 0;
+    for (int i = 0; i < samples; i++)
+      events += feed((float) (mRandom.nextGaussian() * 0.5));
+    return events;
+  }
+
+  // A wheel drops into a hole and hits its far edge.
+  private int feedPothole()
+  {
+    int events = 0;
+    for (float v : new float[]{-4f, 9f, -8f, 5f, -2f})
+      events += feed(v);
+    return events;
+  }
+
+  @Test
+  public void smoothRoad_noEvents()
+  {
+    assertEquals(0, feedRoad(60 * SAMPLES_PER_SECOND));
+  }
+
+  @Test
+  public void pothole_detectedOnce()
+  {
+    int events = feedRoad(5 * SAMPLES_PER_SECOND);
+    events += feedPothole();
+    events += feedRoad(5 * SAMPLES_PER_SECOND);
+    assertEquals(1, events);
+    assertTrue(mDetector.getLastPeak() >= PotholeDetector.DEFAULT_PEAK_THRESHOLD);
+    assertTrue(mDetector.getLastJerk() >= PotholeDetector.DEFAULT_JERK_THRESHOLD);
+  }
+
+  @Test
+  public void speedBump_notDetected()
+  {
+    int events = feedRoad(5 * SAMPLES_PER_SECOND);
+    // A strong but smooth half-second swing.
+    final int bumpSamples = SAMPLES_PER_SECOND / 2;
+    for (int i = 0; i < bumpSamples; i++)
+      events += feed((float) (7 * Math.sin(2 * Math.PI * i / bumpSamples)));
+    events += feedRoad(5 * SAMPLES_PER_SECOND);
+    assertEquals(0, events);
+  }
+
+  @Test
+  public void twoPotholes_closeTogether_reportedOnce()
+  {
+    feedRoad(5 * SAMPLES_PER_SECOND);
+    int events = feedPothole();
+    feedRoad(SAMPLES_PER_SECOND / 4);
+    events += feedPothole();
+    assertEquals(1, events);
+  }
+
+  @Test
+  public void twoPotholes_apart_reportedTwice()
+  {
+    feedRoad(5 * SAMPLES_PER_SECOND);
+    int events = feedPothole();
+    feedRoad(2 * SAMPLES_PER_SECOND);
+    events += feedPothole();
+    assertEquals(2, events);
+  }
+
+  @Test
+  public void notEnoughSamples_noEvents()
+  {
+    assertEquals(0, feedPothole());
+  }
+
+  @Test
+  public void staleSample_ignored()
+  {
+    feedRoad(5 * SAMPLES_PER_SECOND);
+    assertFalse(mDetector.onSample(mTimestamp, 9f));
+    assertFalse(mDetector.onSample(mTimestamp - PERIOD_NS, 9f));
+  }
+
+  @Test
+  public void reset_dropsWindow()
+  {
+    feedRoad(5 * SAMPLES_PER_SECOND);
+    mDetector.reset();
+    assertEquals(0, feedPothole());
+  }
+
+  @Test
+  public void toVertical_projectsOntoGravity()
+  {
+    // Upright phone in a car holder: gravity is along Y, braking is along Z.
+    assertEquals(0f, PotholeDetector.toVertical(0f, 0f, 5f, 0f, 9.8f, 0f), 1e-4f);
+    assertEquals(-3f, PotholeDetector.toVertical(0f, -3f, 5f, 0f, 9.8f, 0f), 1e-4f);
+    // Phone lying flat.
+    assertEquals(4f, PotholeDetector.toVertical(1f, 2f, 4f, 0f, 0f, 9.8f), 1e-4f);
+    // Gravity is not known yet.
+    assertEquals(5f, PotholeDetector.toVertical(3f, 0f, 4f, 0f, 0f, 0f), 1e-4f);
+  }
+}
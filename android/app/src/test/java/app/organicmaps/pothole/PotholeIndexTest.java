@@ -0,0 +1,123 @@
+package app.organicmaps.pothole;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PotholeIndexTest
+{
+  @Test
+  public void put_movesExistingPothole()
+  {
+    final PotholeIndex index = new PotholeIndex();
+    index.put("a", 10, 20);
+    index.put("a", 11, 21);
+
+    assertEquals(1, index.size());
+    assertEquals(11, index.get("a").lat, 0);
+    assertNull(index.findNearest(10, 20, 0.001));
+    assertSame(index.get("a"), index.findNearest(11, 21, 0.001));
+    assertEquals(1, clusters(index, 0, 10, 20, 11, 21).size());
+  }
+
+  @Test
+  public void remove_dropsEntryAndClusters()
+  {
+    final PotholeIndex index = new PotholeIndex();
+    index.put("a", 10, 20);
+    index.put("b", 10.001, 20.001);
+
+    assertEquals("a", index.remove("a").serverId);
+    assertNull(index.remove("a"));
+    assertFalse(index.contains("a"));
+    assertEquals(1, index.size());
+    final List<PotholeIndex.Cluster> clusters = clusters(index, PotholeIndex.MAX_LEVEL, -90, -180, 90, 180);
+    assertEquals(1, clusters.size());
+    assertEquals(1, clusters.get(0).getCount());
+    assertEquals(10.001, clusters.get(0).getLat(), 1e-9);
+
+    index.remove("b");
+    assertEquals(0, index.size());
+    for (int level = 0; level <= PotholeIndex.MAX_LEVEL; level++)
+      assertTrue(clusters(index, level, -90, -180, 90, 180).isEmpty());
+  }
+
+  @Test
+  public void findNearest_acrossCellBoundary()
+  {
+    final PotholeIndex index = new PotholeIndex();
+    // On both sides of the edge between cells 0 and 1.
+    index.put("below", 0.00995, 5);
+    index.put("above", 0.01002, 5);
+    assertEquals(0, PotholeIndex.cellOf(0.00995));
+    assertEquals(1, PotholeIndex.cellOf(0.01002));
+
+    assertEquals("above", index.findNearest(0.01, 5, 0.0001).serverId);
+    assertEquals("below", index.findNearest(0.00997, 5, 0.0001).serverId);
+    assertNull(index.findNearest(0.01, 5, 0.00001));
+  }
+
+  @Test
+  public void forEachEntry_returnsViewportOnly()
+  {
+    final PotholeIndex index = new PotholeIndex();
+    index.put("inside", 50.5, 30.5);
+    index.put("edge", 51, 31);
+    // In a cell of the viewport, but outside of it.
+    index.put("outside", 51.001, 30.5);
+    index.put("far", 10, 10);
+
+    final List<String> ids = new ArrayList<>();
+    index.forEachEntry(50, 30, 51, 31, entry -> ids.add(entry.serverId));
+    ids.sort(null);
+    assertEquals(Arrays.asList("edge", "inside"), ids);
+  }
+
+  @Test
+  public void clusters_splitAtCellBoundaries()
+  {
+    final PotholeIndex index = new PotholeIndex();
+    // Leaf cells 1 and 2 of the same row are in different level 1 cells, but in the same level 2 one.
+    index.put("a", 0.0199, 0.005);
+    index.put("b", 0.0201, 0.005);
+
+    assertEquals(2, clusters(index, 1, 0, 0, 0.03, 0.01).size());
+    final List<PotholeIndex.Cluster> merged = clusters(index, 2, 0, 0, 0.03, 0.01);
+    assertEquals(1, merged.size());
+    assertEquals(2, merged.get(0).getCount());
+    assertEquals(0.02, merged.get(0).getLat(), 1e-9);
+  }
+
+  @Test
+  public void clusters_nestAcrossZero()
+  {
+    final PotholeIndex index = new PotholeIndex();
+    index.put("south", -0.005, 0.005);
+    index.put("north", 0.005, 0.005);
+
+    // Negative cells are floored, so the potholes never share a cell on any level.
+    for (int level = 0; level <= PotholeIndex.MAX_LEVEL; level++)
+    {
+      final List<PotholeIndex.Cluster> clusters = clusters(index, level, -1, -1, 1, 1);
+      assertEquals("level " + level, 2, clusters.size());
+      for (PotholeIndex.Cluster cluster : clusters)
+        assertEquals(1, cluster.getCount());
+    }
+  }
+
+  private static List<PotholeIndex.Cluster> clusters(PotholeIndex index, int level, double minLat,
+                                                     double minLon, double maxLat, double maxLon)
+  {
+    final List<PotholeIndex.Cluster> clusters = new ArrayList<>();
+    index.forEachCluster(level, minLat, minLon, maxLat, maxLon, clusters::add);
+    return clusters;
+  }
+}
@@ -0,0 +1,119 @@
+package app.organicmaps.pothole;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PotholeOutboxTest
+{
+  private File mDir;
+
+  @Before
+  public void setUp() throws IOException
+  {
+    mDir = File.createTempFile("outbox", "");
+    mDir.delete();
+    mDir.mkdir();
+    mDir.deleteOnExit();
+    new File(mDir, PotholeOutbox.FILENAME).deleteOnExit();
+  }
+
+  @Test
+  public void load_replaysTheLog() throws IOException
+  {
+    final PotholeOutbox outbox = new PotholeOutbox(mDir);
+    outbox.add("local-1", 1.5, 2.5);
+    outbox.add("local-2", 3, 4);
+    outbox.delete("server-1");
+    outbox.complete(outbox.getPending().get(1));
+
+    final List<PotholeOutbox.Op> ops = new PotholeOutbox(mDir).getPending();
+    assertEquals(2, ops.size());
+    assertTrue(ops.get(0).isAdd());
+    assertEquals("local-1", ops.get(0).key);
+    assertEquals(1.5, ops.get(0).lat, 0);
+    assertEquals(2.5, ops.get(0).lon, 0);
+    assertFalse(ops.get(1).isAdd());
+    assertEquals("server-1", ops.get(1).key);
+  }
+
+  @Test
+  public void load_skipsTornRecord() throws IOException
+  {
+    final PotholeOutbox outbox = new PotholeOutbox(mDir);
+    outbox.add("local-1", 1, 2);
+    try (FileOutputStream out = new FileOutputStream(new File(mDir, PotholeOutbox.FILENAME), true))
+    {
+      out.write("+ 2 local-2 3".getBytes(StandardCharsets.UTF_8));
+    }
+
+    final PotholeOutbox reloaded = new PotholeOutbox(mDir);
+    assertEquals(1, reloaded.getPending().size());
+    // The torn record is compacted away, new records aren't glued to it.
+    reloaded.add("local-3", 5, 6);
+    assertEquals(2, new PotholeOutbox(mDir).getPending().size());
+  }
+
+  @Test
+  public void complete_compactsDrainedLog() throws IOException
+  {
+    final PotholeOutbox outbox = new PotholeOutbox(mDir);
+    for (int i = 0; i < 10; i++)
+      outbox.add("local-" + i, i, i);
+    for (PotholeOutbox.Op op : outbox.getPending())
+      assertTrue(outbox.complete(op));
+
+    assertTrue(outbox.isEmpty());
+    assertEquals(0, new File(mDir, PotholeOutbox.FILENAME).length());
+    assertTrue(new PotholeOutbox(mDir).isEmpty());
+  }
+
+  @Test
+  public void delete_coalescesWithPendingAdd() throws IOException
+  {
+    final PotholeOutbox outbox = new PotholeOutbox(mDir);
+    outbox.add("local-1", 1, 2);
+    final PotholeOutbox.Op add = outbox.getPending().get(0);
+    outbox.delete("local-1");
+
+    assertTrue(outbox.isEmpty());
+    // The report in flight is cancelled, the uploader deletes it on the server then.
+    assertFalse(outbox.complete(add, "server-1"));
+    assertTrue(new PotholeOutbox(mDir).isEmpty());
+  }
+
+  @Test
+  public void delete_queuedOnce() throws IOException
+  {
+    final PotholeOutbox outbox = new PotholeOutbox(mDir);
+    outbox.delete("server-1");
+    outbox.delete("server-1");
+    assertEquals(1, outbox.getPending().size());
+  }
+
+  @Test
+  public void delete_redirectedToServerIdAfterUpload() throws IOException
+  {
+    final PotholeOutbox outbox = new PotholeOutbox(mDir);
+    outbox.add("local-1", 1, 2);
+    assertTrue(outbox.complete(outbox.getPending().get(0), "server-1"));
+
+    // Deleted before PotholeManager has replaced the local id.
+    outbox.delete("local-1");
+    assertFalse(outbox.isPending("local-1"));
+    assertTrue(outbox.isPending("server-1"));
+
+    outbox.forgetUploaded("local-1");
+    outbox.delete("local-1");
+    assertTrue(outbox.isPending("local-1"));
+  }
+}
@@ -0,0 +1,54 @@
+package app.organicmaps.pothole;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PotholeRouteHazardsTest
+{
+  // ~111 m along a meridian.
+  private static final double DEG_PER_111_M = 0.001;
+  // ~7 m across a meridian at 52 degrees.
+  private static final double DEG_PER_7_M = 0.0001;
+
+  // Straight north for ~1.1 km, then east for ~0.7 km.
+  private static final double[] ROUTE = {52.0, 13.0, 52.01, 13.0, 52.01, 13.01};
+
+  @Test
+  public void build_keepsOnlyPotholesInCorridor()
+  {
+    final PotholeIndex index = new PotholeIndex();
+    index.put("near", 52.0 + 2 * DEG_PER_111_M, 13.0 + DEG_PER_7_M);
+    index.put("far", 52.0 + 2 * DEG_PER_111_M, 13.0 + 10 * DEG_PER_7_M);
+    index.put("east", 52.01, 13.005);
+    index.put("behind", 52.0 - 2 * DEG_PER_111_M, 13.0);
+
+    final PotholeRouteHazards hazards = PotholeRouteHazards.build(index, ROUTE);
+    assertEquals(2, hazards.size());
+    assertEquals(222, hazards.getDistance(0), 2);
+    assertEquals(1112 + 343, hazards.getDistance(1), 5);
+  }
+
+  @Test
+  public void findNext_binarySearch()
+  {
+    final PotholeIndex index = new PotholeIndex();
+    for (int i = 1; i <= 9; i++)
+      index.put("p" + i, 52.0 + i * DEG_PER_111_M, 13.0);
+
+    final PotholeRouteHazards hazards = PotholeRouteHazards.build(index, ROUTE);
+    assertEquals(9, hazards.size());
+    assertEquals(0, hazards.findNext(0));
+    assertEquals(0, hazards.findNext(hazards.getDistance(0)));
+    assertEquals(1, hazards.findNext(hazards.getDistance(0) + 1));
+    assertEquals(9, hazards.findNext(5000));
+  }
+
+  @Test
+  public void build_emptyRoute()
+  {
+    final PotholeIndex index = new PotholeIndex();
+    index.put("p", 52.0, 13.0);
+    assertEquals(0, PotholeRouteHazards.build(index, new double[]{52.0, 13.0}).size());
+  }
+}
@@ -0,0 +1,101 @@
+package app.organicmaps.pothole;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PotholeTileCacheTest
+{
+  private static PotholeTileCache.Tile tile(int x, int count)
+  {
+    return new PotholeTileCache.Tile(x, 0, null, 1, count);
+  }
+
+  @Test
+  public void tile_containsItsEdges()
+  {
+    final PotholeTileCache.Tile tile = new PotholeTileCache.Tile(PotholeTileCache.tileOf(52.5),
+                                                                 PotholeTileCache.tileOf(13.4),
+                                                                 null, 0, 0);
+    assertTrue(tile.contains(52.5, 13.4));
+    assertTrue(tile.contains(tile.getMinLat() + 1e-9, tile.getMinLon() + 1e-9));
+    assertFalse(tile.contains(tile.getMaxLat() + 1e-9, 13.4));
+    assertFalse(tile.contains(52.5, tile.getMinLon() - 1e-9));
+  }
+
+  @Test
+  public void getKeys_respectsLimit()
+  {
+    final List<Long> keys = new ArrayList<>();
+    final double size = PotholeTileCache.TILE_SIZE_DEG;
+    assertTrue(PotholeTileCache.getKeys(size / 2, size / 2, 2.5 * size, 1.5 * size, 6, keys));
+    assertEquals(6, keys.size());
+
+    keys.clear();
+    assertFalse(PotholeTileCache.getKeys(size / 2, size / 2, 2.5 * size, 1.5 * size, 5, keys));
+    assertTrue(keys.isEmpty());
+  }
+
+  @Test
+  public void getKeysAlong_followsTheRoute()
+  {
+    final double size = PotholeTileCache.TILE_SIZE_DEG;
+    final double[] route = {size / 2, size / 2, size / 2, 2.5 * size, 2.5 * size, 2.5 * size};
+    final Set<Long> keys = new LinkedHashSet<>();
+    PotholeTileCache.getKeysAlong(route, 0, keys);
+    assertEquals(Arrays.asList(PotholeIndex.cellKey(0, 0), PotholeIndex.cellKey(0, 1), PotholeIndex.cellKey(0, 2),
+                               PotholeIndex.cellKey(1, 2), PotholeIndex.cellKey(2, 2)),
+                 new ArrayList<>(keys));
+  }
+
+  @Test
+  public void trim_evictsLeastRecentlyUsed()
+  {
+    final PotholeTileCache cache = new PotholeTileCache();
+    final int half = PotholeTileCache.MAX_POTHOLES / 2;
+    cache.put(tile(1, half));
+    cache.put(tile(2, half));
+    cache.put(tile(3, half));
+    // Touch the eldest one.
+    cache.get(tile(1, 0).getKey());
+
+    final List<PotholeTileCache.Tile> evicted = cache.trim(Collections.emptySet());
+    assertEquals(1, evicted.size());
+    assertEquals(2, evicted.get(0).x);
+    assertEquals(2 * half, cache.getTotalCount());
+  }
+
+  @Test
+  public void trim_keepsPinned()
+  {
+    final PotholeTileCache cache = new PotholeTileCache();
+    final PotholeTileCache.Tile pinned = tile(1, PotholeTileCache.MAX_POTHOLES);
+    cache.put(pinned);
+    cache.put(tile(2, 1));
+
+    final List<PotholeTileCache.Tile> evicted = cache.trim(Collections.singleton(pinned.getKey()));
+    assertEquals(1, evicted.size());
+    assertEquals(2, evicted.get(0).x);
+  }
+
+  @Test
+  public void setCount_updatesTotal()
+  {
+    final PotholeTileCache cache = new PotholeTileCache();
+    final PotholeTileCache.Tile tile = tile(1, 10);
+    cache.put(tile);
+    cache.setCount(tile, 3);
+    assertEquals(3, cache.getTotalCount());
+    cache.put(tile(1, 5));
+    assertEquals(5, cache.getTotalCount());
+  }
+}
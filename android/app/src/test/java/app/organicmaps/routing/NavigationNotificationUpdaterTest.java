@@ -0,0 +1,45 @@
+package app.organicmaps.routing;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NavigationNotificationUpdaterTest
+{
+  private static final int TURN_LEFT = 1;
+  private static final int TURN_RIGHT = 2;
+
+  @Test
+  public void update_sameContentSkipped()
+  {
+    final NavigationNotificationUpdater updater = new NavigationNotificationUpdater();
+    assertTrue(updater.update(TURN_LEFT, "300 m", "Main Street", null, 0));
+    assertFalse(updater.update(TURN_LEFT, "300 m", "Main Street", null, 500));
+    assertFalse(updater.update(TURN_LEFT, "300 m", "Main Street", null, 10000));
+    assertEquals(1, updater.getPostedCount());
+    assertEquals(2, updater.getSkippedCount());
+  }
+
+  @Test
+  public void update_distanceRateLimited()
+  {
+    final NavigationNotificationUpdater updater = new NavigationNotificationUpdater();
+    assertTrue(updater.update(TURN_LEFT, "300 m", "Main Street", null, 0));
+    assertFalse(updater.update(TURN_LEFT, "290 m", "Main Street", null, 1000));
+    assertFalse(updater.update(TURN_LEFT, "280 m", "Main Street", "Pothole ahead in 50 m", 1500));
+    assertTrue(updater.update(TURN_LEFT, "270 m", "Main Street", "Pothole ahead in 40 m", 2000));
+  }
+
+  @Test
+  public void update_turnPostedImmediately()
+  {
+    final NavigationNotificationUpdater updater = new NavigationNotificationUpdater();
+    assertTrue(updater.update(TURN_LEFT, "10 m", "Main Street", null, 0));
+    assertTrue(updater.update(TURN_RIGHT, "1.2 km", "Side Street", null, 100));
+    assertTrue(updater.update(TURN_RIGHT, "1.2 km", "Other Street", null, 200));
+    assertEquals(3, updater.getPostedCount());
+    assertEquals(0, updater.getSkippedCount());
+  }
+}
@@ -0,0 +1,125 @@
+package app.organicmaps.trace;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TraceTest
+{
+  private static final long START_TIME = 1700000000000L;
+
+  @Test
+  public void read_pointsOfAllWriters() throws IOException
+  {
+    final File file = File.createTempFile("day", ".trace");
+    file.delete();
+    file.deleteOnExit();
+
+    try (TraceWriter writer = TraceWriter.open(file))
+    {
+      for (int i = 0; i < 100; i++)
+        writer.append(point(i));
+    }
+    // Appending continues the deltas of the previous points.
+    try (TraceWriter writer = TraceWriter.open(file))
+    {
+      for (int i = 100; i < 150; i++)
+        writer.append(point(i));
+    }
+
+    try (TraceReader reader = TraceReader.open(file))
+    {
+      final TracePoint point = new TracePoint();
+      for (int i = 0; i < 150; i++)
+      {
+        assertTrue(reader.next(point));
+        final TracePoint expected = point(i);
+        assertEquals(expected.getTime(), point.getTime());
+        assertEquals(expected.getLat(), point.getLat(), 1e-7);
+        assertEquals(expected.getLon(), point.getLon(), 1e-7);
+        assertEquals(expected.getAltitude(), point.getAltitude(), 0.05);
+        assertEquals(expected.getAccuracy(), point.getAccuracy(), 0.05);
+        assertEquals(expected.getSpeed(), point.getSpeed(), 0.005);
+        assertEquals(expected.getBearing(), point.getBearing(), 0.05);
+      }
+      assertFalse(reader.next(point));
+    }
+  }
+
+  @Test
+  public void write_fewBytesPerPoint() throws IOException
+  {
+    final File file = File.createTempFile("day", ".trace");
+    file.delete();
+    file.deleteOnExit();
+
+    final int count = 3600;
+    try (TraceWriter writer = TraceWriter.open(file))
+    {
+      for (int i = 0; i < count; i++)
+        writer.append(point(i));
+    }
+    assertTrue(String.valueOf(file.length()), file.length() < TraceFormat.HEADER_SIZE + count * 20);
+  }
+
+  @Test
+  public void read_unknownValues() throws IOException
+  {
+    final File file = File.createTempFile("day", ".trace");
+    file.delete();
+    file.deleteOnExit();
+
+    try (TraceWriter writer = TraceWriter.open(file))
+    {
+      writer.append(new TracePoint(START_TIME, -33.8688, 151.2093, Double.NaN, 5f, Float.NaN, Float.NaN));
+    }
+
+    try (TraceReader reader = TraceReader.open(file))
+    {
+      final TracePoint point = new TracePoint();
+      assertTrue(reader.next(point));
+      assertEquals(-33.8688, point.getLat(), 1e-7);
+      assertEquals(151.2093, point.getLon(), 1e-7);
+      assertTrue(Double.isNaN(point.getAltitude()));
+      assertTrue(Float.isNaN(point.getSpeed()));
+      assertTrue(Float.isNaN(point.getBearing()));
+      assertFalse(reader.next(point));
+    }
+  }
+
+  @Test
+  public void export_gpx() throws IOException
+  {
+    final File file = File.createTempFile("day", ".trace");
+    file.delete();
+    file.deleteOnExit();
+
+    try (TraceWriter writer = TraceWriter.open(file))
+    {
+      writer.append(point(0));
+    }
+
+    final StringBuilder gpx = new StringBuilder();
+    try (TraceReader reader = TraceReader.open(file))
+    {
+      GpxExporter.export(reader, "Drive", gpx);
+    }
+    final String text = gpx.toString();
+    assertTrue(text, text.contains("<name>Drive</name>"));
+    assertTrue(text, text.contains("<trkpt lat=\"52.52\" lon=\"13.405\"><ele>34.5</ele>"));
+    assertTrue(text, text.contains("<time>2023-11-14T22:13:20.000Z</time>"));
+    assertTrue(text, text.contains("<speed>13.5</speed></trkpt>"));
+  }
+
+  private static TracePoint point(int i)
+  {
+    // A car driving north-east at ~50 km/h with a fix per second.
+    return new TracePoint(START_TIME + i * 1000L, 52.52 + i * 0.0001, 13.405 + i * 0.00015, 34.5 + i * 0.1,
+                          4.5f, 13.5f + (i % 7) * 0.25f, (45f + i) % 360f);
+  }
+}
@@ -0,0 +1,69 @@
+package app.organicmaps.util.concurrency;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MpscRingBufferTest
+{
+  @Test
+  public void offer_failsWhenFull()
+  {
+    final MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(3);
+    assertEquals(4, buffer.capacity());
+    for (int i = 0; i < 4; i++)
+      assertTrue(buffer.offer(i));
+    assertFalse(buffer.offer(4));
+    assertEquals(4, buffer.size());
+
+    assertEquals(0, (int) buffer.poll());
+    assertTrue(buffer.offer(4));
+    for (int i = 1; i <= 4; i++)
+      assertEquals(i, (int) buffer.poll());
+    assertNull(buffer.poll());
+    assertEquals(0, buffer.size());
+  }
+
+  @Test
+  public void poll_keepsOrderOfEveryProducer() throws InterruptedException
+  {
+    final int producers = 4;
+    final int perProducer = 100000;
+    final MpscRingBuffer<long[]> buffer = new MpscRingBuffer<>(64);
+    final Thread[] threads = new Thread[producers];
+    for (int p = 0; p < producers; p++)
+    {
+      final int producer = p;
+      threads[p] = new Thread(() -> {
+        for (int i = 0; i < perProducer; i++)
+        {
+          final long[] element = {producer, i};
+          while (!buffer.offer(element))
+            Thread.yield();
+        }
+      });
+      threads[p].start();
+    }
+
+    final int[] next = new int[producers];
+    int received = 0;
+    while (received < producers * perProducer)
+    {
+      final long[] element = buffer.poll();
+      if (element == null)
+      {
+        Thread.yield();
+        continue;
+      }
+      assertEquals(next[(int) element[0]]++, element[1]);
+      received++;
+    }
+
+    for (Thread thread : threads)
+      thread.join();
+    assertNull(buffer.poll());
+  }
+}
@@ -0,0 +1,87 @@
+package app.organicmaps.util.log;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryLogTest
+{
+  private static final int FILE_SIZE = 128 * 1024;
+  // android.util.Log levels.
+  private static final int DEBUG = 3;
+  private static final int WARN = 5;
+
+  @Test
+  public void decode_linesOfAllSessions() throws IOException
+  {
+    final File file = File.createTempFile("app", ".binlog");
+    file.deleteOnExit();
+
+    BinaryLogFile log = BinaryLogFile.open(file, FILE_SIZE, 1024);
+    log.startSession(1000000, 500);
+    log.appendLine(DEBUG, "Framework", "main", 600, "first");
+    log.close();
+
+    log = BinaryLogFile.open(file, FILE_SIZE, 1024);
+    log.startSession(2000000, 100);
+    log.appendLine(WARN, "Framework", "Logger", 200, "second \u00fc");
+    log.close();
+
+    final String[] lines = decode(file);
+    assertEquals(4, lines.length);
+    assertTrue(lines[0], lines[0].startsWith("--- Logging started at "));
+    assertTrue(lines[1], lines[1].endsWith(" (main) D/Framework: first"));
+    assertTrue(lines[3], lines[3].endsWith(" (Logger) W/Framework: second \u00fc"));
+  }
+
+  @Test
+  public void decode_oldestLinesOverwritten() throws IOException
+  {
+    final File file = File.createTempFile("app", ".binlog");
+    file.deleteOnExit();
+
+    final BinaryLogFile log = BinaryLogFile.open(file, FILE_SIZE, 1024);
+    log.startSession(1000000, 0);
+    final int count = 10000;
+    for (int i = 0; i < count; i++)
+      log.appendLine(DEBUG, "Tag" + (i % 10), "main", i, "line " + i + " with some padding text");
+    log.close();
+
+    final String[] lines = decode(file);
+    assertTrue(lines.length > 100 && lines.length < count);
+    final int first = count - lines.length;
+    for (int i = 0; i < lines.length; i++)
+      assertTrue(lines[i], lines[i].endsWith("/Tag" + ((first + i) % 10) + ": line " + (first + i) + " with some padding text"));
+  }
+
+  @Test
+  public void decode_inlineStringsWhenTableIsFull() throws IOException
+  {
+    final File file = File.createTempFile("app", ".binlog");
+    file.deleteOnExit();
+
+    final BinaryLogFile log = BinaryLogFile.open(file, FILE_SIZE, 16);
+    log.startSession(1000000, 0);
+    for (int i = 0; i < 5; i++)
+      log.appendLine(DEBUG, "LongTagName" + i, "main", i, "line " + i);
+    log.close();
+
+    final String[] lines = decode(file);
+    assertEquals(6, lines.length);
+    for (int i = 0; i < 5; i++)
+      assertTrue(lines[i + 1], lines[i + 1].endsWith("(main) D/LongTagName" + i + ": line " + i));
+  }
+
+  private static String[] decode(File file) throws IOException
+  {
+    final StringBuilder sb = new StringBuilder();
+    BinaryLogDecoder.decode(ByteBuffer.wrap(Files.readAllBytes(file.toPath())), sb);
+    return sb.toString().split("\n");
+  }
+}
@@ -0,0 +1,82 @@
+package app.organicmaps.util.log;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SourcePointTest
+{
+  private static final int ITERATIONS = 20000;
+
+  // Imitates Logger.log() called from Logger.d().
+  private static Throwable log()
+  {
+    return new Throwable();
+  }
+
+  private static Throwable d()
+  {
+    return log();
+  }
+
+  @Test
+  public void format_pointsToCaller()
+  {
+    final String sourcePoint = SourcePoint.format(d(), Logger.CALL_STACK_INDEX);
+    assertTrue(sourcePoint, sourcePoint.startsWith("SourcePointTest.java:"));
+    assertTrue(sourcePoint, sourcePoint.endsWith(" format_pointsToCaller()"));
+  }
+
+  /**
+   * The stack is captured on the calling thread and resolved on the logger thread later.
+   */
+  @Test
+  public void format_resolvedOnAnotherThread() throws Exception
+  {
+    final Throwable callSite = d();
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try
+    {
+      final String sourcePoint = executor.submit(() -> SourcePoint.format(callSite, Logger.CALL_STACK_INDEX))
+                                         .get();
+      assertEquals(SourcePoint.format(callSite, Logger.CALL_STACK_INDEX), sourcePoint);
+      assertTrue(sourcePoint, sourcePoint.endsWith(" format_resolvedOnAnotherThread()"));
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Compares the cost of the log call for a source point resolved on the calling thread and
+   * for a captured stack resolved on the logger thread later.
+   */
+  @Ignore("Benchmark, only prints timings")
+  @Test
+  public void benchmark()
+  {
+    long sink = 0;
+    // Warm up.
+    for (int i = 0; i < ITERATIONS; i++)
+      sink += SourcePoint.format(d(), Logger.CALL_STACK_INDEX).length() + d().hashCode();
+
+    long start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++)
+      sink += SourcePoint.format(d(), Logger.CALL_STACK_INDEX).length();
+    final long resolvedNs = (System.nanoTime() - start) / ITERATIONS;
+
+    start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++)
+      sink += d().hashCode();
+    final long capturedNs = (System.nanoTime() - start) / ITERATIONS;
+
+    System.out.println("Source point per log call: resolved " + resolvedNs + " ns, captured " + capturedNs +
+                       " ns (" + sink + ")");
+  }
+}
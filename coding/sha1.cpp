@@ -11,6 +11,7 @@
 #include "3party/liboauthcpp/src/base64.h"
 
 #include <algorithm>
+#include <limits>
 #include <vector>
 
 namespace coding
@@ -51,8 +52,40 @@ SHA1::Hash SHA1::Calculate(std::string const & filePath)
 // static
 std::string SHA1::CalculateBase64(std::string const & filePath)
 {
-  auto const sha1 = Calculate(filePath);
-  return base64_encode(sha1.data(), sha1.size());
+  return ToBase64(Calculate(filePath));
+}
+
+// static
+std::string SHA1::ToBase64(Hash const & hash)
+{
+  return base64_encode(hash.data(), hash.size());
+}
+
+SHA1::Stream::Stream() : m_sha1(std::make_unique<CSHA1>()) {}
+
+SHA1::Stream::~Stream() = default;
+
+void SHA1::Stream::Update(void const * data, size_t size)
+{
+  auto * bytes = static_cast<unsigned char *>(const_cast<void *>(data));
+  uint32_t constexpr kMaxPortion = std::numeric_limits<uint32_t>::max();
+  while (size > 0)
+  {
+    auto const portion = static_cast<uint32_t>(std::min<size_t>(size, kMaxPortion));
+    m_sha1->Update(bytes, portion);
+    bytes += portion;
+    size -= portion;
+  }
+}
+
+SHA1::Hash SHA1::Stream::Final()
+{
+  m_sha1->Final();
+
+  Hash result;
+  ASSERT_EQUAL(result.size(), ARRAY_SIZE(m_sha1->m_digest), ());
+  std::copy(std::begin(m_sha1->m_digest), std::end(m_sha1->m_digest), std::begin(result));
+  return result;
 }
 
 // static
@@ -2,8 +2,11 @@
 
 #include <array>
 #include <cstdint>
+#include <memory>
 #include <string>
 
+class CSHA1;
+
 namespace coding
 {
 class SHA1
@@ -19,5 +22,21 @@ public:
   // String representation of 40-number hex digit.
   static std::string CalculateForStringFormatted(std::string const & str);
   static std::string CalculateBase64ForString(std::string const & str);
+
+  static std::string ToBase64(Hash const & hash);
+
+  /// Calculates the hash of the data which comes in portions.
+  class Stream
+  {
+  public:
+    Stream();
+    ~Stream();
+
+    void Update(void const * data, size_t size);
+    Hash Final();
+
+  private:
+    std::unique_ptr<CSHA1> m_sha1;
+  };
 };
 }  // coding
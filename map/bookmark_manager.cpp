@@ -220,6 +220,35 @@ Bookmark * BookmarkManager::CreateBookmark(kml::BookmarkData && bm, kml::MarkGro
   return bookmark;
 }
 
+std::vector<kml::MarkId> BookmarkManager::CreateBookmarks(std::vector<kml::BookmarkData> && bmData,
+                                                          kml::MarkGroupId groupId)
+{
+  CHECK_THREAD_CHECKER(m_threadChecker, ());
+
+  auto * group = GetBmCategory(groupId);
+  CHECK(group, (groupId));
+
+  auto const timestamp = kml::TimestampClock::now();
+  auto const viewportScale = static_cast<uint8_t>(df::GetZoomLevel(m_viewport.GetScale()));
+
+  std::vector<kml::MarkId> ids;
+  ids.reserve(bmData.size());
+  for (auto & bm : bmData)
+  {
+    bm.m_timestamp = timestamp;
+    bm.m_viewportScale = viewportScale;
+
+    auto * bookmark = CreateBookmark(std::move(bm));
+    bookmark->Attach(groupId);
+    group->AttachUserMark(bookmark->GetId());
+    m_changesTracker.OnAttachBookmark(bookmark->GetId(), groupId);
+    ids.push_back(bookmark->GetId());
+  }
+  group->SetIsVisible(true);
+
+  return ids;
+}
+
 Bookmark const * BookmarkManager::GetBookmark(kml::MarkId markId) const
 {
   CHECK_THREAD_CHECKER(m_threadChecker, ());
@@ -1310,6 +1339,16 @@ void BookmarkManager::GetSortedCategory(SortParams const & params)
       return;
     }
 
+    // Skip requests which have been superseded while waiting for the previous ones.
+    if (params.m_isCancelled && params.m_isCancelled())
+    {
+      GetPlatform().RunTask(Platform::Thread::Gui, [params]
+      {
+        params.m_onResults({} /* sortedBlocks */, SortParams::Status::Cancelled);
+      });
+      return;
+    }
+
     AddressesCollection newAddresses;
     if (params.m_sortingType == SortingType::ByDistance)
       PrepareBookmarksAddresses(bookmarksForSort, newAddresses);
@@ -3158,6 +3197,12 @@ Bookmark * BookmarkManager::EditSession::CreateBookmark(kml::BookmarkData && bmD
   return m_bmManager.CreateBookmark(std::move(bmData), groupId);
 }
 
+std::vector<kml::MarkId> BookmarkManager::EditSession::CreateBookmarks(
+    std::vector<kml::BookmarkData> && bmData, kml::MarkGroupId groupId)
+{
+  return m_bmManager.CreateBookmarks(std::move(bmData), groupId);
+}
+
 Track * BookmarkManager::EditSession::CreateTrack(kml::TrackData && trackData)
 {
   return m_bmManager.CreateTrack(std::move(trackData));
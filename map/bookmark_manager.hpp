@@ -119,6 +119,8 @@ public:
 
     Bookmark * CreateBookmark(kml::BookmarkData && bmData);
     Bookmark * CreateBookmark(kml::BookmarkData && bmData, kml::MarkGroupId groupId);
+    std::vector<kml::MarkId> CreateBookmarks(std::vector<kml::BookmarkData> && bmData,
+                                             kml::MarkGroupId groupId);
     Track * CreateTrack(kml::TrackData && trackData);
 
     template <typename UserMarkT>
@@ -244,12 +246,15 @@ public:
     };
 
     using OnResults = std::function<void(SortedBlocksCollection && sortedBlocks, Status status)>;
+    // Called from the background thread, returns true if the results are not needed anymore.
+    using IsCancelled = std::function<bool()>;
 
     kml::MarkGroupId m_groupId = kml::kInvalidMarkGroupId;
     SortingType m_sortingType = SortingType::ByType;
     bool m_hasMyPosition = false;
     m2::PointD m_myPosition = {0.0, 0.0};
     OnResults m_onResults;
+    IsCancelled m_isCancelled;
   };
 
   std::vector<SortingType> GetAvailableSortingTypes(kml::MarkGroupId groupId,
@@ -540,6 +545,9 @@ private:
 
   Bookmark * CreateBookmark(kml::BookmarkData && bmData);
   Bookmark * CreateBookmark(kml::BookmarkData && bmData, kml::MarkGroupId groupId);
+  // Bulk version of CreateBookmark for imports, doesn't touch the last edited category and color.
+  std::vector<kml::MarkId> CreateBookmarks(std::vector<kml::BookmarkData> && bmData,
+                                           kml::MarkGroupId groupId);
 
   Bookmark * GetBookmarkForEdit(kml::MarkId markId);
   void AttachBookmark(kml::MarkId bmId, kml::MarkGroupId groupId);
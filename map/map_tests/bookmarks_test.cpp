@@ -574,6 +574,42 @@ UNIT_TEST(Bookmarks_AddingMoving)
   DeleteCategoryFiles(arrCat);
 }
 
+UNIT_TEST(Bookmarks_BulkCreating)
+{
+  Framework fm(kFrameworkParams);
+  BookmarkManager & bmManager = fm.GetBookmarkManager();
+  bmManager.EnableTestMode(true);
+
+  vector<string> const arrCat = {"cat1", "cat2"};
+  auto const cat1 = bmManager.CreateBookmarkCategory(arrCat[0], false /* autoSave */);
+  auto const cat2 = bmManager.CreateBookmarkCategory(arrCat[1], false /* autoSave */);
+  bmManager.SetLastEditedBmCategory(cat2);
+
+  vector<kml::BookmarkData> data(3);
+  for (size_t i = 0; i < data.size(); ++i)
+  {
+    kml::SetDefaultStr(data[i].m_name, "name" + std::to_string(i));
+    data[i].m_point = m2::PointD(i, i);
+    data[i].m_color.m_predefinedColor = kml::PredefinedColor::Blue;
+  }
+
+  auto const ids = bmManager.GetEditSession().CreateBookmarks(std::move(data), cat1);
+  TEST_EQUAL(ids.size(), 3, ());
+  TEST_EQUAL(bmManager.GetUserMarkIds(cat1).size(), 3, ());
+  for (size_t i = 0; i < ids.size(); ++i)
+  {
+    auto const * bm = bmManager.GetBookmark(ids[i]);
+    TEST(bm, ());
+    TEST_EQUAL(bm->GetGroupId(), cat1, ());
+    TEST_EQUAL(kml::GetDefaultStr(bm->GetName()), "name" + std::to_string(i), ());
+    TEST_EQUAL(bm->GetPivot(), m2::PointD(i, i), ());
+  }
+  // Bulk imports must not change the category which is offered to the user for new bookmarks.
+  TEST_EQUAL(bmManager.LastEditedBMCategory(), cat2, ());
+
+  DeleteCategoryFiles(arrCat);
+}
+
 UNIT_TEST(Bookmarks_Sorting)
 {
   Framework fm(kFrameworkParams);
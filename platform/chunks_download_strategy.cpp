@@ -4,21 +4,100 @@
 
 #include "coding/file_writer.hpp"
 #include "coding/file_reader.hpp"
+#include "coding/reader.hpp"
 #include "coding/varint.hpp"
+#include "coding/write_to_sink.hpp"
 
 #include "base/assert.hpp"
 #include "base/logging.hpp"
 #include "base/macros.hpp"
 
+#include <algorithm>
+
 using namespace std;
 
 namespace downloader
 {
-ChunksDownloadStrategy::ChunksDownloadStrategy(vector<string> const & urls)
+namespace
+{
+// Throughput changes smaller than this are considered to be a noise.
+double constexpr kThroughputGain = 0.1;
+// One more connection is tried after this many measurement periods without changes.
+size_t constexpr kProbePeriods = 4;
+
+// Old resume files start with the file size which is never 0.
+uint8_t constexpr kJournalMarker = 0;
+uint8_t constexpr kJournalVersion = 1;
+}  // namespace
+
+ConcurrencyController::ConcurrencyController(size_t maxLimit) : m_maxLimit(max<size_t>(maxLimit, 1))
+{
+}
+
+void ConcurrencyController::StartPeriod(double now)
+{
+  m_periodStart = now;
+  m_periodBytes = 0;
+  m_periodChunks = 0;
+}
+
+void ConcurrencyController::OnChunkStarted(double now)
+{
+  if (m_periodStart < 0)
+    StartPeriod(now);
+}
+
+void ConcurrencyController::OnChunkFinished(bool success, int64_t bytes, double now)
+{
+  if (!success)
+  {
+    m_limit = max<size_t>(m_limit / 2, 1);
+    // Measurements with the previous limit are not comparable with the next ones.
+    m_throughput = 0;
+    m_lastChange = -1;
+    m_stablePeriods = 0;
+    StartPeriod(now);
+    return;
+  }
+
+  m_periodBytes += bytes;
+  ++m_periodChunks;
+  // Wait until every connection has finished a chunk.
+  if (m_periodChunks < m_limit || now <= m_periodStart)
+    return;
+
+  double const throughput = m_periodBytes / (now - m_periodStart);
+  int change = 0;
+  if (m_throughput == 0)
+    change = 1;
+  else if (m_lastChange > 0)
+    change = throughput > m_throughput * (1 + kThroughputGain) ? 1 : -1;
+  else if (m_stablePeriods + 1 >= kProbePeriods)
+    change = 1;
+
+  if (change > 0 && m_limit == m_maxLimit)
+    change = 0;
+  if (change < 0 && m_limit == 1)
+    change = 0;
+
+  m_limit += change;
+  m_stablePeriods = change == 0 ? m_stablePeriods + 1 : 0;
+  m_lastChange = change;
+  m_throughput = throughput;
+  StartPeriod(now);
+}
+
+ChunksDownloadStrategy::ChunksDownloadStrategy(vector<string> const & urls, size_t maxChunksPerServer)
+  : m_startTime(ClockT::now())
 {
   // init servers list
   for (size_t i = 0; i < urls.size(); ++i)
-    m_servers.push_back(ServerT(urls[i], SERVER_READY));
+    m_servers.emplace_back(urls[i], maxChunksPerServer);
+}
+
+double ChunksDownloadStrategy::Now() const
+{
+  return chrono::duration<double>(ClockT::now() - m_startTime).count();
 }
 
 pair<ChunksDownloadStrategy::ChunkT *, int>
@@ -40,6 +119,7 @@ ChunksDownloadStrategy::GetChunk(RangeT const & range)
 
 void ChunksDownloadStrategy::InitChunks(int64_t fileSize, int64_t chunkSize, ChunkStatusT status)
 {
+  m_chunks.clear();
   m_chunks.reserve(static_cast<size_t>(fileSize / chunkSize + 2));
   for (int64_t i = 0; i < fileSize; i += chunkSize)
     m_chunks.push_back(ChunkT(i, status));
@@ -63,6 +143,40 @@ void ChunksDownloadStrategy::AddChunk(RangeT const & range, ChunkStatusT status)
   m_chunks.push_back(ChunkT(range.second + 1, CHUNK_AUX));
 }
 
+size_t ChunksDownloadStrategy::SplitAt(int64_t pos)
+{
+  auto it = lower_bound(m_chunks.begin(), m_chunks.end(), pos, LessChunks());
+  if (it == m_chunks.end() || it->m_pos != pos)
+  {
+    ASSERT(it != m_chunks.begin() && it != m_chunks.end(), (pos));
+    it = m_chunks.insert(it, ChunkT(pos, prev(it)->m_status));
+  }
+  return static_cast<size_t>(distance(m_chunks.begin(), it));
+}
+
+void ChunksDownloadStrategy::MarkComplete(RangeT const & range)
+{
+  if (range.first < 0 || range.first > range.second || range.second >= m_chunks.back().m_pos)
+  {
+    LOG(LWARNING, ("Invalid journaled range", range));
+    return;
+  }
+
+  size_t const first = SplitAt(range.first);
+  size_t const last = SplitAt(range.second + 1);
+  for (size_t i = first; i < last; ++i)
+    m_chunks[i].m_status = CHUNK_COMPLETE;
+}
+
+void ChunksDownloadStrategy::MergeCompleteChunks()
+{
+  auto const it = unique(m_chunks.begin(), m_chunks.end(), [](ChunkT const & l, ChunkT const & r)
+  {
+    return l.m_status == CHUNK_COMPLETE && r.m_status == CHUNK_COMPLETE;
+  });
+  m_chunks.erase(it, m_chunks.end());
+}
+
 void ChunksDownloadStrategy::SaveChunks(int64_t fileSize, string const & fName)
 {
   if (!m_chunks.empty())
@@ -70,7 +184,10 @@ void ChunksDownloadStrategy::SaveChunks(int64_t fileSize, string const & fName)
     try
     {
       FileWriter w(fName);
+      WriteToSink(w, kJournalMarker);
+      WriteToSink(w, kJournalVersion);
       WriteVarInt(w, fileSize);
+      WriteVarUint(w, static_cast<uint64_t>(m_chunks.size()));
 
       w.Write(&m_chunks[0], sizeof(ChunkT) * m_chunks.size());
       return;
@@ -85,6 +202,13 @@ void ChunksDownloadStrategy::SaveChunks(int64_t fileSize, string const & fName)
   UNUSED_VALUE(Platform::RemoveFileIfExists(fName));
 }
 
+// static
+void ChunksDownloadStrategy::AppendToJournal(Writer & w, RangeT const & range)
+{
+  WriteToSink(w, range.first);
+  WriteToSink(w, range.second);
+}
+
 int64_t ChunksDownloadStrategy::LoadOrInitChunks(string const & fName, int64_t fileSize,
                                                  int64_t chunkSize)
 {
@@ -98,25 +222,54 @@ int64_t ChunksDownloadStrategy::LoadOrInitChunks(string const & fName, int64_t f
       FileReader r(fName);
       ReaderSource<FileReader> src(r);
 
+      // Files of the older versions have no journal.
+      bool const hasJournal = r.Size() > 0 && ReadPrimitiveFromSource<uint8_t>(src) == kJournalMarker;
+      if (hasJournal)
+      {
+        if (ReadPrimitiveFromSource<uint8_t>(src) != kJournalVersion)
+          MYTHROW(FileReader::ReadException, ("Unknown resume file version"));
+      }
+      else
+      {
+        src = ReaderSource<FileReader>(r);
+      }
+
       int64_t const readSize = ReadVarInt<int64_t>(src);
       if (readSize == fileSize)
       {
         // Load chunks.
-        uint64_t const size = src.Size();
         int const stSize = sizeof(ChunkT);
-        auto const count = static_cast<size_t>(size / stSize);
-        ASSERT_EQUAL(size, stSize * count, ());
+        auto const count = static_cast<size_t>(hasJournal ? ReadVarUint<uint64_t>(src)
+                                                          : src.Size() / stSize);
+        ASSERT(hasJournal || src.Size() == stSize * count, ());
+        if (count < 2)
+          MYTHROW(FileReader::ReadException, ("No chunks in resume file"));
 
         m_chunks.resize(count);
         src.Read(&m_chunks[0], stSize * count);
 
         // Reset status "downloading" to "free".
-        int64_t downloadedSize = 0;
         for (size_t i = 0; i < count - 1; ++i)
         {
           if (m_chunks[i].m_status != CHUNK_COMPLETE)
             m_chunks[i].m_status = CHUNK_FREE;
-          else
+        }
+
+        // Apply the ranges written after the chunks were saved, a partially written last
+        // range is ignored.
+        size_t constexpr kRangeSize = 2 * sizeof(int64_t);
+        while (hasJournal && src.Size() >= kRangeSize)
+        {
+          auto const beg = ReadPrimitiveFromSource<int64_t>(src);
+          auto const end = ReadPrimitiveFromSource<int64_t>(src);
+          MarkComplete({beg, end});
+        }
+        MergeCompleteChunks();
+
+        int64_t downloadedSize = 0;
+        for (size_t i = 0; i + 1 < m_chunks.size(); ++i)
+        {
+          if (m_chunks[i].m_status == CHUNK_COMPLETE)
             downloadedSize += (m_chunks[i + 1].m_pos - m_chunks[i].m_pos);
         }
 
@@ -137,54 +290,94 @@ string ChunksDownloadStrategy::ChunkFinished(bool success, RangeT const & range)
 {
   pair<ChunkT *, int> res = GetChunk(range);
   string url;
+  if (!res.first)
+    return url;
+
   // find server which was downloading this chunk
-  if (res.first)
+  for (size_t s = 0; s < m_servers.size(); ++s)
   {
-    for (size_t s = 0; s < m_servers.size(); ++s)
+    ServerT & server = m_servers[s];
+    auto const it = find_if(server.m_chunks.begin(), server.m_chunks.end(),
+                            [&range](auto const & chunk) { return chunk.first == range.first; });
+    if (it == server.m_chunks.end())
+      continue;
+
+    url = server.m_url;
+    double const seconds = chrono::duration<double>(ClockT::now() - it->second).count();
+    server.m_chunks.erase(it);
+
+    int64_t const bytes = range.second - range.first + 1;
+    size_t const limit = server.m_concurrency.GetLimit();
+    server.m_concurrency.OnChunkFinished(success, bytes, Now());
+    if (success)
     {
-      if (m_servers[s].m_chunkIndex == res.second)
-      {
-        url = m_servers[s].m_url;
-        if (success)
-        {
-          // mark server as free and chunk as ready
-          m_servers[s].m_chunkIndex = SERVER_READY;
-          res.first->m_status = CHUNK_COMPLETE;
-        }
-        else
-        {
-          LOG(LINFO, ("Thread for url", m_servers[s].m_url,
-                      "failed to download chunk number", m_servers[s].m_chunkIndex));
-          // remove failed server and mark chunk as free
-          m_servers.erase(m_servers.begin() + s);
-          res.first->m_status = CHUNK_FREE;
-        }
-        break;
-      }
+      // mark chunk as ready
+      res.first->m_status = CHUNK_COMPLETE;
+      server.m_downloadedBytes += bytes;
+      LOG(LDEBUG, ("Chunk", range, "from", url, "in", seconds, "s,",
+                   bytes / max(seconds, 0.001) / 1024, "KB/s, connections:", limit));
     }
+    else
+    {
+      LOG(LINFO, ("Thread for url", url, "failed to download chunk", range,
+                  "connections:", limit));
+      // mark chunk as free
+      res.first->m_status = CHUNK_FREE;
+      // Too many connections to the server could be the reason, give up on it only if a single
+      // connection fails.
+      if (limit == 1)
+        server.m_failed = true;
+    }
+
+    // remove failed server after its last chunk
+    if (server.m_failed && server.m_chunks.empty())
+      m_servers.erase(m_servers.begin() + s);
+    break;
   }
   return url;
 }
 
+void ChunksDownloadStrategy::SplitIfIdle(size_t chunkIndex)
+{
+  int64_t const size = m_chunks[chunkIndex + 1].m_pos - m_chunks[chunkIndex].m_pos;
+  if (size < 2 * kMinSplitChunkSize)
+    return;
+
+  size_t idleConnections = 0;
+  for (auto const & server : m_servers)
+  {
+    if (server.IsReady())
+      idleConnections += server.m_concurrency.GetLimit() - server.m_chunks.size();
+  }
+
+  // Chunks before the given one are not free.
+  size_t freeChunks = 0;
+  for (size_t i = chunkIndex; i + 1 < m_chunks.size() && freeChunks < idleConnections; ++i)
+  {
+    if (m_chunks[i].m_status == CHUNK_FREE)
+      ++freeChunks;
+  }
+
+  if (freeChunks < idleConnections)
+  {
+    m_chunks.insert(m_chunks.begin() + chunkIndex + 1,
+                    ChunkT(m_chunks[chunkIndex].m_pos + size / 2, CHUNK_FREE));
+  }
+}
+
 ChunksDownloadStrategy::ResultT
 ChunksDownloadStrategy::NextChunk(string & outUrl, RangeT & range)
 {
-  // If no servers at all.
-  if (m_servers.empty())
-    return EDownloadFailed;
-
-  // Find first free server.
-  ServerT * server = 0;
-  for (size_t i = 0; i < m_servers.size(); ++i)
+  // Find first server with a free connection.
+  ServerT * server = nullptr;
+  for (auto & s : m_servers)
   {
-    if (m_servers[i].m_chunkIndex == SERVER_READY)
+    if (s.IsReady())
     {
-      server = &m_servers[i];
+      server = &s;
       break;
     }
   }
-  if (server == 0)
-    return ENoFreeServers;
 
   bool allChunksDownloaded = true;
 
@@ -194,7 +387,12 @@ ChunksDownloadStrategy::NextChunk(string & outUrl, RangeT & range)
     switch (m_chunks[i].m_status)
     {
     case CHUNK_FREE:
-      server->m_chunkIndex = static_cast<int>(i);
+      if (server == nullptr)
+        return (m_servers.empty() ? EDownloadFailed : ENoFreeServers);
+
+      SplitIfIdle(i);
+      server->m_chunks.emplace_back(m_chunks[i].m_pos, ClockT::now());
+      server->m_concurrency.OnChunkStarted(Now());
       outUrl = server->m_url;
 
       range.first = m_chunks[i].m_pos;
@@ -209,6 +407,20 @@ ChunksDownloadStrategy::NextChunk(string & outUrl, RangeT & range)
     }
   }
 
-  return (allChunksDownloaded ? EDownloadSucceeded : ENoFreeServers);
+  if (allChunksDownloaded)
+    return EDownloadSucceeded;
+  return (m_servers.empty() ? EDownloadFailed : ENoFreeServers);
+}
+
+vector<ChunksDownloadStrategy::ServerStats> ChunksDownloadStrategy::GetServersStats() const
+{
+  vector<ServerStats> stats;
+  stats.reserve(m_servers.size());
+  for (auto const & server : m_servers)
+  {
+    stats.push_back({server.m_url, server.m_concurrency.GetLimit(),
+                     server.m_concurrency.GetThroughput(), server.m_downloadedBytes});
+  }
+  return stats;
 }
 } // namespace downloader
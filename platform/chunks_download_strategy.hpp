@@ -1,12 +1,50 @@
 #pragma once
 
+#include <chrono>
+#include <cstddef>
 #include <cstdint>
 #include <string>
 #include <utility>
 #include <vector>
 
+class Writer;
+
 namespace downloader
 {
+/// Chooses the number of chunks downloaded from one server at the same time.
+/// The limit starts at 1 and grows while every added connection raises the measured throughput
+/// of the server. It falls back when it doesn't any more, and is halved when a chunk fails.
+/// Parallel connections also hide the round trip of every Range request, so the limit is higher
+/// on slow-to-respond links with spare bandwidth and stays low on saturated ones.
+class ConcurrencyController
+{
+public:
+  explicit ConcurrencyController(size_t maxLimit);
+
+  size_t GetLimit() const { return m_limit; }
+  /// @return Throughput of the last measurement period in bytes per second, 0 if unknown.
+  double GetThroughput() const { return m_throughput; }
+
+  /// Should be called for every started chunk. Times are in seconds from any fixed moment.
+  void OnChunkStarted(double now);
+  /// Should be called for every completed chunk.
+  void OnChunkFinished(bool success, int64_t bytes, double now);
+
+private:
+  void StartPeriod(double now);
+
+  size_t m_maxLimit;
+  size_t m_limit = 1;
+  /// Throughput of the previous period to compare the current one with.
+  double m_throughput = 0;
+  double m_periodStart = -1;
+  int64_t m_periodBytes = 0;
+  size_t m_periodChunks = 0;
+  /// +1 if the limit was increased after the previous period, -1 if decreased, 0 otherwise.
+  int m_lastChange = 0;
+  size_t m_stablePeriods = 0;
+};
+
 /// Single-threaded code
 class ChunksDownloadStrategy
 {
@@ -39,24 +77,53 @@ private:
 
   using RangeT = std::pair<int64_t, int64_t>;
 
-  static const int SERVER_READY = -1;
+  using ClockT = std::chrono::steady_clock;
+
   struct ServerT
   {
     std::string m_url;
-    int m_chunkIndex;
+    /// Positions and start times of the chunks which are being downloaded from this server.
+    std::vector<std::pair<int64_t, ClockT::time_point>> m_chunks;
+    ConcurrencyController m_concurrency;
+    /// Failed server gets no new chunks and is removed when its last chunk is finished.
+    bool m_failed = false;
+    int64_t m_downloadedBytes = 0;
+
+    ServerT(std::string const & url, size_t maxChunks) : m_url(url), m_concurrency(maxChunks) {}
 
-    ServerT(std::string const & url, int ind) : m_url(url), m_chunkIndex(ind) {}
+    bool IsReady() const { return !m_failed && m_chunks.size() < m_concurrency.GetLimit(); }
   };
 
   std::vector<ChunkT> m_chunks;
 
   std::vector<ServerT> m_servers;
 
+  ClockT::time_point const m_startTime;
+
   /// @return Chunk pointer and it's index for given file offsets range.
   std::pair<ChunkT *, int> GetChunk(RangeT const & range);
 
+  /// Makes |pos| a chunk boundary, the new chunk inherits the status of the split one.
+  /// @return Index of the chunk which starts at |pos|.
+  size_t SplitAt(int64_t pos);
+  /// Marks the journaled range as complete, see AppendToJournal().
+  void MarkComplete(RangeT const & range);
+  void MergeCompleteChunks();
+
+  /// Splits the free chunk in two if there are idle connections which would get no chunk,
+  /// so the end of the file isn't waited for on a single connection.
+  void SplitIfIdle(size_t chunkIndex);
+
+  double Now() const;
+
 public:
-  ChunksDownloadStrategy(std::vector<std::string> const & urls);
+  /// Chunks smaller than this are not split, see SplitIfIdle().
+  static int64_t constexpr kMinSplitChunkSize = 64 * 1024;
+
+  /// @param maxChunksPerServer Up to this many chunks are downloaded in parallel from every
+  ///                           server, see ConcurrencyController.
+  explicit ChunksDownloadStrategy(std::vector<std::string> const & urls,
+                                  size_t maxChunksPerServer = 1);
 
   /// Init chunks vector for fileSize.
   void InitChunks(int64_t fileSize, int64_t chunkSize, ChunkStatusT status = CHUNK_FREE);
@@ -64,7 +131,12 @@ public:
   /// Used in unit tests only!
   void AddChunk(RangeT const & range, ChunkStatusT status);
 
+  /// Saves the chunks, ranges can be added to the saved file with AppendToJournal() later.
   void SaveChunks(int64_t fileSize, std::string const & fName);
+  /// Appends the range of the file which has been written to the file saved with SaveChunks(),
+  /// so the range is not downloaded again after a restart, even if its chunk is not finished.
+  /// The range should be flushed to the disk before.
+  static void AppendToJournal(Writer & w, RangeT const & range);
   /// @return Already downloaded size.
   int64_t LoadOrInitChunks(std::string const & fName, int64_t fileSize, int64_t chunkSize);
 
@@ -74,6 +146,27 @@ public:
 
   size_t ActiveServersCount() const { return m_servers.size(); }
 
+  template <typename Fn>
+  void ForEachCompleteRange(Fn && fn) const
+  {
+    for (size_t i = 0; i + 1 < m_chunks.size(); ++i)
+    {
+      if (m_chunks[i].m_status == CHUNK_COMPLETE)
+        fn(RangeT(m_chunks[i].m_pos, m_chunks[i + 1].m_pos - 1));
+    }
+  }
+
+  struct ServerStats
+  {
+    std::string m_url;
+    /// Number of chunks currently allowed to be downloaded in parallel.
+    size_t m_concurrency;
+    /// Bytes per second, 0 if not measured yet.
+    double m_throughput;
+    int64_t m_downloadedBytes;
+  };
+  std::vector<ServerStats> GetServersStats() const;
+
   enum ResultT
   {
     ENextChunk,
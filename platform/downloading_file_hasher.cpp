@@ -0,0 +1,157 @@
+#include "platform/downloading_file_hasher.hpp"
+
+#include "coding/internal/file_data.hpp"
+#include "coding/reader.hpp"
+
+#include "base/logging.hpp"
+
+#include <algorithm>
+#include <vector>
+
+namespace downloader
+{
+DownloadingFileHasher::DownloadingFileHasher(std::string const & filePath, int64_t fileSize)
+  : m_filePath(filePath), m_fileSize(fileSize)
+{
+  m_thread = threads::SimpleThread(&DownloadingFileHasher::ReadBackThread, this);
+}
+
+DownloadingFileHasher::~DownloadingFileHasher()
+{
+  Stop();
+}
+
+void DownloadingFileHasher::OnWritten(int64_t offset, void const * data, size_t size)
+{
+  int64_t const end = offset + static_cast<int64_t>(size);
+  std::unique_lock<std::mutex> lock(m_mutex);
+  if (m_failed || m_stopped || end <= m_hashedSize)
+    return;
+
+  // Ahead of the hashed part or someone is hashing already, it's read back later.
+  if (offset > m_hashedSize || m_busy)
+  {
+    AddPending(offset, end);
+    m_cv.notify_all();
+    return;
+  }
+
+  auto const skip = static_cast<size_t>(m_hashedSize - offset);
+  m_busy = true;
+  lock.unlock();
+  m_sha1.Update(static_cast<char const *>(data) + skip, size - skip);
+  lock.lock();
+  m_hashedSize = end;
+  m_busy = false;
+  // Some pending ranges may continue the hashed part now.
+  m_cv.notify_all();
+}
+
+void DownloadingFileHasher::OnWritten(int64_t offset, int64_t size)
+{
+  std::lock_guard<std::mutex> lock(m_mutex);
+  AddPending(offset, offset + size);
+  m_cv.notify_all();
+}
+
+void DownloadingFileHasher::AddPending(int64_t beg, int64_t end)
+{
+  // Merge with the overlapping and adjacent ranges.
+  auto it = m_pending.upper_bound(beg);
+  if (it != m_pending.begin() && std::prev(it)->second >= beg)
+    --it;
+  while (it != m_pending.end() && it->first <= end)
+  {
+    beg = std::min(beg, it->first);
+    end = std::max(end, it->second);
+    it = m_pending.erase(it);
+  }
+  m_pending.emplace(beg, end);
+}
+
+bool DownloadingFileHasher::HasReadBackWork()
+{
+  while (!m_pending.empty() && m_pending.begin()->second <= m_hashedSize)
+    m_pending.erase(m_pending.begin());
+  return !m_failed && !m_pending.empty() && m_pending.begin()->first <= m_hashedSize;
+}
+
+void DownloadingFileHasher::ReadBackThread()
+{
+  std::unique_lock<std::mutex> lock(m_mutex);
+  while (true)
+  {
+    m_cv.wait(lock, [this] { return m_stopped || (!m_busy && HasReadBackWork()); });
+    if (m_stopped)
+      break;
+
+    int64_t const beg = m_hashedSize;
+    int64_t const end = std::min(m_pending.begin()->second,
+                                 beg + static_cast<int64_t>(kReadBackBlockSize));
+    m_busy = true;
+    lock.unlock();
+    bool const isOk = ReadBack(beg, end);
+    lock.lock();
+    m_busy = false;
+    if (isOk)
+      m_hashedSize = end;
+    else
+      m_failed = true;
+    m_cv.notify_all();
+  }
+  m_reader.reset();
+}
+
+bool DownloadingFileHasher::ReadBack(int64_t beg, int64_t end)
+{
+  try
+  {
+    if (!m_reader)
+      m_reader = std::make_unique<base::FileData>(m_filePath, base::FileData::OP_READ);
+
+    std::vector<char> buffer(static_cast<size_t>(end - beg));
+    m_reader->Read(beg, buffer.data(), buffer.size());
+    m_sha1.Update(buffer.data(), buffer.size());
+    return true;
+  }
+  catch (Reader::Exception const & e)
+  {
+    LOG(LWARNING, ("Can't read", m_filePath, "for hashing", e.Msg()));
+    return false;
+  }
+}
+
+void DownloadingFileHasher::WaitForReadBack()
+{
+  std::unique_lock<std::mutex> lock(m_mutex);
+  m_cv.wait(lock, [this] { return m_stopped || (!m_busy && !HasReadBackWork()); });
+}
+
+void DownloadingFileHasher::Stop()
+{
+  {
+    std::unique_lock<std::mutex> lock(m_mutex);
+    if (m_stopped)
+      return;
+    m_stopped = true;
+    m_cv.notify_all();
+    // Waits for a single buffer or block at most.
+    m_cv.wait(lock, [this] { return !m_busy; });
+  }
+  m_thread.join();
+}
+
+std::string DownloadingFileHasher::Finish()
+{
+  Stop();
+
+  // Nobody hashes anymore, no need to lock.
+  if (m_failed || m_hashedSize != m_fileSize)
+  {
+    LOG(LINFO, ("File", m_filePath, "is hashed till", m_hashedSize, "of", m_fileSize));
+    return {};
+  }
+
+  return coding::SHA1::ToBase64(m_sha1.Final());
+}
+}  // namespace downloader
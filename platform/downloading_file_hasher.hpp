@@ -0,0 +1,79 @@
+#pragma once
+
+#include "coding/sha1.hpp"
+
+#include "base/thread.hpp"
+
+#include <condition_variable>
+#include <cstddef>
+#include <cstdint>
+#include <map>
+#include <memory>
+#include <mutex>
+#include <string>
+
+namespace base
+{
+class FileData;
+}  // namespace base
+
+namespace downloader
+{
+/// Calculates SHA-1 of a file while it's being downloaded in chunks, so the file is not read
+/// again when it's finished.
+/// The data written right after the hashed part of the file is hashed from the written buffer.
+/// The data written ahead of it is read back from the file by the hasher's own thread, when
+/// the gap before it is filled. It's recently written and is usually read from the disk cache.
+/// Thread-safe, the writing threads never wait for the file to be read back.
+class DownloadingFileHasher
+{
+public:
+  /// Read back block size, also the longest time Finish() may wait for the hasher's thread.
+  static size_t constexpr kReadBackBlockSize = 256 * 1024;
+
+  DownloadingFileHasher(std::string const & filePath, int64_t fileSize);
+  ~DownloadingFileHasher();
+
+  /// Should be called when the data is written to the file and flushed.
+  void OnWritten(int64_t offset, void const * data, size_t size);
+  /// Should be called for the ranges which had been written before hashing started,
+  /// e.g. when downloading is resumed.
+  void OnWritten(int64_t offset, int64_t size);
+
+  /// Blocks until all the written data which can be hashed is hashed, e.g. for tests.
+  void WaitForReadBack();
+
+  /// Stops hashing, doesn't read anything itself.
+  /// @return Base64 of SHA-1 of the file or an empty string if not all of the file has been
+  ///         hashed yet or it couldn't be read.
+  std::string Finish();
+
+private:
+  void AddPending(int64_t beg, int64_t end);
+  /// @return true if the first pending range continues the hashed part of the file.
+  bool HasReadBackWork();
+  void ReadBackThread();
+  bool ReadBack(int64_t beg, int64_t end);
+  void Stop();
+
+  std::string const m_filePath;
+  int64_t const m_fileSize;
+
+  std::mutex m_mutex;
+  std::condition_variable m_cv;
+  /// The file is hashed from the beginning till this offset.
+  int64_t m_hashedSize = 0;
+  /// Written but not hashed ranges after m_hashedSize: begin -> end (exclusive).
+  std::map<int64_t, int64_t> m_pending;
+  /// Set while m_sha1 is updated without the lock, by a writing thread or by the hasher's one.
+  bool m_busy = false;
+  bool m_failed = false;
+  bool m_stopped = false;
+
+  /// Used by the owner of m_busy only.
+  coding::SHA1::Stream m_sha1;
+  std::unique_ptr<base::FileData> m_reader;
+
+  threads::SimpleThread m_thread;
+};
+}  // namespace downloader
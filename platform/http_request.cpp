@@ -1,6 +1,7 @@
 #include "platform/http_request.hpp"
 
 #include "platform/chunks_download_strategy.hpp"
+#include "platform/downloading_file_hasher.hpp"
 #include "platform/http_thread_callback.hpp"
 #include "platform/platform.hpp"
 
@@ -16,6 +17,7 @@
 
 #include <list>
 #include <memory>
+#include <mutex>
 
 #include "defines.hpp"
 
@@ -128,15 +130,26 @@ public:
 ////////////////////////////////////////////////////////////////////////////////////////////////
 class FileHttpRequest : public HttpRequest, public IHttpThreadCallback
 {
+  // Upper bound for parallel Range requests to one server, the actual number is adapted to the
+  // measured throughput by ChunksDownloadStrategy.
+  static size_t constexpr kMaxChunksPerServer = 6;
+
   ChunksDownloadStrategy m_strategy;
   typedef pair<HttpThread *, int64_t> ThreadHandleT;
   typedef list<ThreadHandleT> ThreadsContainerT;
   ThreadsContainerT m_threads;
 
   string m_filePath;
+  // Guards m_writer and m_journal, which are used from the download threads,
+  // see CanWriteFromAnyThread().
+  mutex m_writerMutex;
   unique_ptr<FileWriter> m_writer;
+  // Resume file, every written range is appended to it, see ChunksDownloadStrategy::AppendToJournal().
+  unique_ptr<FileWriter> m_journal;
+  // Thread-safe, see DownloadingFileHasher.
+  unique_ptr<DownloadingFileHasher> m_hasher;
+  string m_sha1Base64;
 
-  size_t m_goodChunksCount;
   bool m_doCleanProgressFiles;
 
   ChunksDownloadStrategy::ResultT StartThreads()
@@ -180,32 +193,67 @@ class FileHttpRequest : public HttpRequest, public IHttpThreadCallback
 
   virtual bool OnWrite(int64_t offset, void const * buffer, size_t size)
   {
-#ifdef DEBUG
-    static threads::ThreadID const id = threads::GetCurrentThreadID();
-    ASSERT_EQUAL(id, threads::GetCurrentThreadID(), ("OnWrite called from different threads"));
-#endif
+    {
+      lock_guard<mutex> lock(m_writerMutex);
+      // The download has already failed and the file is closed.
+      if (!m_writer)
+        return false;
+
+      try
+      {
+        m_writer->Seek(offset);
+        m_writer->Write(buffer, size);
+        // The range is journaled only after it's in the file, so it's not lost if the process is
+        // killed. Also the hasher may read it back.
+        m_writer->Flush();
+        if (m_journal)
+        {
+          ChunksDownloadStrategy::AppendToJournal(*m_journal, {offset, offset + size - 1});
+          m_journal->Flush();
+        }
+      }
+      catch (Writer::Exception const & e)
+      {
+        LOG(LWARNING, ("Can't write buffer for size", size, e.Msg()));
+        return false;
+      }
+    }
+
+    // The hasher has its own lock, the other download threads keep writing meanwhile.
+    m_hasher->OnWritten(offset, buffer, size);
+    return true;
+  }
+
+  virtual bool CanWriteFromAnyThread() const { return true; }
+
+  void OpenJournal()
+  {
+    string const resumePath = m_filePath + RESUME_FILE_EXTENSION;
+    // Rewrite the resume file, so the journal contains only the ranges of this session.
+    m_strategy.SaveChunks(m_progress.m_bytesTotal, resumePath);
+    if (!Platform::IsFileExistsByFullPath(resumePath))
+      return;
 
     try
     {
-      m_writer->Seek(offset);
-      m_writer->Write(buffer, size);
-      return true;
+      m_journal = make_unique<FileWriter>(resumePath, FileWriter::OP_APPEND);
     }
     catch (Writer::Exception const & e)
     {
-      LOG(LWARNING, ("Can't write buffer for size", size, e.Msg()));
-      return false;
+      LOG(LWARNING, ("Can't open resume file", e.Msg()));
     }
   }
 
-  void SaveResumeChunks()
+  void FlushResumeChunks()
   {
+    lock_guard<mutex> lock(m_writerMutex);
     try
     {
-      // Flush writer before saving downloaded chunks.
-      m_writer->Flush();
-
-      m_strategy.SaveChunks(m_progress.m_bytesTotal, m_filePath + RESUME_FILE_EXTENSION);
+      // Journaled ranges are flushed already, this is for the writes which failed in the middle.
+      if (m_writer)
+        m_writer->Flush();
+      if (m_journal)
+        m_journal->Flush();
     }
     catch (Writer::Exception const & e)
     {
@@ -246,23 +294,25 @@ class FileHttpRequest : public HttpRequest, public IHttpThreadCallback
     else if (result == ChunksDownloadStrategy::EDownloadSucceeded)
       m_status = DownloadStatus::Completed;
 
-    if (isChunkOk)
-    {
-      // save information for download resume
-      ++m_goodChunksCount;
-      if (m_status != DownloadStatus::Completed && m_goodChunksCount % 10 == 0)
-        SaveResumeChunks();
-    }
-
     if (m_status == DownloadStatus::InProgress)
       return;
 
+    for (auto const & stats : m_strategy.GetServersStats())
+    {
+      LOG(LINFO, (m_filePath, "downloaded", stats.m_downloadedBytes, "bytes from", stats.m_url,
+                  "at", stats.m_throughput / 1024, "KB/s with", stats.m_concurrency, "connections"));
+    }
+
     // 1. Save downloaded chunks if some error occured.
     if (m_status == DownloadStatus::Failed || m_status == DownloadStatus::FileNotFound)
-      SaveResumeChunks();
+      FlushResumeChunks();
 
     // 2. Free file handle.
     CloseWriter();
+    // Doesn't read the file on this thread. If some of it hasn't been read back yet, the hash is
+    // empty and Storage checks the file on its file thread.
+    if (m_status == DownloadStatus::Completed)
+      m_sha1Base64 = m_hasher->Finish();
 
     // 3. Clean up resume file with chunks range on success
     if (m_status == DownloadStatus::Completed)
@@ -280,6 +330,16 @@ class FileHttpRequest : public HttpRequest, public IHttpThreadCallback
 
   void CloseWriter()
   {
+    lock_guard<mutex> lock(m_writerMutex);
+    try
+    {
+      m_journal.reset();
+    }
+    catch (Writer::Exception const & e)
+    {
+      LOG(LWARNING, ("Can't close resume file", e.Msg()));
+    }
+
     try
     {
       m_writer.reset();
@@ -297,8 +357,8 @@ public:
                   Callback && onFinish, Callback && onProgress,
                   int64_t chunkSize, bool doCleanProgressFiles)
     : HttpRequest(std::move(onFinish), std::move(onProgress)),
-      m_strategy(urls), m_filePath(filePath),
-      m_goodChunksCount(0), m_doCleanProgressFiles(doCleanProgressFiles)
+      m_strategy(urls, kMaxChunksPerServer), m_filePath(filePath),
+      m_doCleanProgressFiles(doCleanProgressFiles)
   {
     ASSERT ( !urls.empty(), () );
 
@@ -325,6 +385,14 @@ public:
     // Assign here, because previous functions can throw an exception.
     m_writer.swap(writer);
     Platform::DisableBackupForFile(filePath + DOWNLOADING_FILE_EXTENSION);
+    OpenJournal();
+
+    m_hasher = make_unique<DownloadingFileHasher>(filePath + DOWNLOADING_FILE_EXTENSION, fileSize);
+    m_strategy.ForEachCompleteRange([this](pair<int64_t, int64_t> const & range)
+    {
+      m_hasher->OnWritten(range.first, range.second - range.first + 1);
+    });
+
     StartThreads();
   }
 
@@ -342,6 +410,10 @@ public:
     if (m_status == DownloadStatus::InProgress)
     {
       // means that client canceled download process, so delete all temporary files
+      // or keep the finished chunks to resume from them
+      if (!m_doCleanProgressFiles)
+        FlushResumeChunks();
+
       CloseWriter();
 
       if (m_doCleanProgressFiles)
@@ -356,6 +428,11 @@ public:
   {
     return m_filePath;
   }
+
+  virtual string GetSha1Base64() const
+  {
+    return m_sha1Base64;
+  }
 };
 
 //////////////////////////////////////////////////////////////////////////////////////////////////////////
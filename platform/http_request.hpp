@@ -41,6 +41,9 @@ public:
   Progress const & GetProgress() const { return m_progress; }
   /// Either file path (for chunks) or downloaded data
   virtual std::string const & GetData() const = 0;
+  /// @return Base64 of SHA-1 of the downloaded file, calculated while downloading,
+  ///         or an empty string if it's not known.
+  virtual std::string GetSha1Base64() const { return {}; }
 
   /// Response saved to memory buffer and retrieved with Data()
   static HttpRequest * Get(std::string const & url,
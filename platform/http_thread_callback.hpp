@@ -10,6 +10,10 @@ public:
   virtual bool OnWrite(int64_t offset, void const * buffer, size_t size) = 0;
   virtual void OnFinish(long httpOrErrorCode, int64_t begRange, int64_t endRange) = 0;
 
+  /// @returns true if OnWrite() may be called from the download threads concurrently,
+  /// otherwise all the calls must be made from the thread which calls OnFinish().
+  virtual bool CanWriteFromAnyThread() const { return false; }
+
 protected:
   virtual ~IHttpThreadCallback() = default;
 };
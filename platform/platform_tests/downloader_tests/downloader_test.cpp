@@ -2,11 +2,13 @@
 
 #include "platform/http_request.hpp"
 #include "platform/chunks_download_strategy.hpp"
+#include "platform/downloading_file_hasher.hpp"
 #include "platform/platform.hpp"
 
 #include "coding/file_reader.hpp"
 #include "coding/file_writer.hpp"
 #include "coding/internal/file_data.hpp"
+#include "coding/sha1.hpp"
 
 #include "base/logging.hpp"
 #include "base/std_serialization.hpp"
@@ -328,6 +330,131 @@ UNIT_TEST(ChunksDownloadStrategyFAIL)
   TEST_EQUAL(strategy.NextChunk(s2, r2), ChunksDownloadStrategy::EDownloadFailed, ());
 }
 
+UNIT_TEST(ChunksDownloadStrategySplitsTail)
+{
+  typedef pair<int64_t, int64_t> RangeT;
+
+  int64_t constexpr kChunkSize = 4 * ChunksDownloadStrategy::kMinSplitChunkSize;
+  ChunksDownloadStrategy strategy({"UrlOfServer1", "UrlOfServer2"});
+  strategy.InitChunks(kChunkSize, kChunkSize);
+
+  // The only chunk is split for the second server.
+  string s1, s2, sEmpty;
+  RangeT r1, r2, rEmpty;
+  TEST_EQUAL(strategy.NextChunk(s1, r1), ChunksDownloadStrategy::ENextChunk, ());
+  TEST_EQUAL(r1, RangeT(0, kChunkSize / 2 - 1), ());
+  TEST_EQUAL(strategy.NextChunk(s2, r2), ChunksDownloadStrategy::ENextChunk, ());
+  TEST_EQUAL(r2, RangeT(kChunkSize / 2, kChunkSize - 1), ());
+  TEST_NOT_EQUAL(s1, s2, ());
+  TEST_EQUAL(strategy.NextChunk(sEmpty, rEmpty), ChunksDownloadStrategy::ENoFreeServers, ());
+
+  strategy.ChunkFinished(true, r2);
+  strategy.ChunkFinished(true, r1);
+  TEST_EQUAL(strategy.NextChunk(sEmpty, rEmpty), ChunksDownloadStrategy::EDownloadSucceeded, ());
+}
+
+UNIT_TEST(ChunksDownloadStrategyJournal)
+{
+  typedef pair<int64_t, int64_t> RangeT;
+
+  string const kResumeFile = "some_test_filename_12345" RESUME_FILE_EXTENSION;
+  int64_t constexpr kFileSize = 1000;
+  int64_t constexpr kChunkSize = 250;
+  {
+    ChunksDownloadStrategy strategy({"UrlOfServer1"});
+    strategy.InitChunks(kFileSize, kChunkSize);
+    strategy.SaveChunks(kFileSize, kResumeFile);
+
+    FileWriter journal(kResumeFile, FileWriter::OP_APPEND);
+    ChunksDownloadStrategy::AppendToJournal(journal, {0, 249});
+    ChunksDownloadStrategy::AppendToJournal(journal, {250, 299});
+    ChunksDownloadStrategy::AppendToJournal(journal, {500, 599});
+    // Partially written range.
+    journal.Write("\x01\x02", 2);
+  }
+
+  ChunksDownloadStrategy strategy({"UrlOfServer1"});
+  TEST_EQUAL(strategy.LoadOrInitChunks(kResumeFile, kFileSize, kChunkSize), 400, ());
+  TEST(base::DeleteFileX(kResumeFile), ());
+
+  // Only the rest of the partially written chunks is downloaded.
+  vector<RangeT> const expected = {{300, 499}, {600, 749}, {750, 999}};
+  for (auto const & range : expected)
+  {
+    string url;
+    RangeT r;
+    TEST_EQUAL(strategy.NextChunk(url, r), ChunksDownloadStrategy::ENextChunk, ());
+    TEST_EQUAL(r, range, ());
+    strategy.ChunkFinished(true, r);
+  }
+
+  string url;
+  RangeT r;
+  TEST_EQUAL(strategy.NextChunk(url, r), ChunksDownloadStrategy::EDownloadSucceeded, ());
+}
+
+UNIT_TEST(DownloadingFileHasher)
+{
+  string const kFile = "some_test_filename_12345" DOWNLOADING_FILE_EXTENSION;
+  string data(3 * 1000 + 1, 0);
+  for (size_t i = 0; i < data.size(); ++i)
+    data[i] = static_cast<char>(i * 7);
+  {
+    FileWriter w(kFile);
+    w.Write(data.data(), data.size());
+  }
+
+  // The first range is written before, the third one is written before the second one.
+  DownloadingFileHasher hasher(kFile, data.size());
+  hasher.OnWritten(0, 1000);
+  hasher.OnWritten(2000, data.data() + 2000, 1001);
+  hasher.OnWritten(1000, data.data() + 1000, 1000);
+  hasher.WaitForReadBack();
+  TEST_EQUAL(hasher.Finish(), coding::SHA1::CalculateBase64ForString(data), ());
+
+  // The third range hasn't been read back yet.
+  DownloadingFileHasher pending(kFile, data.size());
+  pending.OnWritten(2000, data.data() + 2000, 1001);
+  TEST_EQUAL(pending.Finish(), "", ());
+
+  // Not everything is written.
+  DownloadingFileHasher incomplete(kFile, data.size());
+  incomplete.OnWritten(0, data.data(), 1000);
+  TEST_EQUAL(incomplete.Finish(), "", ());
+
+  TEST(base::DeleteFileX(kFile), ());
+}
+
+UNIT_TEST(ConcurrencyController)
+{
+  int64_t constexpr kChunk = 1000;
+  ConcurrencyController controller(3);
+  TEST_EQUAL(controller.GetLimit(), 1, ());
+
+  // The first measurement always adds a connection.
+  controller.OnChunkStarted(0);
+  controller.OnChunkFinished(true, kChunk, 1);
+  TEST_EQUAL(controller.GetLimit(), 2, ());
+  TEST_ALMOST_EQUAL_ULPS(controller.GetThroughput(), 1000.0, ());
+
+  // Throughput grew, one more connection.
+  controller.OnChunkFinished(true, kChunk, 1.5);
+  controller.OnChunkFinished(true, kChunk, 2);
+  TEST_EQUAL(controller.GetLimit(), 3, ());
+
+  // Throughput didn't grow with the last one, back off.
+  controller.OnChunkFinished(true, kChunk, 2.5);
+  controller.OnChunkFinished(true, kChunk, 3);
+  controller.OnChunkFinished(true, kChunk, 4);
+  TEST_EQUAL(controller.GetLimit(), 2, ());
+
+  // Failure halves the limit.
+  controller.OnChunkFinished(false, kChunk, 5);
+  TEST_EQUAL(controller.GetLimit(), 1, ());
+  controller.OnChunkFinished(false, kChunk, 6);
+  TEST_EQUAL(controller.GetLimit(), 1, ());
+}
+
 namespace
 {
 string ReadFileAsString(string const & file)